@@ -0,0 +1,242 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ArrayListModel is a ListModel that keeps its strings in an ArrayList.
+ */
+public class ArrayListModel implements ListModel {
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The strings.
+     */
+    private ArrayList<String> strings;
+
+    /**
+     * The listeners to notify when the strings change.
+     */
+    private List<ListModelListener> listeners;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor creates an empty list.
+     */
+    public ArrayListModel() {
+        strings = new ArrayList<String>();
+        listeners = new ArrayList<ListModelListener>();
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param strings the strings to copy into this model.  This is allowed
+     * to be null.
+     */
+    public ArrayListModel(final Collection<String> strings) {
+        this();
+        if (strings != null) {
+            addAll(strings);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ListModel --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of strings.
+     *
+     * @return the number of strings
+     */
+    public int getSize() {
+        return strings.size();
+    }
+
+    /**
+     * Get a string.
+     *
+     * @param index the index of the string
+     * @return the string, never null
+     */
+    public String getElementAt(final int index) {
+        return strings.get(index);
+    }
+
+    /**
+     * Register a listener to be notified when the strings change.
+     *
+     * @param listener the listener
+     */
+    public void addListModelListener(final ListModelListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListModelListener(final ListModelListener listener) {
+        listeners.remove(listener);
+    }
+
+    // ------------------------------------------------------------------------
+    // ArrayListModel ---------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Add a string to the end of the list.
+     *
+     * @param string the string.  null is stored as an empty string.
+     */
+    public void add(final String string) {
+        strings.add(string == null ? "" : string);
+        fireItemsAdded(strings.size() - 1, strings.size() - 1);
+    }
+
+    /**
+     * Insert a string.
+     *
+     * @param index the index the new string will have
+     * @param string the string.  null is stored as an empty string.
+     */
+    public void add(final int index, final String string) {
+        strings.add(index, string == null ? "" : string);
+        fireItemsAdded(index, index);
+    }
+
+    /**
+     * Add strings to the end of the list.  Listeners are notified once.
+     *
+     * @param newStrings the strings
+     */
+    public void addAll(final Collection<String> newStrings) {
+        if (newStrings.size() == 0) {
+            return;
+        }
+        int first = strings.size();
+        strings.ensureCapacity(first + newStrings.size());
+        for (String string: newStrings) {
+            strings.add(string == null ? "" : string);
+        }
+        fireItemsAdded(first, strings.size() - 1);
+    }
+
+    /**
+     * Replace a string.
+     *
+     * @param index the index of the string
+     * @param string the new string.  null is stored as an empty string.
+     */
+    public void set(final int index, final String string) {
+        strings.set(index, string == null ? "" : string);
+        fireItemsChanged(index, index);
+    }
+
+    /**
+     * Remove a string.
+     *
+     * @param index the index of the string
+     * @return the string that was removed
+     */
+    public String remove(final int index) {
+        String string = strings.remove(index);
+        fireItemsRemoved(index, index);
+        return string;
+    }
+
+    /**
+     * Remove all of the strings.
+     */
+    public void clear() {
+        if (strings.size() == 0) {
+            return;
+        }
+        int last = strings.size() - 1;
+        strings.clear();
+        fireItemsRemoved(0, last);
+    }
+
+    /**
+     * Get a copy of the strings.
+     *
+     * @return the strings
+     */
+    public List<String> getList() {
+        return new ArrayList<String>(strings);
+    }
+
+    /**
+     * Notify the listeners that strings were added.
+     *
+     * @param first the index of the first new string
+     * @param last the index of the last new string
+     */
+    protected void fireItemsAdded(final int first, final int last) {
+        for (ListModelListener listener: listeners) {
+            listener.itemsAdded(this, first, last);
+        }
+    }
+
+    /**
+     * Notify the listeners that strings were removed.
+     *
+     * @param first the index the first string had
+     * @param last the index the last string had
+     */
+    protected void fireItemsRemoved(final int first, final int last) {
+        for (ListModelListener listener: listeners) {
+            listener.itemsRemoved(this, first, last);
+        }
+    }
+
+    /**
+     * Notify the listeners that strings were replaced.
+     *
+     * @param first the index of the first changed string
+     * @param last the index of the last changed string
+     */
+    protected void fireItemsChanged(final int first, final int last) {
+        for (ListModelListener listener: listeners) {
+            listener.itemsChanged(this, first, last);
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ColumnarTableModel is the default TableModel for TTableWidget.  Values are
+ * stored as one array per column, so appending a row is amortized O(1) and
+ * an empty cell costs nothing more than an array slot.
+ */
+public class ColumnarTableModel implements TableModel {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Initial row capacity of each column.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The column arrays.  Each array has length capacity; slots at or past
+     * rowCount are null.
+     */
+    private ArrayList<String []> columns = new ArrayList<String []>();
+
+    /**
+     * The number of rows.
+     */
+    private int rowCount = 0;
+
+    /**
+     * The number of rows each column array can hold.
+     */
+    private int capacity = INITIAL_CAPACITY;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor creates an empty model.
+     */
+    public ColumnarTableModel() {
+        this(0, 0);
+    }
+
+    /**
+     * Public constructor creates a model of empty cells.
+     *
+     * @param columnCount number of columns
+     * @param rowCount number of rows
+     */
+    public ColumnarTableModel(final int columnCount, final int rowCount) {
+        if ((columnCount < 0) || (rowCount < 0)) {
+            throw new IllegalArgumentException("Column and row counts " +
+                "cannot be negative");
+        }
+        while (capacity < rowCount) {
+            capacity *= 2;
+        }
+        this.rowCount = rowCount;
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(new String[capacity]);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // TableModel -------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the number of columns.
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * Get the value of a cell.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @return the text of the cell, never null
+     */
+    public String getValueAt(final int row, final int column) {
+        checkRow(row);
+        String value = columns.get(column)[row];
+        return (value == null ? "" : value);
+    }
+
+    /**
+     * Set the value of a cell.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @param value the new text of the cell
+     */
+    public void setValueAt(final int row, final int column,
+        final String value) {
+
+        checkRow(row);
+        columns.get(column)[row] = ((value == null) || (value.length() == 0)
+            ? null : value);
+    }
+
+    /**
+     * See if a cell can be edited.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @return always true
+     */
+    public boolean isCellEditable(final int row, final int column) {
+        return true;
+    }
+
+    /**
+     * See if rows and columns can be inserted and deleted.
+     *
+     * @return always true
+     */
+    public boolean isStructureEditable() {
+        return true;
+    }
+
+    // ------------------------------------------------------------------------
+    // ColumnarTableModel -----------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Throw IndexOutOfBoundsException if a row number is out of range.
+     *
+     * @param row the row number
+     */
+    private void checkRow(final int row) {
+        if ((row < 0) || (row > rowCount - 1)) {
+            throw new IndexOutOfBoundsException("Row count is " +
+                rowCount + ", requested index " + row);
+        }
+    }
+
+    /**
+     * Make sure every column can hold at least n rows.
+     *
+     * @param n the number of rows needed
+     */
+    private void ensureCapacity(final int n) {
+        if (n <= capacity) {
+            return;
+        }
+        int newCapacity = capacity;
+        while (newCapacity < n) {
+            newCapacity *= 2;
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            String [] newColumn = new String[newCapacity];
+            System.arraycopy(columns.get(i), 0, newColumn, 0, rowCount);
+            columns.set(i, newColumn);
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * Append a row to the end of the table.  If the row has more values
+     * than there are columns, columns are added to fit.
+     *
+     * @param values the values of the new row
+     */
+    public void addRow(final List<String> values) {
+        while (columns.size() < values.size()) {
+            columns.add(new String[capacity]);
+        }
+        ensureCapacity(rowCount + 1);
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i);
+            columns.get(i)[rowCount] = ((value == null)
+                || (value.length() == 0) ? null : value);
+        }
+        rowCount++;
+    }
+
+    /**
+     * Insert an empty row.
+     *
+     * @param row the new row's number.  Rows at and below it move down.
+     */
+    public void insertRow(final int row) {
+        if ((row < 0) || (row > rowCount)) {
+            throw new IndexOutOfBoundsException("Row count is " +
+                rowCount + ", requested index " + row);
+        }
+        ensureCapacity(rowCount + 1);
+        for (String [] column: columns) {
+            System.arraycopy(column, row, column, row + 1, rowCount - row);
+            column[row] = null;
+        }
+        rowCount++;
+    }
+
+    /**
+     * Delete a row.
+     *
+     * @param row the row number.  Rows below it move up.
+     */
+    public void deleteRow(final int row) {
+        checkRow(row);
+        for (String [] column: columns) {
+            System.arraycopy(column, row + 1, column, row,
+                rowCount - row - 1);
+            column[rowCount - 1] = null;
+        }
+        rowCount--;
+    }
+
+    /**
+     * Insert an empty column.
+     *
+     * @param column the new column's number.  Columns at and to the right
+     * of it move right.
+     */
+    public void insertColumn(final int column) {
+        if ((column < 0) || (column > columns.size())) {
+            throw new IndexOutOfBoundsException("Column count is " +
+                columns.size() + ", requested index " + column);
+        }
+        columns.add(column, new String[capacity]);
+    }
+
+    /**
+     * Delete a column.
+     *
+     * @param column the column number.  Columns to the right of it move
+     * left.
+     */
+    public void deleteColumn(final int column) {
+        if ((column < 0) || (column > columns.size() - 1)) {
+            throw new IndexOutOfBoundsException("Column count is " +
+                columns.size() + ", requested index " + column);
+        }
+        columns.remove(column);
+    }
+
+}
@@ -0,0 +1,497 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import jexer.bits.CsvReader;
+
+/**
+ * CsvTableModel shows a CSV file without decoding it into Strings.  The
+ * file's bytes are read into memory and closed, and only the byte offsets
+ * of each field are kept; a value is decoded when the table asks for it.
+ * The first rows are parsed before the constructor returns, and the rest
+ * are parsed by a background thread while the table is already on screen.
+ *
+ * Edited values are kept on the side.  Inserting or deleting rows or
+ * columns, or calling loadAll(), first decodes every value into the
+ * ColumnarTableModel storage.  That can take a while for a large file, so
+ * interactive callers should call loadAll() from a background thread; see
+ * TTableWidget.whenLoaded().
+ */
+public class CsvTableModel extends ColumnarTableModel {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The number of rows parsed before the constructor returns, enough to
+     * fill a large screen.
+     */
+    private static final int FIRST_ROWS = 1000;
+
+    /**
+     * The number of rows the background thread parses at a time.
+     */
+    private static final int BATCH_ROWS = 4096;
+
+    /**
+     * The minimum time between update notifications, in millis.
+     */
+    private static final long UPDATE_INTERVAL = 100;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The CSV file.
+     */
+    private File file;
+
+    /**
+     * The parser over the file contents, or null once every value has been
+     * decoded into the ColumnarTableModel storage.
+     */
+    private CsvReader reader;
+
+    /**
+     * The position in offsets of the first field of each row.  Entry
+     * csvRowCount is where the next row will go.
+     */
+    private int [] rowOffsets = new int[1024];
+
+    /**
+     * For each row, the byte offset of each field, followed by one past the
+     * end of the last field.  Every other field ends one byte (the comma)
+     * before the next one starts.
+     */
+    private int [] offsets = new int[4096];
+
+    /**
+     * The number of rows parsed so far.
+     */
+    private int csvRowCount = 0;
+
+    /**
+     * The largest number of fields in any row parsed so far.
+     */
+    private int csvColumnCount = 0;
+
+    /**
+     * Values that were edited before everything was read into memory,
+     * keyed by (row << 32) | column.
+     */
+    private HashMap<Long, String> edits = new HashMap<Long, String>();
+
+    /**
+     * The number of rows loadAll() has copied into the ColumnarTableModel
+     * storage so far.  Edits to those rows go there too.
+     */
+    private int loadedRows = 0;
+
+    /**
+     * The background thread parsing the rest of the file, or null when the
+     * whole file is parsed.
+     */
+    private volatile Thread loader = null;
+
+    /**
+     * Called from the background thread as rows are added.
+     */
+    private Runnable listener;
+
+    /**
+     * Held by loadAll() for the whole conversion, so that only one thread
+     * does it.
+     */
+    private final Object loadAllLock = new Object();
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     *
+     * @param file the CSV file
+     * @throws IOException if a java.io operation throws
+     */
+    public CsvTableModel(final File file) throws IOException {
+        this(file, null);
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param file the CSV file
+     * @param listener if not null, called from the background thread as
+     * more rows become available, and once more when the whole file has
+     * been parsed
+     * @throws IOException if a java.io operation throws
+     */
+    public CsvTableModel(final File file,
+        final Runnable listener) throws IOException {
+
+        this.file = file;
+        this.listener = listener;
+        reader = new CsvReader(file);
+        rowOffsets[0] = 0;
+
+        if (!parseRows(FIRST_ROWS)) {
+            // Small file, all done.
+            return;
+        }
+
+        loader = new Thread(new Runnable() {
+            public void run() {
+                long lastUpdate = System.currentTimeMillis();
+                boolean more = true;
+                while (more) {
+                    synchronized (CsvTableModel.this) {
+                        more = parseRows(BATCH_ROWS);
+                    }
+                    long now = System.currentTimeMillis();
+                    if (more
+                        && (now - lastUpdate >= UPDATE_INTERVAL)
+                        && (CsvTableModel.this.listener != null)
+                    ) {
+                        CsvTableModel.this.listener.run();
+                        lastUpdate = now;
+                    }
+                }
+                loader = null;
+                if (CsvTableModel.this.listener != null) {
+                    CsvTableModel.this.listener.run();
+                }
+            }
+        }, "CsvTableModel " + file.getName());
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // ------------------------------------------------------------------------
+    // TableModel -------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of rows.
+     *
+     * @return the number of rows parsed so far
+     */
+    @Override
+    public synchronized int getRowCount() {
+        if (reader == null) {
+            return super.getRowCount();
+        }
+        return csvRowCount;
+    }
+
+    /**
+     * Get the number of columns.
+     *
+     * @return the number of columns
+     */
+    @Override
+    public synchronized int getColumnCount() {
+        if (reader == null) {
+            return super.getColumnCount();
+        }
+        return csvColumnCount;
+    }
+
+    /**
+     * Get the value of a cell.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @return the text of the cell, never null
+     */
+    @Override
+    public synchronized String getValueAt(final int row, final int column) {
+        if (reader == null) {
+            return super.getValueAt(row, column);
+        }
+        checkCell(row, column);
+        if (edits.size() > 0) {
+            String value = edits.get(((long) row << 32) | column);
+            if (value != null) {
+                return value;
+            }
+        }
+        return getCsvValue(row, column);
+    }
+
+    /**
+     * Set the value of a cell.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @param value the new text of the cell
+     */
+    @Override
+    public synchronized void setValueAt(final int row, final int column,
+        final String value) {
+
+        if (reader == null) {
+            super.setValueAt(row, column, value);
+            return;
+        }
+        checkCell(row, column);
+        if (row < loadedRows) {
+            super.setValueAt(row, column, value);
+        }
+        edits.put(((long) row << 32) | column, (value == null ? "" : value));
+    }
+
+    // ------------------------------------------------------------------------
+    // ColumnarTableModel -----------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Append a row to the end of the table.
+     *
+     * @param values the values of the new row
+     */
+    @Override
+    public void addRow(final List<String> values) {
+        loadAll();
+        super.addRow(values);
+    }
+
+    /**
+     * Insert an empty row.
+     *
+     * @param row the new row's number.  Rows at and below it move down.
+     */
+    @Override
+    public void insertRow(final int row) {
+        loadAll();
+        super.insertRow(row);
+    }
+
+    /**
+     * Delete a row.
+     *
+     * @param row the row number.  Rows below it move up.
+     */
+    @Override
+    public void deleteRow(final int row) {
+        loadAll();
+        super.deleteRow(row);
+    }
+
+    /**
+     * Insert an empty column.
+     *
+     * @param column the new column's number.  Columns at and to the right
+     * of it move right.
+     */
+    @Override
+    public void insertColumn(final int column) {
+        loadAll();
+        super.insertColumn(column);
+    }
+
+    /**
+     * Delete a column.
+     *
+     * @param column the column number.  Columns to the right of it move
+     * left.
+     */
+    @Override
+    public void deleteColumn(final int column) {
+        loadAll();
+        super.deleteColumn(column);
+    }
+
+    // ------------------------------------------------------------------------
+    // CsvTableModel ----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Throw IndexOutOfBoundsException if a cell is out of range.
+     *
+     * @param row the row number
+     * @param column the column number
+     */
+    private void checkCell(final int row, final int column) {
+        if ((row < 0) || (row > csvRowCount - 1)) {
+            throw new IndexOutOfBoundsException("Row count is " +
+                csvRowCount + ", requested index " + row);
+        }
+        if ((column < 0) || (column > csvColumnCount - 1)) {
+            throw new IndexOutOfBoundsException("Column count is " +
+                csvColumnCount + ", requested index " + column);
+        }
+    }
+
+    /**
+     * Parse more rows.  The caller must hold the lock if the background
+     * thread is running.
+     *
+     * @param n the maximum number of rows to parse
+     * @return true if there may be more rows in the file
+     */
+    private boolean parseRows(final int n) {
+        for (int i = 0; i < n; i++) {
+            if (!reader.next()) {
+                return false;
+            }
+            int fieldCount = reader.getFieldCount();
+            int start = rowOffsets[csvRowCount];
+            if (start + fieldCount + 1 > offsets.length) {
+                int [] newOffsets = new int[Math.max(offsets.length * 2,
+                        start + fieldCount + 1)];
+                System.arraycopy(offsets, 0, newOffsets, 0, start);
+                offsets = newOffsets;
+            }
+            if (csvRowCount + 2 > rowOffsets.length) {
+                int [] newRowOffsets = new int[rowOffsets.length * 2];
+                System.arraycopy(rowOffsets, 0, newRowOffsets, 0,
+                    csvRowCount + 1);
+                rowOffsets = newRowOffsets;
+            }
+            for (int j = 0; j < fieldCount; j++) {
+                offsets[start + j] = reader.getFieldStart(j);
+            }
+            offsets[start + fieldCount] = reader.getFieldEnd(fieldCount - 1)
+                + 1;
+            rowOffsets[csvRowCount + 1] = start + fieldCount + 1;
+            csvRowCount++;
+            if (fieldCount > csvColumnCount) {
+                csvColumnCount = fieldCount;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode a value from the file.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @return the text of the cell
+     */
+    private String getCsvValue(final int row, final int column) {
+        int first = rowOffsets[row];
+        int fieldCount = rowOffsets[row + 1] - first - 1;
+        if (column >= fieldCount) {
+            // A short row.
+            return "";
+        }
+        return reader.decode(offsets[first + column],
+            offsets[first + column + 1] - 1);
+    }
+
+    /**
+     * Get the CSV file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * See if the background thread is still parsing the file.
+     *
+     * @return true if more rows may still be added
+     */
+    public boolean isLoading() {
+        return (loader != null);
+    }
+
+    /**
+     * Wait until the whole file has been parsed.
+     */
+    public void waitForLoad() {
+        Thread thread = loader;
+        if ((thread == null) || (thread == Thread.currentThread())) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            // SQUASH
+        }
+    }
+
+    /**
+     * See if every value has been decoded into memory, so that structural
+     * edits will not have to call loadAll().
+     *
+     * @return true if the model no longer uses the file contents
+     */
+    public synchronized boolean isInMemory() {
+        return (reader == null);
+    }
+
+    /**
+     * Decode every value into the ColumnarTableModel storage, which
+     * structural edits need.  This waits for the background parse, and
+     * takes time in proportion to the file size.  The model lock is only
+     * held one row at a time, so other threads can keep reading values in
+     * the meantime.
+     */
+    public void loadAll() {
+        waitForLoad();
+        synchronized (loadAllLock) {
+            if (isInMemory()) {
+                return;
+            }
+            // The parse is done, so csvRowCount and csvColumnCount no
+            // longer change.  Values come from getValueAt() so that edits
+            // made while this runs are kept.
+            List<String> values = new ArrayList<String>(csvColumnCount);
+            for (int row = 0; row < csvRowCount; row++) {
+                synchronized (this) {
+                    values.clear();
+                    for (int column = 0; column < csvColumnCount; column++) {
+                        values.add(getValueAt(row, column));
+                    }
+                    super.addRow(values);
+                    loadedRows++;
+                }
+            }
+            synchronized (this) {
+                reader = null;
+                rowOffsets = null;
+                offsets = null;
+                edits = null;
+            }
+        }
+    }
+
+}
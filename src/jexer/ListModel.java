@@ -0,0 +1,71 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+/**
+ * ListModel provides the strings for a TList.  The list only asks for the
+ * strings that are on screen (or that it must filter), so a model may
+ * compute or load its strings lazily.  Indexes are numbered from 0.
+ *
+ * Models should only be changed, and should only notify their listeners,
+ * on the application's event thread; use TApplication.invokeLater() from
+ * other threads.
+ */
+public interface ListModel {
+
+    /**
+     * Get the number of strings.
+     *
+     * @return the number of strings
+     */
+    public int getSize();
+
+    /**
+     * Get a string.
+     *
+     * @param index the index of the string
+     * @return the string, never null
+     */
+    public String getElementAt(final int index);
+
+    /**
+     * Register a listener to be notified when the strings change.
+     *
+     * @param listener the listener
+     */
+    public void addListModelListener(final ListModelListener listener);
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListModelListener(final ListModelListener listener);
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+/**
+ * ListModelListener is notified when the strings of a ListModel change.
+ * The ranges are inclusive.
+ */
+public interface ListModelListener {
+
+    /**
+     * Function to call when strings were inserted.
+     *
+     * @param model the model that changed
+     * @param first the index of the first new string
+     * @param last the index of the last new string
+     */
+    public void itemsAdded(final ListModel model, final int first,
+        final int last);
+
+    /**
+     * Function to call when strings were removed.
+     *
+     * @param model the model that changed
+     * @param first the index the first string had before it was removed
+     * @param last the index the last string had before it was removed
+     */
+    public void itemsRemoved(final ListModel model, final int first,
+        final int last);
+
+    /**
+     * Function to call when strings were replaced.
+     *
+     * @param model the model that changed
+     * @param first the index of the first changed string
+     * @param last the index of the last changed string
+     */
+    public void itemsChanged(final ListModel model, final int first,
+        final int last);
+
+}
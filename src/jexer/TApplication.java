@@ -29,7 +29,6 @@
 package jexer;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -37,19 +36,24 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import jexer.bits.Cell;
 import jexer.bits.CellAttributes;
 import jexer.bits.Clipboard;
 import jexer.bits.ColorTheme;
+import jexer.bits.Histogram;
+import jexer.bits.ImageStore;
+import jexer.bits.Metrics;
 import jexer.bits.StringUtils;
 import jexer.effect.Effect;
 import jexer.effect.WindowBurnInEffect;
@@ -60,9 +64,14 @@ import jexer.event.TInputEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMenuEvent;
 import jexer.event.TMouseEvent;
+import jexer.event.TPasteEvent;
 import jexer.event.TResizeEvent;
 import jexer.backend.Backend;
 import jexer.backend.ECMA48Backend;
+import jexer.backend.ECMA48Terminal;
+import jexer.backend.FrameScheduler;
+import jexer.backend.GenericBackend;
+import jexer.backend.GlyphCache;
 import jexer.backend.MultiBackend;
 import jexer.backend.Screen;
 import jexer.backend.SwingBackend;
@@ -77,6 +86,7 @@ import jexer.tackboard.Tackboard;
 import jexer.tackboard.MousePointer;
 import static jexer.TCommand.*;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TApplication is the main driver class for a full Text User Interface
@@ -111,6 +121,12 @@ public class TApplication implements Runnable {
      */
     private static final boolean debugEvents = false;
 
+    /**
+     * Timers due within this many nanos of each other are ticked together,
+     * rather than waking up again for each one.
+     */
+    private static final long TIMER_SLACK = 2000000L;
+
     /**
      * If true, do "smart placement" on new windows that are not specified to
      * be centered.
@@ -212,11 +228,22 @@ public class TApplication implements Runnable {
      */
     private List<TInputEvent> fillEventQueue;
 
+    /**
+     * Events taken from fillEventQueue in one batch, being dispatched by
+     * run().
+     */
+    private List<TInputEvent> dispatchEvents;
+
+    /**
+     * Events from dispatchEvents that are headed for drainEventQueue.
+     */
+    private List<TInputEvent> drainEvents;
+
     /**
      * Event queue that will be drained by either primary or secondary
      * Thread.
      */
-    private List<TInputEvent> drainEventQueue;
+    private ArrayDeque<TInputEvent> drainEventQueue;
 
     /**
      * Top-level menus in this application.
@@ -254,9 +281,55 @@ public class TApplication implements Runnable {
     private List<TWindow> windows;
 
     /**
-     * Timers that are being ticked.
+     * Timers that are being ticked on the event handler thread.
+     */
+    private TTimerQueue timers;
+
+    /**
+     * Timers that are being ticked on their own thread.
+     */
+    private TTimerQueue backgroundTimers;
+
+    /**
+     * The thread that ticks backgroundTimers, started by the first
+     * addBackgroundTimer().
+     */
+    private Thread backgroundTimerThread;
+
+    /**
+     * The widgets that have onIdle() called, in the order they were added.
+     */
+    private Set<TWidget> idleWidgets;
+
+    /**
+     * The time spent in the last doIdle() in nanoseconds.
+     */
+    private volatile long idleNanos = 0;
+
+    /**
+     * The performance measurements for this application and its backend.
+     */
+    private Metrics metrics;
+
+    /**
+     * The histogram of the time from an event arriving to it being handled.
      */
-    private List<TTimer> timers;
+    private Histogram eventLatencyMetric;
+
+    /**
+     * The histogram of the time spent drawing each frame.
+     */
+    private Histogram drawTimeMetric;
+
+    /**
+     * The histogram of the time spent flushing each frame to the backend.
+     */
+    private Histogram flushTimeMetric;
+
+    /**
+     * The histogram of the time spent in doIdle().
+     */
+    private Histogram idleTimeMetric;
 
     /**
      * When true, the application has been started.
@@ -535,7 +608,7 @@ public class TApplication implements Runnable {
                         if (application.drainEventQueue.size() == 0) {
                             break;
                         }
-                        event = application.drainEventQueue.remove(0);
+                        event = application.drainEventQueue.pollFirst();
                     }
 
                     // We will have an event to process, so repaint the
@@ -544,8 +617,9 @@ public class TApplication implements Runnable {
 
                     if ((event instanceof TMouseEvent)
                         || (event instanceof TKeypressEvent)
+                        || (event instanceof TPasteEvent)
                     ) {
-                        lastUserInputTime = event.getTime().getTime();
+                        lastUserInputTime = event.getTimeMillis();
                     }
 
                     if (primary) {
@@ -553,6 +627,8 @@ public class TApplication implements Runnable {
                     } else {
                         secondaryHandleEvent(event);
                     }
+                    eventLatencyMetric.record(System.nanoTime() -
+                        event.getNanoTime());
                     if ((!primary)
                         && (application.secondaryEventReceiver == null)
                     ) {
@@ -613,6 +689,11 @@ public class TApplication implements Runnable {
          */
         private long lastFrameTime = 0;
 
+        /**
+         * The frame pacing and statistics.
+         */
+        private FrameScheduler frameScheduler = new FrameScheduler(0);
+
         /**
          * Public constructor.
          *
@@ -669,6 +750,25 @@ public class TApplication implements Runnable {
                     }
                 } // while (!application.quit)
 
+                // Do not exceed the backend's frame rate.  Anything drawn
+                // while waiting goes out with this frame.
+                frameScheduler.setMaxFramesPerSecond(
+                    getMaxFramesPerSecond());
+                long delay = frameScheduler.getDelay(System.nanoTime());
+                while ((delay > 0) && !application.quit) {
+                    try {
+                        synchronized (this) {
+                            this.wait(delay);
+                        }
+                    } catch (InterruptedException e) {
+                        // SQUASH
+                    }
+                    delay = frameScheduler.getDelay(System.nanoTime());
+                }
+                synchronized (dirtyQueue) {
+                    dirtyQueue.clear();
+                }
+
                  // Flush the screen contents
                 if (debugThreads) {
                     System.err.printf("%d %s backend.flushScreen()\n",
@@ -676,8 +776,12 @@ public class TApplication implements Runnable {
                 }
                 synchronized (getScreen()) {
                     long before = System.currentTimeMillis();
+                    long beforeNanos = System.nanoTime();
                     backend.flushScreen();
                     long now = System.currentTimeMillis();
+                    long flushNanos = System.nanoTime() - beforeNanos;
+                    frameScheduler.frameFinished(beforeNanos, flushNanos);
+                    flushTimeMetric.record(flushNanos);
                     lastFrameTime = now - before;
                     if ((int) (now / 1000) == (int) (lastFlushTime / 1000)) {
                         frameCount++;
@@ -703,12 +807,65 @@ public class TApplication implements Runnable {
                     synchronized (this) {
                         notify();
                     }
+                } else {
+                    frameScheduler.frameCoalesced();
                 }
             }
         }
 
     }
 
+    /**
+     * BackgroundTimerHandler ticks the timers added by addBackgroundTimer().
+     */
+    private class BackgroundTimerHandler implements Runnable {
+
+        /**
+         * The timer loop.
+         */
+        public void run() {
+            // Wrap everything in a try, so that if we go belly up we can let
+            // the user have their terminal back.
+            try {
+                runImpl();
+            } catch (Throwable t) {
+                restoreConsole();
+                t.printStackTrace();
+                exit();
+            }
+        }
+
+        /**
+         * The timer loop.
+         */
+        private void runImpl() {
+            List<TTimer> dueTimers = new ArrayList<TTimer>();
+            while (!quit) {
+                synchronized (backgroundTimers) {
+                    // With nothing to do, still look at quit once a second.
+                    long sleepNanos = 1000000000L;
+                    TTimer next = backgroundTimers.peek();
+                    if (next != null) {
+                        sleepNanos = next.getNextTick() - System.nanoTime();
+                    }
+                    if (sleepNanos > TIMER_SLACK) {
+                        try {
+                            backgroundTimers.wait((sleepNanos + 999999L)
+                                / 1000000L);
+                        } catch (InterruptedException e) {
+                            // SQUASH
+                        }
+                        continue;
+                    }
+                    backgroundTimers.removeDue(System.nanoTime()
+                        + TIMER_SLACK, dueTimers);
+                }
+                tickTimers(backgroundTimers, dueTimers);
+                dueTimers.clear();
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -893,15 +1050,26 @@ public class TApplication implements Runnable {
         theme           = new ColorTheme();
         desktopTop      = (hideMenuBar ? 0 : 1);
         desktopBottom   = getScreen().getHeight() - 1 + (hideStatusBar ? 1 : 0);
-        fillEventQueue  = new LinkedList<TInputEvent>();
-        drainEventQueue = new LinkedList<TInputEvent>();
+        fillEventQueue  = new ArrayList<TInputEvent>();
+        dispatchEvents  = new ArrayList<TInputEvent>();
+        drainEvents     = new ArrayList<TInputEvent>();
+        drainEventQueue = new ArrayDeque<TInputEvent>();
         windows         = new LinkedList<TWindow>();
         menus           = new ArrayList<TMenu>();
         subMenus        = new ArrayList<TMenu>();
-        timers          = new LinkedList<TTimer>();
+        timers          = new TTimerQueue();
+        backgroundTimers = new TTimerQueue();
+        idleWidgets     = new LinkedHashSet<TWidget>();
         accelerators    = new HashMap<TKeypress, TMenuItem>();
         menuItems       = new LinkedList<TMenuItem>();
         desktop         = new TDesktop(this);
+        addIdleWidgets(desktop);
+        metrics         = new Metrics();
+        eventLatencyMetric = metrics.registerHistogram(Metrics.EVENT_LATENCY);
+        drawTimeMetric  = metrics.registerHistogram(Metrics.DRAW_TIME);
+        flushTimeMetric = metrics.registerHistogram(Metrics.FLUSH_TIME);
+        idleTimeMetric  = metrics.registerHistogram(Metrics.IDLE_TIME);
+        addMetricsGauges();
 
         final boolean animationsEnabled = true;
         if (!animationsEnabled) {
@@ -1027,21 +1195,25 @@ public class TApplication implements Runnable {
             } // synchronized (this)
 
             synchronized (fillEventQueue) {
-                // Pull any pending I/O events
+                // Pull any pending I/O events, and take everything queued
+                // so far in one batch.
                 backend.getEvents(fillEventQueue);
+                dispatchEvents.addAll(fillEventQueue);
+                fillEventQueue.clear();
             }
 
-            // Dispatch each event to the appropriate handler, one at a time.
-            for (;;) {
-                TInputEvent event = null;
-                synchronized (fillEventQueue) {
-                    if (fillEventQueue.size() == 0) {
-                        break;
-                    }
-                    event = fillEventQueue.remove(0);
-                }
+            // Dispatch each event to the appropriate handler, and hand the
+            // ones for the consumer threads over in one batch.
+            for (TInputEvent event: dispatchEvents) {
                 metaHandleEvent(event);
             }
+            dispatchEvents.clear();
+            if (drainEvents.size() > 0) {
+                synchronized (drainEventQueue) {
+                    drainEventQueue.addAll(drainEvents);
+                }
+                drainEvents.clear();
+            }
 
             // Wake a consumer thread if we have any pending events.
             if (drainEventQueue.size() > 0) {
@@ -1218,7 +1390,7 @@ public class TApplication implements Runnable {
                 if (filename != null) {
                     helpTopics = new ArrayList<Topic>();
                     helpFile = new HelpFile();
-                    helpFile.load(new FileInputStream(filename));
+                    helpFile.load(filename);
                 }
             } catch (Exception e) {
                 // Show this exception to the user.
@@ -1265,6 +1437,10 @@ public class TApplication implements Runnable {
             new TScreenOptionsWindow(this);
             return true;
         }
+        if (menu.getId() == TMenu.MID_METRICS) {
+            new TMetricsWindow(this);
+            return true;
+        }
 
         if (menu.getId() == TMenu.MID_CUT) {
             postMenuEvent(new TCommandEvent(menu.getBackend(), cmCut));
@@ -1380,7 +1556,12 @@ public class TApplication implements Runnable {
 
         // Update the screen
         synchronized (getScreen()) {
+            long drawStart = System.nanoTime();
+            boolean drawn = repaint;
             drawAll();
+            if (drawn) {
+                drawTimeMetric.record(System.nanoTime() - drawStart);
+            }
         }
 
         // Wake up the screen repainter
@@ -1466,10 +1647,8 @@ public class TApplication implements Runnable {
             return;
         }
 
-        synchronized (drainEventQueue) {
-            // Put into the main queue
-            drainEventQueue.add(event);
-        }
+        // Put into the main queue, in run()'s next batch
+        drainEvents.add(event);
     }
 
     /**
@@ -1491,7 +1670,9 @@ public class TApplication implements Runnable {
 
         // Special application-wide events -----------------------------------
 
-        if (event instanceof TKeypressEvent) {
+        if ((event instanceof TKeypressEvent)
+            || (event instanceof TPasteEvent)
+        ) {
             if (hideMouseWhenTyping) {
                 typingHidMouse = true;
             }
@@ -1538,7 +1719,7 @@ public class TApplication implements Runnable {
                     && (!mouse.isMouseWheelUp())
                     && (!mouse.isMouseWheelDown())
                 ) {
-                    if ((mouse.getTime().getTime() - lastMouseUpTime) <
+                    if ((mouse.getTimeMillis() - lastMouseUpTime) <
                         doubleClickTime) {
 
                         // This is a double-click.
@@ -1554,7 +1735,7 @@ public class TApplication implements Runnable {
 
                     } else {
                         // The first click of a potential double-click.
-                        lastMouseUpTime = mouse.getTime().getTime();
+                        lastMouseUpTime = mouse.getTimeMillis();
                     }
                 }
             }
@@ -1567,6 +1748,11 @@ public class TApplication implements Runnable {
         if ((activeMenu != null) && !(event instanceof TCommandEvent)) {
             TMenu menu = activeMenu;
 
+            if (event instanceof TPasteEvent) {
+                // Menus do not take pasted text.
+                return;
+            }
+
             if (event instanceof TMouseEvent) {
                 TMouseEvent mouse = (TMouseEvent) event;
 
@@ -1681,7 +1867,9 @@ public class TApplication implements Runnable {
                 if (window.mouseWouldHit(mouse)) {
                     dispatchToDesktop = false;
                 }
-            } else if (event instanceof TKeypressEvent) {
+            } else if ((event instanceof TKeypressEvent)
+                || (event instanceof TPasteEvent)
+            ) {
                 dispatchToDesktop = false;
             } else if (event instanceof TMenuEvent) {
                 dispatchToDesktop = false;
@@ -1757,7 +1945,7 @@ public class TApplication implements Runnable {
                     && (!mouse.isMouseWheelUp())
                     && (!mouse.isMouseWheelDown())
                 ) {
-                    if ((mouse.getTime().getTime() - lastMouseUpTime) <
+                    if ((mouse.getTimeMillis() - lastMouseUpTime) <
                         doubleClickTime) {
 
                         // This is a double-click.
@@ -1773,7 +1961,7 @@ public class TApplication implements Runnable {
 
                     } else {
                         // The first click of a potential double-click.
-                        lastMouseUpTime = mouse.getTime().getTime();
+                        lastMouseUpTime = mouse.getTimeMillis();
                     }
                 }
             }
@@ -1874,7 +2062,10 @@ public class TApplication implements Runnable {
             System.err.printf(System.currentTimeMillis() + " " +
                 Thread.currentThread() + " doIdle()\n");
         }
+        long idleStart = System.nanoTime();
 
+        // Run any timers that have timed out
+        List<TTimer> dueTimers = new ArrayList<TTimer>();
         synchronized (timers) {
 
             if (debugThreads) {
@@ -1882,23 +2073,12 @@ public class TApplication implements Runnable {
                     Thread.currentThread() + " doIdle() 2\n");
             }
 
-            // Run any timers that have timed out
-            Date now = new Date();
-            List<TTimer> keepTimers = new LinkedList<TTimer>();
-            for (TTimer timer: timers) {
-                if (timer.getNextTick().getTime() <= now.getTime()) {
-                    // Something might change, so repaint the screen.
-                    repaint = true;
-                    timer.tick();
-                    if (timer.recurring) {
-                        keepTimers.add(timer);
-                    }
-                } else {
-                    keepTimers.add(timer);
-                }
-            }
-            timers.clear();
-            timers.addAll(keepTimers);
+            timers.removeDue(System.nanoTime() + TIMER_SLACK, dueTimers);
+        }
+        if (dueTimers.size() > 0) {
+            // Something might change, so repaint the screen.
+            repaint = true;
+            tickTimers(timers, dueTimers);
         }
 
         if (debugThreads) {
@@ -1906,12 +2086,19 @@ public class TApplication implements Runnable {
                 Thread.currentThread() + " doIdle() 3\n");
         }
 
-        // Call onIdle's
-        for (TWindow window: windows) {
-            window.onIdle();
+        // Call onIdle's.  Only the widgets that asked for it are visited,
+        // and widgets that have left the desktop or the window list are
+        // dropped.
+        TWidget [] idlers;
+        synchronized (idleWidgets) {
+            idlers = idleWidgets.toArray(new TWidget[idleWidgets.size()]);
         }
-        if (desktop != null) {
-            desktop.onIdle();
+        for (TWidget widget: idlers) {
+            if (!isIdleAttached(widget)) {
+                removeIdleWidget(widget);
+                continue;
+            }
+            widget.onIdle();
         }
 
         // Run any invokeLaters.  We make a copy, and run that, because one
@@ -1925,6 +2112,8 @@ public class TApplication implements Runnable {
             invoke.run();
         }
         doRepaint();
+        idleNanos = System.nanoTime() - idleStart;
+        idleTimeMetric.record(idleNanos);
 
         if (debugThreads) {
             System.err.printf(System.currentTimeMillis() + " " +
@@ -1933,6 +2122,78 @@ public class TApplication implements Runnable {
 
     }
 
+    /**
+     * Add a widget and its children to the widgets that have onIdle()
+     * called, if they have idle enabled.
+     *
+     * @param widget the widget
+     */
+    final void addIdleWidgets(final TWidget widget) {
+        if (widget.isIdleEnabled()) {
+            synchronized (idleWidgets) {
+                idleWidgets.add(widget);
+            }
+        }
+        for (TWidget child: widget.getChildren()) {
+            addIdleWidgets(child);
+        }
+    }
+
+    /**
+     * Remove a widget from the widgets that have onIdle() called.
+     *
+     * @param widget the widget
+     */
+    final void removeIdleWidget(final TWidget widget) {
+        synchronized (idleWidgets) {
+            idleWidgets.remove(widget);
+        }
+    }
+
+    /**
+     * See if a widget is inside the desktop or a window in the window list.
+     *
+     * @param widget the widget
+     * @return true if the widget should see onIdle()
+     */
+    private boolean isIdleAttached(final TWidget widget) {
+        TWidget top = widget;
+        while ((top.getParent() != null) && (top.getParent() != top)) {
+            top = top.getParent();
+        }
+        if (top.getParent() == null) {
+            // Removed from its parent, or never had one.
+            return false;
+        }
+        if (top == desktop) {
+            return true;
+        }
+        synchronized (windows) {
+            return windows.contains(top);
+        }
+    }
+
+    /**
+     * Get the time spent processing the last idle pass: timers, onIdle()
+     * calls, and invokeLater() runnables.
+     *
+     * @return the time in nanoseconds
+     */
+    public final long getIdleNanos() {
+        return idleNanos;
+    }
+
+    /**
+     * Get the number of widgets that have onIdle() called.
+     *
+     * @return the number of widgets
+     */
+    public final int getIdleWidgetCount() {
+        synchronized (idleWidgets) {
+            return idleWidgets.size();
+        }
+    }
+
     /**
      * Wake the sleeping active event handler.
      */
@@ -2072,6 +2333,64 @@ public class TApplication implements Runnable {
         }
     }
 
+    /**
+     * Get the performance measurements for this application and its
+     * backend.  See Metrics for the names of the values that are recorded.
+     *
+     * @return the metrics registry
+     */
+    public final Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Add the gauges that report on the application, the shared caches,
+     * and the terminal.
+     */
+    private void addMetricsGauges() {
+        metrics.addGauge("app.framesPerSecond", new Metrics.Gauge() {
+            public long getValue() {
+                return getFramesPerSecond();
+            }
+        });
+        metrics.addGauge("app.framesCoalesced", new Metrics.Gauge() {
+            public long getValue() {
+                FrameScheduler frameScheduler = getFrameScheduler();
+                return (frameScheduler == null ? 0 :
+                    frameScheduler.getCoalesced());
+            }
+        });
+        metrics.addGauge("app.idleWidgets", new Metrics.Gauge() {
+            public long getValue() {
+                return getIdleWidgetCount();
+            }
+        });
+        metrics.addGauge("glyphCache.hits", new Metrics.Gauge() {
+            public long getValue() {
+                return GlyphCache.getInstance().getHits();
+            }
+        });
+        metrics.addGauge("glyphCache.misses", new Metrics.Gauge() {
+            public long getValue() {
+                return GlyphCache.getInstance().getMisses();
+            }
+        });
+        metrics.addGauge("imageStore.hits", new Metrics.Gauge() {
+            public long getValue() {
+                return ImageStore.getInstance().getHits();
+            }
+        });
+        metrics.addGauge("imageStore.misses", new Metrics.Gauge() {
+            public long getValue() {
+                return ImageStore.getInstance().getMisses();
+            }
+        });
+
+        if (getScreen() instanceof ECMA48Terminal) {
+            ((ECMA48Terminal) getScreen()).setMetrics(metrics);
+        }
+    }
+
     /**
      * Get the number of frames that were emitted to output on the last
      * second.
@@ -2085,6 +2404,35 @@ public class TApplication implements Runnable {
         return 0;
     }
 
+    /**
+     * Get the screen update pacing and statistics.  The frame rate limit
+     * comes from the backend, see GenericBackend.setMaxFramesPerSecond().
+     *
+     * @return the frame scheduler, or null if the screen is not being
+     * updated yet
+     */
+    public FrameScheduler getFrameScheduler() {
+        if (screenHandler != null) {
+            return screenHandler.frameScheduler;
+        }
+        return null;
+    }
+
+    /**
+     * Get the most screen updates per second that the backend wants.
+     *
+     * @return frames per second, or 0 for no limit
+     */
+    private int getMaxFramesPerSecond() {
+        if (backend instanceof GenericBackend) {
+            return ((GenericBackend) backend).getMaxFramesPerSecond();
+        }
+        if (backend instanceof MultiBackend) {
+            return ((MultiBackend) backend).getMaxFramesPerSecond();
+        }
+        return 0;
+    }
+
     /**
      * Get the clipboard.
      *
@@ -2179,6 +2527,9 @@ public class TApplication implements Runnable {
             }
         }
         this.desktop = desktop;
+        if (desktop != null) {
+            addIdleWidgets(desktop);
+        }
 
         desktopTop = (hideMenuBar ? 0 : 1);
         desktopBottom = getScreen().getHeight() - 1 + (hideStatusBar ?
@@ -2781,7 +3132,7 @@ public class TApplication implements Runnable {
             // so it won't trim it out.
             getScreen().resetClipping();
             getScreen().hLineXY(0, 0, getScreen().getWidth(), ' ',
-                theme.getColor("tmenu"));
+                theme.getColor(TMENU));
         }
 
         // Now draw the menus.
@@ -2792,16 +3143,17 @@ public class TApplication implements Runnable {
             if (menu.isActive()) {
                 menuIsActive = true;
                 if (!menu.isContext()) {
-                    menuColor = theme.getColor("tmenu.highlighted");
-                    menuMnemonicColor = theme.getColor("tmenu.mnemonic.highlighted");
+                    menuColor = theme.getColor(TMENU_HIGHLIGHTED);
+                    menuMnemonicColor =
+                        theme.getColor(TMENU_MNEMONIC_HIGHLIGHTED);
                 } else {
-                    menuColor = theme.getColor("tmenu");
-                    menuMnemonicColor = theme.getColor("tmenu.mnemonic");
+                    menuColor = theme.getColor(TMENU);
+                    menuMnemonicColor = theme.getColor(TMENU_MNEMONIC);
                 }
                 topLevel = menu;
             } else {
-                menuColor = theme.getColor("tmenu");
-                menuMnemonicColor = theme.getColor("tmenu.mnemonic");
+                menuColor = theme.getColor(TMENU);
+                menuMnemonicColor = theme.getColor(TMENU_MNEMONIC);
             }
 
             if (hideMenuBar == false) {
@@ -2845,7 +3197,7 @@ public class TApplication implements Runnable {
                 getScreen().resetClipping();
                 getScreen().putStringXY(getScreen().getWidth() -
                     StringUtils.width(menuTrayText), 0, menuTrayText,
-                    theme.getColor("tmenu"));
+                    theme.getColor(TMENU));
             }
         }
 
@@ -2875,7 +3227,7 @@ public class TApplication implements Runnable {
                 statusBar.draw();
             } else {
                 CellAttributes barColor = new CellAttributes();
-                barColor.setTo(getTheme().getColor("tstatusbar.text"));
+                barColor.setTo(getTheme().getColor(TSTATUSBAR_TEXT));
                 getScreen().hLineXY(0, desktopBottom, getScreen().getWidth(),
                     ' ', barColor);
             }
@@ -2966,14 +3318,14 @@ public class TApplication implements Runnable {
         if (customWidgetMousePointer != null) {
             // Replace my pointer with the widget's pointer.
             if (customMousePointer != null) {
-                overlay.getItems().remove(customMousePointer);
+                overlay.removeItem(customMousePointer);
             }
-            overlay.getItems().add(customWidgetMousePointer);
+            overlay.addItem(customWidgetMousePointer);
             overlay.setDirty();
             overlay.draw(getScreen(), getBackend().isImagesOverText());
-            overlay.getItems().remove(customWidgetMousePointer);
+            overlay.removeItem(customWidgetMousePointer);
             if (customMousePointer != null) {
-                overlay.getItems().add(customMousePointer);
+                overlay.addItem(customMousePointer);
             }
         } else {
             overlay.setDirty();
@@ -3391,6 +3743,8 @@ public class TApplication implements Runnable {
             return;
         }
 
+        addIdleWidgets(window);
+
         synchronized (windows) {
             if (windows.contains(window)) {
                 throw new IllegalArgumentException("Window " + window +
@@ -4184,6 +4538,7 @@ public class TApplication implements Runnable {
         toolMenu.addDefaultItem(TMenu.MID_VIEW_IMAGE);
         toolMenu.addDefaultItem(TMenu.MID_VIEW_ANSI);
         toolMenu.addDefaultItem(TMenu.MID_SCREEN_OPTIONS);
+        toolMenu.addDefaultItem(TMenu.MID_METRICS);
         TStatusBar toolStatusBar = toolMenu.newStatusBar(i18n.
             getString("toolMenuStatus"));
         toolStatusBar.addShortcutKeypress(kbF1, cmHelp, i18n.getString("Help"));
@@ -4338,18 +4693,17 @@ public class TApplication implements Runnable {
      * @return number of milliseconds between now and the next timer event
      */
     private long getSleepTime(final long timeout) {
-        Date now = new Date();
-        long nowTime = now.getTime();
         long sleepTime = timeout;
 
         synchronized (timers) {
-            for (TTimer timer: timers) {
-                long nextTickTime = timer.getNextTick().getTime();
-                if (nextTickTime < nowTime) {
+            TTimer timer = timers.peek();
+            if (timer != null) {
+                long timeDifference = timer.getNextTick() - System.nanoTime();
+                if (timeDifference <= TIMER_SLACK) {
                     return 0;
                 }
-
-                long timeDifference = nextTickTime - nowTime;
+                // Round up, so that we do not wake up just before the tick.
+                timeDifference = (timeDifference + 999999L) / 1000000L;
                 if (timeDifference < sleepTime) {
                     sleepTime = timeDifference;
                 }
@@ -4379,15 +4733,71 @@ public class TApplication implements Runnable {
         return timer;
     }
 
+    /**
+     * Add a timer that ticks on its own thread rather than the event
+     * handler thread.  Its action must not touch widgets directly; use
+     * invokeLater() for that.
+     *
+     * @param duration number of milliseconds to wait between ticks
+     * @param recurring if true, re-schedule this timer after every tick
+     * @param action function to call when the timer ticks
+     * @return the timer
+     */
+    public final TTimer addBackgroundTimer(final long duration,
+        final boolean recurring, final TAction action) {
+
+        TTimer timer = new TTimer(duration, recurring, action);
+        synchronized (backgroundTimers) {
+            backgroundTimers.add(timer);
+            if (backgroundTimerThread == null) {
+                backgroundTimerThread = new Thread(
+                    new BackgroundTimerHandler(), "TTimer background");
+                backgroundTimerThread.setDaemon(true);
+                backgroundTimerThread.start();
+            }
+            backgroundTimers.notify();
+        }
+        return timer;
+    }
+
     /**
      * Convenience function to remove a timer.
      *
      * @param timer timer to remove
      */
     public final void removeTimer(final TTimer timer) {
+        timer.cancelled = true;
         synchronized (timers) {
             timers.remove(timer);
         }
+        synchronized (backgroundTimers) {
+            backgroundTimers.remove(timer);
+        }
+    }
+
+    /**
+     * Tick timers that were removed from a queue because they were due, and
+     * put the recurring ones back.
+     *
+     * @param queue the queue the timers came from
+     * @param dueTimers the timers
+     */
+    private void tickTimers(final TTimerQueue queue,
+        final List<TTimer> dueTimers) {
+
+        for (TTimer timer: dueTimers) {
+            // An earlier timer might have removed this one.
+            if (!timer.cancelled) {
+                timer.tick();
+            }
+        }
+        synchronized (queue) {
+            for (TTimer timer: dueTimers) {
+                if (timer.recurring && !timer.cancelled) {
+                    queue.add(timer);
+                }
+            }
+        }
     }
 
     // ------------------------------------------------------------------------
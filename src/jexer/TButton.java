@@ -42,6 +42,7 @@ import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.kbEnter;
 import static jexer.TKeypress.kbSpace;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TButton implements a simple button.  To make the button do something, pass
@@ -359,14 +360,15 @@ public class TButton extends TWidget {
         }
 
         if (!isEnabled()) {
-            buttonColor = getTheme().getColor("tbutton.disabled");
-            menuMnemonicColor = getTheme().getColor("tbutton.disabled");
+            buttonColor = getTheme().getColor(TBUTTON_DISABLED);
+            menuMnemonicColor = getTheme().getColor(TBUTTON_DISABLED);
         } else if (isAbsoluteActive()) {
-            buttonColor = getTheme().getColor("tbutton.active");
-            menuMnemonicColor = getTheme().getColor("tbutton.mnemonic.highlighted");
+            buttonColor = getTheme().getColor(TBUTTON_ACTIVE);
+            menuMnemonicColor =
+                getTheme().getColor(TBUTTON_MNEMONIC_HIGHLIGHTED);
         } else {
-            buttonColor = getTheme().getColor("tbutton.inactive");
-            menuMnemonicColor = getTheme().getColor("tbutton.mnemonic");
+            buttonColor = getTheme().getColor(TBUTTON_INACTIVE);
+            menuMnemonicColor = getTheme().getColor(TBUTTON_MNEMONIC);
         }
 
         if ((leftEdgeChar == null)
@@ -392,11 +394,11 @@ public class TButton extends TWidget {
             buttonColor.setPulse(true, false, 0);
             buttonColor.setPulseColorRGB(getScreen().getBackend().
                 attrToForegroundColor(getTheme().getColor(
-                    "tbutton.pulse")).getRGB());
+                    TBUTTON_PULSE)).getRGB());
             menuMnemonicColor.setPulse(true, false, 0);
             menuMnemonicColor.setPulseColorRGB(getScreen().getBackend().
                 attrToForegroundColor(getTheme().getColor(
-                    "tbutton.mnemonic.pulse")).getRGB());
+                    TBUTTON_MNEMONIC_PULSE)).getRGB());
         }
 
         if (inButtonPress) {
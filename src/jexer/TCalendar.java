@@ -37,6 +37,7 @@ import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TCalendar is a date picker widget.
@@ -221,15 +222,12 @@ public class TCalendar extends TWidget {
     @Override
     public void draw() {
         CellAttributes backgroundColor = getTheme().getColor(
-                "tcalendar.background");
-        CellAttributes dayColor = getTheme().getColor(
-                "tcalendar.day");
+                TCALENDAR_BACKGROUND);
+        CellAttributes dayColor = getTheme().getColor(TCALENDAR_DAY);
         CellAttributes selectedDayColor = getTheme().getColor(
-                "tcalendar.day.selected");
-        CellAttributes arrowColor = getTheme().getColor(
-                "tcalendar.arrow");
-        CellAttributes titleColor = getTheme().getColor(
-                "tcalendar.title");
+                TCALENDAR_DAY_SELECTED);
+        CellAttributes arrowColor = getTheme().getColor(TCALENDAR_ARROW);
+        CellAttributes titleColor = getTheme().getColor(TCALENDAR_TITLE);
 
         // Fill in the interior background
         for (int i = 0; i < getHeight(); i++) {
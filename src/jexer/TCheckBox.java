@@ -31,6 +31,7 @@ package jexer;
 import static jexer.TKeypress.kbEnter;
 import static jexer.TKeypress.kbEsc;
 import static jexer.TKeypress.kbSpace;
+import static jexer.bits.ColorTheme.*;
 import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
 import jexer.bits.MnemonicString;
@@ -182,11 +183,11 @@ public class TCheckBox extends TWidget {
         CellAttributes mnemonicColor;
 
         if (isAbsoluteActive()) {
-            checkboxColor = getTheme().getColor("tcheckbox.active");
-            mnemonicColor = getTheme().getColor("tcheckbox.mnemonic.highlighted");
+            checkboxColor = getTheme().getColor(TCHECKBOX_ACTIVE);
+            mnemonicColor = getTheme().getColor(TCHECKBOX_MNEMONIC_HIGHLIGHTED);
         } else {
-            checkboxColor = getTheme().getColor("tcheckbox.inactive");
-            mnemonicColor = getTheme().getColor("tcheckbox.mnemonic");
+            checkboxColor = getTheme().getColor(TCHECKBOX_INACTIVE);
+            mnemonicColor = getTheme().getColor(TCHECKBOX_MNEMONIC);
         }
         if (useWindowBackground) {
             CellAttributes background = getWindow().getBackground();
@@ -198,7 +199,7 @@ public class TCheckBox extends TWidget {
             checkboxColor.setPulse(true, false, 0);
             checkboxColor.setPulseColorRGB(getScreen().getBackend().
                 attrToForegroundColor(getTheme().getColor(
-                    "tcheckbox.pulse")).getRGB());
+                    TCHECKBOX_PULSE)).getRGB());
         }
 
         putCharXY(0, 0, '[', checkboxColor);
@@ -35,6 +35,7 @@ import jexer.bits.GraphicsChars;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TComboBox implements a combobox containing a drop-down list and edit
@@ -257,9 +258,9 @@ public class TComboBox extends TWidget {
         }
 
         if (isAbsoluteActive()) {
-            comboBoxColor = getTheme().getColor("tcombobox.active");
+            comboBoxColor = getTheme().getColor(TCOMBOBOX_ACTIVE);
         } else {
-            comboBoxColor = getTheme().getColor("tcombobox.inactive");
+            comboBoxColor = getTheme().getColor(TCOMBOBOX_INACTIVE);
         }
 
         putCharXY(getWidth() - 3, 0, GraphicsChars.DOWNARROWLEFT,
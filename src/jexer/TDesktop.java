@@ -34,6 +34,7 @@ import jexer.event.TKeypressEvent;
 import jexer.event.TMenuEvent;
 import jexer.event.TMouseEvent;
 import jexer.event.TResizeEvent;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TDesktop is a special-class window that is drawn underneath everything
@@ -206,7 +207,7 @@ public class TDesktop extends TWindow {
      */
     @Override
     public void draw() {
-        CellAttributes background = getTheme().getColor("tdesktop.background");
+        CellAttributes background = getTheme().getColor(TDESKTOP_BACKGROUND);
         putAll(GraphicsChars.HATCH, background);
 
         /*
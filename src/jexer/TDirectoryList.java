@@ -33,11 +33,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import jexer.bits.StringUtils;
+import jexer.io.DirectoryScanner;
 
 /**
- * TDirectoryList shows the files within a directory.
+ * TDirectoryList shows the files within a directory.  The directory is
+ * read on a background thread, and files are added to the list as they
+ * are found.
  */
 public class TDirectoryList extends TList {
 
@@ -56,9 +60,15 @@ public class TDirectoryList extends TList {
     private File path;
 
     /**
-     * The list of filters that a file must match in order to be displayed.
+     * The list of filters that a file must match in order to be displayed,
+     * compiled once rather than for every file.
      */
-    private List<String> filters;
+    private List<Pattern> filters;
+
+    /**
+     * The scan of the current path, or null.
+     */
+    private DirectoryScanner scanner = null;
 
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
@@ -141,68 +151,123 @@ public class TDirectoryList extends TList {
 
         super(parent, null, x, y, width, height, action);
         files = new HashMap<String, File>();
-        this.filters = filters;
+        if (filters != null) {
+            this.filters = new ArrayList<Pattern>(filters.size());
+            for (String filter: filters) {
+                this.filters.add(Pattern.compile(filter));
+            }
+        }
         this.singleClickAction = singleClickAction;
 
         setPath(path);
     }
 
     // ------------------------------------------------------------------------
-    // TList ------------------------------------------------------------------
+    // TWidget ----------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+     * Stop scanning when this widget is closed.
+     */
+    @Override
+    public void close() {
+        if (scanner != null) {
+            scanner.cancel();
+            scanner = null;
+        }
+        super.close();
+    }
+
     // ------------------------------------------------------------------------
     // TDirectoryList ---------------------------------------------------------
     // ------------------------------------------------------------------------
 
     /**
-     * Set the new path to display.
+     * Set the new path to display.  The list is emptied, and then filled
+     * as the directory is read in the background.  The first entry is
+     * selected when it arrives.
      *
      * @param path new path to list files for
      */
     public void setPath(final String path) {
         this.path = new File(path);
 
-        List<String> newStrings = new ArrayList<String>();
+        if (scanner != null) {
+            scanner.cancel();
+        }
         files.clear();
+        final ArrayListModel strings = new ArrayListModel();
+        setModel(strings);
 
-        // Build a list of files in this directory
-        File [] newFiles = this.path.listFiles();
-        if (newFiles != null) {
-            for (int i = 0; i < newFiles.length; i++) {
-                if (newFiles[i].getName().startsWith(".")) {
-                    continue;
+        final TApplication app = getApplication();
+        scanner = new DirectoryScanner(this.path,
+            new DirectoryScanner.Listener() {
+                public void entriesFound(final DirectoryScanner source,
+                    final List<DirectoryScanner.Entry> entries) {
+
+                    if (app == null) {
+                        // Not on screen yet, this is the calling thread.
+                        addEntries(strings, entries);
+                        return;
+                    }
+                    app.invokeLater(new Runnable() {
+                        public void run() {
+                            if (source == scanner) {
+                                addEntries(strings, entries);
+                            }
+                        }
+                    });
                 }
-                if (newFiles[i].isDirectory()) {
-                    continue;
+
+                public void scanFinished(final DirectoryScanner source) {
+                    // NOP
                 }
-                if (filters != null) {
-                    for (String pattern: filters) {
-
-                        /*
-                        System.err.println("newFiles[i] " +
-                            newFiles[i].getName() + " " + pattern +
-                            " " + newFiles[i].getName().matches(pattern));
-                        */
-
-                        if (newFiles[i].getName().matches(pattern)) {
-                            String key = renderFile(newFiles[i]);
-                            files.put(key, newFiles[i]);
-                            newStrings.add(key);
-                            break;
-                        }
+            });
+        if (app == null) {
+            scanner.run();
+            return;
+        }
+        scanner.start();
+    }
+
+    /**
+     * Add the files of a directory to the list.
+     *
+     * @param strings the list model
+     * @param entries the directory entries
+     */
+    private void addEntries(final ArrayListModel strings,
+        final List<DirectoryScanner.Entry> entries) {
+
+        List<String> newStrings = new ArrayList<String>();
+        for (DirectoryScanner.Entry entry: entries) {
+            String name = entry.getName();
+            if (name.startsWith(".")) {
+                continue;
+            }
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (filters != null) {
+                boolean matched = false;
+                for (Pattern pattern: filters) {
+                    if (pattern.matcher(name).matches()) {
+                        matched = true;
+                        break;
                     }
-                } else {
-                    String key = renderFile(newFiles[i]);
-                    files.put(key, newFiles[i]);
-                    newStrings.add(key);
+                }
+                if (!matched) {
+                    continue;
                 }
             }
+            String key = renderFile(entry);
+            files.put(key, entry.getFile());
+            newStrings.add(key);
         }
-        setList(newStrings);
+        strings.addAll(newStrings);
 
         // Select the first entry
-        if (getMaxSelectedIndex() >= 0) {
+        if ((getSelectedIndex() < 0) && (getMaxSelectedIndex() >= 0)) {
             setSelectedIndex(0);
         }
     }
@@ -220,15 +285,15 @@ public class TDirectoryList extends TList {
     /**
      * Format one of the entries for drawing on the screen.
      *
-     * @param file the File
+     * @param entry the directory entry
      * @return the line to draw
      */
-    private String renderFile(final File file) {
-        String name = file.getName();
+    private String renderFile(final DirectoryScanner.Entry entry) {
+        String name = entry.getName();
         if (StringUtils.width(name) > 20) {
             name = name.substring(0, 17) + "...";
         }
-        return String.format("%-20s %5dk", name, (file.length() / 1024));
+        return String.format("%-20s %5dk", name, (entry.length() / 1024));
     }
 
 }
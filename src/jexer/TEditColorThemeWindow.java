@@ -40,6 +40,7 @@ import jexer.bits.GraphicsChars;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TEditColorThemeWindow provides an easy UI for users to alter the running
@@ -238,10 +239,10 @@ public class TEditColorThemeWindow extends TWindow {
             drawBox(0, 0, getWidth(), getHeight(), border, background,
                 borderStyle, false);
 
-            attr.setTo(getTheme().getColor("twindow.background.modal"));
+            attr.setTo(getTheme().getColor(TWINDOW_BACKGROUND_MODAL));
             if (isActive()) {
-                attr.setForeColor(getTheme().getColor("tlabel").getForeColor());
-                attr.setBold(getTheme().getColor("tlabel").isBold());
+                attr.setForeColor(getTheme().getColor(TLABEL).getForeColor());
+                attr.setBold(getTheme().getColor(TLABEL).isBold());
             }
             if (borderStyle.equals(BorderStyle.NONE)) {
                 putStringXY(0, 0, i18n.getString("foregroundLabel"), attr);
@@ -534,10 +535,10 @@ public class TEditColorThemeWindow extends TWindow {
             drawBox(0, 0, getWidth(), getHeight(), border, background,
                 borderStyle, false);
 
-            attr.setTo(getTheme().getColor("twindow.background.modal"));
+            attr.setTo(getTheme().getColor(TWINDOW_BACKGROUND_MODAL));
             if (isActive()) {
-                attr.setForeColor(getTheme().getColor("tlabel").getForeColor());
-                attr.setBold(getTheme().getColor("tlabel").isBold());
+                attr.setForeColor(getTheme().getColor(TLABEL).getForeColor());
+                attr.setBold(getTheme().getColor(TLABEL).isBold());
             }
             if (borderStyle.equals(BorderStyle.NONE)) {
                 putStringXY(0, 0, i18n.getString("backgroundLabel"), attr);
@@ -822,10 +823,10 @@ public class TEditColorThemeWindow extends TWindow {
         CellAttributes attr = new CellAttributes();
 
         // Draw the label on colorNames
-        attr.setTo(getTheme().getColor("twindow.background.modal"));
+        attr.setTo(getTheme().getColor(TWINDOW_BACKGROUND_MODAL));
         if (colorNames.isActive()) {
-            attr.setForeColor(getTheme().getColor("tlabel").getForeColor());
-            attr.setBold(getTheme().getColor("tlabel").isBold());
+            attr.setForeColor(getTheme().getColor(TLABEL).getForeColor());
+            attr.setBold(getTheme().getColor(TLABEL).isBold());
         }
         putStringXY(3, 2, i18n.getString("colorName"), attr);
 
@@ -911,7 +912,8 @@ public class TEditColorThemeWindow extends TWindow {
         if (colorName == null) {
             return;
         }
-        CellAttributes attr = editTheme.getColor(colorName);
+        CellAttributes attr = new CellAttributes(
+            editTheme.getColor(colorName));
         attr.setForeColor(foreground.color);
         try {
             String text = foreground.rgb.getText();
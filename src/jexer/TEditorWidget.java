@@ -37,12 +37,14 @@ import jexer.bits.StringUtils;
 import jexer.event.TCommandEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
+import jexer.event.TPasteEvent;
 import jexer.event.TResizeEvent;
 import jexer.teditor.Document;
 import jexer.teditor.Line;
 import jexer.teditor.Word;
 import static jexer.TCommand.*;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TEditorWidget displays an editable text document.  It is unaware of
@@ -177,7 +179,7 @@ public class TEditorWidget extends TWidget implements EditMenuUser {
         setCursorVisible(true);
         setMouseStyle("text");
 
-        defaultColor = getTheme().getColor("teditor");
+        defaultColor = getTheme().getColor(TEDITOR);
         document = new Document(text, defaultColor);
     }
 
@@ -573,6 +575,16 @@ public class TEditorWidget extends TWidget implements EditMenuUser {
         }
     }
 
+    /**
+     * Handle pasted text.
+     *
+     * @param paste paste event
+     */
+    @Override
+    public void onPaste(final TPasteEvent paste) {
+        insertText(paste.getText());
+    }
+
     /**
      * Handle posted command events.
      *
@@ -599,27 +611,7 @@ public class TEditorWidget extends TWidget implements EditMenuUser {
 
             String text = getClipboard().pasteText();
             if (text != null) {
-                for (int i = 0; i < text.length(); ) {
-                    int ch = text.codePointAt(i);
-                    switch (ch) {
-                    case '\n':
-                        onKeypress(new TKeypressEvent(command.getBackend(),
-                                kbEnter));
-                        break;
-                    case '\t':
-                        onKeypress(new TKeypressEvent(command.getBackend(),
-                                kbTab));
-                        break;
-                    default:
-                        if ((ch >= 0x20) && (ch != 0x7F)) {
-                            onKeypress(new TKeypressEvent(command.getBackend(),
-                                    false, 0, ch, false, false, false));
-                        }
-                        break;
-                    }
-
-                    i += Character.charCount(ch);
-                }
+                insertText(text);
             }
             return;
         }
@@ -641,8 +633,8 @@ public class TEditorWidget extends TWidget implements EditMenuUser {
      */
     @Override
     public void draw() {
-        CellAttributes selectedColor = getTheme().getColor("teditor.selected");
-        CellAttributes marginColor = getTheme().getColor("teditor.margin");
+        CellAttributes selectedColor = getTheme().getColor(TEDITOR_SELECTED);
+        CellAttributes marginColor = getTheme().getColor(TEDITOR_MARGIN);
 
         boolean drawSelection = true;
 
@@ -666,6 +658,9 @@ public class TEditorWidget extends TWidget implements EditMenuUser {
             drawSelection = false;
         }
 
+        // Only the visible lines need to be highlighted.
+        document.highlight(topLine, topLine + getHeight() - 1);
+
         for (int i = 0; i < getHeight(); i++) {
             // Background line
             getScreen().hLineXY(0, i, getWidth(), ' ', defaultColor);
@@ -1372,27 +1367,43 @@ public class TEditorWidget extends TWidget implements EditMenuUser {
             return;
         }
 
-        // Delete selected text, then paste text from clipboard.
+        insertText(text);
+    }
+
+    /**
+     * Insert text at the cursor as a single edit, replacing the selection
+     * if there is one.
+     *
+     * @param text the text to insert
+     */
+    public void insertText(final String text) {
         deleteSelection();
+        saveUndo();
 
         for (int i = 0; i < text.length(); ) {
             int ch = text.codePointAt(i);
+            i += Character.charCount(ch);
             switch (ch) {
+            case '\r':
+                if ((i < text.length()) && (text.charAt(i) == '\n')) {
+                    i++;
+                }
+                document.enter();
+                break;
             case '\n':
-                onKeypress(new TKeypressEvent(null, kbEnter));
+                document.enter();
                 break;
             case '\t':
-                onKeypress(new TKeypressEvent(null, kbTab));
+                document.tab();
                 break;
             default:
                 if ((ch >= 0x20) && (ch != 0x7F)) {
-                    onKeypress(new TKeypressEvent(null, false, 0, ch,
-                            false, false, false));
+                    document.addChar(ch);
                 }
                 break;
             }
-            i += Character.charCount(ch);
         }
+        alignTopLine(true);
     }
 
     /**
@@ -46,6 +46,7 @@ import jexer.event.TCommandEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMenuEvent;
 import jexer.event.TMouseEvent;
+import jexer.event.TPasteEvent;
 import jexer.event.TResizeEvent;
 import jexer.menu.TMenu;
 import static jexer.TCommand.*;
@@ -283,6 +284,27 @@ public class TEditorWindow extends TScrollableWindow {
         setHorizontalValue(editField.getEditingColumnNumber());
     }
 
+    /**
+     * Handle pasted text.
+     *
+     * @param paste paste event
+     */
+    @Override
+    public void onPaste(final TPasteEvent paste) {
+        if (hideMouseWhenTyping) {
+            typingHidMouse = true;
+        }
+
+        // Use TWidget's code to pass the event to the children.
+        super.onPaste(paste);
+
+        // The editor might have changed, update the scollbars.
+        setBottomValue(editField.getMaximumRowNumber());
+        setVerticalValue(editField.getVisibleRowNumber());
+        setRightValue(editField.getMaximumColumnNumber());
+        setHorizontalValue(editField.getEditingColumnNumber());
+    }
+
     /**
      * Handle window/screen resize events.
      *
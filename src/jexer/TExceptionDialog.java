@@ -37,6 +37,7 @@ import java.util.Date;
 import java.util.ResourceBundle;
 
 import jexer.bits.CellAttributes;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TExceptionDialog displays an exception and its stack trace to the user,
@@ -140,7 +141,7 @@ public class TExceptionDialog extends TWindow {
         // Draw window and border.
         super.draw();
 
-        CellAttributes boxColor = getTheme().getColor("ttext");
+        CellAttributes boxColor = getTheme().getColor(TTEXT);
         hLineXY(3, 7, getWidth() - 6, ' ', boxColor);
     }
 
@@ -29,13 +29,16 @@
 package jexer;
 
 import jexer.bits.CellAttributes;
+import jexer.bits.ColorTheme;
 import jexer.bits.GraphicsChars;
 import jexer.bits.StringUtils;
 import jexer.event.TCommandEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
+import jexer.event.TPasteEvent;
 import static jexer.TCommand.*;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TField implements an editable text field.
@@ -107,6 +110,16 @@ public class TField extends TWidget implements EditMenuUser {
      */
     private String inactiveColorKey = "tfield.inactive";
 
+    /**
+     * The theme color slot of activeColorKey.
+     */
+    private int activeColorSlot = TFIELD_ACTIVE;
+
+    /**
+     * The theme color slot of inactiveColorKey.
+     */
+    private int inactiveColorSlot = TFIELD_INACTIVE;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -397,6 +410,41 @@ public class TField extends TWidget implements EditMenuUser {
         super.onKeypress(keypress);
     }
 
+    /**
+     * Handle pasted text.  A field that can grow and is in insert mode
+     * takes the text all at once, without line breaks or other control
+     * characters; otherwise the text is typed one character at a time.
+     *
+     * @param paste paste event
+     */
+    @Override
+    public void onPaste(final TPasteEvent paste) {
+        if (fixed || !insertMode) {
+            super.onPaste(paste);
+            return;
+        }
+
+        String pasted = paste.getText();
+        StringBuilder sb = new StringBuilder(pasted.length());
+        for (int i = 0; i < pasted.length(); ) {
+            int ch = pasted.codePointAt(i);
+            if ((ch >= 0x20) && (ch != 0x7F)) {
+                sb.appendCodePoint(ch);
+            }
+            i += Character.charCount(ch);
+        }
+        if (sb.length() == 0) {
+            return;
+        }
+
+        text = text.substring(0, position) + sb.toString()
+                + text.substring(position);
+        position += sb.length();
+        screenPosition = StringUtils.width(text.substring(0, position));
+        normalizeWindowStart();
+        dispatch(false);
+    }
+
     /**
      * Handle posted command events.
      *
@@ -457,16 +505,16 @@ public class TField extends TWidget implements EditMenuUser {
         CellAttributes fieldColor;
 
         if (isAbsoluteActive()) {
-            fieldColor = getTheme().getColor(activeColorKey);
+            fieldColor = getTheme().getColor(activeColorSlot);
         } else {
-            fieldColor = getTheme().getColor(inactiveColorKey);
+            fieldColor = getTheme().getColor(inactiveColorSlot);
         }
         // Pulse color.
         if (isActive() && getWindow().isActive()) {
             fieldColor.setPulse(true, false, 0);
             fieldColor.setPulseColorRGB(getScreen().getBackend().
                 attrToForegroundColor(getTheme().getColor(
-                    "tfield.pulse")).getRGB());
+                    TFIELD_PULSE)).getRGB());
         }
 
         int end = windowStart + getWidth();
@@ -709,6 +757,7 @@ public class TField extends TWidget implements EditMenuUser {
      */
     public void setActiveColorKey(final String activeColorKey) {
         this.activeColorKey = activeColorKey;
+        activeColorSlot = ColorTheme.getSlot(activeColorKey);
     }
 
     /**
@@ -719,6 +768,7 @@ public class TField extends TWidget implements EditMenuUser {
      */
     public void setInactiveColorKey(final String inactiveColorKey) {
         this.inactiveColorKey = inactiveColorKey;
+        inactiveColorSlot = ColorTheme.getSlot(inactiveColorKey);
     }
 
     /**
@@ -181,8 +181,10 @@ public class TFileOpenBox extends TWindow {
         treeView = addTreeViewWidget(1, 3, 30, getHeight() - 6,
             new TAction() {
                 public void DO() {
-                    TTreeItem item = treeView.getSelected();
-                    File selectedDir = ((TDirectoryTreeItem) item).getFile();
+                    File selectedDir = getSelectedDirectory();
+                    if (selectedDir == null) {
+                        return;
+                    }
                     try {
                         directoryList.setPath(selectedDir.getCanonicalPath());
                         entryField.setText(selectedDir.getCanonicalPath());
@@ -344,8 +346,10 @@ public class TFileOpenBox extends TWindow {
                 super.onKeypress(keypress);
 
                 // This is the same action as treeView's enter.
-                TTreeItem item = treeView.getSelected();
-                File selectedDir = ((TDirectoryTreeItem) item).getFile();
+                File selectedDir = getSelectedDirectory();
+                if (selectedDir == null) {
+                    return;
+                }
                 try {
                     directoryList.setPath(selectedDir.getCanonicalPath());
                     if (type == Type.OPEN) {
@@ -394,6 +398,20 @@ public class TFileOpenBox extends TWindow {
         return filename;
     }
 
+    /**
+     * Get the directory selected in the tree view.
+     *
+     * @return the directory, or null if the selected item is not a
+     * directory (e.g. the placeholder shown while a directory is read)
+     */
+    private File getSelectedDirectory() {
+        TTreeItem item = treeView.getSelected();
+        if (item instanceof TDirectoryTreeItem) {
+            return ((TDirectoryTreeItem) item).getFile();
+        }
+        return null;
+    }
+
     /**
      * See if there is a valid filename to return.  If the filename is a
      * directory, then
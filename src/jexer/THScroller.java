@@ -31,6 +31,7 @@ package jexer;
 import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
 import jexer.event.TMouseEvent;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * THScroller implements a simple horizontal scroll bar.
@@ -214,8 +215,8 @@ public class THScroller extends TWidget {
      */
     @Override
     public void draw() {
-        CellAttributes arrowColor = getTheme().getColor("tscroller.arrows");
-        CellAttributes barColor = getTheme().getColor("tscroller.bar");
+        CellAttributes arrowColor = getTheme().getColor(TSCROLLER_ARROWS);
+        CellAttributes barColor = getTheme().getColor(TSCROLLER_BAR);
         putCharXY(0, 0, GraphicsChars.CP437[0x11], arrowColor);
         putCharXY(getWidth() - 1, 0, GraphicsChars.CP437[0x10], arrowColor);
 
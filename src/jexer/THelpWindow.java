@@ -29,11 +29,13 @@
 package jexer;
 
 import java.util.ResourceBundle;
+import java.util.regex.PatternSyntaxException;
 
 import jexer.bits.CellAttributes;
 import jexer.event.TResizeEvent;
 import jexer.help.THelpText;
 import jexer.help.Topic;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * THelpWindow
@@ -81,6 +83,16 @@ public class THelpWindow extends TWindow {
      */
     private TButton closeButton;
 
+    /**
+     * The "Search" label.
+     */
+    private TLabel searchLabel;
+
+    /**
+     * The search-as-you-type field.
+     */
+    private TField searchField;
+
     /**
      * The X position for the buttons.
      */
@@ -158,6 +170,34 @@ public class THelpWindow extends TWindow {
                 }
             });
 
+        searchLabel = addLabel(i18n.getString("searchLabel"),
+            getWidth() - buttonOffset, 12, "tlabel",
+            new TAction() {
+                public void DO() {
+                    activate(searchField);
+                }
+            });
+        searchField = addField(getWidth() - buttonOffset, 13,
+            buttonOffset - 3, false, "",
+            new TAction() {
+                public void DO() {
+                    // Enter: keep these results in the history.
+                    Topic results = search(searchField.getText());
+                    if (results != null) {
+                        setHelpTopic(results);
+                    }
+                }
+            },
+            new TAction() {
+                public void DO() {
+                    // Typing: show results without adding to history.
+                    Topic results = search(searchField.getText());
+                    if (results != null) {
+                        helpText.setTopic(results, false);
+                    }
+                }
+            });
+
         // Save this for last: make the close button default action.
         activate(closeButton);
 
@@ -189,6 +229,8 @@ public class THelpWindow extends TWindow {
             contentsButton.setX(getWidth() - buttonOffset);
             indexButton.setX(getWidth() - buttonOffset);
             closeButton.setX(getWidth() - buttonOffset);
+            searchLabel.setX(getWidth() - buttonOffset);
+            searchField.setX(getWidth() - buttonOffset);
 
             helpText.setDimensions(1, 1, getWidth() - buttonOffset - 4,
                 getHeight() - 4);
@@ -213,7 +255,7 @@ public class THelpWindow extends TWindow {
      */
     @Override
     public final CellAttributes getBackground() {
-        return getTheme().getColor("thelpwindow.background");
+        return getTheme().getColor(THELPWINDOW_BACKGROUND);
     }
 
     /**
@@ -224,9 +266,9 @@ public class THelpWindow extends TWindow {
     @Override
     public CellAttributes getBorder() {
         if (inWindowMove) {
-            return getTheme().getColor("thelpwindow.windowmove");
+            return getTheme().getColor(THELPWINDOW_WINDOWMOVE);
         }
-        return getTheme().getColor("thelpwindow.background");
+        return getTheme().getColor(THELPWINDOW_BACKGROUND);
     }
 
     /**
@@ -236,7 +278,7 @@ public class THelpWindow extends TWindow {
      */
     @Override
     public CellAttributes getBorderControls() {
-        return getTheme().getColor("thelpwindow.border");
+        return getTheme().getColor(THELPWINDOW_BORDER);
     }
 
     // ------------------------------------------------------------------------
@@ -252,6 +294,25 @@ public class THelpWindow extends TWindow {
         setHelpTopic(getApplication().helpFile.getTopic(topic));
     }
 
+    /**
+     * Search the help file.
+     *
+     * @param searchString the words or regular expression to search for
+     * @return the search results topic, or null if searchString is empty
+     * or is an incomplete regular expression
+     */
+    private Topic search(final String searchString) {
+        if (searchString.trim().length() == 0) {
+            return null;
+        }
+        try {
+            return getApplication().helpFile.getSearchResults(searchString);
+        } catch (PatternSyntaxException e) {
+            // The user is still typing.
+            return null;
+        }
+    }
+
     /**
      * Set the topic to display.
      *
@@ -29,8 +29,10 @@
 package jexer;
 
 import jexer.bits.CellAttributes;
+import jexer.bits.ColorTheme;
 import jexer.bits.MnemonicString;
 import jexer.bits.StringUtils;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TLabel implements a simple label, with an optional mnemonic hotkey action
@@ -57,6 +59,11 @@ public class TLabel extends TWidget {
      */
     private String colorKey;
 
+    /**
+     * The theme color slot of colorKey.
+     */
+    private int colorSlot;
+
     /**
      * If true, use the window's background color.
      */
@@ -162,6 +169,7 @@ public class TLabel extends TWidget {
 
         setLabel(text);
         this.colorKey = colorKey;
+        colorSlot = ColorTheme.getSlot(colorKey);
         this.useWindowBackground = useWindowBackground;
         this.action = action;
     }
@@ -199,8 +207,8 @@ public class TLabel extends TWidget {
         // Setup my color
         CellAttributes color = new CellAttributes();
         CellAttributes mnemonicColor = new CellAttributes();
-        color.setTo(getTheme().getColor(colorKey));
-        mnemonicColor.setTo(getTheme().getColor("tlabel.mnemonic"));
+        color.setTo(getTheme().getColor(colorSlot));
+        mnemonicColor.setTo(getTheme().getColor(TLABEL_MNEMONIC));
         if (useWindowBackground) {
             CellAttributes background = getWindow().getBackground();
             if (background.getBackColorRGB() == -1) {
@@ -266,6 +274,7 @@ public class TLabel extends TWidget {
      */
     public void setColorKey(final String colorKey) {
         this.colorKey = colorKey;
+        colorSlot = ColorTheme.getSlot(colorKey);
     }
 
     /**
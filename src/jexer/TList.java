@@ -29,6 +29,7 @@
 package jexer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import jexer.bits.CellAttributes;
@@ -36,9 +37,15 @@ import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
- * TList shows a list of strings, and lets the user select one.
+ * TList shows a list of strings, and lets the user select one.  The
+ * strings come from a ListModel, and only the strings on screen are read
+ * when drawing, so very long lists scroll as quickly as short ones.  The
+ * list can be narrowed to the strings that contain a filter text, either
+ * set with setFilter() or typed by the user when type-ahead is enabled.
+ * The filter text is shown left of the horizontal scrollbar.
  */
 public class TList extends TScrollableWidget {
 
@@ -47,17 +54,51 @@ public class TList extends TScrollableWidget {
     // ------------------------------------------------------------------------
 
     /**
-     * The list of strings to display.
+     * The strings to display.
      */
-    private List<String> strings;
+    private ListModel model;
 
     /**
-     * Selected string.
+     * Listener registered on the model.
+     */
+    private ListModelListener modelListener;
+
+    /**
+     * The model index of each row shown when a filter is set, in ascending
+     * order.  null when there is no filter and every string is shown.
+     */
+    private int [] rowIndex = null;
+
+    /**
+     * The filter text.  Only strings that contain this text (ignoring
+     * case) are shown.
+     */
+    private String filter = "";
+
+    /**
+     * The filters that the current filter was narrowed from, and their
+     * rows, so that backspacing through typed text does not re-scan the
+     * model.
+     */
+    private List<String> filterStack = new ArrayList<String>();
+
+    /**
+     * The rows of each filter in filterStack.
+     */
+    private List<int []> rowIndexStack = new ArrayList<int []>();
+
+    /**
+     * If true, typing printable keys edits the filter.
+     */
+    private boolean typeAhead = false;
+
+    /**
+     * Selected row.
      */
     private int selectedString = -1;
 
     /**
-     * Maximum width of a single line.
+     * Maximum width of the strings that have been on screen.
      */
     private int maxLineWidth;
 
@@ -102,7 +143,7 @@ public class TList extends TScrollableWidget {
      *
      * @param parent parent widget
      * @param strings list of strings to show.  This is allowed to be null
-     * and set later with setList() or by subclasses.
+     * and set later with setList(), setModel(), or by subclasses.
      * @param x column relative to parent
      * @param y row relative to parent
      * @param width width of text area
@@ -121,7 +162,7 @@ public class TList extends TScrollableWidget {
      *
      * @param parent parent widget
      * @param strings list of strings to show.  This is allowed to be null
-     * and set later with setList() or by subclasses.
+     * and set later with setList(), setModel(), or by subclasses.
      * @param x column relative to parent
      * @param y row relative to parent
      * @param width width of text area
@@ -143,7 +184,7 @@ public class TList extends TScrollableWidget {
      *
      * @param parent parent widget
      * @param strings list of strings to show.  This is allowed to be null
-     * and set later with setList() or by subclasses.
+     * and set later with setList(), setModel(), or by subclasses.
      * @param x column relative to parent
      * @param y row relative to parent
      * @param width width of text area
@@ -163,10 +204,28 @@ public class TList extends TScrollableWidget {
         this.enterAction = enterAction;
         this.moveAction = moveAction;
         this.singleClickAction = singleClickAction;
-        this.strings = new ArrayList<String>();
-        if (strings != null) {
-            this.strings.addAll(strings);
-        }
+
+        modelListener = new ListModelListener() {
+            public void itemsAdded(final ListModel model, final int first,
+                final int last) {
+
+                onItemsAdded(first, last);
+            }
+
+            public void itemsRemoved(final ListModel model, final int first,
+                final int last) {
+
+                onItemsRemoved(first, last);
+            }
+
+            public void itemsChanged(final ListModel model, final int first,
+                final int last) {
+
+                onItemsChanged(first, last);
+            }
+        };
+        model = new ArrayListModel(strings);
+        model.addListModelListener(modelListener);
 
         hScroller = new THScroller(this, 0, getHeight() - 1, getWidth() - 1);
         vScroller = new TVScroller(this, getWidth() - 1, 0, getHeight() - 1);
@@ -186,17 +245,19 @@ public class TList extends TScrollableWidget {
     public void onMouseDown(final TMouseEvent mouse) {
         if (mouse.isMouseWheelUp()) {
             verticalDecrement();
+            measureShownRows();
             return;
         }
         if (mouse.isMouseWheelDown()) {
             verticalIncrement();
+            measureShownRows();
             return;
         }
 
         if ((mouse.getX() < getWidth() - 1)
             && (mouse.getY() < getHeight() - 1)
         ) {
-            if (getVerticalValue() + mouse.getY() < strings.size()) {
+            if (getVerticalValue() + mouse.getY() < getRowCount()) {
                 selectedString = getVerticalValue() + mouse.getY();
                 dispatchSingleClick();
             }
@@ -205,6 +266,31 @@ public class TList extends TScrollableWidget {
 
         // Pass to children
         super.onMouseDown(mouse);
+        measureShownRows();
+    }
+
+    /**
+     * Handle mouse release events.
+     *
+     * @param mouse mouse button release event
+     */
+    @Override
+    public void onMouseUp(final TMouseEvent mouse) {
+        // Pass to children, the scrollbars may have moved.
+        super.onMouseUp(mouse);
+        measureShownRows();
+    }
+
+    /**
+     * Handle mouse movements.
+     *
+     * @param mouse mouse motion event
+     */
+    @Override
+    public void onMouseMotion(final TMouseEvent mouse) {
+        // Pass to children, the scrollbars may have been dragged.
+        super.onMouseMotion(mouse);
+        measureShownRows();
     }
 
     /**
@@ -217,7 +303,7 @@ public class TList extends TScrollableWidget {
         if ((mouse.getX() < getWidth() - 1)
             && (mouse.getY() < getHeight() - 1)
         ) {
-            if (getVerticalValue() + mouse.getY() < strings.size()) {
+            if (getVerticalValue() + mouse.getY() < getRowCount()) {
                 selectedString = getVerticalValue() + mouse.getY();
                 dispatchEnter();
             }
@@ -235,12 +321,14 @@ public class TList extends TScrollableWidget {
      */
     @Override
     public void onKeypress(final TKeypressEvent keypress) {
+        int rowCount = getRowCount();
+
         if (keypress.equals(kbLeft)) {
             horizontalDecrement();
         } else if (keypress.equals(kbRight)) {
             horizontalIncrement();
         } else if (keypress.equals(kbUp)) {
-            if (strings.size() > 0) {
+            if (rowCount > 0) {
                 if (selectedString >= 0) {
                     if (selectedString > 0) {
                         if (selectedString - getVerticalValue() == 0) {
@@ -249,16 +337,16 @@ public class TList extends TScrollableWidget {
                         selectedString--;
                     }
                 } else {
-                    selectedString = strings.size() - 1;
+                    selectedString = rowCount - 1;
                 }
             }
             if (selectedString >= 0) {
                 dispatchMove();
             }
         } else if (keypress.equals(kbDown)) {
-            if (strings.size() > 0) {
+            if (rowCount > 0) {
                 if (selectedString >= 0) {
-                    if (selectedString < strings.size() - 1) {
+                    if (selectedString < rowCount - 1) {
                         selectedString++;
                         if (selectedString - getVerticalValue() == getHeight() - 1) {
                             verticalIncrement();
@@ -286,8 +374,8 @@ public class TList extends TScrollableWidget {
             bigVerticalIncrement();
             if (selectedString >= 0) {
                 selectedString += getHeight() - 1;
-                if (selectedString > strings.size() - 1) {
-                    selectedString = strings.size() - 1;
+                if (selectedString > rowCount - 1) {
+                    selectedString = rowCount - 1;
                 }
             }
             if (selectedString >= 0) {
@@ -295,7 +383,7 @@ public class TList extends TScrollableWidget {
             }
         } else if (keypress.equals(kbHome)) {
             toTop();
-            if (strings.size() > 0) {
+            if (rowCount > 0) {
                 selectedString = 0;
             }
             if (selectedString >= 0) {
@@ -303,8 +391,8 @@ public class TList extends TScrollableWidget {
             }
         } else if (keypress.equals(kbEnd)) {
             toBottom();
-            if (strings.size() > 0) {
-                selectedString = strings.size() - 1;
+            if (rowCount > 0) {
+                selectedString = rowCount - 1;
             }
             if (selectedString >= 0) {
                 dispatchMove();
@@ -317,10 +405,44 @@ public class TList extends TScrollableWidget {
             if (selectedString >= 0) {
                 dispatchEnter();
             }
+        } else if (typeAhead
+            && (keypress.equals(kbBackspace)
+                || keypress.equals(kbBackspaceDel))
+        ) {
+            if (filter.length() > 0) {
+                typeAheadFilter(filter.substring(0,
+                        filter.offsetByCodePoints(filter.length(), -1)));
+            }
+        } else if (typeAhead
+            && keypress.equals(kbEsc)
+            && (filter.length() > 0)
+        ) {
+            typeAheadFilter("");
+        } else if (typeAhead
+            && !keypress.getKey().isFnKey()
+            && !keypress.getKey().isAlt()
+            && !keypress.getKey().isCtrl()
+        ) {
+            typeAheadFilter(filter + new String(Character.toChars(
+                keypress.getKey().getChar())));
         } else {
             // Pass other keys (tab etc.) on
             super.onKeypress(keypress);
         }
+        measureShownRows();
+    }
+
+    // ------------------------------------------------------------------------
+    // TWidget ----------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Stop listening to the model when this widget is closed.
+     */
+    @Override
+    public void close() {
+        model.removeListModelListener(modelListener);
+        super.close();
     }
 
     // ------------------------------------------------------------------------
@@ -335,9 +457,7 @@ public class TList extends TScrollableWidget {
     @Override
     public void setWidth(final int width) {
         super.setWidth(width);
-        if (hScroller != null) {
-            hScroller.setWidth(getWidth() - 1);
-        }
+        layoutFilter();
         if (vScroller != null) {
             vScroller.setX(getWidth() - 1);
         }
@@ -357,7 +477,9 @@ public class TList extends TScrollableWidget {
         if (vScroller != null) {
             vScroller.setHeight(getHeight() - 1);
         }
-        setSelectedIndex(selectedString);
+        if (model != null) {
+            setSelectedIndex(getSelectedIndex());
+        }
     }
 
     /**
@@ -366,27 +488,8 @@ public class TList extends TScrollableWidget {
     @Override
     public void reflowData() {
 
-        // Reset the lines
         selectedString = -1;
-        maxLineWidth = 0;
-
-        for (int i = 0; i < strings.size(); i++) {
-            String line = strings.get(i);
-            int lineLength = StringUtils.width(line);
-            if (lineLength > maxLineWidth) {
-                maxLineWidth = lineLength;
-            }
-        }
-
-        setBottomValue(strings.size() - getHeight() + 1);
-        if (getBottomValue() < 0) {
-            setBottomValue(0);
-        }
-
-        setRightValue(maxLineWidth - getWidth() + 1);
-        if (getRightValue() < 0) {
-            setRightValue(0);
-        }
+        updateScrollRange();
     }
 
     /**
@@ -396,30 +499,33 @@ public class TList extends TScrollableWidget {
     public void draw() {
         CellAttributes color = null;
         int begin = getVerticalValue();
+        int rowCount = getRowCount();
+        int lineWidth = getWidth() - 1;
         int topY = 0;
-        for (int i = begin; i < strings.size(); i++) {
-            String line = strings.get(i);
-            if (line == null) {
-                line = "";
-            }
+        for (int i = begin; i < rowCount; i++) {
+            String line = getRow(i);
             if (getHorizontalValue() < line.length()) {
-                line = line.substring(getHorizontalValue());
+                line = clipText(line.substring(getHorizontalValue()),
+                    lineWidth);
             } else {
                 line = "";
             }
             if (i == selectedString) {
                 if (isAbsoluteActive()) {
-                    color = getTheme().getColor("tlist.selected");
+                    color = getTheme().getColor(TLIST_SELECTED);
                 } else {
-                    color = getTheme().getColor("tlist.selected.inactive");
+                    color = getTheme().getColor(TLIST_SELECTED_INACTIVE);
                 }
             } else if (isAbsoluteActive()) {
-                color = getTheme().getColor("tlist");
+                color = getTheme().getColor(TLIST);
             } else {
-                color = getTheme().getColor("tlist.inactive");
+                color = getTheme().getColor(TLIST_INACTIVE);
+            }
+            putStringXY(0, topY, line, color);
+            int lineLength = StringUtils.width(line);
+            if (lineLength < lineWidth) {
+                hLineXY(lineLength, topY, lineWidth - lineLength, ' ', color);
             }
-            String formatString = "%-" + Integer.toString(getWidth() - 1) + "s";
-            putStringXY(0, topY, String.format(formatString, line), color);
             topY++;
             if (topY >= getHeight() - 1) {
                 break;
@@ -427,14 +533,34 @@ public class TList extends TScrollableWidget {
         }
 
         if (isAbsoluteActive()) {
-            color = getTheme().getColor("tlist");
+            color = getTheme().getColor(TLIST);
         } else {
-            color = getTheme().getColor("tlist.inactive");
+            color = getTheme().getColor(TLIST_INACTIVE);
         }
 
         // Pad the rest with blank lines
         for (int i = topY; i < getHeight() - 1; i++) {
-            hLineXY(0, i, getWidth() - 1, ' ', color);
+            hLineXY(0, i, lineWidth, ' ', color);
+        }
+
+        // Show the filter left of the horizontal scrollbar.
+        int filterWidth = hScroller.getX();
+        if (filterWidth > 0) {
+            String text = filter;
+            while ((text.length() > 0)
+                && (StringUtils.width(text) > filterWidth - 2)
+            ) {
+                // Too long: show the end, which is what is being typed.
+                text = text.substring(text.offsetByCodePoints(0, 1));
+            }
+            text = "[" + text + "]";
+            putStringXY(0, getHeight() - 1, text,
+                getTheme().getColor(TLIST_SELECTED));
+            int textWidth = StringUtils.width(text);
+            if (textWidth < filterWidth) {
+                hLineXY(textWidth, getHeight() - 1, filterWidth - textWidth,
+                    ' ', color);
+            }
         }
     }
 
@@ -442,41 +568,481 @@ public class TList extends TScrollableWidget {
     // TList ------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+     * Get the number of rows shown, i.e. the strings that pass the filter.
+     *
+     * @return the number of rows
+     */
+    private int getRowCount() {
+        if (rowIndex != null) {
+            return rowIndex.length;
+        }
+        return model.getSize();
+    }
+
+    /**
+     * Get the string shown on a row.
+     *
+     * @param row the row
+     * @return the string
+     */
+    private String getRow(final int row) {
+        String line = model.getElementAt(toModelIndex(row));
+        if (line == null) {
+            return "";
+        }
+        return line;
+    }
+
+    /**
+     * Convert a row to an index into the model.
+     *
+     * @param row the row, or -1
+     * @return the model index, or -1
+     */
+    private int toModelIndex(final int row) {
+        if ((row < 0) || (rowIndex == null)) {
+            return row;
+        }
+        return rowIndex[row];
+    }
+
+    /**
+     * Convert an index into the model to a row.
+     *
+     * @param index the model index
+     * @return the row, or -1 if index is -1 or that string is filtered out
+     */
+    private int toRow(final int index) {
+        if ((index < 0) || (rowIndex == null)) {
+            return index;
+        }
+        int row = Arrays.binarySearch(rowIndex, index);
+        return (row < 0 ? -1 : row);
+    }
+
+    /**
+     * Find the first position in rowIndex whose model index is at least
+     * index.
+     *
+     * @param index the model index
+     * @return the position in rowIndex
+     */
+    private int findRowIndex(final int index) {
+        int row = Arrays.binarySearch(rowIndex, index);
+        return (row < 0 ? -row - 1 : row);
+    }
+
+    /**
+     * Replace part of rowIndex.
+     *
+     * @param start the first position to replace
+     * @param end one past the last position to replace
+     * @param rows the model indexes to put there
+     */
+    private void spliceRowIndex(final int start, final int end,
+        final int [] rows) {
+
+        int [] newRowIndex = new int[rowIndex.length - (end - start)
+            + rows.length];
+        System.arraycopy(rowIndex, 0, newRowIndex, 0, start);
+        System.arraycopy(rows, 0, newRowIndex, start, rows.length);
+        System.arraycopy(rowIndex, end, newRowIndex, start + rows.length,
+            rowIndex.length - end);
+        rowIndex = newRowIndex;
+    }
+
+    /**
+     * See if a string contains the filter text, ignoring case.
+     *
+     * @param line the string
+     * @return true if the string should be shown
+     */
+    private boolean matchesFilter(final String line) {
+        if (line == null) {
+            return false;
+        }
+        int n = line.length() - filter.length();
+        for (int i = 0; i <= n; i++) {
+            if (line.regionMatches(true, i, filter, 0, filter.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the model indexes in a range that pass the filter.
+     *
+     * @param first the first model index to check
+     * @param last the last model index to check
+     * @return the model indexes that pass, in ascending order
+     */
+    private int [] filterRange(final int first, final int last) {
+        int [] rows = new int[Math.min(last - first + 1, 1024)];
+        int n = 0;
+        for (int i = first; i <= last; i++) {
+            if (matchesFilter(model.getElementAt(i))) {
+                if (n == rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                }
+                rows[n] = i;
+                n++;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * Find the model indexes of some rows that pass the filter.
+     *
+     * @param rows the model indexes to check
+     * @return the model indexes that pass, in ascending order
+     */
+    private int [] filterRows(final int [] rows) {
+        int [] newRows = new int[rows.length];
+        int n = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (matchesFilter(model.getElementAt(rows[i]))) {
+                newRows[n] = rows[i];
+                n++;
+            }
+        }
+        return Arrays.copyOf(newRows, n);
+    }
+
+    /**
+     * Note the width of the rows on screen, and widen the horizontal
+     * scrollbar range to reach the widest string seen so far.  Only rows
+     * that have been scrolled into view are read, so a long model is never
+     * measured up front.  The range does not shrink when strings are
+     * removed or changed, so it may be a little too wide afterwards.
+     */
+    private void measureShownRows() {
+        int begin = getVerticalValue();
+        int end = Math.min(getRowCount(), begin + getHeight() - 1);
+        for (int i = begin; i < end; i++) {
+            int lineLength = StringUtils.width(getRow(i));
+            if (lineLength > maxLineWidth) {
+                maxLineWidth = lineLength;
+            }
+        }
+        setRightValue(maxLineWidth - getWidth() + 1);
+        if (getRightValue() < 0) {
+            setRightValue(0);
+        }
+    }
+
+    /**
+     * Make room for the filter text at the left of the horizontal
+     * scrollbar, so that the user can see why the list is shorter.
+     */
+    private void layoutFilter() {
+        if (hScroller == null) {
+            return;
+        }
+        int filterWidth = 0;
+        if (filter.length() > 0) {
+            filterWidth = Math.min(StringUtils.width(filter) + 2,
+                (getWidth() - 1) / 2);
+        }
+        hScroller.setX(filterWidth);
+        hScroller.setWidth(getWidth() - 1 - filterWidth);
+    }
+
+    /**
+     * Set the scrollbar limits for the number of rows and the widest line.
+     */
+    private void updateScrollRange() {
+        setBottomValue(getRowCount() - getHeight() + 1);
+        if (getBottomValue() < 0) {
+            setBottomValue(0);
+        }
+        if (getVerticalValue() > getBottomValue()) {
+            setVerticalValue(getBottomValue());
+        }
+        measureShownRows();
+    }
+
+    /**
+     * Scroll so that a row is on screen, at the bottom if the list has to
+     * scroll down to it.
+     *
+     * @param row the row
+     */
+    private void scrollToRow(final int row) {
+        if (row < getVerticalValue()) {
+            setVerticalValue(row);
+        } else if (row - getVerticalValue() >= getHeight() - 1) {
+            setVerticalValue(Math.min(row - getHeight() + 2,
+                    getBottomValue()));
+        }
+    }
+
+    /**
+     * Clip a string to a number of columns.
+     *
+     * @param text the string
+     * @param width the number of columns
+     * @return the start of text that fits in width columns
+     */
+    private String clipText(final String text, final int width) {
+        int textWidth = 0;
+        for (int i = 0; i < text.length();) {
+            int ch = text.codePointAt(i);
+            textWidth += StringUtils.width(ch);
+            if (textWidth > width) {
+                return text.substring(0, i);
+            }
+            i += Character.charCount(ch);
+        }
+        return text;
+    }
+
+    /**
+     * Handle strings that were inserted into the model.
+     *
+     * @param first the index of the first new string
+     * @param last the index of the last new string
+     */
+    private void onItemsAdded(final int first, final int last) {
+        int count = last - first + 1;
+        int selected = getSelectedIndex();
+        if (selected >= first) {
+            selected += count;
+        }
+        if (rowIndex != null) {
+            int start = findRowIndex(first);
+            for (int i = start; i < rowIndex.length; i++) {
+                rowIndex[i] += count;
+            }
+            spliceRowIndex(start, start, filterRange(first, last));
+        }
+        onModelChanged(selected);
+    }
+
+    /**
+     * Handle strings that were removed from the model.
+     *
+     * @param first the index the first string had
+     * @param last the index the last string had
+     */
+    private void onItemsRemoved(final int first, final int last) {
+        int count = last - first + 1;
+        int selected = getSelectedIndex();
+        if (selected > last) {
+            selected -= count;
+        } else if (selected >= first) {
+            selected = -1;
+        }
+        if (rowIndex != null) {
+            int start = findRowIndex(first);
+            int end = findRowIndex(last + 1);
+            for (int i = end; i < rowIndex.length; i++) {
+                rowIndex[i] -= count;
+            }
+            spliceRowIndex(start, end, new int[0]);
+        }
+        onModelChanged(selected);
+    }
+
+    /**
+     * Handle strings that were replaced in the model.
+     *
+     * @param first the index of the first changed string
+     * @param last the index of the last changed string
+     */
+    private void onItemsChanged(final int first, final int last) {
+        int selected = getSelectedIndex();
+        if (rowIndex != null) {
+            spliceRowIndex(findRowIndex(first), findRowIndex(last + 1),
+                filterRange(first, last));
+        }
+        onModelChanged(selected);
+    }
+
+    /**
+     * Restore the selection and scrollbars after the model changed.
+     *
+     * @param selected the model index of the selected string, or -1
+     */
+    private void onModelChanged(final int selected) {
+        filterStack.clear();
+        rowIndexStack.clear();
+        selectedString = toRow(selected);
+        updateScrollRange();
+    }
+
+    /**
+     * Change the filter as the user types, and move to the first match if
+     * the selected string was filtered out.
+     *
+     * @param text the new filter text
+     */
+    private void typeAheadFilter(final String text) {
+        int oldSelected = getSelectedIndex();
+        setFilter(text);
+        if ((selectedString >= 0) && (getSelectedIndex() != oldSelected)) {
+            dispatchMove();
+        }
+    }
+
+    /**
+     * Get the model with the strings to display.
+     *
+     * @return the model
+     */
+    public final ListModel getModel() {
+        return model;
+    }
+
+    /**
+     * Set the model with the strings to display.  The filter is kept and
+     * the selection is cleared.
+     *
+     * @param model the new model
+     */
+    public final void setModel(final ListModel model) {
+        this.model.removeListModelListener(modelListener);
+        this.model = model;
+        model.addListModelListener(modelListener);
+        filterStack.clear();
+        rowIndexStack.clear();
+        if (filter.length() > 0) {
+            rowIndex = filterRange(0, model.getSize() - 1);
+        } else {
+            rowIndex = null;
+        }
+        maxLineWidth = 0;
+        reflowData();
+    }
+
+    /**
+     * Get the filter text.
+     *
+     * @return the text that every shown string contains, or an empty
+     * string if all strings are shown
+     */
+    public final String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Show only the strings that contain a text, ignoring case.  When the
+     * new text contains the previous one (as it does while the user is
+     * typing), only the rows already shown are checked again.  The
+     * selected string stays selected if it is still shown, otherwise the
+     * first row is selected.
+     *
+     * @param text the filter text, or null or an empty string to show all
+     * strings
+     */
+    public final void setFilter(final String text) {
+        String newFilter = (text == null ? "" : text);
+        if (newFilter.equals(filter)) {
+            return;
+        }
+        int selected = getSelectedIndex();
+
+        String oldFilter = filter;
+        filter = newFilter;
+        if (newFilter.length() == 0) {
+            rowIndex = null;
+            filterStack.clear();
+            rowIndexStack.clear();
+        } else if (newFilter.toLowerCase().contains(oldFilter.toLowerCase())) {
+            // Narrowing: only the rows already shown can match.
+            filterStack.add(oldFilter);
+            rowIndexStack.add(rowIndex);
+            if (rowIndex == null) {
+                rowIndex = filterRange(0, model.getSize() - 1);
+            } else {
+                rowIndex = filterRows(rowIndex);
+            }
+        } else {
+            // Widening: go back to an earlier filter if there is one.
+            int i = filterStack.lastIndexOf(newFilter);
+            if (i >= 0) {
+                rowIndex = rowIndexStack.get(i);
+                while (filterStack.size() > i) {
+                    filterStack.remove(filterStack.size() - 1);
+                    rowIndexStack.remove(rowIndexStack.size() - 1);
+                }
+            } else {
+                filterStack.clear();
+                rowIndexStack.clear();
+                rowIndex = filterRange(0, model.getSize() - 1);
+            }
+        }
+
+        selectedString = toRow(selected);
+        if ((selectedString < 0) && (getRowCount() > 0)) {
+            selectedString = 0;
+        }
+        layoutFilter();
+        updateScrollRange();
+        if (selectedString >= 0) {
+            scrollToRow(selectedString);
+        } else {
+            toTop();
+        }
+        measureShownRows();
+    }
+
+    /**
+     * Get the type-ahead option.
+     *
+     * @return true if typing printable keys edits the filter
+     */
+    public final boolean isTypeAhead() {
+        return typeAhead;
+    }
+
+    /**
+     * Set the type-ahead option.  When enabled, typing printable keys adds
+     * to the filter, backspace removes from it, and escape clears it.
+     *
+     * @param typeAhead if true, typing printable keys edits the filter
+     */
+    public final void setTypeAhead(final boolean typeAhead) {
+        this.typeAhead = typeAhead;
+    }
+
     /**
      * Get the selection index.
      *
      * @return -1 if nothing is selected, otherwise the index into the list
      */
     public final int getSelectedIndex() {
-        return selectedString;
+        return toModelIndex(selectedString);
     }
 
     /**
      * Set the selected string index.
      *
-     * @param index -1 to unselect, otherwise the index into the list
+     * @param index -1 to unselect, otherwise the index into the list.  If
+     * that string is filtered out, the next shown string is selected.
      */
     public final void setSelectedIndex(final int index) {
-        if ((strings.size() == 0) || (index < 0)) {
+        int rowCount = getRowCount();
+        if ((rowCount == 0) || (index < 0)) {
             toTop();
             selectedString = -1;
-            return;
-        }
-        if (index > strings.size() - 1) {
-            toBottom();
-            selectedString = strings.size() - 1;
-            return;
-        }
-
-        toTop();
-        selectedString = 0;
-        while (index > selectedString) {
-            selectedString++;
-            while (selectedString - getVerticalValue() >= getHeight() - 1) {
-                verticalIncrement();
+        } else {
+            int row = index;
+            if (rowIndex != null) {
+                row = findRowIndex(index);
+            }
+            if (row > rowCount - 1) {
+                toBottom();
+                selectedString = rowCount - 1;
+            } else {
+                toTop();
+                selectedString = row;
+                scrollToRow(row);
             }
         }
-        assert (index == selectedString);
+        measureShownRows();
     }
 
     /**
@@ -486,7 +1052,7 @@ public class TList extends TScrollableWidget {
      * @return the string at idx in the list
      */
     public final String getListItem(final int idx) {
-        return strings.get(idx);
+        return model.getElementAt(idx);
     }
 
     /**
@@ -495,8 +1061,8 @@ public class TList extends TScrollableWidget {
      * @return the selected string, or null of nothing is selected yet
      */
     public final String getSelected() {
-        if ((selectedString >= 0) && (selectedString <= strings.size() - 1)) {
-            return strings.get(selectedString);
+        if ((selectedString >= 0) && (selectedString <= getRowCount() - 1)) {
+            return getRow(selectedString);
         }
         return null;
     }
@@ -507,16 +1073,21 @@ public class TList extends TScrollableWidget {
      * @return -1 if the list is empty
      */
     public final int getMaxSelectedIndex() {
-        return strings.size() - 1;
+        return model.getSize() - 1;
     }
 
     /**
-     * Get a copy of the list of strings to display.
+     * Get a copy of the list of strings to display.  This includes strings
+     * that are filtered out.
      *
      * @return the list of strings
      */
     public final List<String> getList() {
-        return new ArrayList<String>(strings);
+        List<String> strings = new ArrayList<String>(model.getSize());
+        for (int i = 0; i < model.getSize(); i++) {
+            strings.add(model.getElementAt(i));
+        }
+        return strings;
     }
 
     /**
@@ -525,9 +1096,7 @@ public class TList extends TScrollableWidget {
      * @param list new list of strings
      */
     public final void setList(final List<String> list) {
-        strings.clear();
-        strings.addAll(list);
-        reflowData();
+        setModel(new ArrayListModel(list));
     }
 
     /**
@@ -535,7 +1104,7 @@ public class TList extends TScrollableWidget {
      */
     public void dispatchEnter() {
         assert (selectedString >= 0);
-        assert (selectedString < strings.size());
+        assert (selectedString < getRowCount());
         if (enterAction != null) {
             enterAction.DO(this);
         }
@@ -546,7 +1115,7 @@ public class TList extends TScrollableWidget {
      */
     public void dispatchMove() {
         assert (selectedString >= 0);
-        assert (selectedString < strings.size());
+        assert (selectedString < getRowCount());
         if (moveAction != null) {
             moveAction.DO(this);
         }
@@ -557,7 +1126,7 @@ public class TList extends TScrollableWidget {
      */
     public void dispatchSingleClick() {
         assert (selectedString >= 0);
-        assert (selectedString < strings.size());
+        assert (selectedString < getRowCount());
         if (singleClickAction != null) {
             singleClickAction.DO(this);
         }
@@ -0,0 +1,254 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import jexer.bits.CellAttributes;
+import jexer.bits.Histogram;
+import jexer.bits.Metrics;
+import jexer.event.TKeypressEvent;
+import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
+
+/**
+ * TMetricsWindow shows the application's performance measurements, updated
+ * once a second.
+ */
+public class TMetricsWindow extends TWindow {
+
+    /**
+     * Translated strings.
+     */
+    private static final ResourceBundle i18n =
+        ResourceBundle.getBundle(TMetricsWindow.class.getName());
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The width of the name column.
+     */
+    private static final int NAME_WIDTH = 28;
+
+    /**
+     * The format of the header line.
+     */
+    private static final String HEADER_FORMAT = "%-" + NAME_WIDTH +
+        "s %8s %9s %9s %9s %9s";
+
+    /**
+     * The format of a histogram line.
+     */
+    private static final String HISTOGRAM_FORMAT = "%-" + NAME_WIDTH +
+        "s %8d %9s %9s %9s %9s";
+
+    /**
+     * The format of a counter or gauge line.
+     */
+    private static final String VALUE_FORMAT = "%-" + NAME_WIDTH + "s %8d";
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The timer that refreshes the display.
+     */
+    private TTimer timer;
+
+    /**
+     * The first line shown.
+     */
+    private int top = 0;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.  The window will be centered on screen.
+     *
+     * @param application the TApplication that manages this window
+     */
+    public TMetricsWindow(final TApplication application) {
+
+        // Register with the TApplication
+        super(application, i18n.getString("windowTitle"), 0, 0,
+            NAME_WIDTH + 50, 20, CENTERED | RESIZABLE);
+
+        // Add shortcut text
+        newStatusBar(i18n.getString("statusBar"));
+
+        timer = application.addTimer(1000, true,
+            new TAction() {
+                public void DO() {
+                    getApplication().doRepaint();
+                }
+            }
+        );
+    }
+
+    // ------------------------------------------------------------------------
+    // Event handlers ---------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Handle keystrokes.
+     *
+     * @param keypress keystroke event
+     */
+    @Override
+    public void onKeypress(final TKeypressEvent keypress) {
+        if (keypress.equals(kbUp)) {
+            top = Math.max(0, top - 1);
+            return;
+        }
+        if (keypress.equals(kbDown)) {
+            top++;
+            return;
+        }
+        if (keypress.equals(kbPgUp)) {
+            top = Math.max(0, top - (getHeight() - 3));
+            return;
+        }
+        if (keypress.equals(kbPgDn)) {
+            top += getHeight() - 3;
+            return;
+        }
+        if (keypress.equals(kbHome)) {
+            top = 0;
+            return;
+        }
+        if (keypress.equals(kbR)) {
+            getApplication().getMetrics().reset();
+            return;
+        }
+
+        // Pass to my parent
+        super.onKeypress(keypress);
+    }
+
+    // ------------------------------------------------------------------------
+    // TWindow ----------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Stop the refresh timer when the window is closed.
+     */
+    @Override
+    public void onClose() {
+        getApplication().removeTimer(timer);
+    }
+
+    /**
+     * Draw the measurements.
+     */
+    @Override
+    public void draw() {
+        super.draw();
+
+        CellAttributes color = getTheme().getColor(TTEXT);
+        CellAttributes labelColor = getTheme().getColor(TLABEL);
+        Metrics metrics = getApplication().getMetrics();
+
+        String header = String.format(HEADER_FORMAT,
+            i18n.getString("name"), i18n.getString("count"),
+            i18n.getString("mean"), i18n.getString("p50"),
+            i18n.getString("p99"), i18n.getString("max"));
+        putStringXY(1, 1, clip(header), labelColor);
+
+        List<String> lines = new ArrayList<String>();
+        if (!metrics.isEnabled()) {
+            lines.add(i18n.getString("disabled"));
+        }
+        for (String name: metrics.getHistogramNames()) {
+            Histogram histogram = metrics.getHistogram(name);
+            lines.add(String.format(HISTOGRAM_FORMAT,
+                name, histogram.getCount(),
+                formatValue(name, (long) histogram.getMean()),
+                formatValue(name, histogram.getPercentile(50)),
+                formatValue(name, histogram.getPercentile(99)),
+                formatValue(name, histogram.getMax())));
+        }
+        for (String name: metrics.getCounterNames()) {
+            lines.add(String.format(VALUE_FORMAT, name,
+                    metrics.getCounter(name)));
+        }
+        for (String name: metrics.getGaugeNames()) {
+            lines.add(String.format(VALUE_FORMAT, name,
+                    metrics.getGauge(name)));
+        }
+
+        int rows = getHeight() - 3;
+        top = Math.max(0, Math.min(top, lines.size() - rows));
+        for (int i = 0; (i < rows) && (top + i < lines.size()); i++) {
+            putStringXY(1, 2 + i, clip(lines.get(top + i)), color);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // TMetricsWindow ---------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Cut a line to fit inside the window border.
+     *
+     * @param line the line
+     * @return the line, no wider than the window interior
+     */
+    private String clip(final String line) {
+        int width = Math.max(0, getWidth() - 2);
+        if (line.length() > width) {
+            return line.substring(0, width);
+        }
+        return line;
+    }
+
+    /**
+     * Format a histogram value.  Times are shown in micro- or milliseconds.
+     *
+     * @param name the histogram name
+     * @param value the value
+     * @return the formatted value
+     */
+    private String formatValue(final String name, final long value) {
+        if (!name.endsWith(".nanos")) {
+            return Long.toString(value);
+        }
+        if (value >= 10000000L) {
+            return String.format("%.1fms", value / 1000000.0);
+        }
+        return String.format("%.1fus", value / 1000.0);
+    }
+
+}
@@ -30,6 +30,7 @@ package jexer;
 
 import jexer.bits.CellAttributes;
 import jexer.bits.StringUtils;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TPasswordField implements an editable text field that displays
@@ -105,9 +106,9 @@ public class TPasswordField extends TField {
 
         boolean showStars = false;
         if (isAbsoluteActive()) {
-            fieldColor = getTheme().getColor("tfield.active");
+            fieldColor = getTheme().getColor(TFIELD_ACTIVE);
         } else {
-            fieldColor = getTheme().getColor("tfield.inactive");
+            fieldColor = getTheme().getColor(TFIELD_INACTIVE);
             showStars = true;
         }
 
@@ -31,6 +31,7 @@ package jexer;
 import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
 import jexer.bits.StringUtils;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TProgressBar implements a simple progress bar.
@@ -129,8 +130,10 @@ public class TProgressBar extends TWidget {
             return;
         }
 
-        CellAttributes completeColor = getTheme().getColor("tprogressbar.complete");
-        CellAttributes incompleteColor = getTheme().getColor("tprogressbar.incomplete");
+        CellAttributes completeColor =
+            getTheme().getColor(TPROGRESSBAR_COMPLETE);
+        CellAttributes incompleteColor =
+            getTheme().getColor(TPROGRESSBAR_INCOMPLETE);
 
         float progress = ((float)value - minValue) / ((float)maxValue - minValue);
         int progressInt = (int)(progress * 100);
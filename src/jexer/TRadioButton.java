@@ -35,6 +35,7 @@ import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TRadioButton implements a selectable radio button.
@@ -186,11 +187,12 @@ public class TRadioButton extends TWidget {
         CellAttributes mnemonicColor;
 
         if (isAbsoluteActive()) {
-            radioButtonColor = getTheme().getColor("tradiobutton.active");
-            mnemonicColor = getTheme().getColor("tradiobutton.mnemonic.highlighted");
+            radioButtonColor = getTheme().getColor(TRADIOBUTTON_ACTIVE);
+            mnemonicColor =
+                getTheme().getColor(TRADIOBUTTON_MNEMONIC_HIGHLIGHTED);
         } else {
-            radioButtonColor = getTheme().getColor("tradiobutton.inactive");
-            mnemonicColor = getTheme().getColor("tradiobutton.mnemonic");
+            radioButtonColor = getTheme().getColor(TRADIOBUTTON_INACTIVE);
+            mnemonicColor = getTheme().getColor(TRADIOBUTTON_MNEMONIC);
         }
 
         // Pulse color.
@@ -198,7 +200,7 @@ public class TRadioButton extends TWidget {
             radioButtonColor.setPulse(true, false, 0);
             radioButtonColor.setPulseColorRGB(getScreen().getBackend().
                 attrToForegroundColor(getTheme().getColor(
-                    "tradiobutton.pulse")).getRGB());
+                    TRADIOBUTTON_PULSE)).getRGB());
         }
 
         putCharXY(0, 0, '(', radioButtonColor);
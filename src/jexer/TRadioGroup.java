@@ -31,6 +31,7 @@ package jexer;
 import jexer.bits.BorderStyle;
 import jexer.bits.CellAttributes;
 import jexer.bits.StringUtils;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TRadioGroup is a collection of TRadioButtons with a box and label.
@@ -129,9 +130,9 @@ public class TRadioGroup extends TWidget {
         CellAttributes radioGroupColor;
 
         if (isAbsoluteActive()) {
-            radioGroupColor = getTheme().getColor("tradiogroup.active");
+            radioGroupColor = getTheme().getColor(TRADIOGROUP_ACTIVE);
         } else {
-            radioGroupColor = getTheme().getColor("tradiogroup.inactive");
+            radioGroupColor = getTheme().getColor(TRADIOGROUP_INACTIVE);
         }
 
         BorderStyle borderStyle;
@@ -42,6 +42,7 @@ import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
 import jexer.event.TKeypressEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TScreenOptionsWindow provides an easy UI for users to alter the running
@@ -962,7 +963,7 @@ public class TScreenOptionsWindow extends TWindow {
         borderStyle = BorderStyle.getStyle(System.getProperty(
             "jexer.TScreenOptions.options.borderStyle", "single"));
 
-        CellAttributes color = getTheme().getColor("ttext");
+        CellAttributes color = getTheme().getColor(TTEXT);
         drawBox(2, 2, left + 24, 14, color, color, borderStyle, false);
         if (borderStyle.equals(BorderStyle.NONE)) {
             putStringXY(3, 2, i18n.getString("swingOptions"), color);
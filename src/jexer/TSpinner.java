@@ -33,6 +33,7 @@ import jexer.bits.GraphicsChars;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TSpinner implements a simple up/down spinner.
@@ -157,9 +158,9 @@ public class TSpinner extends TWidget {
         CellAttributes spinnerColor;
 
         if (isAbsoluteActive()) {
-            spinnerColor = getTheme().getColor("tspinner.active");
+            spinnerColor = getTheme().getColor(TSPINNER_ACTIVE);
         } else {
-            spinnerColor = getTheme().getColor("tspinner.inactive");
+            spinnerColor = getTheme().getColor(TSPINNER_INACTIVE);
         }
 
         putCharXY(getWidth() - 2, 0, GraphicsChars.UPARROW, spinnerColor);
@@ -32,6 +32,7 @@ import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
 import jexer.event.TMouseEvent;
 import jexer.event.TResizeEvent;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TSplitPane contains two widgets with a draggable horizontal or vertical
@@ -237,7 +238,7 @@ public class TSplitPane extends TWidget {
      */
     @Override
     public void draw() {
-        CellAttributes attr = getTheme().getColor("tsplitpane");
+        CellAttributes attr = getTheme().getColor(TSPLITPANE);
         if (vertical) {
             vLineXY(split, 0, getHeight(), GraphicsChars.WINDOW_SIDE, attr);
 
@@ -37,6 +37,7 @@ import jexer.bits.StringUtils;
 import jexer.event.TCommandEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TStatusBar implements a status line with clickable buttons.
@@ -252,11 +253,11 @@ public class TStatusBar extends TWidget {
     @Override
     public void draw() {
         CellAttributes barColor = new CellAttributes();
-        barColor.setTo(getTheme().getColor("tstatusbar.text"));
+        barColor.setTo(getTheme().getColor(TSTATUSBAR_TEXT));
         CellAttributes keyColor = new CellAttributes();
-        keyColor.setTo(getTheme().getColor("tstatusbar.button"));
+        keyColor.setTo(getTheme().getColor(TSTATUSBAR_BUTTON));
         CellAttributes selectedColor = new CellAttributes();
-        selectedColor.setTo(getTheme().getColor("tstatusbar.selected"));
+        selectedColor.setTo(getTheme().getColor(TSTATUSBAR_SELECTED));
 
         // Status bar is weird.  Its draw() method is called directly by
         // TApplication after everything is drawn, and after
@@ -28,32 +28,47 @@
  */
 package jexer;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
 
 import jexer.bits.CellAttributes;
+import jexer.bits.CsvWriter;
 import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import jexer.event.TResizeEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TTableWidget is used to display and edit regular two-dimensional tables of
  * cells.
  *
+ * The cells are held in a TableModel, and only the cells that are on screen
+ * are drawn.  Navigation to a cell only highlights it; pressing Enter or F2
+ * (or double-clicking) places a TField editor over that one cell.  Rows can
+ * be sorted and filtered; both are views over the model through an index
+ * array, and row numbers in this API refer to the rows as displayed.
+ *
  * This class was inspired by a TTable implementation originally developed by
  * David "Niki" ROULET [niki@nikiroo.be], made available under MIT at
  * https://github.com/nikiroo/jexer/tree/ttable_pull.
  */
 public class TTableWidget extends TWidget {
 
+    /**
+     * Translated strings.
+     */
+    private static final ResourceBundle i18n = ResourceBundle.getBundle(TTableWidget.class.getName());
+
     // ------------------------------------------------------------------------
     // Constants --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -118,14 +133,85 @@ public class TTableWidget extends TWidget {
     // ------------------------------------------------------------------------
 
     /**
-     * The underlying data, organized as columns.
+     * The underlying data.
+     */
+    private TableModel model;
+
+    /**
+     * The display attributes of each model column.
+     */
+    private ArrayList<ColumnStyle> columns = new ArrayList<ColumnStyle>();
+
+    /**
+     * The model rows in sorted order, or null if the table is not sorted.
+     */
+    private int [] sortIndex = null;
+
+    /**
+     * The model row shown at each table row, or null if every model row is
+     * shown in model order.  When there is no filter this is the same array
+     * as sortIndex.
+     */
+    private int [] rowIndex = null;
+
+    /**
+     * The column the filter applies to, or -1 for all columns.
+     */
+    private int filterColumn = -1;
+
+    /**
+     * The lowercased filter text, or null if there is no filter.
+     */
+    private String filterText = null;
+
+    /**
+     * Row labels that differ from the default, keyed by model row.
+     */
+    private HashMap<Integer, String> rowLabels = new HashMap<Integer, String>();
+
+    /**
+     * Row bottom borders that differ from defaultRowBorder, keyed by model
+     * row.
+     */
+    private HashMap<Integer, Border> rowBorders =
+        new HashMap<Integer, Border>();
+
+    /**
+     * The bottom border of rows that are not in rowBorders.
+     */
+    private Border defaultRowBorder = Border.NONE;
+
+    /**
+     * Read-only rows, keyed by model row.
+     */
+    private HashMap<Integer, Boolean> readOnlyRows =
+        new HashMap<Integer, Boolean>();
+
+    /**
+     * Read-only cells, keyed by cellKey().
+     */
+    private HashMap<Long, Boolean> readOnlyCells = new HashMap<Long, Boolean>();
+
+    /**
+     * Cell enter actions, keyed by cellKey().
+     */
+    private HashMap<Long, TAction> enterActions = new HashMap<Long, TAction>();
+
+    /**
+     * Cell update actions, keyed by cellKey().
      */
-    private ArrayList<Column> columns = new ArrayList<Column>();
+    private HashMap<Long, TAction> updateActions = new HashMap<Long, TAction>();
 
     /**
-     * The underlying data, organized as rows.
+     * The editor for the selected cell, or null if no cell is being edited.
      */
-    private ArrayList<Row> rows = new ArrayList<Row>();
+    private TField editor = null;
+
+    /**
+     * If true, whenLoaded() is waiting for the model to be read into
+     * memory.
+     */
+    private boolean loading = false;
 
     /**
      * The row in model corresponding to the top-left visible cell.
@@ -178,14 +264,9 @@ public class TTableWidget extends TWidget {
     private Border leftBorder = Border.NONE;
 
     /**
-     * Column represents a column of cells.
+     * ColumnStyle holds the display attributes of a column.
      */
-    public class Column {
-
-        /**
-         * X position of this column.
-         */
-        private int x = 0;
+    private static class ColumnStyle {
 
         /**
          * Width of column.
@@ -193,14 +274,9 @@ public class TTableWidget extends TWidget {
         private int width = COLUMN_DEFAULT_WIDTH;
 
         /**
-         * The cells of this column.
-         */
-        private ArrayList<Cell> cells = new ArrayList<Cell>();
-
-        /**
-         * Column label.
+         * Column label, or null to use the lettered default.
          */
-        private String label = "";
+        private String label = null;
 
         /**
          * The right border for this column.
@@ -208,398 +284,10 @@ public class TTableWidget extends TWidget {
         private Border rightBorder = Border.NONE;
 
         /**
-         * Constructor sets label to lettered column.
-         *
-         * @param col column number to use for this column.  Column 0 will be
-         * "A", column 1 will be "B", column 26 will be "AA", and so on.
-         */
-        Column(int col) {
-            label = makeColumnLabel(col);
-        }
-
-        /**
-         * Add an entry to this column.
-         *
-         * @param cell the cell to add
-         */
-        public void add(final Cell cell) {
-            cells.add(cell);
-        }
-
-        /**
-         * Get an entry from this column.
-         *
-         * @param row the entry index to get
-         * @return the cell at row
-         */
-        public Cell get(final int row) {
-            return cells.get(row);
-        }
-
-        /**
-         * Get the X position of the cells in this column.
-         *
-         * @return the position
-         */
-        public int getX() {
-            return x;
-        }
-
-        /**
-         * Set the X position of the cells in this column.
-         *
-         * @param x the position
-         */
-        public void setX(final int x) {
-            for (Cell cell: cells) {
-                cell.setX(x);
-            }
-            this.x = x;
-        }
-
-    }
-
-    /**
-     * Row represents a row of cells.
-     */
-    public class Row {
-
-        /**
-         * Y position of this row.
-         */
-        private int y = 0;
-
-        /**
-         * Height of row.
-         */
-        private int height = 1;
-
-        /**
-         * The cells of this row.
-         */
-        private ArrayList<Cell> cells = new ArrayList<Cell>();
-
-        /**
-         * Row label.
-         */
-        private String label = "";
-
-        /**
-         * The bottom border for this row.
-         */
-        private Border bottomBorder = Border.NONE;
-
-        /**
-         * Constructor sets label to numbered row.
-         *
-         * @param row row number to use for this row
-         */
-        Row(final int row) {
-            label = Integer.toString(row);
-        }
-
-        /**
-         * Add an entry to this column.
-         *
-         * @param cell the cell to add
-         */
-        public void add(final Cell cell) {
-            cells.add(cell);
-        }
-
-        /**
-         * Get an entry from this row.
-         *
-         * @param column the entry index to get
-         * @return the cell at column
-         */
-        public Cell get(final int column) {
-            return cells.get(column);
-        }
-        /**
-         * Get the Y position of the cells in this column.
-         *
-         * @return the position
-         */
-        public int getY() {
-            return y;
-        }
-
-        /**
-         * Set the Y position of the cells in this column.
-         *
-         * @param y the position
-         */
-        public void setY(final int y) {
-            for (Cell cell: cells) {
-                cell.setY(y);
-            }
-            this.y = y;
-        }
-
-    }
-
-    /**
-     * Cell represents an editable cell in the table.  Normally, navigation
-     * to a cell only highlights it; pressing Enter or F2 will switch to
-     * editing mode.
-     */
-    public class Cell extends TWidget {
-
-        // --------------------------------------------------------------------
-        // Variables ----------------------------------------------------------
-        // --------------------------------------------------------------------
-
-        /**
-         * The field containing the cell's data.
-         */
-        private TField field;
-
-        /**
-         * The column of this cell.
-         */
-        private int column;
-
-        /**
-         * The row of this cell.
-         */
-        private int row;
-
-        /**
-         * If true, the cell is being edited.
-         */
-        private boolean isEditing = false;
-
-        /**
-         * If true, the cell is read-only (non-editable).
+         * If true, the cells of this column are read-only.
          */
         private boolean readOnly = false;
 
-        /**
-         * Text of field before editing.
-         */
-        private String fieldText;
-
-        // --------------------------------------------------------------------
-        // Constructors -------------------------------------------------------
-        // --------------------------------------------------------------------
-
-        /**
-         * Public constructor.
-         *
-         * @param parent parent widget
-         * @param x column relative to parent
-         * @param y row relative to parent
-         * @param width width of widget
-         * @param height height of widget
-         * @param column column index of this cell
-         * @param row row index of this cell
-         */
-        public Cell(final TTableWidget parent, final int x, final int y,
-            final int width, final int height, final int column,
-            final int row) {
-
-            super(parent, x, y, width, height);
-            this.column = column;
-            this.row = row;
-
-            field = addField(0, 0, width, false);
-            field.setEnabled(false);
-            field.setBackgroundChar(' ');
-        }
-
-        // --------------------------------------------------------------------
-        // Event handlers -----------------------------------------------------
-        // --------------------------------------------------------------------
-
-        /**
-         * Handle mouse double-click events.
-         *
-         * @param mouse mouse double-click event
-         */
-        @Override
-        public void onMouseDoubleClick(final TMouseEvent mouse) {
-            // Use TWidget's code to pass the event to the children.
-            super.onMouseDown(mouse);
-
-            // Double-click means to start editing.
-            fieldText = field.getText();
-            isEditing = true;
-            field.setEnabled(true);
-            activate(field);
-
-            if (isActive()) {
-                // Let the table know that I was activated.
-                ((TTableWidget) getParent()).selectedRow = row;
-                ((TTableWidget) getParent()).selectedColumn = column;
-                ((TTableWidget) getParent()).alignGrid();
-            }
-        }
-
-        /**
-         * Handle mouse press events.
-         *
-         * @param mouse mouse button press event
-         */
-        @Override
-        public void onMouseDown(final TMouseEvent mouse) {
-            // Use TWidget's code to pass the event to the children.
-            super.onMouseDown(mouse);
-
-            if (isActive()) {
-                // Let the table know that I was activated.
-                ((TTableWidget) getParent()).selectedRow = row;
-                ((TTableWidget) getParent()).selectedColumn = column;
-                ((TTableWidget) getParent()).alignGrid();
-            }
-        }
-
-        /**
-         * Handle mouse release events.
-         *
-         * @param mouse mouse button release event
-         */
-        @Override
-        public void onMouseUp(final TMouseEvent mouse) {
-            // Use TWidget's code to pass the event to the children.
-            super.onMouseDown(mouse);
-
-            if (isActive()) {
-                // Let the table know that I was activated.
-                ((TTableWidget) getParent()).selectedRow = row;
-                ((TTableWidget) getParent()).selectedColumn = column;
-                ((TTableWidget) getParent()).alignGrid();
-            }
-        }
-
-        /**
-         * Handle keystrokes.
-         *
-         * @param keypress keystroke event
-         */
-        @Override
-        public void onKeypress(final TKeypressEvent keypress) {
-            // System.err.println("Cell onKeypress: " + keypress);
-
-            if (readOnly) {
-                // Read only: do nothing.
-                return;
-            }
-
-            if (isEditing) {
-                if (keypress.equals(kbEsc)) {
-                    // ESC cancels the edit.
-                    cancelEdit();
-                    return;
-                }
-                if (keypress.equals(kbEnter)) {
-                    // Enter ends editing.
-
-                    // Pass down to field first so that it can execute
-                    // enterAction if specified.
-                    super.onKeypress(keypress);
-
-                    fieldText = field.getText();
-                    isEditing = false;
-                    field.setEnabled(false);
-                    return;
-                }
-                // Pass down to field.
-                super.onKeypress(keypress);
-            }
-
-            if (keypress.equals(kbEnter) || keypress.equals(kbF2)) {
-                // Enter or F2 starts editing.
-                fieldText = field.getText();
-                isEditing = true;
-                field.setEnabled(true);
-                activate(field);
-                return;
-            }
-        }
-
-        // --------------------------------------------------------------------
-        // TWidget ------------------------------------------------------------
-        // --------------------------------------------------------------------
-
-        /**
-         * Draw this cell.
-         */
-        @Override
-        public void draw() {
-            TTableWidget table = (TTableWidget) getParent();
-
-            if (isAbsoluteActive()) {
-                if (isEditing) {
-                    field.setActiveColorKey("tfield.active");
-                    field.setInactiveColorKey("tfield.inactive");
-                } else {
-                    field.setActiveColorKey("ttable.selected");
-                    field.setInactiveColorKey("ttable.selected");
-                }
-            } else if (((table.selectedColumn == column)
-                    && ((table.selectedRow == row)
-                        || (table.highlightColumn == true)))
-                || ((table.selectedRow == row)
-                    && ((table.selectedColumn == column)
-                        || (table.highlightRow == true)))
-            ) {
-                field.setActiveColorKey("ttable.active");
-                field.setInactiveColorKey("ttable.active");
-            } else {
-                field.setActiveColorKey("ttable.active");
-                field.setInactiveColorKey("ttable.inactive");
-            }
-
-            assert (isVisible() == true);
-
-            super.draw();
-        }
-
-        // --------------------------------------------------------------------
-        // TTable.Cell --------------------------------------------------------
-        // --------------------------------------------------------------------
-
-        /**
-         * Get field text.
-         *
-         * @return field text
-         */
-        public final String getText() {
-            return field.getText();
-        }
-
-        /**
-         * Set field text.
-         *
-         * @param text the new field text
-         */
-        public void setText(final String text) {
-            field.setText(text);
-        }
-
-        /**
-         * Cancel any pending edit.
-         */
-        public void cancelEdit() {
-            // Cancel any pending edit.
-            if (fieldText != null) {
-                field.setText(fieldText);
-            }
-            isEditing = false;
-            field.setEnabled(false);
-        }
-
-        /**
-         * Set an entire column of cells read-only (non-editable) or not.
-         *
-         * @param readOnly if true, the cells will be non-editable
-         */
-        public void setReadOnly(final boolean readOnly) {
-            cancelEdit();
-            this.readOnly = readOnly;
-        }
-
     }
 
     // ------------------------------------------------------------------------
@@ -637,42 +325,17 @@ public class TTableWidget extends TWidget {
                 "than 1");
         }
 
-        // Initialize the starting row and column.
-        rows.add(new Row(0));
-        columns.add(new Column(0));
-        assert (rows.get(0).height == 1);
-
-        // Place a grid of cells that fit in this space.
-        for (int row = 0; row < gridRows; row++) {
-            for (int column = 0; column < gridColumns; column++) {
-                Cell cell = new Cell(this, 0, 0, COLUMN_DEFAULT_WIDTH, 1,
-                    column, row);
-
-                if (DEBUG) {
-                    // For debugging: set a grid of cell index labels.
-                    cell.setText("" + row + " " + column);
-                }
-                rows.get(row).add(cell);
-                columns.get(column).add(cell);
-
-                if (columns.size() < gridColumns) {
-                    columns.add(new Column(column + 1));
+        ColumnarTableModel gridModel = new ColumnarTableModel(gridColumns,
+            gridRows);
+        if (DEBUG) {
+            // For debugging: set a grid of cell index labels.
+            for (int row = 0; row < gridRows; row++) {
+                for (int column = 0; column < gridColumns; column++) {
+                    gridModel.setValueAt(row, column, "" + row + " " + column);
                 }
             }
-            if (row < gridRows - 1) {
-                rows.add(new Row(row + 1));
-            }
-        }
-        for (int i = 0; i < rows.size(); i++) {
-            rows.get(i).setY(i + (showColumnLabels ? COLUMN_LABEL_HEIGHT : 0));
         }
-        for (int j = 0; j < columns.size(); j++) {
-            columns.get(j).setX((j * (COLUMN_DEFAULT_WIDTH + 1)) +
-                (showRowLabels ? ROW_LABEL_WIDTH : 0));
-        }
-        activate(columns.get(selectedColumn).get(selectedRow));
-
-        alignGrid();
+        setModel(gridModel);
     }
 
     /**
@@ -692,6 +355,23 @@ public class TTableWidget extends TWidget {
             height + EXTRA_ROWS);
     }
 
+    /**
+     * Public constructor.
+     *
+     * @param parent parent widget
+     * @param x column relative to parent
+     * @param y row relative to parent
+     * @param width width of widget
+     * @param height height of widget
+     * @param model the table data
+     */
+    public TTableWidget(final TWidget parent, final int x, final int y,
+        final int width, final int height, final TableModel model) {
+
+        super(parent, x, y, width, height);
+        setModel(model);
+    }
+
     // ------------------------------------------------------------------------
     // Event handlers ---------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -717,93 +397,128 @@ public class TTableWidget extends TWidget {
             return;
         }
 
-        // Use TWidget's code to pass the event to the children.
-        super.onMouseDown(mouse);
+        if ((editor != null) && editor.mouseWouldHit(mouse)) {
+            // Use TWidget's code to pass the event to the editor.
+            super.onMouseDown(mouse);
+            return;
+        }
+        selectCellAt(mouse.getX(), mouse.getY());
     }
 
     /**
-     * Handle keystrokes.
+     * Handle mouse release events.
      *
-     * @param keypress keystroke event
+     * @param mouse mouse button release event
      */
     @Override
-    public void onKeypress(final TKeypressEvent keypress) {
-        if (keypress.equals(kbTab)
-            || keypress.equals(kbShiftTab)
-        ) {
+    public void onMouseUp(final TMouseEvent mouse) {
+        if ((editor != null) && editor.mouseWouldHit(mouse)) {
+            // Use TWidget's code to pass the event to the editor.
+            super.onMouseUp(mouse);
+        }
+    }
+
+    /**
+     * Handle mouse double-click events.
+     *
+     * @param mouse mouse double-click event
+     */
+    @Override
+    public void onMouseDoubleClick(final TMouseEvent mouse) {
+        if ((editor != null) && editor.mouseWouldHit(mouse)) {
+            // Use TWidget's code to pass the event to the editor.
+            super.onMouseDoubleClick(mouse);
+            return;
+        }
+
+        // Double-click means to start editing.
+        if (selectCellAt(mouse.getX(), mouse.getY())) {
+            startEdit();
+        }
+    }
+
+    /**
+     * Handle keystrokes.
+     *
+     * @param keypress keystroke event
+     */
+    @Override
+    public void onKeypress(final TKeypressEvent keypress) {
+        if (keypress.equals(kbTab)
+            || keypress.equals(kbShiftTab)
+        ) {
             // Squash tab and back-tab.  They don't make sense in the TTable
             // grid context.
             return;
         }
 
-        // If editing, pass to that cell and do nothing else.
-        if (getSelectedCell().isEditing) {
+        // If editing, pass to the editor and do nothing else.
+        if (editor != null) {
+            if (keypress.equals(kbEsc)) {
+                // ESC cancels the edit.
+                cancelEdit();
+                return;
+            }
+            if (keypress.equals(kbEnter)) {
+                // Enter ends editing.  Pass down to the editor first so
+                // that it can execute enterAction if specified.
+                super.onKeypress(keypress);
+                commitEdit();
+                return;
+            }
+            // Pass down to the editor.
             super.onKeypress(keypress);
             return;
         }
 
+        int rowCount = getRowCount();
+
         if (keypress.equals(kbLeft)) {
             // Left
             if (selectedColumn > 0) {
                 selectedColumn--;
             }
-            activate(columns.get(selectedColumn).get(selectedRow));
         } else if (keypress.equals(kbRight)) {
             // Right
-            if (selectedColumn < columns.size() - 1) {
+            if (selectedColumn < getColumnCount() - 1) {
                 selectedColumn++;
             }
-            activate(columns.get(selectedColumn).get(selectedRow));
         } else if (keypress.equals(kbUp)) {
             // Up
             if (selectedRow > 0) {
                 selectedRow--;
             }
-            activate(columns.get(selectedColumn).get(selectedRow));
         } else if (keypress.equals(kbDown)) {
             // Down
-            if (selectedRow < rows.size() - 1) {
+            if (selectedRow < rowCount - 1) {
                 selectedRow++;
             }
-            activate(columns.get(selectedColumn).get(selectedRow));
         } else if (keypress.equals(kbHome)) {
             // Home - leftmost column
             selectedColumn = 0;
-            activate(columns.get(selectedColumn).get(selectedRow));
         } else if (keypress.equals(kbEnd)) {
             // End - rightmost column
-            selectedColumn = columns.size() - 1;
-            activate(columns.get(selectedColumn).get(selectedRow));
+            selectedColumn = getColumnCount() - 1;
         } else if (keypress.equals(kbPgUp)) {
             // PgUp - Treat like multiple up
-            for (int i = 0; i < getHeight() - 2; i++) {
-                if (selectedRow > 0) {
-                    selectedRow--;
-                }
-            }
-            activate(columns.get(selectedColumn).get(selectedRow));
+            selectedRow = Math.max(0, selectedRow - (getHeight() - 2));
         } else if (keypress.equals(kbPgDn)) {
-            // PgDn - Treat like multiple up
-            for (int i = 0; i < getHeight() - 2; i++) {
-                if (selectedRow < rows.size() - 1) {
-                    selectedRow++;
-                }
-            }
-            activate(columns.get(selectedColumn).get(selectedRow));
+            // PgDn - Treat like multiple down
+            selectedRow = Math.max(0, Math.min(rowCount - 1,
+                    selectedRow + (getHeight() - 2)));
         } else if (keypress.equals(kbCtrlHome)) {
             // Ctrl-Home - go to top-left
             selectedRow = 0;
             selectedColumn = 0;
-            activate(columns.get(selectedColumn).get(selectedRow));
-            activate(columns.get(selectedColumn).get(selectedRow));
         } else if (keypress.equals(kbCtrlEnd)) {
             // Ctrl-End - go to bottom-right
-            selectedRow = rows.size() - 1;
-            selectedColumn = columns.size() - 1;
-            activate(columns.get(selectedColumn).get(selectedRow));
-            activate(columns.get(selectedColumn).get(selectedRow));
+            selectedRow = Math.max(0, rowCount - 1);
+            selectedColumn = getColumnCount() - 1;
+        } else if (keypress.equals(kbEnter) || keypress.equals(kbF2)) {
+            // Enter or F2 starts editing.
+            startEdit();
+            return;
         } else {
-            // Pass to the Cell.
             super.onKeypress(keypress);
         }
 
@@ -829,36 +544,87 @@ public class TTableWidget extends TWidget {
     // ------------------------------------------------------------------------
 
     /**
-     * Draw the table row/column labels, and borders.
+     * Draw the visible cells, the row/column labels, and borders.
      */
     @Override
     public void draw() {
-        CellAttributes labelColor = getTheme().getColor("ttable.label");
-        CellAttributes labelColorSelected = getTheme().getColor("ttable.label.selected");
-        CellAttributes borderColor = getTheme().getColor("ttable.border");
+        CellAttributes labelColor = getTheme().getColor(TTABLE_LABEL);
+        CellAttributes labelColorSelected =
+            getTheme().getColor(TTABLE_LABEL_SELECTED);
+        CellAttributes borderColor = getTheme().getColor(TTABLE_BORDER);
+        CellAttributes inactiveColor = getTheme().getColor(TTABLE_INACTIVE);
+        CellAttributes activeColor = getTheme().getColor(TTABLE_ACTIVE);
+        CellAttributes selectedColor = getTheme().getColor(TTABLE_SELECTED);
+
+        // Find the visible columns and rows.  Only these are drawn.  The
+        // counts are read once: a model that is still loading can grow
+        // while this frame is drawn.
+        int rowCount = getRowCount();
+        int columnCount = getColumnCount();
+        int [] columnX = new int[Math.max(0, columnCount - left)];
+        int right = left;
+        for (int x = getFirstColumnX(); (right < columnCount)
+                 && (x < getWidth()); right++) {
+
+            columnX[right - left] = x;
+            x += getColumn(right).width + 1;
+        }
+        int [] rowY = new int[Math.min(Math.max(0, rowCount - top),
+                Math.max(0, getHeight()))];
+        int [] rowModel = new int[rowY.length];
+        int bottom = top;
+        for (int y = getFirstRowY(); (bottom < rowCount)
+                 && (bottom - top < rowY.length) && (y < getHeight());
+             bottom++) {
+
+            rowY[bottom - top] = y;
+            rowModel[bottom - top] = getModelRowNumber(bottom);
+            y += getRowHeight(rowModel[bottom - top]);
+        }
+
+        // Cells.
+        boolean active = isAbsoluteActive();
+        for (int i = top; i < bottom; i++) {
+            for (int j = left; j < right; j++) {
+                if ((editor != null)
+                    && (i == selectedRow)
+                    && (j == selectedColumn)
+                ) {
+                    // The editor draws this cell.
+                    continue;
+                }
+                CellAttributes color = inactiveColor;
+                if ((i == selectedRow) && (j == selectedColumn)) {
+                    color = (active ? selectedColor : activeColor);
+                } else if (((i == selectedRow) && highlightRow)
+                    || ((j == selectedColumn) && highlightColumn)
+                ) {
+                    color = activeColor;
+                }
+                int width = getColumn(j).width;
+                hLineXY(columnX[j - left], rowY[i - top], width, ' ', color);
+                putStringXY(columnX[j - left], rowY[i - top],
+                    clipText(model.getValueAt(rowModel[i - top], j), width),
+                    color);
+            }
+        }
 
         // Column labels.
         if (showColumnLabels == true) {
-            for (int i = left; i < columns.size(); i++) {
-                if (columns.get(i).get(top).isVisible() == false) {
-                    break;
-                }
-                putStringXY(columns.get(i).get(top).getX(), 0,
+            for (int i = left; i < right; i++) {
+                putStringXY(columnX[i - left], 0,
                     String.format(" %-" +
-                        (columns.get(i).width - 2)
-                        + "s ", columns.get(i).label),
+                        (getColumn(i).width - 2)
+                        + "s ", getColumnLabel(i)),
                     (i == selectedColumn ? labelColorSelected : labelColor));
             }
         }
 
         // Row labels.
         if (showRowLabels == true) {
-            for (int i = top; i < rows.size(); i++) {
-                if (rows.get(i).get(left).isVisible() == false) {
-                    break;
-                }
-                putStringXY(0, rows.get(i).get(left).getY(),
-                    String.format(" %-6s ", rows.get(i).label),
+            for (int i = top; i < bottom; i++) {
+                String label = getModelRowLabel(rowModel[i - top]);
+                putStringXY(0, rowY[i - top], String.format(" %-6s ", label),
                     (i == selectedRow ? labelColorSelected : labelColor));
             }
         }
@@ -870,12 +636,9 @@ public class TTableWidget extends TWidget {
                     (showColumnLabels ? COLUMN_LABEL_HEIGHT : 0),
                 getHeight(), '\u2502', borderColor);
         }
-        for (int i = left; i < columns.size(); i++) {
-            if (columns.get(i).get(top).isVisible() == false) {
-                break;
-            }
-            if (columns.get(i).rightBorder == Border.SINGLE) {
-                vLineXY(columns.get(i).getX() + columns.get(i).width,
+        for (int i = left; i < right; i++) {
+            if (getColumn(i).rightBorder == Border.SINGLE) {
+                vLineXY(columnX[i - left] + getColumn(i).width,
                     (topBorder == Border.NONE ? 0 : 1) +
                         (showColumnLabels ? COLUMN_LABEL_HEIGHT : 0),
                     getHeight(), '\u2502', borderColor);
@@ -888,25 +651,21 @@ public class TTableWidget extends TWidget {
                 (showColumnLabels ? COLUMN_LABEL_HEIGHT : 0),
                 getWidth(), '\u2500', borderColor);
         }
-        for (int i = top; i < rows.size(); i++) {
-            if (rows.get(i).get(left).isVisible() == false) {
-                break;
-            }
-            if (rows.get(i).bottomBorder == Border.SINGLE) {
+        for (int i = top; i < bottom; i++) {
+            Border bottomBorder = getRowBorder(rowModel[i - top]);
+            int y = rowY[i - top] + getRowHeight(rowModel[i - top]) - 1;
+            if (bottomBorder == Border.SINGLE) {
                 hLineXY((leftBorder == Border.NONE ? 0 : 1) +
                         (showRowLabels ? ROW_LABEL_WIDTH : 0),
-                    rows.get(i).getY() + rows.get(i).height - 1,
-                    getWidth(), '\u2500', borderColor);
-            } else if (rows.get(i).bottomBorder == Border.DOUBLE) {
+                    y, getWidth(), '\u2500', borderColor);
+            } else if (bottomBorder == Border.DOUBLE) {
                 hLineXY((leftBorder == Border.NONE ? 0 : 1) +
                         (showRowLabels ? ROW_LABEL_WIDTH : 0),
-                    rows.get(i).getY() + rows.get(i).height - 1,
-                    getWidth(), '\u2550', borderColor);
-            } else if (rows.get(i).bottomBorder == Border.THICK) {
+                    y, getWidth(), '\u2550', borderColor);
+            } else if (bottomBorder == Border.THICK) {
                 hLineXY((leftBorder == Border.NONE ? 0 : 1) +
                         (showRowLabels ? ROW_LABEL_WIDTH : 0),
-                    rows.get(i).getY() + rows.get(i).height - 1,
-                    getWidth(), '\u2501', borderColor);
+                    y, getWidth(), '\u2501', borderColor);
             }
         }
         // Top-left corner if needed
@@ -917,139 +676,735 @@ public class TTableWidget extends TWidget {
         }
 
         // Now draw the correct corners
-        for (int i = top; i < rows.size(); i++) {
-            if (rows.get(i).get(left).isVisible() == false) {
-                break;
-            }
-            for (int j = left; j < columns.size(); j++) {
-                if (columns.get(j).get(i).isVisible() == false) {
-                    break;
-                }
+        for (int i = top; i < bottom; i++) {
+            Border bottomBorder = getRowBorder(rowModel[i - top]);
+            int y = rowY[i - top] + getRowHeight(rowModel[i - top]) - 1;
+            for (int j = left; j < right; j++) {
+                Border rightBorder = getColumn(j).rightBorder;
+                int x = columnX[j - left] + getColumn(j).width;
                 if ((i == top) && (topBorder == Border.SINGLE)
-                    && (columns.get(j).rightBorder == Border.SINGLE)
+                    && (rightBorder == Border.SINGLE)
                 ) {
                     // Top tee
-                    putCharXY(columns.get(j).getX() + columns.get(j).width,
-                        (showColumnLabels ? COLUMN_LABEL_HEIGHT : 0),
+                    putCharXY(x, (showColumnLabels ? COLUMN_LABEL_HEIGHT : 0),
                         '\u252c', borderColor);
                 }
                 if ((j == left) && (leftBorder == Border.SINGLE)
-                    && (rows.get(i).bottomBorder == Border.SINGLE)
+                    && (bottomBorder == Border.SINGLE)
                 ) {
                     // Left tee
-                    putCharXY((showRowLabels ? ROW_LABEL_WIDTH : 0),
-                        rows.get(i).getY() + rows.get(i).height - 1,
+                    putCharXY((showRowLabels ? ROW_LABEL_WIDTH : 0), y,
                         '\u251c', borderColor);
                 }
-                if ((columns.get(j).rightBorder == Border.SINGLE)
-                    && (rows.get(i).bottomBorder == Border.SINGLE)
+                if ((rightBorder == Border.SINGLE)
+                    && (bottomBorder == Border.SINGLE)
                 ) {
                     // Intersection of single bars
-                    putCharXY(columns.get(j).getX() + columns.get(j).width,
-                        rows.get(i).getY() + rows.get(i).height - 1,
-                        '\u253c', borderColor);
+                    putCharXY(x, y, '\u253c', borderColor);
                 }
                 if ((j == left) && (leftBorder == Border.SINGLE)
-                    && (rows.get(i).bottomBorder == Border.DOUBLE)
+                    && (bottomBorder == Border.DOUBLE)
                 ) {
                     // Left tee: single bar vertical, double bar horizontal
-                    putCharXY((showRowLabels ? ROW_LABEL_WIDTH : 0),
-                        rows.get(i).getY() + rows.get(i).height - 1,
+                    putCharXY((showRowLabels ? ROW_LABEL_WIDTH : 0), y,
                         '\u255e', borderColor);
                 }
                 if ((j == left) && (leftBorder == Border.SINGLE)
-                    && (rows.get(i).bottomBorder == Border.THICK)
+                    && (bottomBorder == Border.THICK)
                 ) {
                     // Left tee: single bar vertical, thick bar horizontal
-                    putCharXY((showRowLabels ? ROW_LABEL_WIDTH : 0),
-                        rows.get(i).getY() + rows.get(i).height - 1,
+                    putCharXY((showRowLabels ? ROW_LABEL_WIDTH : 0), y,
                         '\u251d', borderColor);
                 }
-                if ((columns.get(j).rightBorder == Border.SINGLE)
-                    && (rows.get(i).bottomBorder == Border.DOUBLE)
-                ) {
-                    // Intersection: single bar vertical, double bar
-                    // horizontal
-                    putCharXY(columns.get(j).getX() + columns.get(j).width,
-                        rows.get(i).getY() + rows.get(i).height - 1,
-                        '\u256a', borderColor);
+                if ((rightBorder == Border.SINGLE)
+                    && (bottomBorder == Border.DOUBLE)
+                ) {
+                    // Intersection: single bar vertical, double bar
+                    // horizontal
+                    putCharXY(x, y, '\u256a', borderColor);
+                }
+                if ((rightBorder == Border.SINGLE)
+                    && (bottomBorder == Border.THICK)
+                ) {
+                    // Intersection: single bar vertical, thick bar
+                    // horizontal
+                    putCharXY(x, y, '\u253f', borderColor);
+                }
+            }
+        }
+
+        if (loading) {
+            putStringXY(0, 0, " " + i18n.getString("loading") + " ",
+                labelColorSelected);
+        }
+
+        // Now draw the window borders.
+        super.draw();
+    }
+
+    // ------------------------------------------------------------------------
+    // TTable -----------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Generate the default letter name for a column number.
+     *
+     * @param col column number to use for this column.  Column 0 will be
+     * "A", column 1 will be "B", column 26 will be "AA", and so on.
+     */
+    private String makeColumnLabel(int col) {
+        StringBuilder sb = new StringBuilder();
+        for (;;) {
+            sb.append((char) ('A' + (col % 26)));
+            if (col < 26) {
+                break;
+            }
+            col /= 26;
+        }
+        return sb.reverse().toString();
+    }
+
+    /**
+     * Get the model key of a cell for the per-cell maps.
+     *
+     * @param column the model column
+     * @param row the model row
+     * @return the key
+     */
+    private static long cellKey(final int column, final int row) {
+        return (((long) row) << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Find where a row or column number moves to when rows or columns are
+     * inserted or deleted.
+     *
+     * @param value the row or column number
+     * @param at the inserted or deleted row or column
+     * @param delta 1 for an insert, -1 for a delete, 0 for no change
+     * @return the new number, or -1 if value was deleted
+     */
+    private static int shiftNumber(final int value, final int at,
+        final int delta) {
+
+        if (value < at) {
+            return value;
+        }
+        if ((delta < 0) && (value == at)) {
+            return -1;
+        }
+        return value + delta;
+    }
+
+    /**
+     * Renumber a map keyed by model row after an insert or delete.
+     *
+     * @param map the map
+     * @param row the inserted or deleted model row
+     * @param delta 1 for an insert, -1 for a delete
+     * @return the renumbered map
+     */
+    private static <T> HashMap<Integer, T> shiftRows(
+        final HashMap<Integer, T> map, final int row, final int delta) {
+
+        HashMap<Integer, T> result = new HashMap<Integer, T>();
+        for (Map.Entry<Integer, T> entry: map.entrySet()) {
+            int newRow = shiftNumber(entry.getKey(), row, delta);
+            if (newRow >= 0) {
+                result.put(newRow, entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Renumber a map keyed by cellKey() after an insert or delete.
+     *
+     * @param map the map
+     * @param column the inserted or deleted model column
+     * @param columnDelta 1 for an insert, -1 for a delete, 0 if columns did
+     * not change
+     * @param row the inserted or deleted model row
+     * @param rowDelta 1 for an insert, -1 for a delete, 0 if rows did not
+     * change
+     * @return the renumbered map
+     */
+    private static <T> HashMap<Long, T> shiftCells(final HashMap<Long, T> map,
+        final int column, final int columnDelta, final int row,
+        final int rowDelta) {
+
+        HashMap<Long, T> result = new HashMap<Long, T>();
+        for (Map.Entry<Long, T> entry: map.entrySet()) {
+            long key = entry.getKey();
+            int newColumn = shiftNumber((int) key, column, columnDelta);
+            int newRow = shiftNumber((int) (key >>> 32), row, rowDelta);
+            if ((newColumn >= 0) && (newRow >= 0)) {
+                result.put(cellKey(newColumn, newRow), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Insert a model row into a row index array.  Entries at or after the
+     * new model row are renumbered.
+     *
+     * @param index the index array
+     * @param position where the new row goes in the index
+     * @param row the new model row
+     * @return the new index array
+     */
+    private static int [] insertIndexRow(final int [] index,
+        final int position, final int row) {
+
+        int [] result = new int[index.length + 1];
+        for (int i = 0, j = 0; i < result.length; i++) {
+            if (i == position) {
+                result[i] = row;
+            } else {
+                result[i] = shiftNumber(index[j++], row, 1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Delete a model row from a row index array.  Entries after the deleted
+     * model row are renumbered.
+     *
+     * @param index the index array
+     * @param row the deleted model row
+     * @return the new index array
+     */
+    private static int [] deleteIndexRow(final int [] index, final int row) {
+        int [] result = new int[index.length];
+        int n = 0;
+        for (int i = 0; i < index.length; i++) {
+            if (index[i] != row) {
+                result[n++] = shiftNumber(index[i], row, -1);
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Find a model row in a row index array.
+     *
+     * @param index the index array
+     * @param row the model row
+     * @return the position of row in index, or -1
+     */
+    private static int findIndexRow(final int [] index, final int row) {
+        for (int i = 0; i < index.length; i++) {
+            if (index[i] == row) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Cut a string down to fit in a number of screen cells.
+     *
+     * @param text the string
+     * @param width the number of cells
+     * @return the longest prefix of text that fits
+     */
+    private String clipText(final String text, final int width) {
+        int textWidth = 0;
+        for (int i = 0; i < text.length();) {
+            int ch = text.codePointAt(i);
+            textWidth += StringUtils.width(ch);
+            if (textWidth > width) {
+                return text.substring(0, i);
+            }
+            i += Character.charCount(ch);
+        }
+        return text;
+    }
+
+    /**
+     * Get the display attributes of a column.
+     *
+     * @param column the model column
+     * @return the column attributes
+     */
+    private ColumnStyle getColumn(final int column) {
+        syncColumns();
+        return columns.get(column);
+    }
+
+    /**
+     * Add or remove column attributes at the end if the model gained or
+     * lost columns on its own.
+     */
+    private void syncColumns() {
+        while (columns.size() < model.getColumnCount()) {
+            columns.add(new ColumnStyle());
+        }
+        while (columns.size() > model.getColumnCount()) {
+            columns.remove(columns.size() - 1);
+        }
+    }
+
+    /**
+     * Throw IndexOutOfBoundsException if a column number is out of range.
+     *
+     * @param column the column number
+     */
+    private void checkColumn(final int column) {
+        if ((column < 0) || (column > getColumnCount() - 1)) {
+            throw new IndexOutOfBoundsException("Column count is " +
+                getColumnCount() + ", requested index " + column);
+        }
+    }
+
+    /**
+     * Throw IndexOutOfBoundsException if a row number is out of range.
+     *
+     * @param row the row number
+     */
+    private void checkRow(final int row) {
+        if ((row < 0) || (row > getRowCount() - 1)) {
+            throw new IndexOutOfBoundsException("Row count is " +
+                getRowCount() + ", requested index " + row);
+        }
+    }
+
+    /**
+     * See if rows and columns can be inserted and deleted.  If not, the
+     * methods that insert or delete them do nothing.
+     *
+     * @return true if the model supports it
+     */
+    public boolean isStructureEditable() {
+        return model.isStructureEditable();
+    }
+
+    /**
+     * Get the X position of the first column.
+     *
+     * @return the position
+     */
+    private int getFirstColumnX() {
+        int x = showRowLabels ? ROW_LABEL_WIDTH : 0;
+        if (leftBorder != Border.NONE) {
+            x++;
+        }
+        return x;
+    }
+
+    /**
+     * Get the Y position of the first row.
+     *
+     * @return the position
+     */
+    private int getFirstRowY() {
+        int y = showColumnLabels ? COLUMN_LABEL_HEIGHT : 0;
+        if (topBorder != Border.NONE) {
+            y++;
+        }
+        return y;
+    }
+
+    /**
+     * Get the bottom border of a row.
+     *
+     * @param row the model row
+     * @return the border
+     */
+    private Border getRowBorder(final int row) {
+        Border border = rowBorders.get(row);
+        return (border == null ? defaultRowBorder : border);
+    }
+
+    /**
+     * Set the bottom border of a row.
+     *
+     * @param row the model row
+     * @param border the border
+     */
+    private void setRowBorder(final int row, final Border border) {
+        if (border == defaultRowBorder) {
+            rowBorders.remove(row);
+        } else {
+            rowBorders.put(row, border);
+        }
+    }
+
+    /**
+     * Get the height of a row, including its bottom border.
+     *
+     * @param row the model row
+     * @return the height
+     */
+    private int getRowHeight(final int row) {
+        return (getRowBorder(row) == Border.NONE ? 1 : 2);
+    }
+
+    /**
+     * Get the label of a row.
+     *
+     * @param row the model row
+     * @return the label
+     */
+    private String getModelRowLabel(final int row) {
+        String label = rowLabels.get(row);
+        return (label == null ? Integer.toString(row) : label);
+    }
+
+    /**
+     * See if a cell is read-only.
+     *
+     * @param column the model column
+     * @param row the model row
+     * @return true if the cell cannot be edited
+     */
+    private boolean isReadOnly(final int column, final int row) {
+        return getColumn(column).readOnly
+            || readOnlyRows.containsKey(row)
+            || readOnlyCells.containsKey(cellKey(column, row))
+            || !model.isCellEditable(row, column);
+    }
+
+    /**
+     * Get the position of a cell on screen.
+     *
+     * @param column the column number
+     * @param row the row number
+     * @return {x, y}, or null if the cell is not visible
+     */
+    private int [] getCellPosition(final int column, final int row) {
+        if ((column < left) || (row < top)) {
+            return null;
+        }
+        int x = getFirstColumnX();
+        for (int i = left; i < column; i++) {
+            x += getColumn(i).width + 1;
+        }
+        int y = getFirstRowY();
+        for (int i = top; i < row; i++) {
+            y += getRowHeight(getModelRowNumber(i));
+        }
+        if ((x >= getWidth()) || (y >= getHeight())) {
+            return null;
+        }
+        return new int [] { x, y };
+    }
+
+    /**
+     * Select the cell at a position on screen.
+     *
+     * @param x column relative to this widget
+     * @param y row relative to this widget
+     * @return true if there is a cell at that position
+     */
+    private boolean selectCellAt(final int x, final int y) {
+        int column = -1;
+        int cellX = getFirstColumnX();
+        for (int i = left; (i < getColumnCount()) && (cellX < getWidth());
+             i++) {
+
+            if ((x >= cellX) && (x < cellX + getColumn(i).width)) {
+                column = i;
+                break;
+            }
+            cellX += getColumn(i).width + 1;
+        }
+        int row = -1;
+        int cellY = getFirstRowY();
+        for (int i = top; (i < getRowCount()) && (cellY < getHeight()); i++) {
+            if ((y >= cellY) && (y < cellY + 1)) {
+                row = i;
+                break;
+            }
+            cellY += getRowHeight(getModelRowNumber(i));
+        }
+        if ((column == -1) || (row == -1)) {
+            return false;
+        }
+        selectedColumn = column;
+        selectedRow = row;
+        alignGrid();
+        return true;
+    }
+
+    /**
+     * Place an editor over the selected cell, if it is not read-only.
+     */
+    private void startEdit() {
+        if ((editor != null) || (getRowCount() == 0)) {
+            return;
+        }
+        alignGrid();
+        int row = getModelRowNumber(selectedRow);
+        if (isReadOnly(selectedColumn, row)) {
+            return;
+        }
+        int [] position = getCellPosition(selectedColumn, selectedRow);
+        if (position == null) {
+            return;
+        }
+        long key = cellKey(selectedColumn, row);
+        editor = addField(position[0], position[1],
+            getColumn(selectedColumn).width, false,
+            model.getValueAt(row, selectedColumn),
+            enterActions.get(key), updateActions.get(key));
+        editor.setBackgroundChar(' ');
+        activate(editor);
+    }
+
+    /**
+     * Save the editor's text to the model and remove the editor.
+     */
+    private void commitEdit() {
+        if (editor == null) {
+            return;
+        }
+        if (selectedRow < getRowCount()) {
+            model.setValueAt(getModelRowNumber(selectedRow), selectedColumn,
+                editor.getText());
+        }
+        cancelEdit();
+    }
+
+    /**
+     * Cancel any pending edit.
+     */
+    private void cancelEdit() {
+        if (editor != null) {
+            remove(editor);
+            editor = null;
+        }
+    }
+
+    /**
+     * Get the underlying data.
+     *
+     * @return the model
+     */
+    public TableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Replace the underlying data.  Column widths, labels, borders,
+     * read-only flags, cell actions, and any sort or filter are reset.
+     *
+     * @param model the new model
+     */
+    public void setModel(final TableModel model) {
+        if (model == null) {
+            throw new IllegalArgumentException("model cannot be null");
+        }
+        cancelEdit();
+        this.model = model;
+        columns.clear();
+        sortIndex = null;
+        rowIndex = null;
+        filterColumn = -1;
+        filterText = null;
+        rowLabels.clear();
+        rowBorders.clear();
+        defaultRowBorder = Border.NONE;
+        readOnlyRows.clear();
+        readOnlyCells.clear();
+        enterActions.clear();
+        updateActions.clear();
+        topBorder = Border.NONE;
+        leftBorder = Border.NONE;
+        left = 0;
+        top = 0;
+        selectedRow = 0;
+        selectedColumn = 0;
+        alignGrid();
+    }
+
+    /**
+     * Get the model row shown at a table row.
+     *
+     * @param row the row number
+     * @return the model row number
+     */
+    public int getModelRowNumber(final int row) {
+        return (rowIndex == null ? row : rowIndex[row]);
+    }
+
+    /**
+     * Sort the rows by the values of a column.  Values that are numbers
+     * sort numerically and before all other values; the rest sort
+     * alphabetically, ignoring case.  The model is not changed.
+     *
+     * @param column the column number
+     * @param ascending if true, sort smallest first
+     */
+    public void sortByColumn(final int column, final boolean ascending) {
+        checkColumn(column);
+        commitEdit();
+        waitForModel();
+
+        final int sortColumn = column;
+        final int rowCount = model.getRowCount();
+        final double [] numbers = new double[rowCount];
+        Integer [] order = new Integer[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            order[i] = i;
+            numbers[i] = Double.NaN;
+            String value = model.getValueAt(i, column).trim();
+            if ((value.length() > 0)
+                && ((Character.isDigit(value.charAt(0)))
+                    || (value.charAt(0) == '-')
+                    || (value.charAt(0) == '+')
+                    || (value.charAt(0) == '.'))
+            ) {
+                try {
+                    numbers[i] = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    // SQUASH: not a number, it will sort as text.
+                }
+            }
+        }
+        final int direction = (ascending ? 1 : -1);
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(final Integer a, final Integer b) {
+                double numberA = numbers[a];
+                double numberB = numbers[b];
+                if (!Double.isNaN(numberA) && !Double.isNaN(numberB)) {
+                    return direction * Double.compare(numberA, numberB);
                 }
-                if ((columns.get(j).rightBorder == Border.SINGLE)
-                    && (rows.get(i).bottomBorder == Border.THICK)
-                ) {
-                    // Intersection: single bar vertical, thick bar
-                    // horizontal
-                    putCharXY(columns.get(j).getX() + columns.get(j).width,
-                        rows.get(i).getY() + rows.get(i).height - 1,
-                        '\u253f', borderColor);
+                if (!Double.isNaN(numberA)) {
+                    return -direction;
                 }
+                if (!Double.isNaN(numberB)) {
+                    return direction;
+                }
+                return direction * model.getValueAt(a, sortColumn).
+                    compareToIgnoreCase(model.getValueAt(b, sortColumn));
             }
+        });
+        int [] newIndex = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            newIndex[i] = order[i];
         }
-
-        // Now draw the window borders.
-        super.draw();
+        int selectedModelRow = getSelectedModelRow();
+        sortIndex = newIndex;
+        updateRowIndex(selectedModelRow);
     }
 
-    // ------------------------------------------------------------------------
-    // TTable -----------------------------------------------------------------
-    // ------------------------------------------------------------------------
+    /**
+     * Remove the sort, showing rows in model order.
+     */
+    public void clearSort() {
+        commitEdit();
+        int selectedModelRow = getSelectedModelRow();
+        sortIndex = null;
+        updateRowIndex(selectedModelRow);
+    }
 
     /**
-     * Generate the default letter name for a column number.
+     * Show only the rows that contain some text.  The model is not changed.
      *
-     * @param col column number to use for this column.  Column 0 will be
-     * "A", column 1 will be "B", column 26 will be "AA", and so on.
-     */
-    private String makeColumnLabel(int col) {
-        StringBuilder sb = new StringBuilder();
-        for (;;) {
-            sb.append((char) ('A' + (col % 26)));
-            if (col < 26) {
-                break;
-            }
-            col /= 26;
+     * @param column the column to search, or -1 to search all columns
+     * @param text the text to look for, ignoring case.  If null or empty,
+     * the filter is removed.
+     */
+    public void setFilter(final int column, final String text) {
+        if (column != -1) {
+            checkColumn(column);
+        }
+        commitEdit();
+        waitForModel();
+        int selectedModelRow = getSelectedModelRow();
+        filterColumn = column;
+        if ((text == null) || (text.length() == 0)) {
+            filterText = null;
+        } else {
+            filterText = text.toLowerCase();
         }
-        return sb.reverse().toString();
+        updateRowIndex(selectedModelRow);
+    }
+
+    /**
+     * Remove the filter, showing all rows.
+     */
+    public void clearFilter() {
+        setFilter(-1, null);
     }
 
     /**
-     * Get the currently-selected cell.
+     * Get the filter text.
      *
-     * @return the selected cell
+     * @return the filter text, or null if there is no filter
      */
-    public Cell getSelectedCell() {
-        assert (rows.get(selectedRow) != null);
-        assert (rows.get(selectedRow).get(selectedColumn) != null);
-        assert (columns.get(selectedColumn) != null);
-        assert (columns.get(selectedColumn).get(selectedRow) != null);
-        assert (rows.get(selectedRow).get(selectedColumn) ==
-            columns.get(selectedColumn).get(selectedRow));
+    public String getFilter() {
+        return filterText;
+    }
 
-        return (columns.get(selectedColumn).get(selectedRow));
+    /**
+     * Get the model row of the selected cell.
+     *
+     * @return the model row, or -1 if there are no rows
+     */
+    private int getSelectedModelRow() {
+        if (selectedRow < getRowCount()) {
+            return getModelRowNumber(selectedRow);
+        }
+        return -1;
     }
 
     /**
-     * Get the currently-selected column.
+     * See if a model row passes the filter.
      *
-     * @return the selected column
+     * @param row the model row
+     * @return true if the row should be shown
      */
-    public Column getSelectedColumn() {
-        assert (selectedColumn >= 0);
-        assert (columns.size() > selectedColumn);
-        assert (columns.get(selectedColumn) != null);
-        return columns.get(selectedColumn);
+    private boolean matchesFilter(final int row) {
+        if (filterColumn != -1) {
+            return model.getValueAt(row, filterColumn).toLowerCase().
+                contains(filterText);
+        }
+        for (int i = 0; i < model.getColumnCount(); i++) {
+            if (model.getValueAt(row, i).toLowerCase().contains(filterText)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Get the currently-selected row.
+     * Rebuild rowIndex from sortIndex and the filter, and keep the
+     * selection on the same model row if it is still shown.
      *
-     * @return the selected row
+     * @param selectedModelRow the model row that was selected, or -1
      */
-    public Row getSelectedRow() {
-        assert (selectedRow >= 0);
-        assert (rows.size() > selectedRow);
-        assert (rows.get(selectedRow) != null);
-        return rows.get(selectedRow);
+    private void updateRowIndex(final int selectedModelRow) {
+        if (filterText == null) {
+            rowIndex = sortIndex;
+        } else {
+            int rowCount = (sortIndex == null ? model.getRowCount() :
+                sortIndex.length);
+            int [] matches = new int[rowCount];
+            int n = 0;
+            for (int i = 0; i < rowCount; i++) {
+                int row = (sortIndex == null ? i : sortIndex[i]);
+                if (matchesFilter(row)) {
+                    matches[n++] = row;
+                }
+            }
+            rowIndex = Arrays.copyOf(matches, n);
+        }
+
+        selectedRow = 0;
+        if (selectedModelRow != -1) {
+            if (rowIndex == null) {
+                selectedRow = selectedModelRow;
+            } else {
+                selectedRow = Math.max(0, findIndexRow(rowIndex,
+                        selectedModelRow));
+            }
+        }
+        top = 0;
+        alignGrid();
     }
 
     /**
@@ -1067,12 +1422,8 @@ public class TTableWidget extends TWidget {
      * @param column the column number to select
      */
     public void setSelectedColumnNumber(final int column) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
+        checkColumn(column);
         selectedColumn = column;
-        activate(columns.get(selectedColumn).get(selectedRow));
         alignGrid();
     }
 
@@ -1091,12 +1442,8 @@ public class TTableWidget extends TWidget {
      * @param row the row number to select
      */
     public void setSelectedRowNumber(final int row) {
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
+        checkRow(row);
         selectedRow = row;
-        activate(columns.get(selectedColumn).get(selectedRow));
         alignGrid();
     }
 
@@ -1152,6 +1499,7 @@ public class TTableWidget extends TWidget {
      */
     public void setShowRowLabels(final boolean showRowLabels) {
         this.showRowLabels = showRowLabels;
+        alignGrid();
     }
 
     /**
@@ -1170,6 +1518,7 @@ public class TTableWidget extends TWidget {
      */
     public void setShowColumnLabels(final boolean showColumnLabels) {
         this.showColumnLabels = showColumnLabels;
+        alignGrid();
     }
 
     /**
@@ -1178,19 +1527,18 @@ public class TTableWidget extends TWidget {
      * @return the number of columns
      */
     public int getColumnCount() {
-        return columns.size();
+        return model.getColumnCount();
     }
 
     /**
-     * Get the number of rows.
+     * Get the number of rows shown, after filtering.
      *
      * @return the number of rows
      */
     public int getRowCount() {
-        return rows.size();
+        return (rowIndex == null ? model.getRowCount() : rowIndex.length);
     }
 
-
     /**
      * Push top and left to the bottom-most right corner of the available
      * grid.
@@ -1202,8 +1550,9 @@ public class TTableWidget extends TWidget {
         }
 
         // Set left and top such that the table stays on screen if possible.
-        top = rows.size() - getHeight();
-        left = columns.size() - (getWidth() / (viewColumns / (COLUMN_DEFAULT_WIDTH + 1)));
+        top = getRowCount() - getHeight();
+        left = getColumnCount() - (getWidth()
+            / (viewColumns / (COLUMN_DEFAULT_WIDTH + 1)));
         // Now ensure the selection is visible.
         alignGrid();
     }
@@ -1212,12 +1561,21 @@ public class TTableWidget extends TWidget {
      * Align the grid so that the selected cell is fully visible.
      */
     private void alignGrid() {
+        int rowCount = getRowCount();
+        int columnCount = getColumnCount();
 
         /*
-        System.err.println("alignGrid() # columns " + columns.size() +
-            " # rows " + rows.size());
+        System.err.println("alignGrid() # columns " + columnCount +
+            " # rows " + rowCount);
          */
 
+        if (selectedRow > rowCount - 1) {
+            selectedRow = Math.max(0, rowCount - 1);
+        }
+        if (selectedColumn > columnCount - 1) {
+            selectedColumn = Math.max(0, columnCount - 1);
+        }
+
         int viewColumns = getWidth();
         if (showRowLabels == true) {
             viewColumns -= ROW_LABEL_WIDTH;
@@ -1244,6 +1602,14 @@ public class TTableWidget extends TWidget {
         if (selectedRow < top) {
             top = selectedRow - 1;
         }
+        if (top > rowCount - 1) {
+            top = rowCount - 1;
+        }
+        // Every row is at least one line high, so the selected row cannot
+        // be visible if top is further than viewRows above it.
+        if (top < selectedRow - viewRows) {
+            top = selectedRow - viewRows;
+        }
         if (top < 0) {
             top = 0;
         }
@@ -1251,32 +1617,28 @@ public class TTableWidget extends TWidget {
         /*
          * viewColumns and viewRows now contain the available columns and
          * rows available to view the selected cell.  We adjust left and top
-         * to ensure the selected cell is within view, and then make all
-         * cells outside the box between (left, top) and (right, bottom)
-         * invisible.
+         * to ensure the selected cell is within view.  Only the cells
+         * between (left, top) and the edges of the widget are drawn.
          *
          * We need to calculate right and bottom now.
          */
         int right = left;
 
-        boolean done = false;
+        boolean done = (columnCount == 0);
         while (!done) {
-            int rightCellX = (showRowLabels ? ROW_LABEL_WIDTH : 0);
-            if (leftBorder != Border.NONE) {
-                rightCellX++;
-            }
+            int rightCellX = getFirstColumnX();
             int maxCellX = rightCellX + viewColumns;
             right = left;
             boolean selectedIsVisible = false;
             int selectedX = 0;
-            for (int x = left; x < columns.size(); x++) {
+            for (int x = left; x < columnCount; x++) {
                 if (x == selectedColumn) {
                     selectedX = rightCellX;
-                    if (selectedX + columns.get(x).width + 1 <= maxCellX) {
+                    if (selectedX + getColumn(x).width + 1 <= maxCellX) {
                         selectedIsVisible = true;
                     }
                 }
-                rightCellX += columns.get(x).width + 1;
+                rightCellX += getColumn(x).width + 1;
                 if (rightCellX >= maxCellX) {
                     break;
                 }
@@ -1302,45 +1664,21 @@ public class TTableWidget extends TWidget {
 
         } // while (!done)
 
-        // We have the left/right range correct, set cell visibility and
-        // column X positions.
-        int leftCellX = showRowLabels ? ROW_LABEL_WIDTH : 0;
-        if (leftBorder != Border.NONE) {
-            leftCellX++;
-        }
-        for (int x = 0; x < columns.size(); x++) {
-            if ((x < left) || (x > right)) {
-                for (int i = 0; i < rows.size(); i++) {
-                    columns.get(x).get(i).setVisible(false);
-                    columns.get(x).setX(getWidth() + 1);
-                }
-                continue;
-            }
-            for (int i = 0; i < rows.size(); i++) {
-                columns.get(x).get(i).setVisible(true);
-            }
-            columns.get(x).setX(leftCellX);
-            leftCellX += columns.get(x).width + 1;
-        }
-
         int bottom = top;
 
-        done = false;
+        done = (rowCount == 0);
         while (!done) {
-            int bottomCellY = (showColumnLabels ? COLUMN_LABEL_HEIGHT : 0);
-            if (topBorder != Border.NONE) {
-                bottomCellY++;
-            }
+            int bottomCellY = getFirstRowY();
             int maxCellY = bottomCellY + viewRows;
             bottom = top;
-            for (int y = top; y < rows.size(); y++) {
-                bottomCellY += rows.get(y).height;
+            for (int y = top; y < rowCount; y++) {
+                bottomCellY += getRowHeight(getModelRowNumber(y));
                 if (bottomCellY >= maxCellY) {
                     break;
                 }
                 bottom++;
             }
-            if (bottom < selectedRow) {
+            if ((bottom < selectedRow) && (top < selectedRow)) {
                 // selectedRow is outside the view range.  Push top down, and
                 // calculate again.
                 top++;
@@ -1350,149 +1688,175 @@ public class TTableWidget extends TWidget {
             }
         } // while (!done)
 
-        // We have the top/bottom range correct, set cell visibility and
-        // row Y positions.
-        int topCellY = showColumnLabels ? COLUMN_LABEL_HEIGHT : 0;
-        if (topBorder != Border.NONE) {
-            topCellY++;
-        }
-        for (int y = 0; y < rows.size(); y++) {
-            if ((y < top) || (y > bottom)) {
-                for (int i = 0; i < columns.size(); i++) {
-                    rows.get(y).get(i).setVisible(false);
-                }
-                rows.get(y).setY(getHeight() + 1);
-                continue;
-            }
-            for (int i = 0; i < columns.size(); i++) {
-                rows.get(y).get(i).setVisible(true);
-            }
-            rows.get(y).setY(topCellY);
-            topCellY += rows.get(y).height;
-        }
-
-        // Last thing: cancel any edits that are not the selected cell.
-        for (int y = 0; y < rows.size(); y++) {
-            for (int x = 0; x < columns.size(); x++) {
-                if ((x == selectedColumn) && (y == selectedRow)) {
-                    continue;
-                }
-                rows.get(y).get(x).cancelEdit();
+        // Last thing: keep the editor over the selected cell, or cancel
+        // the edit if the cell is no longer on screen.
+        if (editor != null) {
+            int [] position = getCellPosition(selectedColumn, selectedRow);
+            if (position == null) {
+                cancelEdit();
+            } else {
+                editor.setX(position[0]);
+                editor.setY(position[1]);
+                editor.setWidth(getColumn(selectedColumn).width);
             }
         }
     }
 
     /**
-     * Load contents from file in CSV format.
+     * Load contents from file in CSV format.  The file is shown through a
+     * CsvTableModel, which replaces the current model: the first screen of
+     * rows is available immediately, and the rest appear as they are parsed
+     * in the background.
      *
      * @param csvFile a File referencing the CSV data
      * @throws IOException if a java.io operation throws
      */
     public void loadCsvFile(final File csvFile) throws IOException {
-        BufferedReader reader = null;
-
-        try {
-            reader = new BufferedReader(new FileReader(csvFile));
+        final TApplication app = getApplication();
+        CsvTableModel csvModel = new CsvTableModel(csvFile, new Runnable() {
+            public void run() {
+                if (app != null) {
+                    app.doRepaint();
+                }
+            }
+        });
 
-            String line = null;
-            boolean first = true;
-            for (line = reader.readLine(); line != null;
-                 line = reader.readLine()) {
+        if ((csvModel.getRowCount() == 0) && !csvModel.isLoading()) {
+            // Nothing in the file, show one empty cell.
+            setModel(new ColumnarTableModel(1, 1));
+            return;
+        }
+        setModel(csvModel);
+    }
 
-                List<String> list = StringUtils.fromCsv(line);
-                if (list.size() == 0) {
-                    continue;
-                }
+    /**
+     * Get the model ready to be written out: wait for a CsvTableModel to
+     * finish loading.  It holds the file contents in memory, so saving over
+     * its own file is safe.
+     */
+    private void prepareToSave() {
+        commitEdit();
+        waitForModel();
+    }
 
-                if (list.size() > columns.size()) {
-                    int n = list.size() - columns.size();
-                    for (int i = 0; i < n; i++) {
-                        selectedColumn = columns.size() - 1;
-                        insertColumnRight(selectedColumn);
+    /**
+     * Run an action that needs the whole model in memory, such as
+     * inserting or deleting rows or columns.  If the model is a
+     * CsvTableModel that has not been decoded yet, that is done by a
+     * background thread while the table shows that it is busy, and the
+     * action runs on the event thread afterwards.  Otherwise the action
+     * runs now.  While one action is waiting, others are dropped.
+     *
+     * @param action the action to run
+     */
+    public void whenLoaded(final Runnable action) {
+        final TApplication app = getApplication();
+        if (!(model instanceof CsvTableModel)
+            || ((CsvTableModel) model).isInMemory()
+            || (app == null)
+        ) {
+            action.run();
+            return;
+        }
+        if (loading) {
+            return;
+        }
+        commitEdit();
+        loading = true;
+        final CsvTableModel csvModel = (CsvTableModel) model;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                csvModel.loadAll();
+                app.invokeLater(new Runnable() {
+                    public void run() {
+                        loading = false;
+                        if (model == csvModel) {
+                            action.run();
+                        }
+                        app.doRepaint();
                     }
-                }
-                assert (list.size() == columns.size());
-
-                if (first) {
-                    // First row: just replace what is here.
-                    selectedRow = 0;
-                    first = false;
-                } else {
-                    // All other rows: append to the end.
-                    selectedRow = rows.size() - 1;
-                    insertRowBelow(selectedRow);
-                    selectedRow = rows.size() - 1;
-                }
-                for (int i = 0; i < list.size(); i++) {
-                    rows.get(selectedRow).get(i).setText(list.get(i));
-                }
+                });
             }
-        } finally {
-            if (reader != null) {
-                reader.close();
-            }
-        }
+        }, "TTableWidget " + csvModel.getFile().getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        left = 0;
-        top = 0;
-        selectedRow = 0;
-        selectedColumn = 0;
-        alignGrid();
-        activate(columns.get(selectedColumn).get(selectedRow));
+    /**
+     * See if whenLoaded() is waiting for the model to be read into memory.
+     *
+     * @return true if the table is busy loading
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Wait for a CsvTableModel to finish loading, so that sorting and
+     * filtering see every row.
+     */
+    private void waitForModel() {
+        if (model instanceof CsvTableModel) {
+            ((CsvTableModel) model).waitForLoad();
+        }
     }
 
     /**
-     * Save contents to file in CSV format.
+     * Save contents to file in CSV format.  Every row of the model is
+     * saved in model order; sorting and filtering only change the view.
      *
      * @param filename file to save to
      * @throws IOException if a java.io operation throws
      */
     public void saveToCsvFilename(final String filename) throws IOException {
-        BufferedWriter writer = null;
+        prepareToSave();
+        CsvWriter writer = new CsvWriter(new File(filename));
 
         try {
-            writer = new BufferedWriter(new FileWriter(filename));
-            for (Row row: rows) {
-                List<String> list = new ArrayList<String>(row.cells.size());
-                for (Cell cell: row.cells) {
-                    list.add(cell.getText());
+            int columnCount = getColumnCount();
+            int rowCount = model.getRowCount();
+            for (int row = 0; row < rowCount; row++) {
+                for (int j = 0; j < columnCount; j++) {
+                    writer.writeField(model.getValueAt(row, j));
                 }
-                writer.write(StringUtils.toCsv(list));
-                writer.write("\n");
+                writer.endRecord();
             }
         } finally {
-            if (writer != null) {
-                writer.close();
-            }
+            writer.close();
         }
     }
 
     /**
-     * Save contents to file in text format with lines.
+     * Save contents to file in text format with lines.  Every row of the
+     * model is saved in model order; sorting and filtering only change the
+     * view.
      *
      * @param filename file to save to
      * @throws IOException if a java.io operation throws
      */
     public void saveToTextFilename(final String filename) throws IOException {
         BufferedWriter writer = null;
+        prepareToSave();
 
         try {
             writer = new BufferedWriter(new FileWriter(filename));
 
+            int rowCount = model.getRowCount();
+            int columnCount = getColumnCount();
+
             if ((topBorder == Border.SINGLE) && (leftBorder == Border.SINGLE)) {
                 // Emit top-left corner.
                 writer.write("\u250c");
             }
 
             if (topBorder == Border.SINGLE) {
-                int cellI = 0;
-                for (Cell cell: rows.get(0).cells) {
-                    for (int i = 0; i < columns.get(cellI).width; i++) {
+                for (int cellI = 0; cellI < columnCount; cellI++) {
+                    for (int i = 0; i < getColumn(cellI).width; i++) {
                         writer.write("\u2500");
                     }
 
-                    if (columns.get(cellI).rightBorder == Border.SINGLE) {
-                        if (cellI < columns.size() - 1) {
+                    if (getColumn(cellI).rightBorder == Border.SINGLE) {
+                        if (cellI < columnCount - 1) {
                             // Emit top tee.
                             writer.write("\u252c");
                         } else {
@@ -1500,185 +1864,180 @@ public class TTableWidget extends TWidget {
                             writer.write("\u2510");
                         }
                     }
-                    cellI++;
                 }
             }
             writer.write("\n");
 
-            int rowI = 0;
-            for (Row row: rows) {
+            for (int rowI = 0; rowI < rowCount; rowI++) {
+                Border bottomBorder = getRowBorder(rowI);
 
                 if (leftBorder == Border.SINGLE) {
                     // Emit left border.
                     writer.write("\u2502");
                 }
 
-                int cellI = 0;
-                for (Cell cell: row.cells) {
+                for (int cellI = 0; cellI < columnCount; cellI++) {
                     writer.write(String.format("%" +
-                            columns.get(cellI).width + "s", cell.getText()));
+                            getColumn(cellI).width + "s",
+                            model.getValueAt(rowI, cellI)));
 
-                    if (columns.get(cellI).rightBorder == Border.SINGLE) {
+                    if (getColumn(cellI).rightBorder == Border.SINGLE) {
                         // Emit right border.
                         writer.write("\u2502");
                     }
-                    cellI++;
                 }
                 writer.write("\n");
 
-                if (row.bottomBorder == Border.NONE) {
+                if (bottomBorder == Border.NONE) {
                     // All done, move on to the next row.
                     continue;
                 }
 
                 // Emit the bottom borders and intersections.
                 if ((leftBorder == Border.SINGLE)
-                    && (row.bottomBorder != Border.NONE)
+                    && (bottomBorder != Border.NONE)
                 ) {
-                    if (rowI < rows.size() - 1) {
-                        if (row.bottomBorder == Border.SINGLE) {
+                    if (rowI < rowCount - 1) {
+                        if (bottomBorder == Border.SINGLE) {
                             // Emit left tee.
                             writer.write("\u251c");
-                        } else if (row.bottomBorder == Border.DOUBLE) {
+                        } else if (bottomBorder == Border.DOUBLE) {
                             // Emit left tee (double).
                             writer.write("\u255e");
-                        } else if (row.bottomBorder == Border.THICK) {
+                        } else if (bottomBorder == Border.THICK) {
                             // Emit left tee (thick).
                             writer.write("\u251d");
                         }
                     }
 
-                    if (rowI == rows.size() - 1) {
-                        if (row.bottomBorder == Border.SINGLE) {
+                    if (rowI == rowCount - 1) {
+                        if (bottomBorder == Border.SINGLE) {
                             // Emit left bottom corner.
                             writer.write("\u2514");
-                        } else if (row.bottomBorder == Border.DOUBLE) {
+                        } else if (bottomBorder == Border.DOUBLE) {
                             // Emit left bottom corner (double).
                             writer.write("\u2558");
-                        } else if (row.bottomBorder == Border.THICK) {
+                        } else if (bottomBorder == Border.THICK) {
                             // Emit left bottom corner (thick).
                             writer.write("\u2515");
                         }
                     }
                 }
 
-                cellI = 0;
-                for (Cell cell: row.cells) {
+                for (int cellI = 0; cellI < columnCount; cellI++) {
+                    Border rightBorder = getColumn(cellI).rightBorder;
 
-                    for (int i = 0; i < columns.get(cellI).width; i++) {
-                        if (row.bottomBorder == Border.SINGLE) {
+                    for (int i = 0; i < getColumn(cellI).width; i++) {
+                        if (bottomBorder == Border.SINGLE) {
                             writer.write("\u2500");
                         }
-                        if (row.bottomBorder == Border.DOUBLE) {
+                        if (bottomBorder == Border.DOUBLE) {
                             writer.write("\u2550");
                         }
-                        if (row.bottomBorder == Border.THICK) {
+                        if (bottomBorder == Border.THICK) {
                             writer.write("\u2501");
                         }
                     }
 
-                    if ((rowI < rows.size() - 1)
-                        && (cellI == columns.size() - 1)
-                        && (row.bottomBorder == Border.SINGLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI < rowCount - 1)
+                        && (cellI == columnCount - 1)
+                        && (bottomBorder == Border.SINGLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit right tee.
                         writer.write("\u2524");
                     }
-                    if ((rowI < rows.size() - 1)
-                        && (cellI == columns.size() - 1)
-                        && (row.bottomBorder == Border.DOUBLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI < rowCount - 1)
+                        && (cellI == columnCount - 1)
+                        && (bottomBorder == Border.DOUBLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit right tee (double).
                         writer.write("\u2561");
                     }
-                    if ((rowI < rows.size() - 1)
-                        && (cellI == columns.size() - 1)
-                        && (row.bottomBorder == Border.THICK)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI < rowCount - 1)
+                        && (cellI == columnCount - 1)
+                        && (bottomBorder == Border.THICK)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit right tee (thick).
                         writer.write("\u2525");
                     }
-                    if ((rowI == rows.size() - 1)
-                        && (cellI == columns.size() - 1)
-                        && (row.bottomBorder == Border.SINGLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI == rowCount - 1)
+                        && (cellI == columnCount - 1)
+                        && (bottomBorder == Border.SINGLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit right bottom corner.
                         writer.write("\u2518");
                     }
-                    if ((rowI == rows.size() - 1)
-                        && (cellI == columns.size() - 1)
-                        && (row.bottomBorder == Border.DOUBLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI == rowCount - 1)
+                        && (cellI == columnCount - 1)
+                        && (bottomBorder == Border.DOUBLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit right bottom corner (double).
                         writer.write("\u255b");
                     }
-                    if ((rowI == rows.size() - 1)
-                        && (cellI == columns.size() - 1)
-                        && (row.bottomBorder == Border.THICK)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI == rowCount - 1)
+                        && (cellI == columnCount - 1)
+                        && (bottomBorder == Border.THICK)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit right bottom corner (thick).
                         writer.write("\u2519");
                     }
-                    if ((rowI < rows.size() - 1)
-                        && (cellI < columns.size() - 1)
-                        && (row.bottomBorder == Border.SINGLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI < rowCount - 1)
+                        && (cellI < columnCount - 1)
+                        && (bottomBorder == Border.SINGLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit intersection.
                         writer.write("\u253c");
                     }
-                    if ((rowI < rows.size() - 1)
-                        && (cellI < columns.size() - 1)
-                        && (row.bottomBorder == Border.DOUBLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI < rowCount - 1)
+                        && (cellI < columnCount - 1)
+                        && (bottomBorder == Border.DOUBLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit intersection (double).
                         writer.write("\u256a");
                     }
-                    if ((rowI < rows.size() - 1)
-                        && (cellI < columns.size() - 1)
-                        && (row.bottomBorder == Border.THICK)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI < rowCount - 1)
+                        && (cellI < columnCount - 1)
+                        && (bottomBorder == Border.THICK)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit intersection (thick).
                         writer.write("\u253f");
                     }
-                    if ((rowI == rows.size() - 1)
-                        && (cellI < columns.size() - 1)
-                        && (row.bottomBorder == Border.SINGLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI == rowCount - 1)
+                        && (cellI < columnCount - 1)
+                        && (bottomBorder == Border.SINGLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit bottom tee.
                         writer.write("\u2534");
                     }
-                    if ((rowI == rows.size() - 1)
-                        && (cellI < columns.size() - 1)
-                        && (row.bottomBorder == Border.DOUBLE)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI == rowCount - 1)
+                        && (cellI < columnCount - 1)
+                        && (bottomBorder == Border.DOUBLE)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit bottom tee (double).
                         writer.write("\u2567");
                     }
-                    if ((rowI == rows.size() - 1)
-                        && (cellI < columns.size() - 1)
-                        && (row.bottomBorder == Border.THICK)
-                        && (columns.get(cellI).rightBorder == Border.SINGLE)
+                    if ((rowI == rowCount - 1)
+                        && (cellI < columnCount - 1)
+                        && (bottomBorder == Border.THICK)
+                        && (rightBorder == Border.SINGLE)
                     ) {
                         // Emit bottom tee (thick).
                         writer.write("\u2537");
                     }
-
-                    cellI++;
                 }
 
                 writer.write("\n");
-                rowI++;
             }
         } finally {
             if (writer != null) {
@@ -1694,38 +2053,13 @@ public class TTableWidget extends TWidget {
      * @param row the selected cell location row
      */
     public void setSelectedCell(final int column, final int row) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
+        checkColumn(column);
+        checkRow(row);
         selectedColumn = column;
         selectedRow = row;
         alignGrid();
     }
 
-    /**
-     * Get a particular cell.
-     *
-     * @param column the cell column
-     * @param row the cell row
-     * @return the cell
-     */
-    public Cell getCell(final int column, final int row) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
-        return rows.get(row).get(column);
-    }
-
     /**
      * Get the text of a particular cell.
      *
@@ -1734,15 +2068,15 @@ public class TTableWidget extends TWidget {
      * @return the text in the cell
      */
     public String getCellText(final int column, final int row) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
+        checkColumn(column);
+        checkRow(row);
+        if ((editor != null)
+            && (column == selectedColumn)
+            && (row == selectedRow)
+        ) {
+            return editor.getText();
         }
-        return rows.get(row).get(column).getText();
+        return model.getValueAt(getModelRowNumber(row), column);
     }
 
     /**
@@ -1755,15 +2089,15 @@ public class TTableWidget extends TWidget {
     public void setCellText(final int column, final int row,
         final String text) {
 
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
+        checkColumn(column);
+        checkRow(row);
+        if ((editor != null)
+            && (column == selectedColumn)
+            && (row == selectedRow)
+        ) {
+            editor.setText(text);
         }
-        rows.get(row).get(column).setText(text);
+        model.setValueAt(getModelRowNumber(row), column, text);
     }
 
     /**
@@ -1778,15 +2112,14 @@ public class TTableWidget extends TWidget {
     public void setCellEnterAction(final int column, final int row,
         final TAction action) {
 
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
+        checkColumn(column);
+        checkRow(row);
+        long key = cellKey(column, getModelRowNumber(row));
+        if (action == null) {
+            enterActions.remove(key);
+        } else {
+            enterActions.put(key, action);
         }
-        rows.get(row).get(column).field.setEnterAction(action);
     }
 
     /**
@@ -1799,15 +2132,14 @@ public class TTableWidget extends TWidget {
     public void setCellUpdateAction(final int column, final int row,
         final TAction action) {
 
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
+        checkColumn(column);
+        checkRow(row);
+        long key = cellKey(column, getModelRowNumber(row));
+        if (action == null) {
+            updateActions.remove(key);
+        } else {
+            updateActions.put(key, action);
         }
-        rows.get(row).get(column).field.setUpdateAction(action);
     }
 
     /**
@@ -1817,11 +2149,8 @@ public class TTableWidget extends TWidget {
      * @return the width of the column
      */
     public int getColumnWidth(final int column) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        return columns.get(column).width;
+        checkColumn(column);
+        return getColumn(column).width;
     }
 
     /**
@@ -1831,26 +2160,15 @@ public class TTableWidget extends TWidget {
      * @param width the new width of the column
      */
     public void setColumnWidth(final int column, final int width) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
+        checkColumn(column);
 
         if (width < 4) {
             // Columns may not be smaller than 4 cells wide.
             return;
         }
 
-        int delta = width - columns.get(column).width;
-        columns.get(column).width = width;
-        for (Cell cell: columns.get(column).cells) {
-            cell.setWidth(columns.get(column).width);
-            cell.field.setWidth(columns.get(column).width);
-        }
-        for (int i = column + 1; i < columns.size(); i++) {
-            columns.get(i).setX(columns.get(i).getX() + delta);
-        }
-        if (column == columns.size() - 1) {
+        getColumn(column).width = width;
+        if (column == getColumnCount() - 1) {
             bottomRightCorner();
         } else {
             alignGrid();
@@ -1864,11 +2182,9 @@ public class TTableWidget extends TWidget {
      * @return the label of the column
      */
     public String getColumnLabel(final int column) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        return columns.get(column).label;
+        checkColumn(column);
+        String label = getColumn(column).label;
+        return (label == null ? makeColumnLabel(column) : label);
     }
 
     /**
@@ -1878,11 +2194,8 @@ public class TTableWidget extends TWidget {
      * @param label the new label of the column
      */
     public void setColumnLabel(final int column, final String label) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        columns.get(column).label = label;
+        checkColumn(column);
+        getColumn(column).label = label;
     }
 
     /**
@@ -1892,11 +2205,8 @@ public class TTableWidget extends TWidget {
      * @return the label of the row
      */
     public String getRowLabel(final int row) {
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
-        return rows.get(row).label;
+        checkRow(row);
+        return getModelRowLabel(getModelRowNumber(row));
     }
 
     /**
@@ -1906,39 +2216,55 @@ public class TTableWidget extends TWidget {
      * @param label the new label of the row
      */
     public void setRowLabel(final int row, final String label) {
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
-        rows.get(row).label = label;
+        checkRow(row);
+        rowLabels.put(getModelRowNumber(row), label);
     }
 
     /**
      * Insert one row at a particular index.
      *
-     * @param idx the row number
+     * @param idx the row number, from 0 to getRowCount()
      */
     private void insertRowAt(final int idx) {
-        Row newRow = new Row(idx);
-        for (int i = 0; i < columns.size(); i++) {
-            Cell cell = new Cell(this, columns.get(i).getX(),
-                rows.get(idx).getY(), COLUMN_DEFAULT_WIDTH, 1, i, idx);
-            newRow.add(cell);
-            columns.get(i).cells.add(idx, cell);
-        }
-        rows.add(idx, newRow);
-
-        for (int x = 0; x < columns.size(); x++) {
-            for (int y = idx; y < rows.size(); y++) {
-                columns.get(x).get(y).row = y;
-                columns.get(x).get(y).column = x;
+        commitEdit();
+
+        int rowCount = getRowCount();
+        int modelRow;
+        if (idx < rowCount) {
+            modelRow = getModelRowNumber(idx);
+        } else if (rowCount > 0) {
+            modelRow = getModelRowNumber(rowCount - 1) + 1;
+        } else {
+            modelRow = model.getRowCount();
+        }
+
+        // In the sorted order, the new row goes after the row shown above
+        // it.
+        int sortPosition = 0;
+        if (sortIndex != null) {
+            if (idx > 0) {
+                sortPosition = findIndexRow(sortIndex,
+                    getModelRowNumber(idx - 1)) + 1;
+            } else if (rowCount > 0) {
+                sortPosition = findIndexRow(sortIndex, getModelRowNumber(0));
             }
         }
-        for (int i = idx + 1; i < rows.size(); i++) {
-            String oldRowLabel = Integer.toString(i - 1);
-            if (rows.get(i).label.equals(oldRowLabel)) {
-                rows.get(i).label = Integer.toString(i);
-            }
+
+        model.insertRow(modelRow);
+        rowLabels = shiftRows(rowLabels, modelRow, 1);
+        rowBorders = shiftRows(rowBorders, modelRow, 1);
+        readOnlyRows = shiftRows(readOnlyRows, modelRow, 1);
+        readOnlyCells = shiftCells(readOnlyCells, 0, 0, modelRow, 1);
+        enterActions = shiftCells(enterActions, 0, 0, modelRow, 1);
+        updateActions = shiftCells(updateActions, 0, 0, modelRow, 1);
+
+        if (sortIndex != null) {
+            sortIndex = insertIndexRow(sortIndex, sortPosition, modelRow);
+        }
+        if (filterText == null) {
+            rowIndex = sortIndex;
+        } else {
+            rowIndex = insertIndexRow(rowIndex, idx, modelRow);
         }
         alignGrid();
     }
@@ -1949,13 +2275,13 @@ public class TTableWidget extends TWidget {
      * @param row the row number
      */
     public void insertRowAbove(final int row) {
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
+        checkRow(row);
+        if (!isStructureEditable()) {
+            return;
         }
         insertRowAt(row);
         selectedRow++;
-        activate(columns.get(selectedColumn).get(selectedRow));
+        alignGrid();
     }
 
     /**
@@ -1964,28 +2290,11 @@ public class TTableWidget extends TWidget {
      * @param row the row number
      */
     public void insertRowBelow(final int row) {
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
-        int idx = row + 1;
-        if (idx < rows.size()) {
-            insertRowAt(idx);
-            activate(columns.get(selectedColumn).get(selectedRow));
+        checkRow(row);
+        if (!isStructureEditable()) {
             return;
         }
-
-        // row is the last row, we need to perform an append.
-        Row newRow = new Row(idx);
-        for (int i = 0; i < columns.size(); i++) {
-            Cell cell = new Cell(this, columns.get(i).getX(),
-                rows.get(row).getY(), COLUMN_DEFAULT_WIDTH, 1, i, idx);
-            newRow.add(cell);
-            columns.get(i).cells.add(cell);
-        }
-        rows.add(newRow);
-        alignGrid();
-        activate(columns.get(selectedColumn).get(selectedRow));
+        insertRowAt(row + 1);
     }
 
     /**
@@ -1994,66 +2303,50 @@ public class TTableWidget extends TWidget {
      * @param row the row number
      */
     public void deleteRow(final int row) {
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
-        if (rows.size() == 1) {
+        checkRow(row);
+        if (!isStructureEditable() || (model.getRowCount() == 1)) {
             // Don't delete the last row.
             return;
         }
-        for (int i = 0; i < columns.size(); i++) {
-            Cell cell = columns.get(i).cells.remove(row);
-            getChildren().remove(cell);
-        }
-        rows.remove(row);
+        commitEdit();
 
-        for (int x = 0; x < columns.size(); x++) {
-            for (int y = row; y < rows.size(); y++) {
-                columns.get(x).get(y).row = y;
-                columns.get(x).get(y).column = x;
-            }
+        int modelRow = getModelRowNumber(row);
+        model.deleteRow(modelRow);
+        rowLabels = shiftRows(rowLabels, modelRow, -1);
+        rowBorders = shiftRows(rowBorders, modelRow, -1);
+        readOnlyRows = shiftRows(readOnlyRows, modelRow, -1);
+        readOnlyCells = shiftCells(readOnlyCells, 0, 0, modelRow, -1);
+        enterActions = shiftCells(enterActions, 0, 0, modelRow, -1);
+        updateActions = shiftCells(updateActions, 0, 0, modelRow, -1);
+
+        if (sortIndex != null) {
+            sortIndex = deleteIndexRow(sortIndex, modelRow);
         }
-        for (int i = row; i < rows.size(); i++) {
-            String oldRowLabel = Integer.toString(i + 1);
-            if (rows.get(i).label.equals(oldRowLabel)) {
-                rows.get(i).label = Integer.toString(i);
-            }
+        if (filterText == null) {
+            rowIndex = sortIndex;
+        } else {
+            rowIndex = deleteIndexRow(rowIndex, modelRow);
         }
-        if (selectedRow == rows.size()) {
-            selectedRow--;
+        if (selectedRow >= getRowCount()) {
+            selectedRow = Math.max(0, getRowCount() - 1);
         }
-        activate(columns.get(selectedColumn).get(selectedRow));
         bottomRightCorner();
     }
 
     /**
      * Insert one column at a particular index.
      *
-     * @param idx the column number
+     * @param idx the column number, from 0 to getColumnCount()
      */
     private void insertColumnAt(final int idx) {
-        Column newColumn = new Column(idx);
-        for (int i = 0; i < rows.size(); i++) {
-            Cell cell = new Cell(this, columns.get(idx).getX(),
-                rows.get(i).getY(), COLUMN_DEFAULT_WIDTH, 1, idx, i);
-            newColumn.add(cell);
-            rows.get(i).cells.add(idx, cell);
-        }
-        columns.add(idx, newColumn);
-
-        for (int x = idx; x < columns.size(); x++) {
-            for (int y = 0; y < rows.size(); y++) {
-                columns.get(x).get(y).row = y;
-                columns.get(x).get(y).column = x;
-            }
-        }
-        for (int i = idx + 1; i < columns.size(); i++) {
-            String oldColumnLabel = makeColumnLabel(i - 1);
-            if (columns.get(i).label.equals(oldColumnLabel)) {
-                columns.get(i).label = makeColumnLabel(i);
-            }
-        }
+        commitEdit();
+
+        syncColumns();
+        model.insertColumn(idx);
+        columns.add(idx, new ColumnStyle());
+        readOnlyCells = shiftCells(readOnlyCells, idx, 1, 0, 0);
+        enterActions = shiftCells(enterActions, idx, 1, 0, 0);
+        updateActions = shiftCells(updateActions, idx, 1, 0, 0);
         alignGrid();
     }
 
@@ -2063,13 +2356,13 @@ public class TTableWidget extends TWidget {
      * @param column the column number
      */
     public void insertColumnLeft(final int column) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
+        checkColumn(column);
+        if (!isStructureEditable()) {
+            return;
         }
         insertColumnAt(column);
         selectedColumn++;
-        activate(columns.get(selectedColumn).get(selectedRow));
+        alignGrid();
     }
 
     /**
@@ -2078,28 +2371,11 @@ public class TTableWidget extends TWidget {
      * @param column the column number
      */
     public void insertColumnRight(final int column) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        int idx = column + 1;
-        if (idx < columns.size()) {
-            insertColumnAt(idx);
-            activate(columns.get(selectedColumn).get(selectedRow));
+        checkColumn(column);
+        if (!isStructureEditable()) {
             return;
         }
-
-        // column is the last column, we need to perform an append.
-        Column newColumn = new Column(idx);
-        for (int i = 0; i < rows.size(); i++) {
-            Cell cell = new Cell(this, columns.get(column).getX(),
-                rows.get(i).getY(), COLUMN_DEFAULT_WIDTH, 1, idx, i);
-            newColumn.add(cell);
-            rows.get(i).cells.add(cell);
-        }
-        columns.add(newColumn);
-        alignGrid();
-        activate(columns.get(selectedColumn).get(selectedRow));
+        insertColumnAt(column + 1);
     }
 
     /**
@@ -2108,36 +2384,31 @@ public class TTableWidget extends TWidget {
      * @param column the column number
      */
     public void deleteColumn(final int column) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if (columns.size() == 1) {
+        checkColumn(column);
+        if (!isStructureEditable() || (getColumnCount() == 1)) {
             // Don't delete the last column.
             return;
         }
-        for (int i = 0; i < rows.size(); i++) {
-            Cell cell = rows.get(i).cells.remove(column);
-            getChildren().remove(cell);
-        }
-        columns.remove(column);
+        commitEdit();
 
-        for (int x = column; x < columns.size(); x++) {
-            for (int y = 0; y < rows.size(); y++) {
-                columns.get(x).get(y).row = y;
-                columns.get(x).get(y).column = x;
-            }
-        }
-        for (int i = column; i < columns.size(); i++) {
-            String oldColumnLabel = makeColumnLabel(i + 1);
-            if (columns.get(i).label.equals(oldColumnLabel)) {
-                columns.get(i).label = makeColumnLabel(i);
-            }
-        }
-        if (selectedColumn == columns.size()) {
+        syncColumns();
+        model.deleteColumn(column);
+        columns.remove(column);
+        readOnlyCells = shiftCells(readOnlyCells, column, -1, 0, 0);
+        enterActions = shiftCells(enterActions, column, -1, 0, 0);
+        updateActions = shiftCells(updateActions, column, -1, 0, 0);
+        if (selectedColumn == getColumnCount()) {
             selectedColumn--;
         }
-        activate(columns.get(selectedColumn).get(selectedRow));
+        if (filterColumn == column) {
+            // The filter matched on the deleted column: remove it rather
+            // than keep showing the rows that it matched.
+            filterColumn = -1;
+            filterText = null;
+            updateRowIndex(getSelectedModelRow());
+        } else if (filterColumn > column) {
+            filterColumn--;
+        }
         bottomRightCorner();
     }
 
@@ -2145,22 +2416,28 @@ public class TTableWidget extends TWidget {
      * Delete the selected cell, shifting cells over to the left.
      */
     public void deleteCellShiftLeft() {
+        if (getRowCount() == 0) {
+            return;
+        }
         // All we do is copy the text from every cell in this row over.
-        for (int i = selectedColumn + 1; i < columns.size(); i++) {
+        for (int i = selectedColumn + 1; i < getColumnCount(); i++) {
             setCellText(i - 1, selectedRow, getCellText(i, selectedRow));
         }
-        setCellText(columns.size() - 1, selectedRow, "");
+        setCellText(getColumnCount() - 1, selectedRow, "");
     }
 
     /**
      * Delete the selected cell, shifting cells from below up.
      */
     public void deleteCellShiftUp() {
+        if (getRowCount() == 0) {
+            return;
+        }
         // All we do is copy the text from every cell in this column up.
-        for (int i = selectedRow + 1; i < rows.size(); i++) {
+        for (int i = selectedRow + 1; i < getRowCount(); i++) {
             setCellText(selectedColumn, i - 1, getCellText(selectedColumn, i));
         }
-        setCellText(selectedColumn, rows.size() - 1, "");
+        setCellText(selectedColumn, getRowCount() - 1, "");
     }
 
     /**
@@ -2173,15 +2450,15 @@ public class TTableWidget extends TWidget {
     public void setCellReadOnly(final int column, final int row,
         final boolean readOnly) {
 
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
+        checkColumn(column);
+        checkRow(row);
+        cancelEdit();
+        long key = cellKey(column, getModelRowNumber(row));
+        if (readOnly) {
+            readOnlyCells.put(key, Boolean.TRUE);
+        } else {
+            readOnlyCells.remove(key);
         }
-        rows.get(row).get(column).setReadOnly(readOnly);
     }
 
     /**
@@ -2191,12 +2468,16 @@ public class TTableWidget extends TWidget {
      * @param readOnly if true, the cells will be non-editable
      */
     public void setRowReadOnly(final int row, final boolean readOnly) {
-        if ((row < 0) || (row > rows.size() - 1)) {
-            throw new IndexOutOfBoundsException("Row count is " +
-                rows.size() + ", requested index " + row);
-        }
-        for (Cell cell: rows.get(row).cells) {
-            cell.setReadOnly(readOnly);
+        checkRow(row);
+        cancelEdit();
+        int modelRow = getModelRowNumber(row);
+        if (readOnly) {
+            readOnlyRows.put(modelRow, Boolean.TRUE);
+        } else {
+            readOnlyRows.remove(modelRow);
+            for (int i = 0; i < getColumnCount(); i++) {
+                readOnlyCells.remove(cellKey(i, modelRow));
+            }
         }
     }
 
@@ -2207,12 +2488,17 @@ public class TTableWidget extends TWidget {
      * @param readOnly if true, the cells will be non-editable
      */
     public void setColumnReadOnly(final int column, final boolean readOnly) {
-        if ((column < 0) || (column > columns.size() - 1)) {
-            throw new IndexOutOfBoundsException("Column count is " +
-                columns.size() + ", requested index " + column);
-        }
-        for (Cell cell: columns.get(column).cells) {
-            cell.setReadOnly(readOnly);
+        checkColumn(column);
+        cancelEdit();
+        getColumn(column).readOnly = readOnly;
+        if (!readOnly) {
+            HashMap<Long, Boolean> cells = new HashMap<Long, Boolean>();
+            for (Long key: readOnlyCells.keySet()) {
+                if ((int) key.longValue() != column) {
+                    cells.put(key, Boolean.TRUE);
+                }
+            }
+            readOnlyCells = cells;
         }
     }
 
@@ -2222,13 +2508,11 @@ public class TTableWidget extends TWidget {
     public void setBorderAllNone() {
         topBorder = Border.NONE;
         leftBorder = Border.NONE;
-        for (int i = 0; i < columns.size(); i++) {
-            columns.get(i).rightBorder = Border.NONE;
-        }
-        for (int i = 0; i < rows.size(); i++) {
-            rows.get(i).bottomBorder = Border.NONE;
-            rows.get(i).height = 1;
+        for (int i = 0; i < getColumnCount(); i++) {
+            getColumn(i).rightBorder = Border.NONE;
         }
+        defaultRowBorder = Border.NONE;
+        rowBorders.clear();
         bottomRightCorner();
     }
 
@@ -2238,13 +2522,11 @@ public class TTableWidget extends TWidget {
     public void setBorderAllSingle() {
         topBorder = Border.SINGLE;
         leftBorder = Border.SINGLE;
-        for (int i = 0; i < columns.size(); i++) {
-            columns.get(i).rightBorder = Border.SINGLE;
-        }
-        for (int i = 0; i < rows.size(); i++) {
-            rows.get(i).bottomBorder = Border.SINGLE;
-            rows.get(i).height = 2;
+        for (int i = 0; i < getColumnCount(); i++) {
+            getColumn(i).rightBorder = Border.SINGLE;
         }
+        defaultRowBorder = Border.SINGLE;
+        rowBorders.clear();
         alignGrid();
     }
 
@@ -2252,6 +2534,9 @@ public class TTableWidget extends TWidget {
      * Set all borders around the selected cell to Border.NONE.
      */
     public void setBorderCellNone() {
+        if (getRowCount() == 0) {
+            return;
+        }
         if (selectedRow == 0) {
             topBorder = Border.NONE;
         }
@@ -2259,15 +2544,13 @@ public class TTableWidget extends TWidget {
             leftBorder = Border.NONE;
         }
         if (selectedColumn > 0) {
-            columns.get(selectedColumn - 1).rightBorder = Border.NONE;
+            getColumn(selectedColumn - 1).rightBorder = Border.NONE;
         }
-        columns.get(selectedColumn).rightBorder = Border.NONE;
+        getColumn(selectedColumn).rightBorder = Border.NONE;
         if (selectedRow > 0) {
-            rows.get(selectedRow - 1).bottomBorder = Border.NONE;
-            rows.get(selectedRow - 1).height = 1;
+            setRowBorder(getModelRowNumber(selectedRow - 1), Border.NONE);
         }
-        rows.get(selectedRow).bottomBorder = Border.NONE;
-        rows.get(selectedRow).height = 1;
+        setRowBorder(getModelRowNumber(selectedRow), Border.NONE);
         bottomRightCorner();
     }
 
@@ -2275,6 +2558,9 @@ public class TTableWidget extends TWidget {
      * Set all borders around the selected cell to Border.SINGLE.
      */
     public void setBorderCellSingle() {
+        if (getRowCount() == 0) {
+            return;
+        }
         if (selectedRow == 0) {
             topBorder = Border.SINGLE;
         }
@@ -2282,15 +2568,13 @@ public class TTableWidget extends TWidget {
             leftBorder = Border.SINGLE;
         }
         if (selectedColumn > 0) {
-            columns.get(selectedColumn - 1).rightBorder = Border.SINGLE;
+            getColumn(selectedColumn - 1).rightBorder = Border.SINGLE;
         }
-        columns.get(selectedColumn).rightBorder = Border.SINGLE;
+        getColumn(selectedColumn).rightBorder = Border.SINGLE;
         if (selectedRow > 0) {
-            rows.get(selectedRow - 1).bottomBorder = Border.SINGLE;
-            rows.get(selectedRow - 1).height = 2;
+            setRowBorder(getModelRowNumber(selectedRow - 1), Border.SINGLE);
         }
-        rows.get(selectedRow).bottomBorder = Border.SINGLE;
-        rows.get(selectedRow).height = 2;
+        setRowBorder(getModelRowNumber(selectedRow), Border.SINGLE);
         alignGrid();
     }
 
@@ -2299,7 +2583,7 @@ public class TTableWidget extends TWidget {
      * Border.SINGLE.
      */
     public void setBorderColumnRightSingle() {
-        columns.get(selectedColumn).rightBorder = Border.SINGLE;
+        getColumn(selectedColumn).rightBorder = Border.SINGLE;
         alignGrid();
     }
 
@@ -2311,7 +2595,7 @@ public class TTableWidget extends TWidget {
         if (selectedColumn == 0) {
             leftBorder = Border.SINGLE;
         } else {
-            columns.get(selectedColumn - 1).rightBorder = Border.SINGLE;
+            getColumn(selectedColumn - 1).rightBorder = Border.SINGLE;
         }
         alignGrid();
     }
@@ -2323,8 +2607,7 @@ public class TTableWidget extends TWidget {
         if (selectedRow == 0) {
             topBorder = Border.SINGLE;
         } else {
-            rows.get(selectedRow - 1).bottomBorder = Border.SINGLE;
-            rows.get(selectedRow - 1).height = 2;
+            setRowBorder(getModelRowNumber(selectedRow - 1), Border.SINGLE);
         }
         alignGrid();
     }
@@ -2333,26 +2616,33 @@ public class TTableWidget extends TWidget {
      * Set the row border below the selected cell to Border.SINGLE.
      */
     public void setBorderRowBelowSingle() {
-        rows.get(selectedRow).bottomBorder = Border.SINGLE;
-        rows.get(selectedRow).height = 2;
-        alignGrid();
+        setSelectedRowBorder(Border.SINGLE);
     }
 
     /**
      * Set the row border below the selected cell to Border.DOUBLE.
      */
     public void setBorderRowBelowDouble() {
-        rows.get(selectedRow).bottomBorder = Border.DOUBLE;
-        rows.get(selectedRow).height = 2;
-        alignGrid();
+        setSelectedRowBorder(Border.DOUBLE);
     }
 
     /**
      * Set the row border below the selected cell to Border.THICK.
      */
     public void setBorderRowBelowThick() {
-        rows.get(selectedRow).bottomBorder = Border.THICK;
-        rows.get(selectedRow).height = 2;
+        setSelectedRowBorder(Border.THICK);
+    }
+
+    /**
+     * Set the row border below the selected cell.
+     *
+     * @param border the border
+     */
+    private void setSelectedRowBorder(final Border border) {
+        if (getRowCount() == 0) {
+            return;
+        }
+        setRowBorder(getModelRowNumber(selectedRow), border);
         alignGrid();
     }
 
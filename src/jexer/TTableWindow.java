@@ -130,18 +130,30 @@ public class TTableWindow extends TScrollableWindow {
         getApplication().enableMenuItem(TMenu.MID_TABLE_BORDER_THICK_BOTTOM);
         getApplication().enableMenuItem(TMenu.MID_TABLE_DELETE_LEFT);
         getApplication().enableMenuItem(TMenu.MID_TABLE_DELETE_UP);
-        getApplication().enableMenuItem(TMenu.MID_TABLE_DELETE_ROW);
-        getApplication().enableMenuItem(TMenu.MID_TABLE_DELETE_COLUMN);
-        getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_LEFT);
-        getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_RIGHT);
-        getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_ABOVE);
-        getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_BELOW);
         getApplication().enableMenuItem(TMenu.MID_TABLE_COLUMN_NARROW);
         getApplication().enableMenuItem(TMenu.MID_TABLE_COLUMN_WIDEN);
         getApplication().enableMenuItem(TMenu.MID_TABLE_FILE_OPEN_CSV);
         getApplication().enableMenuItem(TMenu.MID_TABLE_FILE_SAVE_CSV);
         getApplication().enableMenuItem(TMenu.MID_TABLE_FILE_SAVE_TEXT);
 
+        // Rows and columns can only be inserted or deleted if the model
+        // supports it.
+        if ((tableField == null) || tableField.isStructureEditable()) {
+            getApplication().enableMenuItem(TMenu.MID_TABLE_DELETE_ROW);
+            getApplication().enableMenuItem(TMenu.MID_TABLE_DELETE_COLUMN);
+            getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_LEFT);
+            getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_RIGHT);
+            getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_ABOVE);
+            getApplication().enableMenuItem(TMenu.MID_TABLE_INSERT_BELOW);
+        } else {
+            getApplication().disableMenuItem(TMenu.MID_TABLE_DELETE_ROW);
+            getApplication().disableMenuItem(TMenu.MID_TABLE_DELETE_COLUMN);
+            getApplication().disableMenuItem(TMenu.MID_TABLE_INSERT_LEFT);
+            getApplication().disableMenuItem(TMenu.MID_TABLE_INSERT_RIGHT);
+            getApplication().disableMenuItem(TMenu.MID_TABLE_INSERT_ABOVE);
+            getApplication().disableMenuItem(TMenu.MID_TABLE_INSERT_BELOW);
+        }
+
         if (tableField != null) {
 
             // Set the menu to match the flags.
@@ -438,28 +450,21 @@ public class TTableWindow extends TScrollableWindow {
             tableField.setBorderRowBelowThick();
             return;
         case TMenu.MID_TABLE_DELETE_LEFT:
-            tableField.deleteCellShiftLeft();
-            return;
         case TMenu.MID_TABLE_DELETE_UP:
-            tableField.deleteCellShiftUp();
-            return;
         case TMenu.MID_TABLE_DELETE_ROW:
-            tableField.deleteRow(tableField.getSelectedRowNumber());
-            return;
         case TMenu.MID_TABLE_DELETE_COLUMN:
-            tableField.deleteColumn(tableField.getSelectedColumnNumber());
-            return;
         case TMenu.MID_TABLE_INSERT_LEFT:
-            tableField.insertColumnLeft(tableField.getSelectedColumnNumber());
-            return;
         case TMenu.MID_TABLE_INSERT_RIGHT:
-            tableField.insertColumnRight(tableField.getSelectedColumnNumber());
-            return;
         case TMenu.MID_TABLE_INSERT_ABOVE:
-            tableField.insertRowAbove(tableField.getSelectedColumnNumber());
-            return;
         case TMenu.MID_TABLE_INSERT_BELOW:
-            tableField.insertRowBelow(tableField.getSelectedColumnNumber());
+            // These need the whole table in memory, which for a large CSV
+            // file is read in the background first.
+            final int menuId = menu.getId();
+            tableField.whenLoaded(new Runnable() {
+                public void run() {
+                    structuralEdit(menuId);
+                }
+            });
             return;
         case TMenu.MID_TABLE_COLUMN_NARROW:
             tableField.setColumnWidth(tableField.getSelectedColumnNumber(),
@@ -522,6 +527,42 @@ public class TTableWindow extends TScrollableWindow {
     // TTableWindow -----------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+     * Insert or delete rows, columns, or cells.
+     *
+     * @param menuId the menu item ID
+     */
+    private void structuralEdit(final int menuId) {
+        switch (menuId) {
+        case TMenu.MID_TABLE_DELETE_LEFT:
+            tableField.deleteCellShiftLeft();
+            break;
+        case TMenu.MID_TABLE_DELETE_UP:
+            tableField.deleteCellShiftUp();
+            break;
+        case TMenu.MID_TABLE_DELETE_ROW:
+            tableField.deleteRow(tableField.getSelectedRowNumber());
+            break;
+        case TMenu.MID_TABLE_DELETE_COLUMN:
+            tableField.deleteColumn(tableField.getSelectedColumnNumber());
+            break;
+        case TMenu.MID_TABLE_INSERT_LEFT:
+            tableField.insertColumnLeft(tableField.getSelectedColumnNumber());
+            break;
+        case TMenu.MID_TABLE_INSERT_RIGHT:
+            tableField.insertColumnRight(tableField.getSelectedColumnNumber());
+            break;
+        case TMenu.MID_TABLE_INSERT_ABOVE:
+            tableField.insertRowAbove(tableField.getSelectedColumnNumber());
+            break;
+        case TMenu.MID_TABLE_INSERT_BELOW:
+            tableField.insertRowBelow(tableField.getSelectedColumnNumber());
+            break;
+        default:
+            break;
+        }
+    }
+
     /**
      * Setup other fields after the table is created.
      */
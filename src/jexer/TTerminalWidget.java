@@ -32,6 +32,8 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -153,6 +155,12 @@ public class TTerminalWidget extends TScrollableWidget
      */
     private int exitValue = -1;
 
+    /**
+     * If true, the stream passed to the stream constructor is still being
+     * read.
+     */
+    private boolean streamOpen = false;
+
     /**
      * Title to expose to a window.
      */
@@ -297,6 +305,36 @@ public class TTerminalWidget extends TScrollableWidget
         spawnShell(fullCommand);
     }
 
+    /**
+     * Public constructor displays an existing stream rather than spawning a
+     * process, for example a recorded session.  When the emulator stops
+     * reading the stream, onShellExit() is called.  Note that the emulator
+     * only sees the end of a stream that reports available bytes, or of a
+     * FileInputStream.
+     *
+     * @param parent parent widget
+     * @param x column relative to parent
+     * @param y row relative to parent
+     * @param width width of widget
+     * @param height height of widget
+     * @param input the bytes to display
+     * @param output the stream that gets keystrokes and terminal responses
+     */
+    public TTerminalWidget(final TWidget parent, final int x, final int y,
+        final int width, final int height, final InputStream input,
+        final OutputStream output) {
+
+        super(parent, x, y, width, height);
+
+        setMouseStyle("text");
+
+        // There is no command line that can recreate this terminal.
+        commandLine = new String[0];
+
+        startEmulator(null, input, output);
+        streamOpen = (emulator != null);
+    }
+
     /**
      * Public constructor spawns a shell.
      *
@@ -945,6 +983,21 @@ public class TTerminalWidget extends TScrollableWidget
             stringArrayToString(command));
         */
 
+        startEmulator(command, null, null);
+    }
+
+    /**
+     * Start the emulator on either a new process or an existing stream.
+     *
+     * @param command the command line to execute, or null to use input and
+     * output
+     * @param input the stream to display when command is null
+     * @param output the stream that gets keystrokes and terminal responses
+     * when command is null
+     */
+    private void startEmulator(final String [] command,
+        final InputStream input, final OutputStream output) {
+
         // We will have vScroller for its data fields and mouse event
         // handling, but do not want to draw it.
         vScroller = new TVScroller(null, getWidth(), 0, getHeight());
@@ -957,16 +1010,22 @@ public class TTerminalWidget extends TScrollableWidget
         ECMA48.DeviceType deviceType = ECMA48.DeviceType.XTERM;
 
         try {
-            ProcessBuilder pb = new ProcessBuilder(command);
-            Map<String, String> env = pb.environment();
-            env.put("TERM", ECMA48.deviceTypeTerm(deviceType));
-            env.put("LANG", ECMA48.deviceTypeLang(deviceType, "en_US"));
-            env.put("COLUMNS", "80");
-            env.put("LINES", "24");
-            pb.redirectErrorStream(true);
-            shell = pb.start();
-            emulator = new ECMA48(deviceType, shell.getInputStream(),
-                shell.getOutputStream(), this, getApplication().getBackend());
+            if (command == null) {
+                emulator = new ECMA48(deviceType, input, output, this,
+                    getApplication().getBackend());
+            } else {
+                ProcessBuilder pb = new ProcessBuilder(command);
+                Map<String, String> env = pb.environment();
+                env.put("TERM", ECMA48.deviceTypeTerm(deviceType));
+                env.put("LANG", ECMA48.deviceTypeLang(deviceType, "en_US"));
+                env.put("COLUMNS", "80");
+                env.put("LINES", "24");
+                pb.redirectErrorStream(true);
+                shell = pb.start();
+                emulator = new ECMA48(deviceType, shell.getInputStream(),
+                    shell.getOutputStream(), this,
+                    getApplication().getBackend());
+            }
         } catch (IOException e) {
             messageBox(i18n.getString("errorLaunchingShellTitle"),
                 MessageFormat.format(i18n.getString("errorLaunchingShellText"),
@@ -1021,9 +1080,14 @@ public class TTerminalWidget extends TScrollableWidget
     /**
      * Get the PID of the child process.
      *
-     * @return the pid, or -1 if it cannot be determined
+     * @return the pid, or -1 if it cannot be determined or this terminal
+     * displays a stream rather than a process
      */
     public long getPid() {
+        if (shell == null) {
+            return -1;
+        }
+
         try {
             // Java 9 or later, public access to Process.pid().
             Method method = Process.class.getMethod("pid");
@@ -1161,7 +1225,7 @@ public class TTerminalWidget extends TScrollableWidget
             }
             if (emulator.getScreenTitle().length() > 0) {
                 // Only update the title if the shell is still alive
-                if (shell != null) {
+                if ((shell != null) || streamOpen) {
                     title = emulator.getScreenTitle();
                 }
             }
@@ -1196,6 +1260,13 @@ public class TTerminalWidget extends TScrollableWidget
                 } catch (IllegalThreadStateException e) {
                     // The shell is still running, do nothing.
                 }
+            } else if (!emulator.isReading() && streamOpen) {
+                // The stream has ended, there is no exit code.
+                title = MessageFormat.format(i18n.
+                    getString("windowTitleEnded"), title);
+                streamOpen = false;
+                emulator.close();
+                onShellExit();
             }
 
         } // synchronized (emulator)
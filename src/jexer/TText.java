@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import jexer.bits.CellAttributes;
+import jexer.bits.ColorTheme;
 import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
@@ -110,6 +111,11 @@ public class TText extends TScrollableWidget {
      */
     private String colorKey;
 
+    /**
+     * The theme color slot of colorKey.
+     */
+    private int colorSlot;
+
     /**
      * Maximum width of a single line.
      */
@@ -161,6 +167,7 @@ public class TText extends TScrollableWidget {
 
         this.text = text;
         this.colorKey = colorKey;
+        colorSlot = ColorTheme.getSlot(colorKey);
 
         lines = new ArrayList<String>();
 
@@ -214,7 +221,7 @@ public class TText extends TScrollableWidget {
     @Override
     public void draw() {
         // Setup my color
-        CellAttributes color = getTheme().getColor(colorKey);
+        CellAttributes color = getTheme().getColor(colorSlot);
 
         int begin = vScroller.getValue();
         int topY = 0;
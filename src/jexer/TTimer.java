@@ -28,8 +28,6 @@
  */
 package jexer;
 
-import java.util.Date;
-
 /**
  * TTimer implements a simple timer.
  */
@@ -44,15 +42,28 @@ public class TTimer {
      */
     boolean recurring = false;
 
+    /**
+     * If true, this timer was removed and should not be re-scheduled.  Note
+     * package private access.
+     */
+    volatile boolean cancelled = false;
+
+    /**
+     * This timer's position in its TTimerQueue, or -1 if it is not in one.
+     * Note package private access.
+     */
+    int heapIndex = -1;
+
     /**
      * Duration (in millis) between ticks if this is a recurring timer.
      */
     private long duration = 0;
 
     /**
-     * The next time this timer needs to be ticked.
+     * The next time this timer needs to be ticked, as a System.nanoTime()
+     * value.
      */
-    private Date nextTick;
+    private long nextTick;
 
     /**
      * The action to perfom on a tick.
@@ -76,8 +87,7 @@ public class TTimer {
         this.duration  = duration;
         this.action    = action;
 
-        Date now = new Date();
-        nextTick = new Date(now.getTime() + duration);
+        nextTick = System.nanoTime() + (duration * 1000000L);
     }
 
     // ------------------------------------------------------------------------
@@ -88,9 +98,10 @@ public class TTimer {
      * Get the next time this timer needs to be ticked.  Note package private
      * access.
      *
-     * @return time at which action should be called
+     * @return time at which action should be called, as a System.nanoTime()
+     * value
      */
-    Date getNextTick() {
+    long getNextTick() {
         return nextTick;
     }
 
@@ -111,9 +122,8 @@ public class TTimer {
             action.DO();
         }
         // Set next tick
-        Date ticked = new Date();
         if (recurring) {
-            nextTick = new Date(ticked.getTime() + duration);
+            nextTick = System.nanoTime() + (duration * 1000000L);
         }
     }
 
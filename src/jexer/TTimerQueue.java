@@ -0,0 +1,198 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+import java.util.List;
+
+/**
+ * TTimerQueue is a min-heap of timers ordered by their next tick, so that
+ * the earliest timer can be found in constant time and timers can be added
+ * and removed in logarithmic time.  It is not thread-safe; callers must
+ * synchronize on it.
+ */
+final class TTimerQueue {
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The heap.  The children of heap[i] are heap[2i+1] and heap[2i+2].
+     */
+    private TTimer [] heap = new TTimer[16];
+
+    /**
+     * The number of timers in the heap.
+     */
+    private int size = 0;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Package private constructor.
+     */
+    TTimerQueue() {
+        // NOP
+    }
+
+    // ------------------------------------------------------------------------
+    // TTimerQueue ------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of timers.
+     *
+     * @return the number of timers
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the timer that will tick first.
+     *
+     * @return the timer, or null if there are none
+     */
+    TTimer peek() {
+        return (size == 0 ? null : heap[0]);
+    }
+
+    /**
+     * Add a timer.
+     *
+     * @param timer the timer, which must not already be in a queue
+     */
+    void add(final TTimer timer) {
+        assert (timer.heapIndex == -1);
+        if (size == heap.length) {
+            TTimer [] newHeap = new TTimer[heap.length * 2];
+            System.arraycopy(heap, 0, newHeap, 0, size);
+            heap = newHeap;
+        }
+        heap[size] = timer;
+        timer.heapIndex = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Remove a timer.
+     *
+     * @param timer the timer
+     * @return true if the timer was in this queue
+     */
+    boolean remove(final TTimer timer) {
+        int i = timer.heapIndex;
+        if ((i < 0) || (i >= size) || (heap[i] != timer)) {
+            return false;
+        }
+        size--;
+        TTimer last = heap[size];
+        heap[size] = null;
+        timer.heapIndex = -1;
+        if (i < size) {
+            heap[i] = last;
+            last.heapIndex = i;
+            siftDown(i);
+            if (heap[i] == last) {
+                siftUp(i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove all of the timers that are due to tick at or before a time.
+     *
+     * @param time the time, as a System.nanoTime() value
+     * @param due the list to add the due timers to, earliest first
+     */
+    void removeDue(final long time, final List<TTimer> due) {
+        while ((size > 0) && (heap[0].getNextTick() - time <= 0)) {
+            TTimer timer = heap[0];
+            remove(timer);
+            due.add(timer);
+        }
+    }
+
+    /**
+     * Move a timer up the heap until its parent ticks no later than it.
+     *
+     * @param index the timer's position
+     */
+    private void siftUp(final int index) {
+        int i = index;
+        TTimer timer = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent].getNextTick() - timer.getNextTick() <= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heap[i].heapIndex = i;
+            i = parent;
+        }
+        heap[i] = timer;
+        timer.heapIndex = i;
+    }
+
+    /**
+     * Move a timer down the heap until both of its children tick no
+     * earlier than it.
+     *
+     * @param index the timer's position
+     */
+    private void siftDown(final int index) {
+        int i = index;
+        TTimer timer = heap[i];
+        for (;;) {
+            int child = (2 * i) + 1;
+            if (child >= size) {
+                break;
+            }
+            if ((child + 1 < size)
+                && (heap[child + 1].getNextTick()
+                    - heap[child].getNextTick() < 0)
+            ) {
+                child++;
+            }
+            if (timer.getNextTick() - heap[child].getNextTick() <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            heap[i].heapIndex = i;
+            i = child;
+        }
+        heap[i] = timer;
+        timer.heapIndex = i;
+    }
+
+}
@@ -31,6 +31,7 @@ package jexer;
 import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
 import jexer.event.TMouseEvent;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TVScroller implements a simple vertical scroll bar.
@@ -210,8 +211,8 @@ public class TVScroller extends TWidget {
      */
     @Override
     public void draw() {
-        CellAttributes arrowColor = getTheme().getColor("tscroller.arrows");
-        CellAttributes barColor = getTheme().getColor("tscroller.bar");
+        CellAttributes arrowColor = getTheme().getColor(TSCROLLER_ARROWS);
+        CellAttributes barColor = getTheme().getColor(TSCROLLER_BAR);
         putCharXY(0, 0, GraphicsChars.CP437[0x1E], arrowColor);
         putCharXY(0, getHeight() - 1, GraphicsChars.CP437[0x1F], arrowColor);
 
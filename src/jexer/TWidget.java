@@ -32,6 +32,8 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import jexer.backend.Screen;
 import jexer.bits.Animation;
@@ -45,6 +47,7 @@ import jexer.event.TInputEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMenuEvent;
 import jexer.event.TMouseEvent;
+import jexer.event.TPasteEvent;
 import jexer.event.TResizeEvent;
 import jexer.layout.LayoutManager;
 import jexer.menu.TMenu;
@@ -166,6 +169,18 @@ public abstract class TWidget implements Comparable<TWidget> {
      */
     private String mouseStyle = "default";
 
+    /**
+     * Whether or not each widget class overrides onIdle().
+     */
+    private static final Map<Class<?>, Boolean> idleClasses =
+        new HashMap<Class<?>, Boolean>();
+
+    /**
+     * If true, onIdle() is called when the UI is idle.  This defaults to
+     * true for widgets that override onIdle().
+     */
+    private boolean idleEnabled = overridesOnIdle(getClass());
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -490,6 +505,52 @@ public abstract class TWidget implements Comparable<TWidget> {
         }
     }
 
+    /**
+     * Method that subclasses can override to handle pasted text.  The
+     * default passes it to the active widget, or if there is none, types
+     * it one character at a time.
+     *
+     * @param paste paste event
+     */
+    public void onPaste(final TPasteEvent paste) {
+        if (!echoKeystrokes) {
+            for (TWidget widget: children) {
+                if (widget.active) {
+                    if (widget.enabled) {
+                        widget.onPaste(paste);
+                    }
+                    return;
+                }
+            }
+        }
+
+        String text = paste.getText();
+        for (int i = 0; i < text.length(); ) {
+            int ch = text.codePointAt(i);
+            i += Character.charCount(ch);
+            switch (ch) {
+            case '\r':
+                if ((i < text.length()) && (text.charAt(i) == '\n')) {
+                    i++;
+                }
+                onKeypress(new TKeypressEvent(paste.getBackend(), kbEnter));
+                break;
+            case '\n':
+                onKeypress(new TKeypressEvent(paste.getBackend(), kbEnter));
+                break;
+            case '\t':
+                onKeypress(new TKeypressEvent(paste.getBackend(), kbTab));
+                break;
+            default:
+                if ((ch >= 0x20) && (ch != 0x7F)) {
+                    onKeypress(new TKeypressEvent(paste.getBackend(), false,
+                            0, ch, false, false, false));
+                }
+                break;
+            }
+        }
+    }
+
     /**
      * Method that subclasses can override to handle mouse button presses.
      *
@@ -661,12 +722,13 @@ public abstract class TWidget implements Comparable<TWidget> {
      * Method that subclasses can override to do processing when the UI is
      * idle.  Note that repainting is NOT assumed.  To get a refresh after
      * onIdle, call doRepaint().
+     *
+     * TApplication calls this directly on every widget that overrides it
+     * or has called setIdleEnabled(true), so overrides do not need to pass
+     * it to their children.
      */
     public void onIdle() {
-        // Default: do nothing, pass to children instead
-        for (TWidget widget: children) {
-            widget.onIdle();
-        }
+        // Default: do nothing
     }
 
     /**
@@ -689,6 +751,8 @@ public abstract class TWidget implements Comparable<TWidget> {
 
         if (event instanceof TKeypressEvent) {
             onKeypress((TKeypressEvent) event);
+        } else if (event instanceof TPasteEvent) {
+            onPaste((TPasteEvent) event);
         } else if (event instanceof TMouseEvent) {
 
             TMouseEvent mouse = (TMouseEvent) event;
@@ -1213,6 +1277,58 @@ public abstract class TWidget implements Comparable<TWidget> {
         return null;
     }
 
+    /**
+     * Get the idle enabled flag.
+     *
+     * @return if true, onIdle() is called when the UI is idle
+     */
+    public final boolean isIdleEnabled() {
+        return idleEnabled;
+    }
+
+    /**
+     * Set the idle enabled flag.  Widgets that override onIdle() have this
+     * set by default; they can turn it off while they have nothing to do.
+     *
+     * @param idleEnabled if true, onIdle() is called when the UI is idle
+     */
+    public final void setIdleEnabled(final boolean idleEnabled) {
+        this.idleEnabled = idleEnabled;
+        TApplication application = getApplication();
+        if (application != null) {
+            if (idleEnabled) {
+                application.addIdleWidgets(this);
+            } else {
+                application.removeIdleWidget(this);
+            }
+        }
+    }
+
+    /**
+     * See if a widget class overrides onIdle().
+     *
+     * @param widgetClass the class
+     * @return true if onIdle() is declared anywhere below TWidget
+     */
+    private static boolean overridesOnIdle(final Class<?> widgetClass) {
+        synchronized (idleClasses) {
+            Boolean result = idleClasses.get(widgetClass);
+            if (result == null) {
+                try {
+                    result = (widgetClass.getMethod("onIdle").
+                        getDeclaringClass() != TWidget.class);
+                } catch (NoSuchMethodException e) {
+                    result = false;
+                } catch (SecurityException e) {
+                    // Cannot tell, so assume it does.
+                    result = true;
+                }
+                idleClasses.put(widgetClass, result);
+            }
+            return result;
+        }
+    }
+
     /**
      * Get the Screen.
      *
@@ -1586,6 +1702,11 @@ public abstract class TWidget implements Comparable<TWidget> {
     private void addChild(final TWidget child) {
         children.add(child);
 
+        TApplication application = getApplication();
+        if (application != null) {
+            application.addIdleWidgets(child);
+        }
+
         if ((child.enabled)
             && !(child instanceof THScroller)
             && !(child instanceof TVScroller)
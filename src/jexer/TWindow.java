@@ -47,6 +47,7 @@ import jexer.tackboard.Tackboard;
 import jexer.tackboard.TackboardItem;
 import static jexer.TCommand.*;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TWindow is the top-level container and drawing surface for other widgets.
@@ -1543,21 +1544,21 @@ public class TWindow extends TWidget {
             && (inWindowMove || inWindowResize || inKeyboardResize)
         ) {
             assert (isActive());
-            return getTheme().getColor("twindow.background.windowmove");
+            return getTheme().getColor(TWINDOW_BACKGROUND_WINDOWMOVE);
         } else if (isModal() && inWindowMove) {
             assert (isActive());
-            return getTheme().getColor("twindow.background.modal");
+            return getTheme().getColor(TWINDOW_BACKGROUND_MODAL);
         } else if (isModal()) {
             if (isActive()) {
-                return getTheme().getColor("twindow.background.modal");
+                return getTheme().getColor(TWINDOW_BACKGROUND_MODAL);
             }
-            return getTheme().getColor("twindow.background.modal.inactive");
+            return getTheme().getColor(TWINDOW_BACKGROUND_MODAL_INACTIVE);
         } else if (isActive()) {
             assert (!isModal());
-            return getTheme().getColor("twindow.background");
+            return getTheme().getColor(TWINDOW_BACKGROUND);
         } else {
             assert (!isModal());
-            return getTheme().getColor("twindow.background.inactive");
+            return getTheme().getColor(TWINDOW_BACKGROUND_INACTIVE);
         }
     }
 
@@ -1576,25 +1577,25 @@ public class TWindow extends TWidget {
                 inWindowMove = false;
                 inWindowResize = false;
                 inKeyboardResize = false;
-                return getTheme().getColor("twindow.border.inactive");
+                return getTheme().getColor(TWINDOW_BORDER_INACTIVE);
             }
 
-            return getTheme().getColor("twindow.border.windowmove");
+            return getTheme().getColor(TWINDOW_BORDER_WINDOWMOVE);
         } else if (isModal() && inWindowMove) {
             assert (isActive());
-            return getTheme().getColor("twindow.border.modal.windowmove");
+            return getTheme().getColor(TWINDOW_BORDER_MODAL_WINDOWMOVE);
         } else if (isModal()) {
             if (isActive()) {
-                return getTheme().getColor("twindow.border.modal");
+                return getTheme().getColor(TWINDOW_BORDER_MODAL);
             } else {
-                return getTheme().getColor("twindow.border.modal.inactive");
+                return getTheme().getColor(TWINDOW_BORDER_MODAL_INACTIVE);
             }
         } else if (isActive()) {
             assert (!isModal());
-            return getTheme().getColor("twindow.border");
+            return getTheme().getColor(TWINDOW_BORDER);
         } else {
             assert (!isModal());
-            return getTheme().getColor("twindow.border.inactive");
+            return getTheme().getColor(TWINDOW_BORDER_INACTIVE);
         }
     }
 
@@ -1605,9 +1606,9 @@ public class TWindow extends TWidget {
      */
     public CellAttributes getBorderControls() {
         if (isModal()) {
-            return getTheme().getColor("twindow.border.modal.windowmove");
+            return getTheme().getColor(TWINDOW_BORDER_MODAL_WINDOWMOVE);
         }
-        return getTheme().getColor("twindow.border.windowmove");
+        return getTheme().getColor(TWINDOW_BORDER_WINDOWMOVE);
     }
 
     /**
@@ -0,0 +1,123 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer;
+
+/**
+ * TableModel provides the data for a TTableWidget.  The table only asks for
+ * the values of the cells that are on screen, so a model may compute or
+ * load its values lazily.  Rows and columns are numbered from 0.
+ */
+public interface TableModel {
+
+    /**
+     * Get the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount();
+
+    /**
+     * Get the number of columns.
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount();
+
+    /**
+     * Get the value of a cell.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @return the text of the cell, never null
+     */
+    public String getValueAt(final int row, final int column);
+
+    /**
+     * Set the value of a cell.  This is only called for cells where
+     * isCellEditable() returns true.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @param value the new text of the cell
+     */
+    public void setValueAt(final int row, final int column,
+        final String value);
+
+    /**
+     * See if a cell can be edited.
+     *
+     * @param row the cell row
+     * @param column the cell column
+     * @return true if the user can edit the cell
+     */
+    public boolean isCellEditable(final int row, final int column);
+
+    /**
+     * See if rows and columns can be inserted and deleted.
+     *
+     * @return true if insertRow(), deleteRow(), insertColumn(), and
+     * deleteColumn() are supported
+     */
+    public boolean isStructureEditable();
+
+    /**
+     * Insert an empty row.  This is only called if isStructureEditable()
+     * returns true.
+     *
+     * @param row the new row's number.  Rows at and below it move down.
+     */
+    public void insertRow(final int row);
+
+    /**
+     * Delete a row.  This is only called if isStructureEditable() returns
+     * true.
+     *
+     * @param row the row number.  Rows below it move up.
+     */
+    public void deleteRow(final int row);
+
+    /**
+     * Insert an empty column.  This is only called if isStructureEditable()
+     * returns true.
+     *
+     * @param column the new column's number.  Columns at and to the right
+     * of it move right.
+     */
+    public void insertColumn(final int column);
+
+    /**
+     * Delete a column.  This is only called if isStructureEditable()
+     * returns true.
+     *
+     * @param column the column number.  Columns to the right of it move
+     * left.
+     */
+    public void deleteColumn(final int column);
+
+}
@@ -240,6 +240,28 @@ public class ECMA48Backend extends GenericBackend {
         ((ECMA48Terminal) terminal).setMouseStyle(mouseStyle);
     }
 
+    /**
+     * Get the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @return frames per second, or 0 for no limit
+     */
+    @Override
+    public int getMaxFramesPerSecond() {
+        return ((ECMA48Terminal) terminal).getMaxFramesPerSecond();
+    }
+
+    /**
+     * Set the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @param maxFramesPerSecond frames per second, or 0 for no limit
+     */
+    @Override
+    public void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        ((ECMA48Terminal) terminal).setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+
     /**
      * Convert a CellAttributes foreground color to an AWT Color.
      *
@@ -45,8 +45,11 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -59,12 +62,15 @@ import javax.imageio.ImageIO;
 import jexer.bits.Cell;
 import jexer.bits.CellAttributes;
 import jexer.bits.Color;
+import jexer.bits.Histogram;
 import jexer.bits.ImageUtils;
+import jexer.bits.Metrics;
 import jexer.bits.StringUtils;
 import jexer.event.TCommandEvent;
 import jexer.event.TInputEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
+import jexer.event.TPasteEvent;
 import jexer.event.TResizeEvent;
 import static jexer.TCommand.*;
 import static jexer.TKeypress.*;
@@ -95,6 +101,61 @@ public class ECMA48Terminal extends LogicalScreen
         MOUSE_SGR,
     }
 
+    /**
+     * Ways to learn the text window size.
+     */
+    private enum WindowSizeQuery {
+        /**
+         * Ask the terminal for its text area size (CSI 18 t).
+         */
+        TEXT_AREA,
+
+        /**
+         * Move the cursor to the far corner and ask the terminal where it
+         * ended up (CSI 6 n).
+         */
+        CURSOR_POSITION,
+
+        /**
+         * Ask sessionInfo, which for a local tty spawns stty.
+         */
+        SESSION_INFO,
+    }
+
+    /**
+     * The fastest rate to ask the terminal for its window size, in millis.
+     */
+    private static final int WINDOW_SIZE_MIN_INTERVAL = 1000;
+
+    /**
+     * The slowest rate to ask the terminal for its window size, in millis,
+     * reached when the size and user input have both been idle for a while.
+     */
+    private static final int WINDOW_SIZE_MAX_INTERVAL = 8000;
+
+    /**
+     * How long to wait for the terminal to answer a window size query, in
+     * millis.
+     */
+    private static final int WINDOW_SIZE_TIMEOUT = 2000;
+
+    /**
+     * The sequence that ends a bracketed paste.
+     */
+    private static final String PASTE_END = "\033[201~";
+
+    /**
+     * The most text to hold for a bracketed paste.  Longer pastes are
+     * delivered in pieces of this size.
+     */
+    private static final int PASTE_MAX_LENGTH = 1024 * 1024;
+
+    /**
+     * How long a bracketed paste can go without input before it is taken
+     * as finished, in millis.  This covers a lost end marker.
+     */
+    private static final int PASTE_TIMEOUT = 1000;
+
     /**
      * Available Jexer images support.
      */
@@ -169,6 +230,51 @@ public class ECMA48Terminal extends LogicalScreen
      */
     private long windowSizeTime;
 
+    /**
+     * If true, ask the terminal for its window size in-band rather than
+     * spawning stty.  Only used for a local tty; telnet sessions get the
+     * window size from NAWS.
+     */
+    private boolean inBandWindowSize = false;
+
+    /**
+     * The way the window size is being learned.  In-band queries fall back
+     * to the next way if the terminal never answers.
+     */
+    private WindowSizeQuery windowSizeQuery = WindowSizeQuery.TEXT_AREA;
+
+    /**
+     * The time the outstanding in-band window size query was sent, or 0 if
+     * there is none.
+     */
+    private long windowSizeQueryTime = 0;
+
+    /**
+     * If true, the terminal has answered windowSizeQuery at least once.
+     */
+    private boolean windowSizeAnswered = false;
+
+    /**
+     * The current time between in-band window size queries.  This backs off
+     * while nothing is happening and resets on any input.
+     */
+    private long windowSizeInterval = WINDOW_SIZE_MIN_INTERVAL;
+
+    /**
+     * If true, we are inside a bracketed paste.
+     */
+    private boolean pasting = false;
+
+    /**
+     * The text of the bracketed paste so far.
+     */
+    private StringBuilder pasteBuffer = new StringBuilder();
+
+    /**
+     * The time of the last input inside a bracketed paste.
+     */
+    private long pasteTime;
+
     /**
      * true if mouse1 was down.  Used to report mouse1 on the release event.
      */
@@ -267,6 +373,32 @@ public class ECMA48Terminal extends LogicalScreen
      */
     private ImageCache jexerCache = null;
 
+    /**
+     * If true, upload each Jexer image to the terminal once with an id, and
+     * then place it by id.
+     */
+    private boolean jexerImageIds = true;
+
+    /**
+     * The Jexer images uploaded to the terminal.
+     */
+    private ImageIdCache jexerImageIdCache = null;
+
+    /**
+     * The deflate level for PNG images.
+     */
+    private int pngCompressionLevel = 5;
+
+    /**
+     * The row filter for PNG images.
+     */
+    private PngEncoder.Filter pngFilter = PngEncoder.Filter.NONE;
+
+    /**
+     * PNG encoders that are not in use by an image thread.
+     */
+    private ArrayList<PngEncoder> pngEncoders = new ArrayList<PngEncoder>();
+
     /**
      * The number of threads for image rendering.
      */
@@ -337,6 +469,11 @@ public class ECMA48Terminal extends LogicalScreen
      */
     private boolean hasSynchronizedOutput = false;
 
+    /**
+     * The most screen updates per second to send, or 0 for no limit.
+     */
+    private int maxFramesPerSecond = 60;
+
     /**
      * The time we last flushed output in flushPhysical().
      */
@@ -352,6 +489,58 @@ public class ECMA48Terminal extends LogicalScreen
      */
     private int lastBytesPerSecond;
 
+    /**
+     * The controller that decides how much to send in each frame.
+     */
+    private OutputController outputController = new OutputController(0);
+
+    /**
+     * Where to report performance measurements, or null.
+     */
+    private Metrics metrics = null;
+
+    /**
+     * The histogram of bytes written per frame, or null.
+     */
+    private Histogram flushBytesMetric = null;
+
+    /**
+     * The histogram of image encoding times, or null.
+     */
+    private Histogram imageEncodeMetric = null;
+
+    /**
+     * If true, some of the screen was not sent in the last frame, and
+     * should be sent once the link catches up.
+     */
+    private volatile boolean deferredFlush = false;
+
+    /**
+     * If true, image updates are held back in this frame.
+     */
+    private boolean deferImages = false;
+
+    /**
+     * If true, images are encoded at lower quality in this frame.
+     */
+    private volatile boolean reducedImages = false;
+
+    /**
+     * The sixel encoder used for lower quality images.
+     */
+    private SixelEncoder reducedSixelEncoder = null;
+
+    /**
+     * Image cells that were last sent at lower quality, indexed as [x][y].
+     */
+    private boolean [][] reducedCells = null;
+
+    /**
+     * If true, some image cells were sent at lower quality, and should be
+     * sent again at full quality once the link catches up.
+     */
+    private volatile boolean reducedFlush = false;
+
     /**
      * The terminal's input.  If an InputStream is not specified in the
      * constructor, then this InputStreamReader will be bound to System.in
@@ -456,7 +645,9 @@ public class ECMA48Terminal extends LogicalScreen
         }
 
         /**
-         * Make a unique key for a list of cells.
+         * Make a unique key for a list of cells.  Image content is
+         * identified by its ImageStore ID, so two different images can
+         * never share a key.
          *
          * @param cells the cells
          * @return the key
@@ -464,7 +655,10 @@ public class ECMA48Terminal extends LogicalScreen
         private String makeKey(final ArrayList<Cell> cells) {
             StringBuilder sb = new StringBuilder();
             for (Cell cell: cells) {
-                sb.append(cell.hashCode());
+                sb.append(Long.toHexString(cell.getImageContentId()));
+                sb.append(cell.isInvertedImage() ? '~' : ':');
+                sb.append(Integer.toHexString(cell.hashCode()));
+                sb.append(',');
             }
             // System.err.println("key: " + sb.toString());
             return sb.toString();
@@ -480,8 +674,14 @@ public class ECMA48Terminal extends LogicalScreen
         public synchronized String get(final ArrayList<Cell> cells) {
             CacheEntry entry = cache.get(makeKey(cells));
             if (entry == null) {
+                if (metrics != null) {
+                    metrics.increment(Metrics.IMAGE_CACHE_MISSES);
+                }
                 return null;
             }
+            if (metrics != null) {
+                metrics.increment(Metrics.IMAGE_CACHE_HITS);
+            }
             entry.millis = System.currentTimeMillis();
             return entry.data;
         }
@@ -543,6 +743,139 @@ public class ECMA48Terminal extends LogicalScreen
 
     }
 
+    /**
+     * ImageIdCache is a least-recently-used cache of the images that have
+     * been uploaded to the terminal, and the ids the terminal knows them
+     * by.  When an image is evicted, its id is saved so that the terminal
+     * can be told to free it.
+     */
+    private class ImageIdCache {
+
+        /**
+         * Maximum number of bytes of uploaded images, as the terminal
+         * stores them.
+         */
+        private long maxBytes;
+
+        /**
+         * The number of bytes of uploaded images.
+         */
+        private long bytes = 0;
+
+        /**
+         * The next id to hand out.
+         */
+        private int nextId = 1;
+
+        /**
+         * The entries stored in the cache, by ImageCache key.
+         */
+        private LinkedHashMap<String, CacheEntry> cache;
+
+        /**
+         * The ids that have been evicted but not yet freed.
+         */
+        private List<Integer> evictedIds = new ArrayList<Integer>();
+
+        /**
+         * CacheEntry is one entry in the cache.
+         */
+        private class CacheEntry {
+            /**
+             * The image id.
+             */
+            public int id;
+
+            /**
+             * The number of bytes the image uses.
+             */
+            public long bytes;
+
+            /**
+             * Public constructor.
+             *
+             * @param id the image id
+             * @param bytes the number of bytes the image uses
+             */
+            public CacheEntry(final int id, final long bytes) {
+                this.id = id;
+                this.bytes = bytes;
+            }
+        }
+
+        /**
+         * Public constructor.
+         *
+         * @param maxBytes the maximum number of bytes of uploaded images
+         */
+        public ImageIdCache(final long maxBytes) {
+            this.maxBytes = maxBytes;
+            cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+        }
+
+        /**
+         * Get the id of an uploaded image.
+         *
+         * @param key the ImageCache key of the cells in the image
+         * @return the id, or 0 if this image has not been uploaded
+         */
+        public synchronized int get(final String key) {
+            CacheEntry entry = cache.get(key);
+            if (entry == null) {
+                return 0;
+            }
+            return entry.id;
+        }
+
+        /**
+         * Assign an id to an image that is about to be uploaded.
+         *
+         * @param key the ImageCache key of the cells in the image
+         * @param imageBytes the number of bytes the image uses
+         * @return the id
+         */
+        public synchronized int put(final String key, final long imageBytes) {
+            CacheEntry entry = new CacheEntry(nextId, imageBytes);
+            nextId++;
+            CacheEntry oldEntry = cache.put(key, entry);
+            if (oldEntry != null) {
+                bytes -= oldEntry.bytes;
+                evictedIds.add(oldEntry.id);
+            }
+            bytes += imageBytes;
+
+            Iterator<CacheEntry> it = cache.values().iterator();
+            while ((bytes > maxBytes) && it.hasNext()) {
+                CacheEntry eldest = it.next();
+                if (eldest == entry) {
+                    break;
+                }
+                bytes -= eldest.bytes;
+                evictedIds.add(eldest.id);
+                it.remove();
+            }
+            return entry.id;
+        }
+
+        /**
+         * Get the commands that free the evicted images in the terminal.
+         *
+         * @return the string to emit to the terminal
+         */
+        public synchronized String getFreeCommands() {
+            if (evictedIds.size() == 0) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder();
+            for (Integer id: evictedIds) {
+                sb.append(String.format("\033]444;5;%d\007", id));
+            }
+            evictedIds.clear();
+            return sb.toString();
+        }
+
+    }
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -663,7 +996,8 @@ public class ECMA48Terminal extends LogicalScreen
         this.output.printf("%s", xtermReportPixelDimensions());
 
         // Enable mouse reporting and metaSendsEscape
-        this.output.printf("%s%s", mouse(true), xtermMetaSendsEscape(true));
+        this.output.printf("%s%s%s", mouse(true), xtermMetaSendsEscape(true),
+            xtermBracketedPaste(true));
 
         // Request xterm report Synchronized Output support
         this.output.printf("%s", xtermQueryMode(2026));
@@ -777,7 +1111,8 @@ public class ECMA48Terminal extends LogicalScreen
         this.output.printf("%s", xtermReportPixelDimensions());
 
         // Enable mouse reporting and metaSendsEscape
-        this.output.printf("%s%s", mouse(true), xtermMetaSendsEscape(true));
+        this.output.printf("%s%s%s", mouse(true), xtermMetaSendsEscape(true),
+            xtermBracketedPaste(true));
 
         // Request xterm report Synchronized Output support
         this.output.printf("%s", xtermQueryMode(2026));
@@ -857,6 +1192,25 @@ public class ECMA48Terminal extends LogicalScreen
      */
     @Override
     public void flushPhysical() {
+        long now = System.currentTimeMillis();
+        OutputController.Level level = outputController.beginFrame(now);
+        if ((level == OutputController.Level.SKIP) && (output != null)) {
+            // The link is far behind, let it catch up.  The reader thread
+            // will send this frame later.
+            deferredFlush = true;
+            return;
+        }
+        deferredFlush = false;
+        deferImages = (level == OutputController.Level.TEXT_ONLY);
+        reducedImages = (level == OutputController.Level.REDUCED);
+        if (reducedImages
+            && (reducedSixelEncoder == null)
+            && (sixelEncoder instanceof HQSixelEncoder)
+        ) {
+            reducedSixelEncoder = new HQSixelEncoder();
+            reducedSixelEncoder.setPaletteSize(16);
+        }
+
         StringBuilder sb = new StringBuilder();
         if ((cursorVisible)
             && (cursorY >= 0)
@@ -872,6 +1226,7 @@ public class ECMA48Terminal extends LogicalScreen
             flushString(sb);
         }
         if (output != null) {
+            long writeStart = System.currentTimeMillis();
             if (hasSynchronizedOutput) {
                 if (sb.length() > 0) {
                     // Begin Synchronized Update (BSU)
@@ -899,17 +1254,82 @@ public class ECMA48Terminal extends LogicalScreen
             }
             output.flush();
 
-            long now = System.currentTimeMillis();
-            if ((int) (now / 1000) == (int) (lastFlushTime / 1000)) {
+            long writeTime = System.currentTimeMillis();
+            outputController.endFrame(sb.length(), writeTime - writeStart,
+                writeTime);
+            if (flushBytesMetric != null) {
+                flushBytesMetric.record(sb.length());
+            }
+            if ((int) (writeTime / 1000) == (int) (lastFlushTime / 1000)) {
                 bytesPerSecond += sb.length();
             } else {
-                lastBytesPerSecond = sb.length();
-                bytesPerSecond = 0;
+                lastBytesPerSecond = bytesPerSecond;
+                bytesPerSecond = sb.length();
+            }
+            lastFlushTime = writeTime;
+        }
+    }
+
+    /**
+     * Send the parts of the screen that were held back, if the link has
+     * caught up.  This is called from the reader thread.
+     */
+    private void flushDeferred() {
+        if (!deferredFlush && !reducedFlush) {
+            return;
+        }
+        OutputController.Level level;
+        level = outputController.getLevel(System.currentTimeMillis());
+        if ((level == OutputController.Level.SKIP)
+            || (level == OutputController.Level.TEXT_ONLY)
+        ) {
+            return;
+        }
+        if ((level == OutputController.Level.REDUCED) && !deferredFlush) {
+            // Images would go out at lower quality again, wait.
+            return;
+        }
+        // The application draws and flushes with this lock held.
+        synchronized (this) {
+            if (deferredFlush || reducedFlush) {
+                flushPhysical();
             }
-            lastFlushTime = now;
         }
     }
 
+    /**
+     * Check if image cells in this frame will be encoded at lower quality.
+     *
+     * @return true if images are encoded at lower quality
+     */
+    private boolean isReducingImages() {
+        if (!reducedImages || iterm2Images) {
+            return false;
+        }
+        if (jexerImageOption != JexerImageOption.DISABLED) {
+            return (jexerImageOption != JexerImageOption.JPG);
+        }
+        return ((reducedSixelEncoder != null)
+            && !sixelEncoder.hasSharedPalette());
+    }
+
+    /**
+     * Check if an image cell was last sent at lower quality.
+     *
+     * @param x column coordinate
+     * @param y row coordinate
+     * @return true if the cell was sent at lower quality
+     */
+    private boolean isReducedCell(final int x, final int y) {
+        if ((reducedCells == null)
+            || (x >= reducedCells.length)
+            || (y >= reducedCells[x].length)
+        ) {
+            return false;
+        }
+        return reducedCells[x][y];
+    }
+
     /**
      * Resize the physical screen to match the logical screen dimensions.
      */
@@ -994,8 +1414,9 @@ public class ECMA48Terminal extends LogicalScreen
         // here in case closeTerminal() is called twice.
         if (output != null) {
             if (!jexer.TApplication.imageSupportTest) {
-                output.printf("%s%s%s%s", mouse(false), cursor(true),
-                    defaultColor(), xtermResetSixelSettings());
+                output.printf("%s%s%s%s%s", mouse(false), cursor(true),
+                    defaultColor(), xtermResetSixelSettings(),
+                    xtermBracketedPaste(false));
                 output.printf("\033[>4m");
             }
             output.flush();
@@ -1116,6 +1537,16 @@ public class ECMA48Terminal extends LogicalScreen
             } else if (jexerImageStr.equals("rgb")) {
                 jexerImageOption = JexerImageOption.RGB;
             }
+
+            // Default to uploading Jexer images once and placing them by
+            // id, if the terminal supports it.
+            if (System.getProperty("jexer.ECMA48.jexerImageIds",
+                    "true").equals("false")
+            ) {
+                jexerImageIds = false;
+            } else {
+                jexerImageIds = true;
+            }
         }
 
         if (System.getProperty("jexer.ECMA48.imagesOverText",
@@ -1125,6 +1556,69 @@ public class ECMA48Terminal extends LogicalScreen
             imagesOverText = false;
         }
 
+        // Default to asking a local tty for its size in-band.
+        if ((sessionInfo instanceof TTYSessionInfo)
+            && !System.getProperty("os.name").startsWith("Windows")
+            && System.getProperty("jexer.ECMA48.inBandWindowSize",
+                "true").equals("true")
+        ) {
+            inBandWindowSize = true;
+        } else {
+            inBandWindowSize = false;
+        }
+
+        // Default to 60 frames per second for a local terminal, and 30 for
+        // a remote one.
+        String defaultFramesPerSecond = "30";
+        if (sessionInfo instanceof TTYSessionInfo) {
+            defaultFramesPerSecond = "60";
+        }
+        try {
+            maxFramesPerSecond = Integer.parseInt(System.getProperty(
+                "jexer.ECMA48.maxFramesPerSecond", defaultFramesPerSecond));
+            if (maxFramesPerSecond < 0) {
+                maxFramesPerSecond = 0;
+            }
+        } catch (NumberFormatException e) {
+            maxFramesPerSecond = Integer.parseInt(defaultFramesPerSecond);
+        }
+
+        // Byte budget for this terminal.
+        try {
+            int maxBytesPerSecond = Integer.parseInt(System.getProperty(
+                "jexer.ECMA48.maxBytesPerSecond", "0"));
+            if (maxBytesPerSecond >= 0) {
+                outputController.setMaxBytesPerSecond(maxBytesPerSecond);
+            }
+        } catch (NumberFormatException e) {
+            // SQUASH
+        }
+
+        // PNG encoding for iTerm2 and Jexer images.
+        pngCompressionLevel = 5;
+        try {
+            pngCompressionLevel = Integer.parseInt(System.getProperty(
+                "jexer.ECMA48.pngCompressionLevel", "5"));
+            if (pngCompressionLevel < 0) {
+                pngCompressionLevel = 0;
+            }
+            if (pngCompressionLevel > 9) {
+                pngCompressionLevel = 9;
+            }
+        } catch (NumberFormatException e) {
+            // SQUASH
+        }
+        pngFilter = PngEncoder.Filter.NONE;
+        try {
+            pngFilter = PngEncoder.Filter.valueOf(System.getProperty(
+                "jexer.ECMA48.pngFilter", "none").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            // SQUASH
+        }
+        synchronized (pngEncoders) {
+            pngEncoders.clear();
+        }
+
         // Image thread count.
         imageThreadCount = 2;
         try {
@@ -1290,6 +1784,9 @@ public class ECMA48Terminal extends LogicalScreen
                         }
                     }
 
+                    // Send what was held back if the link has caught up.
+                    flushDeferred();
+
                     // Wait 20 millis for more data
                     Thread.sleep(20);
                 }
@@ -1319,6 +1816,28 @@ public class ECMA48Terminal extends LogicalScreen
     // ECMA48Terminal ---------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+     * Get the most screen updates per second to send.
+     *
+     * @return frames per second, or 0 for no limit
+     */
+    public int getMaxFramesPerSecond() {
+        return maxFramesPerSecond;
+    }
+
+    /**
+     * Set the most screen updates per second to send.
+     *
+     * @param maxFramesPerSecond frames per second, or 0 for no limit
+     */
+    public void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        if (maxFramesPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid frame rate: " +
+                maxFramesPerSecond);
+        }
+        this.maxFramesPerSecond = maxFramesPerSecond;
+    }
+
     /**
      * Get the bytes per second from the last second.
      *
@@ -1328,6 +1847,55 @@ public class ECMA48Terminal extends LogicalScreen
         return lastBytesPerSecond;
     }
 
+    /**
+     * Report performance measurements to a registry: bytes written per
+     * frame, image encoding time, and image cache hits.
+     *
+     * @param metrics the registry, or null to stop reporting
+     */
+    public void setMetrics(final Metrics metrics) {
+        this.metrics = metrics;
+        if (metrics == null) {
+            flushBytesMetric = null;
+            imageEncodeMetric = null;
+            return;
+        }
+        flushBytesMetric = metrics.registerHistogram(Metrics.FLUSH_BYTES);
+        imageEncodeMetric = metrics.registerHistogram(
+            Metrics.IMAGE_ENCODE_TIME);
+        metrics.addGauge("ecma48.bytesPerSecond", new Metrics.Gauge() {
+            public long getValue() {
+                return getBytesPerSecond();
+            }
+        });
+        metrics.addGauge("ecma48.framesReduced", new Metrics.Gauge() {
+            public long getValue() {
+                return outputController.getFramesReduced();
+            }
+        });
+        metrics.addGauge("ecma48.framesSkipped", new Metrics.Gauge() {
+            public long getValue() {
+                return outputController.getFramesSkipped();
+            }
+        });
+        metrics.addGauge("ecma48.imagesDeferred", new Metrics.Gauge() {
+            public long getValue() {
+                return outputController.getImagesDeferred();
+            }
+        });
+    }
+
+    /**
+     * Get the controller that decides how much to send in each frame.  Its
+     * byte budget can be set per terminal, and its counters report what it
+     * decided.
+     *
+     * @return the output controller
+     */
+    public OutputController getOutputController() {
+        return outputController;
+    }
+
     /**
      * Get the width of a character cell in pixels.
      *
@@ -1695,6 +2263,34 @@ public class ECMA48Terminal extends LogicalScreen
     }
 
 
+    /**
+     * Create the image string for a row of several cells containing bitmap
+     * data, in whichever image protocol the terminal is using.
+     *
+     * @param x column coordinate.  0 is the left-most column.
+     * @param y row coordinate.  0 is the top-most row.
+     * @param cells the cells containing the bitmap data
+     * @return the string to emit to an ANSI / ECMA-style terminal
+     */
+    private String toImage(final int x, final int y,
+        final ArrayList<Cell> cells) {
+
+        long start = System.nanoTime();
+        String result;
+        if (iterm2Images) {
+            result = toIterm2Image(x, y, cells);
+        } else if (jexerImageOption != JexerImageOption.DISABLED) {
+            result = toJexerImage(x, y, cells);
+        } else {
+            result = toSixel(x, y, cells);
+        }
+        Histogram histogram = imageEncodeMetric;
+        if (histogram != null) {
+            histogram.record(System.nanoTime() - start);
+        }
+        return result;
+    }
+
     /**
      * Render the screen to a string that can be emitted to something that
      * knows how to process ECMA-48/ANSI X3.64 escape sequences.
@@ -1758,6 +2354,19 @@ public class ECMA48Terminal extends LogicalScreen
         ExecutorService imageExecutor = null;
         List<Future<String>> imageResults = null;
 
+        // Image cells sent at lower quality are marked, and sent again at
+        // full quality once the link has caught up.
+        boolean reducing = isReducingImages();
+        boolean resendReduced = reducedFlush && !reducedImages
+            && !deferImages;
+        if (reducing
+            && ((reducedCells == null)
+                || (reducedCells.length != width)
+                || (reducedCells[0].length != height))
+        ) {
+            reducedCells = new boolean[width][height];
+        }
+
         if (imageThreadCount > 1) {
             imageExecutor = Executors.newFixedThreadPool(imageThreadCount);
             imageResults = new ArrayList<Future<String>>();
@@ -1782,11 +2391,21 @@ public class ECMA48Terminal extends LogicalScreen
                 while ((right < width)
                     && (logical[right][y].isImage())
                     && (!logical[right][y].equals(physical[right][y])
-                        || reallyCleared)
+                        || reallyCleared
+                        || (resendReduced && isReducedCell(right, y)))
                 ) {
                     right++;
                 }
 
+                if (deferImages && (right > x)) {
+                    // The link is behind: leave physical alone so that
+                    // these cells are sent when it catches up.
+                    outputController.imagesDeferred(1);
+                    deferredFlush = true;
+                    x = right;
+                    continue;
+                }
+
                 ArrayList<Cell> cellsToDraw = new ArrayList<Cell>();
                 for (int i = 0; i < (right - x); i++) {
                     assert (logical[x + i][y].isImage());
@@ -1814,6 +2433,10 @@ public class ECMA48Terminal extends LogicalScreen
 
                     // Physical is always updated.
                     physical[x + i][y].setTo(logical[x + i][y]);
+                    if (reducing) {
+                        reducedCells[x + i][y] = true;
+                        reducedFlush = true;
+                    }
                 }
                 if (cellsToDraw.size() > 0) {
                     if (debugToStderr && reallyDebug) {
@@ -1829,6 +2452,10 @@ public class ECMA48Terminal extends LogicalScreen
                         if (jexerCache == null) {
                             jexerCache = new ImageCache(height * width * 10);
                         }
+                        if (jexerImageIds && (jexerImageIdCache == null)) {
+                            jexerImageIdCache =
+                                new ImageIdCache(32 * 1024 * 1024);
+                        }
                     } else {
                         if (sixelCache == null) {
                             sixelCache = new ImageCache(height * width * 10);
@@ -1837,13 +2464,7 @@ public class ECMA48Terminal extends LogicalScreen
 
                     if (imageThreadCount == 1) {
                         // Single-threaded
-                        if (iterm2Images) {
-                            sb.append(toIterm2Image(x, y, cellsToDraw));
-                        } else if (jexerImageOption != JexerImageOption.DISABLED) {
-                            sb.append(toJexerImage(x, y, cellsToDraw));
-                        } else {
-                            sb.append(toSixel(x, y, cellsToDraw));
-                        }
+                        sb.append(toImage(x, y, cellsToDraw));
                     } else {
                         // Multi-threaded: experimental and likely borken
                         final int callX = x;
@@ -1855,13 +2476,7 @@ public class ECMA48Terminal extends LogicalScreen
                         imageResults.add(imageExecutor.submit(new Callable<String>() {
                             @Override
                             public String call() {
-                                if (iterm2Images) {
-                                    return toIterm2Image(callX, callY, callCells);
-                                } else if (jexerImageOption != JexerImageOption.DISABLED) {
-                                    return toJexerImage(callX, callY, callCells);
-                                } else {
-                                    return toSixel(callX, callY, callCells);
-                                }
+                                return toImage(callX, callY, callCells);
                             }
                         }));
                     }
@@ -1889,6 +2504,20 @@ public class ECMA48Terminal extends LogicalScreen
             imageExecutor.shutdown();
         }
 
+        if (resendReduced) {
+            // Everything that was marked has now been sent again.
+            for (int x = 0; x < reducedCells.length; x++) {
+                Arrays.fill(reducedCells[x], false);
+            }
+            reducedFlush = false;
+        }
+
+        if (jexerImageIdCache != null) {
+            // Free the images that were evicted.  This comes after all of
+            // the images on this screen have been placed.
+            sb.append(jexerImageIdCache.getFreeCommands());
+        }
+
         // Draw the text part now.
         for (int y = 0; y < height; y++) {
             flushLine(y, sb, attr);
@@ -1947,6 +2576,17 @@ public class ECMA48Terminal extends LogicalScreen
         // "really, just hide the damn pointer but still give me events" grr.
     }
 
+    /**
+     * End a bracketed paste, sending its text as one paste event.
+     *
+     * @param events list to append new events to
+     */
+    private void endPaste(final List<TInputEvent> events) {
+        pasting = false;
+        events.add(new TPasteEvent(backend, pasteBuffer.toString()));
+        pasteBuffer.setLength(0);
+    }
+
     /**
      * Reset keyboard/mouse input parser.
      */
@@ -2347,50 +2987,53 @@ public class ECMA48Terminal extends LogicalScreen
     private void getIdleEvents(final List<TInputEvent> queue) {
         long nowTime = System.currentTimeMillis();
 
-        // Check for new window size
-        long windowSizeDelay = nowTime - windowSizeTime;
-        if (windowSizeDelay > 1000) {
-            int oldTextWidth = getTextWidth();
-            int oldTextHeight = getTextHeight();
-
-            sessionInfo.queryWindowSize();
-            int newWidth = sessionInfo.getWindowWidth();
-            int newHeight = sessionInfo.getWindowHeight();
-
-            if ((newWidth != windowResize.getWidth())
-                || (newHeight != windowResize.getHeight())
-            ) {
-
-                // Request xterm report window dimensions in pixels again.
-                // Between now and then, ensure that the reported text cell
-                // size is the same by setting widthPixels and heightPixels
-                // to match the new dimensions.
-                widthPixels = oldTextWidth * newWidth;
-                heightPixels = oldTextHeight * newHeight;
-
-                if (debugToStderr) {
-                    System.err.println("Screen size changed, old size " +
-                        windowResize);
-                    System.err.println("                     new size " +
-                        newWidth + " x " + newHeight);
-                    System.err.println("                old cell sixe " +
-                        oldTextWidth + " x " + oldTextHeight);
-                    System.err.println("                new cell size " +
-                        getTextWidth() + " x " + getTextHeight());
-                }
+        // Any input at all means someone is there: check the window size
+        // often again.
+        if (queue.size() > 0) {
+            windowSizeInterval = WINDOW_SIZE_MIN_INTERVAL;
+        }
 
-                if (output != null) {
-                    output.printf("%s", xtermReportPixelDimensions());
-                    output.flush();
+        // Check for new window size
+        if (inBandWindowSize
+            && (windowSizeQuery != WindowSizeQuery.SESSION_INFO)
+        ) {
+            if (windowSizeQueryTime != 0) {
+                if (nowTime - windowSizeQueryTime > WINDOW_SIZE_TIMEOUT) {
+                    // No answer.  If this terminal has never answered this
+                    // query, try the next kind.
+                    if (!windowSizeAnswered) {
+                        if (windowSizeQuery == WindowSizeQuery.TEXT_AREA) {
+                            windowSizeQuery = WindowSizeQuery.CURSOR_POSITION;
+                        } else {
+                            windowSizeQuery = WindowSizeQuery.SESSION_INFO;
+                        }
+                        if (debugToStderr) {
+                            System.err.println("Window size query falls " +
+                                "back to " + windowSizeQuery);
+                        }
+                    }
+                    windowSizeQueryTime = 0;
                 }
-
-                TResizeEvent event = new TResizeEvent(backend,
-                    TResizeEvent.Type.SCREEN, newWidth, newHeight);
-                windowResize = new TResizeEvent(backend, TResizeEvent.Type.SCREEN,
-                    newWidth, newHeight);
-                queue.add(event);
+            } else if (nowTime - windowSizeTime > windowSizeInterval) {
+                requestWindowSize(nowTime);
+            }
+        } else {
+            long windowSizeDelay = nowTime - windowSizeTime;
+            if (windowSizeDelay > 1000) {
+                int oldTextWidth = getTextWidth();
+                int oldTextHeight = getTextHeight();
+
+                sessionInfo.queryWindowSize();
+                windowSizeChanged(queue, oldTextWidth, oldTextHeight,
+                    sessionInfo.getWindowWidth(),
+                    sessionInfo.getWindowHeight());
+                windowSizeTime = nowTime;
             }
-            windowSizeTime = nowTime;
+        }
+
+        // A bracketed paste that has stopped without its end marker
+        if (pasting && (nowTime - pasteTime > PASTE_TIMEOUT)) {
+            endPaste(queue);
         }
 
         // ESCDELAY type timeout
@@ -2404,6 +3047,111 @@ public class ECMA48Terminal extends LogicalScreen
         }
     }
 
+    /**
+     * Ask the terminal for its window size.  The answer arrives later
+     * through the input parser and is handled by windowSizeReport().
+     *
+     * @param nowTime the current time
+     */
+    private void requestWindowSize(final long nowTime) {
+        if (output == null) {
+            return;
+        }
+        if (windowSizeQuery == WindowSizeQuery.TEXT_AREA) {
+            output.printf("\033[18t");
+        } else {
+            // Save the cursor, move it as far as it will go, report its
+            // position, and restore it.
+            output.printf("\0337\033[9999;9999H\033[6n\0338");
+        }
+        output.flush();
+        windowSizeQueryTime = nowTime;
+        windowSizeTime = nowTime;
+    }
+
+    /**
+     * Handle the terminal's answer to an in-band window size query.
+     *
+     * @param queue list to append new events to
+     * @param newWidth the reported width in text cells
+     * @param newHeight the reported height in text cells
+     */
+    private void windowSizeReport(final List<TInputEvent> queue,
+        final int newWidth, final int newHeight) {
+
+        windowSizeAnswered = true;
+        windowSizeQueryTime = 0;
+        if ((newWidth <= 0) || (newHeight <= 0)) {
+            return;
+        }
+
+        int oldTextWidth = getTextWidth();
+        int oldTextHeight = getTextHeight();
+        ((TTYSessionInfo) sessionInfo).setWindowSize(newWidth, newHeight);
+
+        if (!windowSizeChanged(queue, oldTextWidth, oldTextHeight,
+                newWidth, newHeight)
+        ) {
+            // Nothing happened, ask less often.
+            windowSizeInterval = Math.min(windowSizeInterval * 2,
+                WINDOW_SIZE_MAX_INTERVAL);
+        }
+    }
+
+    /**
+     * Emit a resize event if the window size is different from the last
+     * one reported.
+     *
+     * @param queue list to append new events to
+     * @param oldTextWidth the text cell width in pixels before the window
+     * size was updated
+     * @param oldTextHeight the text cell height in pixels before the window
+     * size was updated
+     * @param newWidth the new width in text cells
+     * @param newHeight the new height in text cells
+     * @return true if the size changed
+     */
+    private boolean windowSizeChanged(final List<TInputEvent> queue,
+        final int oldTextWidth, final int oldTextHeight,
+        final int newWidth, final int newHeight) {
+
+        if ((newWidth == windowResize.getWidth())
+            && (newHeight == windowResize.getHeight())
+        ) {
+            return false;
+        }
+
+        // Request xterm report window dimensions in pixels again.  Between
+        // now and then, ensure that the reported text cell size is the same
+        // by setting widthPixels and heightPixels to match the new
+        // dimensions.
+        widthPixels = oldTextWidth * newWidth;
+        heightPixels = oldTextHeight * newHeight;
+
+        if (debugToStderr) {
+            System.err.println("Screen size changed, old size " +
+                windowResize);
+            System.err.println("                     new size " +
+                newWidth + " x " + newHeight);
+            System.err.println("                old cell sixe " +
+                oldTextWidth + " x " + oldTextHeight);
+            System.err.println("                new cell size " +
+                getTextWidth() + " x " + getTextHeight());
+        }
+
+        if (output != null) {
+            output.printf("%s", xtermReportPixelDimensions());
+            output.flush();
+        }
+
+        TResizeEvent event = new TResizeEvent(backend,
+            TResizeEvent.Type.SCREEN, newWidth, newHeight);
+        windowResize = new TResizeEvent(backend, TResizeEvent.Type.SCREEN,
+            newWidth, newHeight);
+        queue.add(event);
+        return true;
+    }
+
     /**
      * Returns true if the CSI parameter for a keyboard command means that
      * shift was down.
@@ -2655,8 +3403,30 @@ public class ECMA48Terminal extends LogicalScreen
      */
     private void processChar(final List<TInputEvent> events, final char ch) {
 
-        // ESCDELAY type timeout
         long nowTime = System.currentTimeMillis();
+
+        // Inside a bracketed paste, everything up to the exact end marker
+        // is text, including any other escape sequences.
+        if (pasting) {
+            pasteBuffer.append(ch);
+            pasteTime = nowTime;
+            int end = pasteBuffer.length() - PASTE_END.length();
+            if ((end >= 0) && (pasteBuffer.indexOf(PASTE_END, end) == end)) {
+                pasteBuffer.setLength(end);
+                endPaste(events);
+            } else if (pasteBuffer.length() >= PASTE_MAX_LENGTH) {
+                // Send what we have, but keep anything that might be the
+                // start of the end marker.
+                int keep = PASTE_END.length() - 1;
+                int split = pasteBuffer.length() - keep;
+                events.add(new TPasteEvent(backend,
+                        pasteBuffer.substring(0, split)));
+                pasteBuffer.delete(0, split);
+            }
+            return;
+        }
+
+        // ESCDELAY type timeout
         if (state == ParseState.ESCAPE) {
             long escDelay = nowTime - escapeTime;
             if (escDelay > 250) {
@@ -2899,6 +3669,21 @@ public class ECMA48Terminal extends LogicalScreen
             }
 
             if (ch == '~') {
+                if ((params.size() == 1) && params.get(0).equals("200")) {
+                    // Bracketed paste start: collect everything up to the
+                    // end marker.
+                    pasting = true;
+                    pasteTime = nowTime;
+                    pasteBuffer.setLength(0);
+                    resetParser();
+                    return;
+                }
+                if ((params.size() == 1) && params.get(0).equals("201")) {
+                    // Bracketed paste end outside of a paste, probably
+                    // after a timeout: ignore it.
+                    resetParser();
+                    return;
+                }
                 events.add(csiFnKey());
                 resetParser();
                 return;
@@ -2975,6 +3760,27 @@ public class ECMA48Terminal extends LogicalScreen
                     events.add(new TKeypressEvent(backend, kbEnd, alt, ctrl, shift));
                     resetParser();
                     return;
+                case 'R':
+                    // Cursor position report.  Only expected as the answer
+                    // to a window size query: row 1 would be ambiguous
+                    // with a modified F3.
+                    if ((windowSizeQuery == WindowSizeQuery.CURSOR_POSITION)
+                        && (windowSizeQueryTime != 0)
+                        && (params.size() == 2)
+                        && !params.get(0).equals("1")
+                    ) {
+                        try {
+                            windowSizeReport(events,
+                                Integer.parseInt(params.get(1)),
+                                Integer.parseInt(params.get(0)));
+                        } catch (NumberFormatException e) {
+                            if (debugToStderr) {
+                                e.printStackTrace();
+                            }
+                        }
+                    }
+                    resetParser();
+                    return;
                 case 'S':
                     // Report graphics property.
                     if (decPrivateModeFlag == false) {
@@ -3039,6 +3845,7 @@ public class ECMA48Terminal extends LogicalScreen
                     daResponseSeen = true;
 
                     boolean reportsJexerImages = false;
+                    boolean reportsJexerImageIds = false;
                     boolean reportsIterm2Images = false;
                     for (String x: params) {
                         if (debugToStderr) {
@@ -3057,6 +3864,13 @@ public class ECMA48Terminal extends LogicalScreen
                             }
                             reportsJexerImages = true;
                         }
+                        if (x.equals("445")) {
+                            // Terminal reports Jexer images by id support
+                            if (debugToStderr) {
+                                System.err.println("Device Attributes: Jexer image ids");
+                            }
+                            reportsJexerImageIds = true;
+                        }
                         if (iterm2Images) {
                             /*
                              * This check left in place so that I have a hook
@@ -3081,6 +3895,10 @@ public class ECMA48Terminal extends LogicalScreen
                             System.err.println("Device Attributes: Disable Jexer images");
                         }
                     }
+                    if (reportsJexerImageIds == false) {
+                        // Terminal can only take whole Jexer images.
+                        jexerImageIds = false;
+                    }
                     if ((reportsIterm2Images == false)
                         && (jexer.TApplication.imageSupportTest == false)
                     ) {
@@ -3122,6 +3940,24 @@ public class ECMA48Terminal extends LogicalScreen
                                 getTextWidth() + " x " + getTextHeight());
                         }
                     }
+                    if ((params.size() > 2) && (params.get(0).equals("8"))) {
+                        if (debugToStderr) {
+                            System.err.printf("windowOp 8t text area: " +
+                                "height %s width %s\n",
+                                params.get(1), params.get(2));
+                        }
+                        if (inBandWindowSize) {
+                            try {
+                                windowSizeReport(events,
+                                    Integer.parseInt(params.get(2)),
+                                    Integer.parseInt(params.get(1)));
+                            } catch (NumberFormatException e) {
+                                if (debugToStderr) {
+                                    e.printStackTrace();
+                                }
+                            }
+                        }
+                    }
                     if ((params.size() > 2) && (params.get(0).equals("6"))) {
                         if (debugToStderr) {
                             System.err.printf("windowOp 6t text cell pixels: " +
@@ -3330,6 +4166,20 @@ public class ECMA48Terminal extends LogicalScreen
         return "\033[?1036l";
     }
 
+    /**
+     * Tell (u)xterm that we want pasted text to be bracketed by CSI 200 ~
+     * and CSI 201 ~, so that it can be delivered as one TPasteEvent.
+     *
+     * @param on if true, enable bracketed paste
+     * @return the string to emit to xterm
+     */
+    private String xtermBracketedPaste(final boolean on) {
+        if (on) {
+            return "\033[?2004h";
+        }
+        return "\033[?2004l";
+    }
+
     /**
      * Create an xterm OSC sequence to change the window title.
      *
@@ -3531,8 +4381,18 @@ public class ECMA48Terminal extends LogicalScreen
             }
         }
 
+        // The link is behind: use the lower quality encoder, and do not
+        // mix its output into the cache.
+        SixelEncoder encoder = sixelEncoder;
+        if (reducedImages
+            && (reducedSixelEncoder != null)
+            && !sixelEncoder.hasSharedPalette()
+        ) {
+            encoder = reducedSixelEncoder;
+        }
+
         boolean saveInCache = true;
-        if (sixelFastAndDirty) {
+        if (sixelFastAndDirty || (encoder != sixelEncoder)) {
             saveInCache = false;
         } else {
             // Save and get rows to/from the cache that do NOT have inverted
@@ -3595,7 +4455,7 @@ public class ECMA48Terminal extends LogicalScreen
         }
 
         BufferedImage image = cellsToImage(cells);
-        String sixel = sixelEncoder.toSixel(image);
+        String sixel = encoder.toSixel(image);
 
         if (saveInCache) {
             // This row is OK to save into the cache.
@@ -3953,21 +4813,10 @@ public class ECMA48Terminal extends LogicalScreen
         }
          */
 
-        // File contents can be several image formats.  We will use PNG.
-        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream(1024);
-        try {
-            if (!ImageIO.write(image.getSubimage(0, 0, image.getWidth(),
-                        Math.min(image.getHeight(), fullHeight)),
-                    "PNG", pngOutputStream)
-            ) {
-                // We failed to render image, bail out.
-                return "";
-            }
-        } catch (IOException e) {
-            // We failed to render image, bail out.
-            return "";
-        }
-
+        // File contents can be several image formats.  We will use PNG,
+        // encoded straight into sb.
+        sb.append(gotoXY(x, y));
+        int start = sb.length();
         sb.append("\033]1337;File=name=");
         sb.append(StringUtils.toBase64("jexer".getBytes()));
         sb.append(";inline=1;doNotMoveCursor=1;");
@@ -3975,16 +4824,48 @@ public class ECMA48Terminal extends LogicalScreen
                 image.getWidth(), Math.min(image.getHeight(),
                     getTextHeight())));
 
-        String bytes = StringUtils.toBase64(pngOutputStream.toByteArray());
-        sb.append(bytes);
+        PngEncoder encoder = getPngEncoder();
+        try {
+            encoder.toBase64Png(image, sb);
+        } finally {
+            putPngEncoder(encoder);
+        }
         sb.append("\007");
 
         if (saveInCache) {
             // This row is OK to save into the cache.
-            iterm2Cache.put(cells, sb.toString());
+            iterm2Cache.put(cells, sb.substring(start));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Get a PNG encoder for this thread to use.
+     *
+     * @return an encoder, which must be returned with putPngEncoder()
+     */
+    private PngEncoder getPngEncoder() {
+        synchronized (pngEncoders) {
+            if (pngEncoders.size() > 0) {
+                return pngEncoders.remove(pngEncoders.size() - 1);
+            }
         }
+        PngEncoder encoder = new PngEncoder();
+        encoder.setCompressionLevel(pngCompressionLevel);
+        encoder.setFilter(pngFilter);
+        return encoder;
+    }
 
-        return (gotoXY(x, y) + sb.toString());
+    /**
+     * Return a PNG encoder for other threads to use.
+     *
+     * @param encoder the encoder from getPngEncoder()
+     */
+    private void putPngEncoder(final PngEncoder encoder) {
+        synchronized (pngEncoders) {
+            pngEncoders.add(encoder);
+        }
     }
 
     /**
@@ -4043,7 +4924,17 @@ public class ECMA48Terminal extends LogicalScreen
             // for looking up in the image cache.
             cell.hashCode();
         }
-        if (saveInCache) {
+        // If the terminal already has this row, place it by id.
+        String idKey = null;
+        if (saveInCache && jexerImageIds && (jexerImageIdCache != null)) {
+            idKey = jexerCache.makeKey(cells);
+            int id = jexerImageIdCache.get(idKey);
+            if (id != 0) {
+                sb.append(gotoXY(x, y));
+                sb.append(String.format("\033]444;4;%d;0\007", id));
+                return sb.toString();
+            }
+        } else if (saveInCache) {
             String cachedResult = jexerCache.get(cells);
             if (cachedResult != null) {
                 // System.err.println("CACHE HIT");
@@ -4054,30 +4945,26 @@ public class ECMA48Terminal extends LogicalScreen
             // System.err.println("CACHE MISS");
         }
 
+        // The link is behind: send the smaller JPG, and keep it out of the
+        // cache and the terminal's image store.
+        JexerImageOption imageOption = jexerImageOption;
+        if (reducedImages && (imageOption != JexerImageOption.JPG)) {
+            imageOption = JexerImageOption.JPG;
+            saveInCache = false;
+            idKey = null;
+        }
+
         BufferedImage image = cellsToImage(cells);
         int fullHeight = image.getHeight();
 
-        if (jexerImageOption == JexerImageOption.PNG) {
-            // Encode as PNG
-            ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream(1024);
-            try {
-                if (!ImageIO.write(image.getSubimage(0, 0, image.getWidth(),
-                            Math.min(image.getHeight(), fullHeight)),
-                        "PNG", pngOutputStream)
-                ) {
-                    // We failed to render image, bail out.
-                    return "";
-                }
-            } catch (IOException e) {
-                // We failed to render image, bail out.
-                return "";
-            }
-
-            sb.append("\033]444;1;0;");
-            sb.append(StringUtils.toBase64(pngOutputStream.toByteArray()));
-            sb.append("\007");
+        // The image type (and for RGB, size) parameters, and for JPG the
+        // encoded image.  PNG and RGB are encoded straight into sb.
+        String format = null;
+        String data = null;
 
-        } else if (jexerImageOption == JexerImageOption.JPG) {
+        if (imageOption == JexerImageOption.PNG) {
+            format = "1";
+        } else if (imageOption == JexerImageOption.JPG) {
 
             // Encode as JPG
             ByteArrayOutputStream jpgOutputStream = new ByteArrayOutputStream(1024);
@@ -4105,36 +4992,55 @@ public class ECMA48Terminal extends LogicalScreen
                 return "";
             }
 
-            sb.append("\033]444;2;0;");
-            sb.append(StringUtils.toBase64(jpgOutputStream.toByteArray()));
-            sb.append("\007");
+            format = "2";
+            data = StringUtils.toBase64(jpgOutputStream.toByteArray());
 
-        } else if (jexerImageOption == JexerImageOption.RGB) {
+        } else if (imageOption == JexerImageOption.RGB) {
 
             // RGB
-            sb.append(String.format("\033]444;0;%d;%d;0;", image.getWidth(),
-                    Math.min(image.getHeight(), fullHeight)));
-
-            byte [] bytes = new byte[image.getWidth() * image.getHeight() * 3];
-            int stride = image.getWidth();
-            for (int px = 0; px < stride; px++) {
-                for (int py = 0; py < image.getHeight(); py++) {
-                    int rgb = image.getRGB(px, py);
-                    bytes[(py * stride * 3) + (px * 3)]     = (byte) ((rgb >>> 16) & 0xFF);
-                    bytes[(py * stride * 3) + (px * 3) + 1] = (byte) ((rgb >>>  8) & 0xFF);
-                    bytes[(py * stride * 3) + (px * 3) + 2] = (byte) ( rgb         & 0xFF);
+            format = String.format("0;%d;%d", image.getWidth(),
+                Math.min(image.getHeight(), fullHeight));
+        }
+
+        sb.append(gotoXY(x, y));
+        int start = sb.length();
+        int id = 0;
+        if (idKey != null) {
+            // Upload this row once, then place it.
+            id = jexerImageIdCache.put(idKey,
+                (long) image.getWidth() * image.getHeight() * 4);
+            sb.append(String.format("\033]444;3;%d;%s;", id, format));
+        } else {
+            sb.append("\033]444;" + format + ";0;");
+        }
+
+        if (data != null) {
+            sb.append(data);
+        } else {
+            PngEncoder encoder = getPngEncoder();
+            try {
+                if (imageOption == JexerImageOption.PNG) {
+                    encoder.toBase64Png(image, sb);
+                } else {
+                    encoder.toBase64Rgb(image, sb);
                 }
+            } finally {
+                putPngEncoder(encoder);
             }
-            sb.append(StringUtils.toBase64(bytes));
-            sb.append("\007");
+        }
+        sb.append("\007");
+
+        if (idKey != null) {
+            sb.append(String.format("\033]444;4;%d;0\007", id));
+            return sb.toString();
         }
 
         if (saveInCache) {
             // This row is OK to save into the cache.
-            jexerCache.put(cells, sb.toString());
+            jexerCache.put(cells, sb.substring(start));
         }
 
-        return (gotoXY(x, y) + sb.toString());
+        return sb.toString();
     }
 
     /**
@@ -0,0 +1,217 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.backend;
+
+import java.util.Arrays;
+
+/**
+ * FrameScheduler paces screen updates to a maximum frame rate, and keeps
+ * frame-time statistics.  Requests for a new frame that arrive before the
+ * frame interval has passed are merged into the next frame, so that a flood
+ * of repaints costs at most one frame per interval.
+ */
+public class FrameScheduler {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The number of recent frames kept for percentiles.
+     */
+    private static final int HISTORY_SIZE = 256;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The most frames to start in one second, or 0 for no limit.
+     */
+    private int maxFramesPerSecond;
+
+    /**
+     * When the last frame started, from System.nanoTime().
+     */
+    private long lastFrameStart = 0;
+
+    /**
+     * How long recent frames took, in micros.  This is a ring buffer.
+     */
+    private long [] frameMicros = new long[HISTORY_SIZE];
+
+    /**
+     * The number of frames recorded.
+     */
+    private long frames = 0;
+
+    /**
+     * The number of frame requests that were merged into another frame.
+     */
+    private long coalesced = 0;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     *
+     * @param maxFramesPerSecond the most frames to start in one second, or
+     * 0 for no limit
+     */
+    public FrameScheduler(final int maxFramesPerSecond) {
+        setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+
+    // ------------------------------------------------------------------------
+    // FrameScheduler ---------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the frame rate limit.
+     *
+     * @return the most frames to start in one second, or 0 for no limit
+     */
+    public synchronized int getMaxFramesPerSecond() {
+        return maxFramesPerSecond;
+    }
+
+    /**
+     * Set the frame rate limit.
+     *
+     * @param maxFramesPerSecond the most frames to start in one second, or
+     * 0 for no limit
+     */
+    public synchronized void setMaxFramesPerSecond(
+        final int maxFramesPerSecond) {
+
+        if (maxFramesPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid frame rate: " +
+                maxFramesPerSecond);
+        }
+        this.maxFramesPerSecond = maxFramesPerSecond;
+    }
+
+    /**
+     * Get how long to wait before the next frame may start.
+     *
+     * @param now the current time from System.nanoTime()
+     * @return the delay in millis, or 0 if a frame may start now
+     */
+    public synchronized long getDelay(final long now) {
+        if ((maxFramesPerSecond == 0) || (frames == 0)) {
+            return 0;
+        }
+        long next = lastFrameStart + (1000000000L / maxFramesPerSecond);
+        // nanoTime() values may only be compared by their difference.
+        if (now - next >= 0) {
+            return 0;
+        }
+        // Round up so that the wait does not end just short of the
+        // interval.
+        return (next - now + 999999) / 1000000;
+    }
+
+    /**
+     * Record that a frame request was merged into another frame.
+     */
+    public synchronized void frameCoalesced() {
+        coalesced++;
+    }
+
+    /**
+     * Record a frame.
+     *
+     * @param startNanos when the frame started, from System.nanoTime()
+     * @param nanos how long the frame took, in nanos
+     */
+    public synchronized void frameFinished(final long startNanos,
+        final long nanos) {
+
+        lastFrameStart = startNanos;
+        frameMicros[(int) (frames % HISTORY_SIZE)] = nanos / 1000;
+        frames++;
+    }
+
+    /**
+     * Get the number of frames recorded.
+     *
+     * @return the number of frames
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Get the number of frame requests that were merged into another frame.
+     *
+     * @return the number of requests
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Get a percentile of the time recent frames took.
+     *
+     * @param percentile 0 - 100, e.g. 50 for the median or 99 for the
+     * slowest one in a hundred
+     * @return the frame time in micros, or 0 if there have been no frames
+     */
+    public synchronized long getFrameTimePercentile(final int percentile) {
+        if ((percentile < 0) || (percentile > 100)) {
+            throw new IllegalArgumentException("Invalid percentile: " +
+                percentile);
+        }
+        int n = (int) Math.min(frames, HISTORY_SIZE);
+        if (n == 0) {
+            return 0;
+        }
+        long [] sorted = Arrays.copyOf(frameMicros, n);
+        Arrays.sort(sorted);
+        int i = (int) Math.ceil(percentile * n / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, i))];
+    }
+
+    /**
+     * Make human-readable description of this FrameScheduler.
+     *
+     * @return displayable String
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("FrameScheduler: max %d fps, %d frames, " +
+            "%d coalesced, p50 %d us p95 %d us p99 %d us",
+            maxFramesPerSecond, frames, coalesced,
+            getFrameTimePercentile(50), getFrameTimePercentile(95),
+            getFrameTimePercentile(99));
+    }
+
+}
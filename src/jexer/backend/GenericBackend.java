@@ -275,4 +275,25 @@ public abstract class GenericBackend implements Backend {
         // Default: do nothing
     }
 
+    /**
+     * Get the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @return frames per second, or 0 for no limit
+     */
+    public int getMaxFramesPerSecond() {
+        // Default: no limit
+        return 0;
+    }
+
+    /**
+     * Set the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @param maxFramesPerSecond frames per second, or 0 for no limit
+     */
+    public void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        // Default: do nothing
+    }
+
 }
@@ -0,0 +1,461 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.backend;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jexer.bits.Cell;
+
+/**
+ * GlyphCache is a bounded cache of rendered glyph images, shared by every
+ * SwingTerminal and GlyphMaker in the process.  Glyphs are keyed on the
+ * code point, the attributes that change how the glyph looks, the
+ * foreground and background colors, and a font id that stands for the
+ * font and cell metrics used to draw it.  When the images in the cache
+ * take more than the maximum number of bytes, the least-recently-used
+ * glyphs are discarded.
+ *
+ * The maximum size can be set with the jexer.GlyphCache.maxBytes system
+ * property.
+ */
+public class GlyphCache {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The default maximum number of bytes of glyph images to keep.
+     */
+    private static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * Key flag: bold.
+     */
+    private static final int BOLD = 0x01;
+
+    /**
+     * Key flag: blink.
+     */
+    private static final int BLINK = 0x02;
+
+    /**
+     * Key flag: reverse.
+     */
+    private static final int REVERSE = 0x04;
+
+    /**
+     * Key flag: underline.
+     */
+    private static final int UNDERLINE = 0x08;
+
+    /**
+     * Key flag: blinking text in its invisible phase.
+     */
+    private static final int BLINK_HIDDEN = 0x10;
+
+    /**
+     * Key flag bit that the cell width starts at.
+     */
+    private static final int WIDTH_SHIFT = 5;
+
+    /**
+     * Key flag bit that the font id starts at.
+     */
+    private static final int FONT_SHIFT = 8;
+
+    /**
+     * Key color flag: the color is a palette index rather than RGB.
+     */
+    private static final int PALETTE = 0x1000000;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The one cache instance.
+     */
+    private static GlyphCache instance = null;
+
+    /**
+     * The glyphs, in least-recently-used order.
+     */
+    private LinkedHashMap<Key, BufferedImage> glyphs;
+
+    /**
+     * The font ids handed out so far, by font description.
+     */
+    private HashMap<String, Integer> fontIds = new HashMap<String, Integer>();
+
+    /**
+     * A key reused for lookups, so that a cache hit does not allocate.
+     */
+    private Key probe = new Key();
+
+    /**
+     * The maximum number of bytes of glyph images to keep.
+     */
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * The number of bytes of glyph images currently kept.
+     */
+    private long bytes = 0;
+
+    /**
+     * The number of lookups that found a glyph.
+     */
+    private long hits = 0;
+
+    /**
+     * The number of lookups that did not find a glyph.
+     */
+    private long misses = 0;
+
+    /**
+     * The number of glyphs discarded to stay under the maximum size.
+     */
+    private long evictions = 0;
+
+    /**
+     * A compact glyph key.
+     */
+    private static final class Key {
+
+        /**
+         * Code point in the high word, flags and font id in the low word.
+         */
+        private long glyph;
+
+        /**
+         * Foreground color in the high word, background color in the low
+         * word.
+         */
+        private long colors;
+
+        /**
+         * Hashcode uses all fields in equals().
+         *
+         * @return the hash
+         */
+        @Override
+        public int hashCode() {
+            long hash = (glyph * 0x9E3779B97F4A7C15L) ^ colors;
+            hash ^= (hash >>> 29);
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+        /**
+         * Comparison check.
+         *
+         * @param rhs another Key instance
+         * @return true if both fields match
+         */
+        @Override
+        public boolean equals(final Object rhs) {
+            if (!(rhs instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) rhs;
+            return ((glyph == that.glyph) && (colors == that.colors));
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Private constructor, use getInstance() instead.
+     */
+    private GlyphCache() {
+        glyphs = new LinkedHashMap<Key, BufferedImage>(1024, 0.75f, true);
+
+        String maxString = System.getProperty("jexer.GlyphCache.maxBytes");
+        if (maxString != null) {
+            try {
+                long max = Long.parseLong(maxString);
+                if (max >= 0) {
+                    maxBytes = max;
+                }
+            } catch (NumberFormatException e) {
+                // SQUASH
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // GlyphCache -------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Obtain the GlyphCache instance.
+     *
+     * @return the instance
+     */
+    public static GlyphCache getInstance() {
+        synchronized (GlyphCache.class) {
+            if (instance == null) {
+                instance = new GlyphCache();
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Get the font id for a font and its cell metrics.  Callers that draw
+     * glyphs identically should produce the same description, and will
+     * share their cached glyphs.
+     *
+     * @param description a string that identifies everything besides the
+     * cell that changes how a glyph is drawn: font name, style, and size,
+     * cell size, text adjustments, etc.
+     * @return the font id
+     */
+    public synchronized int getFontId(final String description) {
+        Integer id = fontIds.get(description);
+        if (id == null) {
+            id = fontIds.size();
+            fontIds.put(description, id);
+        }
+        return id;
+    }
+
+    /**
+     * Fill in a key for a cell.
+     *
+     * @param key the key to set
+     * @param fontId the font id from getFontId()
+     * @param cell the cell
+     * @param blinkVisible if true, the cell is visible if it is blinking
+     */
+    private static void setKey(final Key key, final int fontId,
+        final Cell cell, final boolean blinkVisible) {
+
+        int flags = 0;
+        if (cell.isBold()) {
+            flags |= BOLD;
+        }
+        if (cell.isBlink()) {
+            flags |= BLINK;
+            if (!blinkVisible) {
+                flags |= BLINK_HIDDEN;
+            }
+        }
+        if (cell.isReverse()) {
+            flags |= REVERSE;
+        }
+        if (cell.isUnderline()) {
+            flags |= UNDERLINE;
+        }
+        flags |= cell.getWidth().ordinal() << WIDTH_SHIFT;
+        flags |= fontId << FONT_SHIFT;
+
+        int fore = cell.getForeColorRGB();
+        if (fore < 0) {
+            fore = PALETTE | cell.getForeColor().getValue();
+        }
+        int back = cell.getBackColorRGB();
+        if (back < 0) {
+            back = PALETTE | cell.getBackColor().getValue();
+        }
+
+        key.glyph = (((long) cell.getChar()) << 32) | (flags & 0xFFFFFFFFL);
+        key.colors = (((long) fore) << 32) | (back & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get a glyph image.
+     *
+     * @param fontId the font id from getFontId()
+     * @param cell the cell to draw
+     * @param blinkVisible if true, the cell is visible if it is blinking
+     * @return the glyph image, or null if it is not in the cache
+     */
+    public synchronized BufferedImage get(final int fontId, final Cell cell,
+        final boolean blinkVisible) {
+
+        setKey(probe, fontId, cell, blinkVisible);
+        BufferedImage image = glyphs.get(probe);
+        if (image == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return image;
+    }
+
+    /**
+     * Save a glyph image.  Least-recently-used glyphs are discarded to make
+     * room for it.
+     *
+     * @param fontId the font id from getFontId()
+     * @param cell the cell that was drawn
+     * @param blinkVisible if true, the cell is visible if it is blinking
+     * @param image the glyph image
+     */
+    public synchronized void put(final int fontId, final Cell cell,
+        final boolean blinkVisible, final BufferedImage image) {
+
+        Key key = new Key();
+        setKey(key, fontId, cell, blinkVisible);
+        BufferedImage oldImage = glyphs.put(key, image);
+        if (oldImage != null) {
+            bytes -= imageBytes(oldImage);
+        }
+        bytes += imageBytes(image);
+
+        evict();
+    }
+
+    /**
+     * Discard least-recently-used glyphs until the cache is under its
+     * maximum size.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, BufferedImage>> it;
+        it = glyphs.entrySet().iterator();
+        while ((bytes > maxBytes) && it.hasNext()) {
+            Map.Entry<Key, BufferedImage> eldest = it.next();
+            bytes -= imageBytes(eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Get the number of bytes an image uses.
+     *
+     * @param image the image
+     * @return the number of bytes
+     */
+    private static long imageBytes(final BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    /**
+     * Discard all glyphs.
+     */
+    public synchronized void clear() {
+        glyphs.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Get the number of glyphs in the cache.
+     *
+     * @return the number of glyphs
+     */
+    public synchronized int getSize() {
+        return glyphs.size();
+    }
+
+    /**
+     * Get the number of bytes of glyph images in the cache.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the maximum number of bytes of glyph images to keep.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the maximum number of bytes of glyph images to keep.
+     *
+     * @param maxBytes the number of bytes
+     */
+    public synchronized void setMaxBytes(final long maxBytes) {
+        this.maxBytes = maxBytes;
+
+        evict();
+    }
+
+    /**
+     * Get the number of lookups that found a glyph.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that did not find a glyph.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of glyphs discarded to stay under the maximum size.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Reset the hit, miss, and eviction counts.
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Make human-readable description of this GlyphCache.
+     *
+     * @return displayable String
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("GlyphCache: %d glyphs %d/%d bytes, " +
+            "%d hits %d misses %d evictions", glyphs.size(), bytes, maxBytes,
+            hits, misses, evictions);
+    }
+
+}
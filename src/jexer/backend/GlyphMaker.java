@@ -115,16 +115,20 @@ class GlyphMakerFont {
     private int textAdjustWidth = 0;
 
     /**
-     * A cache of previously-rendered glyphs for blinking text, when it is
-     * not visible.
+     * The id of this font in the glyph cache, for the cell size in
+     * fontIdWidth and fontIdHeight.
      */
-    private HashMap<Cell, BufferedImage> glyphCacheBlink;
+    private int fontId = -1;
 
     /**
-     * A cache of previously-rendered glyphs for non-blinking, or
-     * blinking-and-visible, text.
+     * The cell width that fontId was obtained for.
      */
-    private HashMap<Cell, BufferedImage> glyphCache;
+    private int fontIdWidth = -1;
+
+    /**
+     * The cell height that fontId was obtained for.
+     */
+    private int fontIdHeight = -1;
 
     /**
      * If true, this font loaded OK.
@@ -213,12 +217,19 @@ class GlyphMakerFont {
                 String.format("0x%x", cell.getChar()));
         }
 
-        BufferedImage image = null;
-        if (cell.isBlink() && !blinkVisible) {
-            image = glyphCacheBlink.get(cell);
-        } else {
-            image = glyphCache.get(cell);
+        GlyphCache glyphCache = GlyphCache.getInstance();
+        if ((fontId == -1)
+            || (cellWidth != fontIdWidth)
+            || (cellHeight != fontIdHeight)
+        ) {
+            fontId = glyphCache.getFontId("GlyphMaker " + font + " " +
+                cellWidth + "x" + cellHeight + " " + maxDescent);
+            fontIdWidth = cellWidth;
+            fontIdHeight = cellHeight;
         }
+        int id = fontId;
+
+        BufferedImage image = glyphCache.get(id, cell, blinkVisible);
         if (image != null) {
             return image;
         }
@@ -270,13 +281,7 @@ class GlyphMakerFont {
         gr2.dispose();
 
         if (cell.isCacheable()) {
-            // We need a new key that will not be mutated by invertCell().
-            Cell key = new Cell(cell);
-            if (cell.isBlink() && !blinkVisible) {
-                glyphCacheBlink.put(key, image);
-            } else {
-                glyphCache.put(key, image);
-            }
+            glyphCache.put(id, cell, blinkVisible, image);
         }
 
         /*
@@ -291,9 +296,6 @@ class GlyphMakerFont {
      * Figure out my font dimensions.
      */
     private void getFontDimensions() {
-        glyphCacheBlink = new HashMap<Cell, BufferedImage>();
-        glyphCache = new HashMap<Cell, BufferedImage>();
-
         BufferedImage image = new BufferedImage(font.getSize() * 2,
             font.getSize() * 2, BufferedImage.TYPE_INT_ARGB);
         Graphics2D gr = image.createGraphics();
@@ -385,6 +385,44 @@ public class MultiBackend implements Backend {
         }
     }
 
+    /**
+     * Get the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @return frames per second, or 0 for no limit
+     */
+    public int getMaxFramesPerSecond() {
+        // Keep up with the fastest connected backend.
+        int maxFramesPerSecond = 0;
+        for (Backend backend: backends) {
+            // Only GenericBackends pace their output.
+            int fps = 0;
+            if (backend instanceof GenericBackend) {
+                fps = ((GenericBackend) backend).getMaxFramesPerSecond();
+            }
+            if (fps == 0) {
+                return 0;
+            }
+            maxFramesPerSecond = Math.max(maxFramesPerSecond, fps);
+        }
+        return maxFramesPerSecond;
+    }
+
+    /**
+     * Set the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @param maxFramesPerSecond frames per second, or 0 for no limit
+     */
+    public void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        for (Backend backend: backends) {
+            if (backend instanceof GenericBackend) {
+                ((GenericBackend) backend).setMaxFramesPerSecond(
+                    maxFramesPerSecond);
+            }
+        }
+    }
+
     /**
      * Convert a CellAttributes foreground color to an AWT Color.
      *
@@ -0,0 +1,416 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.backend;
+
+/**
+ * OutputController estimates how far behind the link to a terminal is, and
+ * decides how much to send in each frame.  It models the link as a queue:
+ * every frame written adds to the queue, and the queue drains at the
+ * estimated link rate, or at the byte budget if that is lower.  The
+ * further behind the queue is, the less is sent: first images are sent at
+ * lower quality, then image updates are held back in favor of text and
+ * the cursor, and finally whole frames are skipped until the link catches
+ * up.
+ *
+ * The link rate is learned from writes that block: a write that takes a
+ * while to complete means the link is full, and bytes / time is how fast
+ * it is draining.  Writes that do not block raise the estimate again.
+ */
+public class OutputController {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * How much to send in a frame.
+     */
+    public enum Level {
+        /**
+         * Send everything.
+         */
+        FULL,
+
+        /**
+         * Send images at lower quality.
+         */
+        REDUCED,
+
+        /**
+         * Send text and the cursor, hold back image updates.
+         */
+        TEXT_ONLY,
+
+        /**
+         * Send nothing, wait for the link to catch up.
+         */
+        SKIP,
+    }
+
+    /**
+     * A write that takes at least this long is taken to mean the link is
+     * full.
+     */
+    private static final long BLOCKED_WRITE_MILLIS = 5;
+
+    /**
+     * Queue delay in millis at which images are sent at lower quality.
+     */
+    private static final long REDUCED_MILLIS = 100;
+
+    /**
+     * Queue delay in millis at which image updates are held back.
+     */
+    private static final long TEXT_ONLY_MILLIS = 500;
+
+    /**
+     * Queue delay in millis at which whole frames are skipped.
+     */
+    private static final long SKIP_MILLIS = 2000;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The byte budget, or 0 for no budget.
+     */
+    private int maxBytesPerSecond = 0;
+
+    /**
+     * The estimated link rate, or 0 if it is not known.
+     */
+    private double linkBytesPerSecond = 0;
+
+    /**
+     * The estimated number of bytes written but not yet delivered.
+     */
+    private double queuedBytes = 0;
+
+    /**
+     * The last time the queue was drained.
+     */
+    private long drainTime = 0;
+
+    /**
+     * The level chosen for the last frame.
+     */
+    private Level level = Level.FULL;
+
+    /**
+     * The number of frames written.
+     */
+    private long framesWritten = 0;
+
+    /**
+     * The number of frames written with images at lower quality.
+     */
+    private long framesReduced = 0;
+
+    /**
+     * The number of frames written with image updates held back.
+     */
+    private long framesTextOnly = 0;
+
+    /**
+     * The number of frames skipped.
+     */
+    private long framesSkipped = 0;
+
+    /**
+     * The number of image runs held back.
+     */
+    private long imagesDeferred = 0;
+
+    /**
+     * The number of bytes written.
+     */
+    private long bytesWritten = 0;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     *
+     * @param maxBytesPerSecond the byte budget, or 0 for no budget
+     */
+    public OutputController(final int maxBytesPerSecond) {
+        setMaxBytesPerSecond(maxBytesPerSecond);
+    }
+
+    // ------------------------------------------------------------------------
+    // OutputController -------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Drain the queue up to now.
+     *
+     * @param now the current time in millis
+     */
+    private void drain(final long now) {
+        double rate = getDrainRate();
+        if (rate == 0) {
+            queuedBytes = 0;
+        } else if (drainTime != 0) {
+            queuedBytes -= rate * (now - drainTime) / 1000.0;
+            if (queuedBytes < 0) {
+                queuedBytes = 0;
+            }
+        }
+        drainTime = now;
+    }
+
+    /**
+     * Get the rate the queue drains at: the link rate or the budget,
+     * whichever is lower.
+     *
+     * @return bytes per second, or 0 if there is neither an estimate nor a
+     * budget
+     */
+    private double getDrainRate() {
+        if (maxBytesPerSecond == 0) {
+            return linkBytesPerSecond;
+        }
+        if (linkBytesPerSecond == 0) {
+            return maxBytesPerSecond;
+        }
+        return Math.min(maxBytesPerSecond, linkBytesPerSecond);
+    }
+
+    /**
+     * Get the level that a frame sent now should use.  This does not count
+     * as a frame.
+     *
+     * @param now the current time in millis
+     * @return the level
+     */
+    public synchronized Level getLevel(final long now) {
+        drain(now);
+        long delay = getQueueDelay();
+        if (delay >= SKIP_MILLIS) {
+            return Level.SKIP;
+        }
+        if (delay >= TEXT_ONLY_MILLIS) {
+            return Level.TEXT_ONLY;
+        }
+        if (delay >= REDUCED_MILLIS) {
+            return Level.REDUCED;
+        }
+        return Level.FULL;
+    }
+
+    /**
+     * Start a frame.
+     *
+     * @param now the current time in millis
+     * @return the level the frame should use
+     */
+    public synchronized Level beginFrame(final long now) {
+        level = getLevel(now);
+        switch (level) {
+        case REDUCED:
+            framesReduced++;
+            break;
+        case TEXT_ONLY:
+            framesTextOnly++;
+            break;
+        case SKIP:
+            framesSkipped++;
+            break;
+        default:
+            break;
+        }
+        return level;
+    }
+
+    /**
+     * Record that a frame was written.
+     *
+     * @param bytes the number of bytes written
+     * @param writeMillis how long the write (including flush) took
+     * @param now the time the write completed, in millis
+     */
+    public synchronized void endFrame(final int bytes, final long writeMillis,
+        final long now) {
+
+        framesWritten++;
+        bytesWritten += bytes;
+
+        if (writeMillis >= BLOCKED_WRITE_MILLIS) {
+            // The link is full, and this is roughly how fast it drains.
+            double rate = bytes * 1000.0 / writeMillis;
+            if (linkBytesPerSecond == 0) {
+                linkBytesPerSecond = rate;
+            } else {
+                linkBytesPerSecond = (linkBytesPerSecond * 3 + rate) / 4;
+            }
+        } else if ((linkBytesPerSecond != 0) && (bytes >= 1024)) {
+            // A sizable write did not block, maybe the link is faster now.
+            linkBytesPerSecond *= 1.25;
+        }
+
+        drain(now);
+        queuedBytes += bytes;
+    }
+
+    /**
+     * Record that image updates were held back.
+     *
+     * @param count the number of image runs held back
+     */
+    public synchronized void imagesDeferred(final int count) {
+        imagesDeferred += count;
+    }
+
+    /**
+     * Get the byte budget.
+     *
+     * @return bytes per second, or 0 for no budget
+     */
+    public synchronized int getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    /**
+     * Set the byte budget.
+     *
+     * @param maxBytesPerSecond bytes per second, or 0 for no budget
+     */
+    public synchronized void setMaxBytesPerSecond(final int maxBytesPerSecond) {
+        if (maxBytesPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid byte budget: " +
+                maxBytesPerSecond);
+        }
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    /**
+     * Get the estimated link rate.
+     *
+     * @return bytes per second, or 0 if no write has blocked yet
+     */
+    public synchronized int getLinkBytesPerSecond() {
+        return (int) linkBytesPerSecond;
+    }
+
+    /**
+     * Get the estimated time for the link to deliver what has been written
+     * so far.
+     *
+     * @return the delay in millis
+     */
+    public synchronized long getQueueDelay() {
+        double rate = getDrainRate();
+        if (rate == 0) {
+            return 0;
+        }
+        return (long) (queuedBytes * 1000.0 / rate);
+    }
+
+    /**
+     * Get the level chosen for the last frame.
+     *
+     * @return the level
+     */
+    public synchronized Level getLastLevel() {
+        return level;
+    }
+
+    /**
+     * Get the number of frames written.
+     *
+     * @return the number of frames
+     */
+    public synchronized long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * Get the number of frames written with images at lower quality.
+     *
+     * @return the number of frames
+     */
+    public synchronized long getFramesReduced() {
+        return framesReduced;
+    }
+
+    /**
+     * Get the number of frames written with image updates held back.
+     *
+     * @return the number of frames
+     */
+    public synchronized long getFramesTextOnly() {
+        return framesTextOnly;
+    }
+
+    /**
+     * Get the number of frames skipped.
+     *
+     * @return the number of frames
+     */
+    public synchronized long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    /**
+     * Get the number of image runs held back.
+     *
+     * @return the number of image runs
+     */
+    public synchronized long getImagesDeferred() {
+        return imagesDeferred;
+    }
+
+    /**
+     * Get the number of bytes written.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Make human-readable description of this OutputController.
+     *
+     * @return displayable String
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("OutputController: %s link %d B/s budget %d " +
+            "B/s delay %d ms, frames %d written %d reduced %d text-only " +
+            "%d skipped, %d images deferred", level,
+            (int) linkBytesPerSecond, maxBytesPerSecond, getQueueDelay(),
+            framesWritten, framesReduced, framesTextOnly, framesSkipped,
+            imagesDeferred);
+    }
+
+}
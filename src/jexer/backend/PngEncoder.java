@@ -0,0 +1,629 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.backend;
+
+import java.awt.image.BufferedImage;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PngEncoder writes a BufferedImage as base64-encoded PNG directly into a
+ * StringBuilder.  Rows are filtered and deflated as they are read, and the
+ * compressed data is base64-encoded as each IDAT chunk fills, so the only
+ * full copy of the image that is made is the one in the StringBuilder.
+ *
+ * <p>
+ * An encoder keeps its Deflater and work buffers between images, and so is
+ * not thread-safe: use one encoder per thread.
+ * </p>
+ */
+public class PngEncoder {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Available row filter strategies.
+     */
+    public enum Filter {
+        /**
+         * No filter.  Fastest, but compresses photos poorly.
+         */
+        NONE,
+
+        /**
+         * Difference from the pixel to the left.
+         */
+        SUB,
+
+        /**
+         * Difference from the pixel above.
+         */
+        UP,
+
+        /**
+         * Difference from the average of the pixels to the left and above.
+         */
+        AVERAGE,
+
+        /**
+         * Difference from the Paeth predictor.
+         */
+        PAETH,
+
+        /**
+         * Try every filter on each row and keep the one with the smallest
+         * sum of absolute differences.  This is what ImageIO does.
+         */
+        ADAPTIVE,
+    }
+
+    /**
+     * The PNG file signature.
+     */
+    private static final byte [] SIGNATURE = {
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+    };
+
+    /**
+     * The chunk type of the image header.
+     */
+    private static final byte [] IHDR = { 'I', 'H', 'D', 'R' };
+
+    /**
+     * The chunk type of the compressed image data.
+     */
+    private static final byte [] IDAT = { 'I', 'D', 'A', 'T' };
+
+    /**
+     * The chunk type that ends the image.
+     */
+    private static final byte [] IEND = { 'I', 'E', 'N', 'D' };
+
+    /**
+     * The largest IDAT chunk to write.
+     */
+    private static final int IDAT_SIZE = 32768;
+
+    /**
+     * The base64 alphabet.
+     */
+    private static final char [] BASE64 =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".
+        toCharArray();
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The deflate level, 0 - 9.
+     */
+    private int compressionLevel = 5;
+
+    /**
+     * The row filter strategy.
+     */
+    private Filter filter = Filter.NONE;
+
+    /**
+     * The reused deflater.
+     */
+    private Deflater deflater;
+
+    /**
+     * The reused checksum.
+     */
+    private CRC32 crc = new CRC32();
+
+    /**
+     * The compressed data for the next IDAT chunk.
+     */
+    private byte [] idat = new byte[IDAT_SIZE];
+
+    /**
+     * The number of bytes in idat.
+     */
+    private int idatLength = 0;
+
+    /**
+     * The image pixels as ARGB.
+     */
+    private int [] pixels = new int[0];
+
+    /**
+     * The row being encoded, unfiltered.
+     */
+    private byte [] row = new byte[0];
+
+    /**
+     * The row above the one being encoded, unfiltered, for the filters
+     * that predict from it.
+     */
+    private byte [] prior = new byte[0];
+
+    /**
+     * The current row filtered each way, with the filter type in the first
+     * byte.
+     */
+    private byte [][] filtered = new byte[5][0];
+
+    /**
+     * Where base64 output goes.
+     */
+    private StringBuilder output;
+
+    /**
+     * Base64 output not yet appended to output.
+     */
+    private char [] chars = new char[4096];
+
+    /**
+     * The number of characters in chars.
+     */
+    private int charsLength = 0;
+
+    /**
+     * Up to two bytes waiting to be base64-encoded.
+     */
+    private int pendingBits = 0;
+
+    /**
+     * The number of bytes in pendingBits.
+     */
+    private int pendingCount = 0;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     */
+    public PngEncoder() {
+        deflater = new Deflater(compressionLevel);
+        deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+    }
+
+    // ------------------------------------------------------------------------
+    // PngEncoder -------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the deflate level.
+     *
+     * @return the level, 0 (store) - 9 (smallest)
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Set the deflate level.
+     *
+     * @param compressionLevel the level, 0 (store) - 9 (smallest)
+     */
+    public void setCompressionLevel(final int compressionLevel) {
+        if ((compressionLevel < 0) || (compressionLevel > 9)) {
+            throw new IllegalArgumentException("Invalid compression level: " +
+                compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        deflater.setLevel(compressionLevel);
+    }
+
+    /**
+     * Get the row filter strategy.
+     *
+     * @return the filter strategy
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Set the row filter strategy.
+     *
+     * @param filter the filter strategy
+     */
+    public void setFilter(final Filter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        this.filter = filter;
+        if (filter == Filter.NONE) {
+            deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+        } else {
+            deflater.setStrategy(Deflater.FILTERED);
+        }
+    }
+
+    /**
+     * Append an image as base64-encoded PNG.  Images with no transparent
+     * pixels are written as RGB, others as RGBA.
+     *
+     * @param image the image
+     * @param sb the StringBuilder to append to
+     */
+    public void toBase64Png(final BufferedImage image, final StringBuilder sb) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        readPixels(image);
+
+        boolean alpha = false;
+        if (image.getColorModel().hasAlpha()) {
+            for (int i = 0; i < width * height; i++) {
+                if ((pixels[i] >>> 24) != 0xFF) {
+                    alpha = true;
+                    break;
+                }
+            }
+        }
+        int bpp = (alpha ? 4 : 3);
+        int rowLength = width * bpp;
+        if (row.length < rowLength) {
+            row = new byte[rowLength];
+            prior = new byte[rowLength];
+            for (int i = 0; i < filtered.length; i++) {
+                filtered[i] = new byte[rowLength + 1];
+            }
+        }
+
+        begin(sb);
+        putBytes(SIGNATURE, 0, SIGNATURE.length);
+
+        byte [] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;                          // Bit depth
+        header[9] = (byte) (alpha ? 6 : 2);     // Color type
+        header[10] = 0;                         // Deflate
+        header[11] = 0;                         // Adaptive filtering
+        header[12] = 0;                         // No interlace
+        putChunk(IHDR, header, 0, header.length);
+
+        deflater.reset();
+        idatLength = 0;
+        for (int i = 0; i < rowLength; i++) {
+            prior[i] = 0;
+        }
+        for (int y = 0; y < height; y++) {
+            int p = y * width;
+            int b = 0;
+            for (int x = 0; x < width; x++, p++) {
+                int argb = pixels[p];
+                row[b++] = (byte) (argb >>> 16);
+                row[b++] = (byte) (argb >>> 8);
+                row[b++] = (byte) argb;
+                if (alpha) {
+                    row[b++] = (byte) (argb >>> 24);
+                }
+            }
+
+            byte [] line = filterRow(rowLength, bpp);
+            deflater.setInput(line, 0, rowLength + 1);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+
+            byte [] swap = prior;
+            prior = row;
+            row = swap;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+        if (idatLength > 0) {
+            putChunk(IDAT, idat, 0, idatLength);
+            idatLength = 0;
+        }
+
+        putChunk(IEND, idat, 0, 0);
+        end();
+    }
+
+    /**
+     * Append an image as base64-encoded 24-bit RGB bytes, the format used
+     * by Jexer images type 0.
+     *
+     * @param image the image
+     * @param sb the StringBuilder to append to
+     */
+    public void toBase64Rgb(final BufferedImage image, final StringBuilder sb) {
+        readPixels(image);
+        begin(sb);
+        int n = image.getWidth() * image.getHeight();
+        for (int i = 0; i < n; i++) {
+            int rgb = pixels[i];
+            putByte(rgb >>> 16);
+            putByte(rgb >>> 8);
+            putByte(rgb);
+        }
+        end();
+    }
+
+    /**
+     * Read all of the image's pixels as ARGB into pixels.
+     *
+     * @param image the image
+     */
+    private void readPixels(final BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+        }
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            // The raster elements are already ARGB, and this avoids the
+            // color model conversion in getRGB().
+            image.getRaster().getDataElements(0, 0, width, height, pixels);
+        } else {
+            image.getRGB(0, 0, width, height, pixels, 0, width);
+        }
+    }
+
+    /**
+     * Filter the current row.
+     *
+     * @param rowLength the number of bytes in the row
+     * @param bpp the number of bytes per pixel
+     * @return the filtered row, with the filter type in the first byte
+     */
+    private byte [] filterRow(final int rowLength, final int bpp) {
+        if (filter != Filter.ADAPTIVE) {
+            int type = filter.ordinal();
+            filterRow(type, rowLength, bpp);
+            return filtered[type];
+        }
+
+        int best = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int type = 0; type < filtered.length; type++) {
+            filterRow(type, rowLength, bpp);
+            byte [] line = filtered[type];
+            long sum = 0;
+            for (int i = 1; i <= rowLength; i++) {
+                sum += Math.abs(line[i]);
+            }
+            if (sum < bestSum) {
+                bestSum = sum;
+                best = type;
+            }
+        }
+        return filtered[best];
+    }
+
+    /**
+     * Filter the current row one way.
+     *
+     * @param type the PNG filter type, 0 - 4
+     * @param rowLength the number of bytes in the row
+     * @param bpp the number of bytes per pixel
+     */
+    private void filterRow(final int type, final int rowLength,
+        final int bpp) {
+
+        byte [] line = filtered[type];
+        line[0] = (byte) type;
+        switch (type) {
+        case 0:
+            System.arraycopy(row, 0, line, 1, rowLength);
+            break;
+        case 1:
+            for (int i = 0; i < rowLength; i++) {
+                int left = (i < bpp ? 0 : row[i - bpp] & 0xFF);
+                line[i + 1] = (byte) ((row[i] & 0xFF) - left);
+            }
+            break;
+        case 2:
+            for (int i = 0; i < rowLength; i++) {
+                line[i + 1] = (byte) ((row[i] & 0xFF) - (prior[i] & 0xFF));
+            }
+            break;
+        case 3:
+            for (int i = 0; i < rowLength; i++) {
+                int left = (i < bpp ? 0 : row[i - bpp] & 0xFF);
+                int up = prior[i] & 0xFF;
+                line[i + 1] = (byte) ((row[i] & 0xFF) - ((left + up) >>> 1));
+            }
+            break;
+        case 4:
+            for (int i = 0; i < rowLength; i++) {
+                int left = (i < bpp ? 0 : row[i - bpp] & 0xFF);
+                int up = prior[i] & 0xFF;
+                int upLeft = (i < bpp ? 0 : prior[i - bpp] & 0xFF);
+                int p = left + up - upLeft;
+                int pa = Math.abs(p - left);
+                int pb = Math.abs(p - up);
+                int pc = Math.abs(p - upLeft);
+                int predictor;
+                if ((pa <= pb) && (pa <= pc)) {
+                    predictor = left;
+                } else if (pb <= pc) {
+                    predictor = up;
+                } else {
+                    predictor = upLeft;
+                }
+                line[i + 1] = (byte) ((row[i] & 0xFF) - predictor);
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Invalid filter type: " + type);
+        }
+    }
+
+    /**
+     * Collect compressed output, writing an IDAT chunk when it fills.
+     */
+    private void deflate() {
+        idatLength += deflater.deflate(idat, idatLength,
+            idat.length - idatLength);
+        if (idatLength == idat.length) {
+            putChunk(IDAT, idat, 0, idatLength);
+            idatLength = 0;
+        }
+    }
+
+    /**
+     * Write a PNG chunk.
+     *
+     * @param type the chunk type
+     * @param data the chunk data
+     * @param offset the start of the data
+     * @param length the number of bytes of data
+     */
+    private void putChunk(final byte [] type, final byte [] data,
+        final int offset, final int length) {
+
+        putByte(length >>> 24);
+        putByte(length >>> 16);
+        putByte(length >>> 8);
+        putByte(length);
+        putBytes(type, 0, type.length);
+        putBytes(data, offset, length);
+        crc.reset();
+        crc.update(type, 0, type.length);
+        crc.update(data, offset, length);
+        int value = (int) crc.getValue();
+        putByte(value >>> 24);
+        putByte(value >>> 16);
+        putByte(value >>> 8);
+        putByte(value);
+    }
+
+    /**
+     * Store a big-endian int in a byte array.
+     *
+     * @param bytes the array
+     * @param offset where to store it
+     * @param value the int
+     */
+    private static void putInt(final byte [] bytes, final int offset,
+        final int value) {
+
+        bytes[offset]     = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Start base64 output.
+     *
+     * @param sb the StringBuilder to append to
+     */
+    private void begin(final StringBuilder sb) {
+        output = sb;
+        charsLength = 0;
+        pendingBits = 0;
+        pendingCount = 0;
+    }
+
+    /**
+     * Finish base64 output, padding the last group.
+     */
+    private void end() {
+        if (pendingCount > 0) {
+            int bits = pendingBits << ((3 - pendingCount) * 8);
+            flushChars(4);
+            chars[charsLength++] = BASE64[(bits >>> 18) & 0x3F];
+            chars[charsLength++] = BASE64[(bits >>> 12) & 0x3F];
+            chars[charsLength++] = (pendingCount == 2 ?
+                BASE64[(bits >>> 6) & 0x3F] : '=');
+            chars[charsLength++] = '=';
+        }
+        output.append(chars, 0, charsLength);
+        charsLength = 0;
+        output = null;
+    }
+
+    /**
+     * Base64-encode one byte.
+     *
+     * @param b the byte, in the low 8 bits
+     */
+    private void putByte(final int b) {
+        pendingBits = (pendingBits << 8) | (b & 0xFF);
+        if (++pendingCount == 3) {
+            flushChars(4);
+            chars[charsLength++] = BASE64[(pendingBits >>> 18) & 0x3F];
+            chars[charsLength++] = BASE64[(pendingBits >>> 12) & 0x3F];
+            chars[charsLength++] = BASE64[(pendingBits >>> 6) & 0x3F];
+            chars[charsLength++] = BASE64[pendingBits & 0x3F];
+            pendingBits = 0;
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * Base64-encode bytes.
+     *
+     * @param bytes the bytes
+     * @param offset the first byte to encode
+     * @param length the number of bytes to encode
+     */
+    private void putBytes(final byte [] bytes, final int offset,
+        final int length) {
+
+        int i = offset;
+        int end = offset + length;
+        while ((pendingCount != 0) && (i < end)) {
+            putByte(bytes[i++]);
+        }
+        for (; i + 3 <= end; i += 3) {
+            int bits = ((bytes[i] & 0xFF) << 16)
+                | ((bytes[i + 1] & 0xFF) << 8)
+                | (bytes[i + 2] & 0xFF);
+            flushChars(4);
+            chars[charsLength++] = BASE64[(bits >>> 18) & 0x3F];
+            chars[charsLength++] = BASE64[(bits >>> 12) & 0x3F];
+            chars[charsLength++] = BASE64[(bits >>> 6) & 0x3F];
+            chars[charsLength++] = BASE64[bits & 0x3F];
+        }
+        while (i < end) {
+            putByte(bytes[i++]);
+        }
+    }
+
+    /**
+     * Move the encoded characters to the StringBuilder if there is not
+     * room for more.
+     *
+     * @param needed the number of characters about to be added
+     */
+    private void flushChars(final int needed) {
+        if (charsLength + needed > chars.length) {
+            output.append(chars, 0, charsLength);
+            charsLength = 0;
+        }
+    }
+
+}
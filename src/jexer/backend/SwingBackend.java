@@ -213,6 +213,28 @@ public class SwingBackend extends GenericBackend {
         ((SwingTerminal) terminal).setMouseStyle(mouseStyle);
     }
 
+    /**
+     * Get the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @return frames per second, or 0 for no limit
+     */
+    @Override
+    public int getMaxFramesPerSecond() {
+        return ((SwingTerminal) terminal).getMaxFramesPerSecond();
+    }
+
+    /**
+     * Set the most screen updates per second that should be sent to this
+     * backend.
+     *
+     * @param maxFramesPerSecond frames per second, or 0 for no limit
+     */
+    @Override
+    public void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        ((SwingTerminal) terminal).setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+
     /**
      * Convert a CellAttributes foreground color to an AWT Color.
      *
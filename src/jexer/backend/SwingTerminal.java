@@ -53,9 +53,7 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.ImageIcon;
@@ -211,16 +209,10 @@ public class SwingTerminal extends LogicalScreen
     private SwingComponent swing;
 
     /**
-     * A cache of previously-rendered glyphs for blinking text, when it is
-     * not visible.
+     * The id of the current font and text adjustments in the glyph cache,
+     * or -1 if it must be looked up again.
      */
-    private Map<Cell, BufferedImage> glyphCacheBlink;
-
-    /**
-     * A cache of previously-rendered glyphs for non-blinking, or
-     * blinking-and-visible, text.
-     */
-    private Map<Cell, BufferedImage> glyphCache;
+    private int fontId = -1;
 
     /**
      * If true, we were successful at getting the font dimensions.
@@ -367,6 +359,50 @@ public class SwingTerminal extends LogicalScreen
      */
     private boolean imagesOverText = true;
 
+    /**
+     * If true, draw runs of plain text cells with one fillRect() per
+     * background color and one drawChars() per foreground color, rather
+     * than one glyph at a time.
+     */
+    private boolean batchText = false;
+
+    /**
+     * The most screen updates per second to draw, or 0 for no limit.
+     */
+    private int maxFramesPerSecond = 60;
+
+    /**
+     * For each character in the Basic Multilingual Plane: 0 if it is not
+     * yet known whether it can be drawn in a run of text, 1 if it can, 2 if
+     * it cannot.
+     */
+    private byte [] batchChars = null;
+
+    /**
+     * The glyph cache font id that batchChars was filled in for.
+     */
+    private int batchFontId = -1;
+
+    /**
+     * The characters of the current run of text.
+     */
+    private char [] runChars = new char[0];
+
+    /**
+     * The foreground colors of the current run of text.
+     */
+    private Color [] runForeColors = new Color[0];
+
+    /**
+     * The background colors of the current run of text.
+     */
+    private Color [] runBackColors = new Color[0];
+
+    /**
+     * Scratch attributes used to resolve a cell's colors.
+     */
+    private CellAttributes runAttr = new CellAttributes();
+
     /**
      * If true, report mouse events per-pixel rather than per-text-cell.
      */
@@ -791,6 +827,25 @@ public class SwingTerminal extends LogicalScreen
             imagesOverText = true;
         }
 
+        if (System.getProperty("jexer.Swing.batchText",
+                "false").equals("true")) {
+            batchText = true;
+        } else {
+            batchText = false;
+        }
+
+        // Default to 60 frames per second.
+        maxFramesPerSecond = 60;
+        try {
+            maxFramesPerSecond = Integer.parseInt(System.getProperty(
+                "jexer.Swing.maxFramesPerSecond", "60"));
+            if (maxFramesPerSecond < 0) {
+                maxFramesPerSecond = 0;
+            }
+        } catch (NumberFormatException e) {
+            // SQUASH
+        }
+
         // Set custom colors
         setCustomSystemColors();
     }
@@ -817,6 +872,51 @@ public class SwingTerminal extends LogicalScreen
         SwingComponent.tripleBuffer = tripleBuffer;
     }
 
+    /**
+     * Get the batched text flag.
+     *
+     * @return true if runs of plain text are drawn with one drawChars()
+     * call per color
+     */
+    public boolean isBatchText() {
+        return batchText;
+    }
+
+    /**
+     * Set the batched text flag.
+     *
+     * @param batchText if true, draw runs of plain text with one
+     * drawChars() call per color, rather than one glyph at a time
+     */
+    public void setBatchText(final boolean batchText) {
+        synchronized (this) {
+            this.batchText = batchText;
+            clearPhysical();
+        }
+    }
+
+    /**
+     * Get the most screen updates per second to draw.
+     *
+     * @return frames per second, or 0 for no limit
+     */
+    public int getMaxFramesPerSecond() {
+        return maxFramesPerSecond;
+    }
+
+    /**
+     * Set the most screen updates per second to draw.
+     *
+     * @param maxFramesPerSecond frames per second, or 0 for no limit
+     */
+    public void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        if (maxFramesPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid frame rate: " +
+                maxFramesPerSecond);
+        }
+        this.maxFramesPerSecond = maxFramesPerSecond;
+    }
+
     /**
      * Set the mouse pointer (cursor) style.
      *
@@ -1033,8 +1133,7 @@ public class SwingTerminal extends LogicalScreen
                             SwingTerminal.this.font = font;
                             getFontDimensions();
                             swing.setFont(font);
-                            glyphCacheBlink = new HashMap<Cell, BufferedImage>();
-                            glyphCache = new HashMap<Cell, BufferedImage>();
+                            fontId = -1;
                             resizeToScreen(true);
                         }
                     }
@@ -1049,8 +1148,7 @@ public class SwingTerminal extends LogicalScreen
                 SwingTerminal.this.font = font;
                 getFontDimensions();
                 swing.setFont(font);
-                glyphCacheBlink = new HashMap<Cell, BufferedImage>();
-                glyphCache = new HashMap<Cell, BufferedImage>();
+                fontId = -1;
                 resizeToScreen(true);
             }
         }
@@ -1104,8 +1202,7 @@ public class SwingTerminal extends LogicalScreen
     public void setTextAdjustX(final int textAdjustX) {
         synchronized (this) {
             this.textAdjustX = textAdjustX;
-            glyphCacheBlink = new HashMap<Cell, BufferedImage>();
-            glyphCache = new HashMap<Cell, BufferedImage>();
+            fontId = -1;
             clearPhysical();
         }
     }
@@ -1127,8 +1224,7 @@ public class SwingTerminal extends LogicalScreen
     public void setTextAdjustY(final int textAdjustY) {
         synchronized (this) {
             this.textAdjustY = textAdjustY;
-            glyphCacheBlink = new HashMap<Cell, BufferedImage>();
-            glyphCache = new HashMap<Cell, BufferedImage>();
+            fontId = -1;
             clearPhysical();
         }
     }
@@ -1151,8 +1247,7 @@ public class SwingTerminal extends LogicalScreen
         synchronized (this) {
             this.textAdjustHeight = textAdjustHeight;
             textHeight = fontTextHeight + textAdjustHeight;
-            glyphCacheBlink = new HashMap<Cell, BufferedImage>();
-            glyphCache = new HashMap<Cell, BufferedImage>();
+            fontId = -1;
             clearPhysical();
         }
     }
@@ -1175,8 +1270,7 @@ public class SwingTerminal extends LogicalScreen
         synchronized (this) {
             this.textAdjustWidth = textAdjustWidth;
             textWidth = fontTextWidth + textAdjustWidth;
-            glyphCacheBlink = new HashMap<Cell, BufferedImage>();
-            glyphCache = new HashMap<Cell, BufferedImage>();
+            fontId = -1;
             clearPhysical();
         }
     }
@@ -1398,6 +1492,7 @@ public class SwingTerminal extends LogicalScreen
         if (sessionInfo != null) {
             sessionInfo.setTextCellDimensions(textWidth, textHeight);
         }
+        fontId = -1;
         gotFontDimensions = true;
     }
 
@@ -1455,6 +1550,224 @@ public class SwingTerminal extends LogicalScreen
         }
     }
 
+    /**
+     * Get the glyph cache font id for the current font and text
+     * adjustments.
+     *
+     * @return the font id
+     */
+    private int getGlyphFontId() {
+        if (fontId == -1) {
+            // Terminals with the same font and metrics share glyphs.
+            fontId = GlyphCache.getInstance().getFontId("SwingTerminal " +
+                swing.getFont() + " " + textWidth + "x" + textHeight + " " +
+                maxDescent + " " + textAdjustX + "," + textAdjustY);
+        }
+        return fontId;
+    }
+
+    /**
+     * Draw the cells of one row that have changed.
+     *
+     * @param gr the Swing Graphics context
+     * @param y the row
+     * @param xMin the first column to draw
+     * @param xMax one past the last column to draw
+     * @param all if true, draw every cell whether it has changed or not
+     */
+    private void drawRow(final Graphics gr, final int y, final int xMin,
+        final int xMax, final boolean all) {
+
+        FontMetrics fm = null;
+        if (batchText) {
+            gr.setFont(swing.getFont());
+            fm = gr.getFontMetrics();
+        }
+
+        int yPixel = y * textHeight + top;
+        for (int x = xMin; x < xMax; x++) {
+            if (!all && !isDirty(x, y)) {
+                continue;
+            }
+            Cell lCell = logical[x][y];
+
+            if (batchText && isBatchable(lCell, fm)) {
+                int start = x;
+                while ((x + 1 < xMax)
+                    && (all || isDirty(x + 1, y))
+                    && isBatchable(logical[x + 1][y], fm)
+                ) {
+                    x++;
+                }
+                drawTextRun(gr, y, start, x + 1);
+                for (int i = start; i <= x; i++) {
+                    physical[i][y].setTo(logical[i][y]);
+                }
+                continue;
+            }
+
+            int xPixel = x * textWidth + left;
+            if (lCell.isImage()) {
+                if (imagesOverText) {
+                    if (lCell.isTransparentImage()) {
+                        // Draw the glyph underneath the image.
+                        drawGlyph(gr, lCell, xPixel, yPixel);
+                    }
+                }
+                drawImage(gr, lCell, xPixel, yPixel);
+            } else {
+                drawGlyph(gr, lCell, xPixel, yPixel);
+            }
+
+            // Physical is always updated
+            physical[x][y].setTo(lCell);
+        }
+    }
+
+    /**
+     * See if a cell needs to be drawn again.
+     *
+     * @param x the column
+     * @param y the row
+     * @return true if the cell has changed, is animated, or is under the
+     * cursor
+     */
+    private boolean isDirty(final int x, final int y) {
+        Cell lCell = logical[x][y];
+        return (!lCell.equals(physical[x][y])
+            || ((x == cursorX) && (y == cursorY) && cursorVisible)
+            || lCell.isBlink()
+            || lCell.isPulse());
+    }
+
+    /**
+     * See if a cell can be drawn as part of a run of text: it is a plain
+     * single-width character that the main font can draw in exactly one
+     * cell width.
+     *
+     * @param cell the cell
+     * @param fm the metrics of the main font
+     * @return true if the cell can be drawn by drawTextRun()
+     */
+    private boolean isBatchable(final Cell cell, final FontMetrics fm) {
+        if (cell.isImage()
+            || cell.isPulse()
+            || (cell.getWidth() != Cell.Width.SINGLE)
+        ) {
+            return false;
+        }
+        int ch = cell.getChar();
+        if ((ch < 0) || (ch >= 0x10000)) {
+            return false;
+        }
+
+        int id = getGlyphFontId();
+        if ((batchChars == null) || (batchFontId != id)) {
+            batchChars = new byte[0x10000];
+            batchFontId = id;
+        }
+        if (batchChars[ch] == 0) {
+            // The same tests drawGlyph() uses to pick the fallback font.
+            if (StringUtils.isLegacyComputingSymbol(ch)
+                || StringUtils.isBraille(ch)
+                || !swing.getFont().canDisplay(ch)
+                || (fm.charWidth(ch) != textWidth)
+            ) {
+                batchChars[ch] = 2;
+            } else {
+                batchChars[ch] = 1;
+            }
+        }
+        return (batchChars[ch] == 1);
+    }
+
+    /**
+     * Draw a run of text cells: background colors first, then the text of
+     * each foreground color with one drawChars() call.  Java2D keeps the
+     * rasterized glyphs of the font in its own cache, and tints them by
+     * the current color as it draws them.
+     *
+     * @param gr the Swing Graphics context
+     * @param y the row
+     * @param start the first column of the run
+     * @param end one past the last column of the run
+     */
+    private void drawTextRun(final Graphics gr, final int y, final int start,
+        final int end) {
+
+        int n = end - start;
+        if (runChars.length < n) {
+            runChars = new char[width];
+            runForeColors = new Color[width];
+            runBackColors = new Color[width];
+        }
+
+        // Resolve the colors of each cell.
+        for (int i = 0; i < n; i++) {
+            Cell cell = logical[start + i][y];
+            runAttr.setTo(cell);
+            if (cell.isReverse()) {
+                if (cell.getBackColorRGB() < 0) {
+                    runAttr.setForeColor(cell.getBackColor());
+                } else {
+                    runAttr.setForeColorRGB(cell.getBackColorRGB());
+                }
+                if (cell.getForeColorRGB() < 0) {
+                    runAttr.setBackColor(cell.getForeColor());
+                } else {
+                    runAttr.setBackColorRGB(cell.getForeColorRGB());
+                }
+            }
+            runForeColors[i] = attrToForegroundColor(runAttr);
+            runBackColors[i] = attrToBackgroundColor(runAttr);
+            runChars[i] = (char) cell.getChar();
+        }
+
+        int yPixel = y * textHeight + top;
+
+        // Fill the background, one rectangle per color.
+        int runStart = 0;
+        for (int i = 1; i <= n; i++) {
+            if ((i == n) || !runBackColors[i].equals(runBackColors[runStart])) {
+                gr.setColor(runBackColors[runStart]);
+                gr.fillRect((start + runStart) * textWidth + left, yPixel,
+                    (i - runStart) * textWidth, textHeight);
+                runStart = i;
+            }
+        }
+
+        // Draw the text, one drawChars() per color and underline.
+        runStart = -1;
+        for (int i = 0; i <= n; i++) {
+            boolean visible = false;
+            Cell cell = null;
+            if (i < n) {
+                cell = logical[start + i][y];
+                visible = !cell.isBlink() || cursorBlinkVisible;
+            }
+            if ((runStart != -1)
+                && (!visible
+                    || !runForeColors[i].equals(runForeColors[runStart])
+                    || (cell.isUnderline()
+                        != logical[start + runStart][y].isUnderline()))
+            ) {
+                int xPixel = (start + runStart) * textWidth + left;
+                gr.setColor(runForeColors[runStart]);
+                gr.drawChars(runChars, runStart, i - runStart,
+                    xPixel + textAdjustX,
+                    yPixel + textHeight - maxDescent + textAdjustY);
+                if (logical[start + runStart][y].isUnderline()) {
+                    gr.fillRect(xPixel, yPixel + textHeight - 2,
+                        (i - runStart) * textWidth, 2);
+                }
+                runStart = -1;
+            }
+            if (visible && (runStart == -1)) {
+                runStart = i;
+            }
+        }
+    }
+
     /**
      * Draw one glyph to the screen.
      *
@@ -1473,12 +1786,10 @@ public class SwingTerminal extends LogicalScreen
             " " + cell);
          */
 
-        BufferedImage image = null;
-        if (cell.isBlink() && !cursorBlinkVisible) {
-            image = glyphCacheBlink.get(cell);
-        } else {
-            image = glyphCache.get(cell);
-        }
+        GlyphCache glyphCache = GlyphCache.getInstance();
+        int fontId = getGlyphFontId();
+        BufferedImage image = glyphCache.get(fontId, cell,
+            cursorBlinkVisible);
         if (image != null) {
             if (swing.getFrame() != null) {
                 gr.drawImage(image, xPixel, yPixel, swing.getFrame());
@@ -1509,12 +1820,7 @@ public class SwingTerminal extends LogicalScreen
             }
 
             if (cell.isCacheable()) {
-                Cell key = new Cell(cell);
-                if (cell.isBlink() && !cursorBlinkVisible) {
-                    glyphCacheBlink.put(key, newImage);
-                } else {
-                    glyphCache.put(key, newImage);
-                }
+                glyphCache.put(fontId, cell, cursorBlinkVisible, newImage);
             }
 
             return;
@@ -1577,17 +1883,8 @@ public class SwingTerminal extends LogicalScreen
         if ((SwingComponent.tripleBuffer) && (swing.getFrame() != null)) {
             gr2.dispose();
 
-            if (!cell.isImage()) {
-                // We need a new key that will not be mutated by
-                // invertCell().
-                if (cell.isCacheable()) {
-                    Cell key = new Cell(cell);
-                    if (cell.isBlink() && !cursorBlinkVisible) {
-                        glyphCacheBlink.put(key, image);
-                    } else {
-                        glyphCache.put(key, image);
-                    }
-                }
+            if (!cell.isImage() && cell.isCacheable()) {
+                glyphCache.put(fontId, cell, cursorBlinkVisible, image);
             }
 
             if (swing.getFrame() != null) {
@@ -1726,37 +2023,9 @@ public class SwingTerminal extends LogicalScreen
                  bounds, xCellMin, xCellMax, yCellMin, yCellMax);
              */
 
+            boolean all = reallyCleared || (swing.getFrame() == null);
             for (int y = yCellMin; y < yCellMax; y++) {
-                for (int x = xCellMin; x < xCellMax; x++) {
-
-                    int xPixel = x * textWidth + left;
-                    int yPixel = y * textHeight + top;
-
-                    Cell lCell = logical[x][y];
-                    Cell pCell = physical[x][y];
-
-                    if (!lCell.equals(pCell)
-                        || lCell.isBlink()
-                        || lCell.isPulse()
-                        || reallyCleared
-                        || (swing.getFrame() == null)) {
-
-                        if (lCell.isImage()) {
-                            if (imagesOverText) {
-                                if (lCell.isTransparentImage()) {
-                                    // Draw the glyph underneath the image.
-                                    drawGlyph(gr, lCell, xPixel, yPixel);
-                                }
-                            }
-                            drawImage(gr, lCell, xPixel, yPixel);
-                        } else {
-                            drawGlyph(gr, lCell, xPixel, yPixel);
-                        }
-
-                        // Physical is always updated
-                        physical[x][y].setTo(lCell);
-                    }
-                }
+                drawRow(gr, y, xCellMin, xCellMax, all);
             }
             drawCursor(gr);
 
@@ -1807,34 +2076,7 @@ public class SwingTerminal extends LogicalScreen
 
             synchronized (this) {
                 for (int y = 0; y < height; y++) {
-                    for (int x = 0; x < width; x++) {
-                        Cell lCell = logical[x][y];
-                        Cell pCell = physical[x][y];
-
-                        int xPixel = x * textWidth + left;
-                        int yPixel = y * textHeight + top;
-
-                        if (!lCell.equals(pCell)
-                            || ((x == cursorX)
-                                && (y == cursorY)
-                                && cursorVisible)
-                            || lCell.isBlink()
-                            || lCell.isPulse()
-                        ) {
-                            if (lCell.isImage()) {
-                                if (imagesOverText) {
-                                    if (lCell.isTransparentImage()) {
-                                        // Draw the glyph underneath the image.
-                                        drawGlyph(gr, lCell, xPixel, yPixel);
-                                    }
-                                }
-                                drawImage(gr, lCell, xPixel, yPixel);
-                            } else {
-                                drawGlyph(gr, lCell, xPixel, yPixel);
-                            }
-                            physical[x][y].setTo(lCell);
-                        }
-                    }
+                    drawRow(gr, y, 0, width, false);
                 }
                 drawCursor(gr);
             } // synchronized (this)
@@ -217,6 +217,18 @@ public class TTYSessionInfo implements SessionInfo {
     // TTYSessionInfo ---------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+     * Set the text window size, for when it was learned some other way
+     * than stty, e.g. by asking the terminal.
+     *
+     * @param width the window width
+     * @param height the window height
+     */
+    public void setWindowSize(final int width, final int height) {
+        windowWidth = width;
+        windowHeight = height;
+    }
+
     /**
      * Call 'stty size' to obtain the tty window size.  windowWidth and
      * windowHeight are set automatically.
@@ -38,6 +38,7 @@ import jexer.event.TCommandEvent;
 import jexer.event.TInputEvent;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
+import jexer.event.TPasteEvent;
 import jexer.event.TResizeEvent;
 import static jexer.TCommand.*;
 
@@ -392,6 +393,21 @@ public class TWindowBackend extends TWindow implements Backend {
         }
     }
 
+    /**
+     * Handle pasted text.
+     *
+     * @param paste paste event
+     */
+    @Override
+    public void onPaste(final TPasteEvent paste) {
+        synchronized (eventQueue) {
+            eventQueue.add(paste);
+        }
+        synchronized (listener) {
+            listener.notifyAll();
+        }
+    }
+
     // ------------------------------------------------------------------------
     // TWindow ----------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -94,10 +94,10 @@ public class Cell extends CellAttributes {
     private BufferedImage invertedImage = null;
 
     /**
-     * hashCode() needs to call makeImageHashCode(), which can get quite
-     * expensive.
+     * The ImageStore ID of image, or 0 if there is no image.  Cells with
+     * the same content ID have identical image pixels.
      */
-    private int imageHashCode = 0;
+    private long imageContentId = 0;
 
     /**
      * If this cell has image data, whether or not it also has transparent
@@ -176,14 +176,27 @@ public class Cell extends CellAttributes {
     // ------------------------------------------------------------------------
 
     /**
-     * Set the image data for this cell.
+     * Set the image data for this cell.  The image is interned in the
+     * ImageStore: if another image with identical pixels is already in
+     * use, this cell uses that instance instead.  Images are shared between
+     * cells this way, so an image must not be drawn on after it is set;
+     * use getImage(true) to get a copy that can be changed.
      *
      * @param image the image for this cell
      */
     public void setImage(final BufferedImage image) {
-        this.image = image;
-        imageHashCode = 0;
-        hasTransparentPixels = 0;
+        if (image == null) {
+            this.image = null;
+            imageContentId = 0;
+            hasTransparentPixels = -1;
+        } else {
+            ImageStore store = ImageStore.getInstance();
+            synchronized (store) {
+                this.image = store.intern(image);
+                imageContentId = store.getId(this.image);
+            }
+            hasTransparentPixels = 0;
+        }
         width = Width.SINGLE;
         this.imageId = 0;
     }
@@ -261,6 +274,17 @@ public class Cell extends CellAttributes {
         return imageId;
     }
 
+    /**
+     * Get the content ID of the image.  The ID is assigned when the image
+     * is set and carried along when this cell is copied, so comparing two
+     * image cells is O(1).
+     *
+     * @return the ID, or 0 if this cell has no image
+     */
+    public long getImageContentId() {
+        return imageContentId;
+    }
+
     /**
      * "Mix" the imageId of another Cell into this cell.  When two cells both
      * have imageId's set, the mixture of them should be a deterministic
@@ -584,7 +608,7 @@ public class Cell extends CellAttributes {
         ch = ' ';
         width = Width.SINGLE;
         image = null;
-        imageHashCode = 0;
+        imageContentId = 0;
         invertedImage = null;
         imageId = 0;
         hasTransparentPixels = -1;
@@ -599,7 +623,7 @@ public class Cell extends CellAttributes {
         ch = UNSET_VALUE;
         width = Width.SINGLE;
         image = null;
-        imageHashCode = 0;
+        imageContentId = 0;
         invertedImage = null;
         imageId = 0;
         hasTransparentPixels = -1;
@@ -712,10 +736,7 @@ public class Cell extends CellAttributes {
             if ((imageId != 0) && (that.imageId != 0)) {
                 return (imageId == that.imageId);
             }
-            if ((imageHashCode != 0) && (that.imageHashCode != 0)) {
-                return (imageHashCode == that.imageHashCode);
-            }
-            return compareCellImages(this, that);
+            return (getImageContentId() == that.getImageContentId());
         }
 
         // Normal case: character and attributes must match.
@@ -725,73 +746,6 @@ public class Cell extends CellAttributes {
         return false;
     }
 
-    /**
-     * Make a hashcode based on the data in image.  This is needed because
-     * two visibly identical BufferedImage's can return different hash codes,
-     * which breaks caching.  And we really really need caching here.
-     */
-    private int makeImageHashCode() {
-        if (image == null) {
-            return 0;
-        }
-        return java.util.Arrays.hashCode(image.getRGB(0, 0,
-                image.getWidth(), image.getHeight(), null, 0,
-                image.getWidth()));
-    }
-
-    /**
-     * Compare two Cell's images for equality.  If the images are equal, then
-     * the imageHashCode on both is set.
-     *
-     * @param first the first Cell
-     * @param second the second Cell
-     */
-    private boolean compareCellImages(final Cell first,
-        final Cell second) {
-
-        assert (first.image != null);
-        assert (second.image != null);
-
-        int width = first.image.getWidth();
-        int height = first.image.getHeight();
-        if (width != second.image.getWidth()) {
-            return false;
-        }
-        if (height != second.image.getHeight()) {
-            return false;
-        }
-
-        assert (first != null);
-        assert (first.image != null);
-        assert (first.image.getWidth() == second.image.getWidth());
-        assert (first.image.getHeight() == second.image.getHeight());
-        int [] firstRgbArray = first.image.getRGB(0, 0, width, height,
-            null, 0, width);
-        assert (second != null);
-        assert (second.image != null);
-        int [] secondRgbArray = second.image.getRGB(0, 0, width, height,
-            null, 0, width);
-
-        // This should be impossible, but check anyway.
-        if (firstRgbArray.length != secondRgbArray.length) {
-            return false;
-        }
-
-        int hashCode = 1;
-        for (int i = 0; i < firstRgbArray.length; i++) {
-            if (firstRgbArray[i] != secondRgbArray[i]) {
-                return false;
-            }
-
-            // Integer.hashCode() was introduced in Java 1.8.  It breaks the
-            // original Jexer 1.0 dev goal for Java 1.6 compatibility.
-            hashCode = 31 * hashCode + Integer.hashCode(firstRgbArray[i]);
-        }
-        first.imageHashCode = hashCode;
-        second.imageHashCode = hashCode;
-        return true;
-    }
-
     /**
      * Hashcode uses all fields in equals().
      *
@@ -806,15 +760,14 @@ public class Cell extends CellAttributes {
         hash = (B * hash) + ch;
         hash = (B * hash) + width.hashCode();
         if (image != null) {
-            if (imageHashCode == 0) {
-                // Lazy-load hash code.
-                imageHashCode = makeImageHashCode();
-            }
-            hash = (B * hash) + imageHashCode;
+            long contentId = getImageContentId();
+            hash = (B * hash) + (int) (contentId ^ (contentId >>> 32));
             hash = (B * hash) + imageId;
         }
         if (invertedImage != null) {
-            hash = (B * hash) + invertedImage.hashCode();
+            // The inverted image is derived from image, so it only
+            // matters whether it is present.
+            hash = (B * hash) + 1;
         }
         return hash;
     }
@@ -832,12 +785,12 @@ public class Cell extends CellAttributes {
             this.width = that.width;
             this.image = that.image;
             this.invertedImage = that.invertedImage;
-            this.imageHashCode = that.imageHashCode;
+            this.imageContentId = that.imageContentId;
             this.imageId = that.imageId;
             this.hasTransparentPixels = that.hasTransparentPixels;
         } else {
             this.image = null;
-            this.imageHashCode = 0;
+            this.imageContentId = 0;
             this.imageId = 0;
             this.hasTransparentPixels = -1;
             this.width = Width.SINGLE;
@@ -854,7 +807,7 @@ public class Cell extends CellAttributes {
      */
     public void setAttr(final CellAttributes that) {
         image = null;
-        imageHashCode = 0;
+        imageContentId = 0;
         imageId = 0;
         hasTransparentPixels = -1;
         super.setTo(that);
@@ -869,7 +822,7 @@ public class Cell extends CellAttributes {
     public void setAttr(final CellAttributes that, final boolean keepImage) {
         if (!keepImage) {
             image = null;
-            imageHashCode = 0;
+            imageContentId = 0;
             imageId = 0;
             hasTransparentPixels = -1;
         }
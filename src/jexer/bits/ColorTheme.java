@@ -34,26 +34,577 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.WeakHashMap;
 
 /**
  * ColorTheme is a collection of colors keyed by string.  A default theme is
  * also provided that matches the blue-and-white theme used by Turbo Vision.
+ *
+ * Color names can also be resolved once to integer slots with getSlot().
+ * The names of the default theme have slot constants below.  getColor(int)
+ * is then an array lookup.  A change to the theme builds a new map and slot
+ * array on the side, and publishes both in one assignment, so readers never
+ * see a half-loaded theme.
  */
 public class ColorTheme {
 
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    // twindow
+    /**
+     * Theme color slot for "twindow.border".
+     */
+    public static final int TWINDOW_BORDER = getSlot("twindow.border");
+
+    /**
+     * Theme color slot for "twindow.background".
+     */
+    public static final int TWINDOW_BACKGROUND = getSlot("twindow.background");
+
+    /**
+     * Theme color slot for "twindow.border.inactive".
+     */
+    public static final int TWINDOW_BORDER_INACTIVE =
+        getSlot("twindow.border.inactive");
+
+    /**
+     * Theme color slot for "twindow.background.inactive".
+     */
+    public static final int TWINDOW_BACKGROUND_INACTIVE =
+        getSlot("twindow.background.inactive");
+
+    /**
+     * Theme color slot for "twindow.border.modal".
+     */
+    public static final int TWINDOW_BORDER_MODAL =
+        getSlot("twindow.border.modal");
+
+    /**
+     * Theme color slot for "twindow.background.modal".
+     */
+    public static final int TWINDOW_BACKGROUND_MODAL =
+        getSlot("twindow.background.modal");
+
+    /**
+     * Theme color slot for "twindow.border.modal.inactive".
+     */
+    public static final int TWINDOW_BORDER_MODAL_INACTIVE =
+        getSlot("twindow.border.modal.inactive");
+
+    /**
+     * Theme color slot for "twindow.background.modal.inactive".
+     */
+    public static final int TWINDOW_BACKGROUND_MODAL_INACTIVE =
+        getSlot("twindow.background.modal.inactive");
+
+    /**
+     * Theme color slot for "twindow.border.modal.windowmove".
+     */
+    public static final int TWINDOW_BORDER_MODAL_WINDOWMOVE =
+        getSlot("twindow.border.modal.windowmove");
+
+    /**
+     * Theme color slot for "twindow.border.windowmove".
+     */
+    public static final int TWINDOW_BORDER_WINDOWMOVE =
+        getSlot("twindow.border.windowmove");
+
+    /**
+     * Theme color slot for "twindow.background.windowmove".
+     */
+    public static final int TWINDOW_BACKGROUND_WINDOWMOVE =
+        getSlot("twindow.background.windowmove");
+
+    // tdesktop
+    /**
+     * Theme color slot for "tdesktop.background".
+     */
+    public static final int TDESKTOP_BACKGROUND =
+        getSlot("tdesktop.background");
+
+    // tbutton
+    /**
+     * Theme color slot for "tbutton.inactive".
+     */
+    public static final int TBUTTON_INACTIVE = getSlot("tbutton.inactive");
+
+    /**
+     * Theme color slot for "tbutton.active".
+     */
+    public static final int TBUTTON_ACTIVE = getSlot("tbutton.active");
+
+    /**
+     * Theme color slot for "tbutton.disabled".
+     */
+    public static final int TBUTTON_DISABLED = getSlot("tbutton.disabled");
+
+    /**
+     * Theme color slot for "tbutton.mnemonic".
+     */
+    public static final int TBUTTON_MNEMONIC = getSlot("tbutton.mnemonic");
+
+    /**
+     * Theme color slot for "tbutton.mnemonic.highlighted".
+     */
+    public static final int TBUTTON_MNEMONIC_HIGHLIGHTED =
+        getSlot("tbutton.mnemonic.highlighted");
+
+    /**
+     * Theme color slot for "tbutton.mnemonic.pulse".
+     */
+    public static final int TBUTTON_MNEMONIC_PULSE =
+        getSlot("tbutton.mnemonic.pulse");
+
+    /**
+     * Theme color slot for "tbutton.pulse".
+     */
+    public static final int TBUTTON_PULSE = getSlot("tbutton.pulse");
+
+    // tlabel
+    /**
+     * Theme color slot for "tlabel".
+     */
+    public static final int TLABEL = getSlot("tlabel");
+
+    /**
+     * Theme color slot for "tlabel.mnemonic".
+     */
+    public static final int TLABEL_MNEMONIC = getSlot("tlabel.mnemonic");
+
+    // ttext
+    /**
+     * Theme color slot for "ttext".
+     */
+    public static final int TTEXT = getSlot("ttext");
+
+    // tfield
+    /**
+     * Theme color slot for "tfield.inactive".
+     */
+    public static final int TFIELD_INACTIVE = getSlot("tfield.inactive");
+
+    /**
+     * Theme color slot for "tfield.active".
+     */
+    public static final int TFIELD_ACTIVE = getSlot("tfield.active");
+
+    /**
+     * Theme color slot for "tfield.pulse".
+     */
+    public static final int TFIELD_PULSE = getSlot("tfield.pulse");
+
+    // tcheckbox
+    /**
+     * Theme color slot for "tcheckbox.inactive".
+     */
+    public static final int TCHECKBOX_INACTIVE = getSlot("tcheckbox.inactive");
+
+    /**
+     * Theme color slot for "tcheckbox.active".
+     */
+    public static final int TCHECKBOX_ACTIVE = getSlot("tcheckbox.active");
+
+    /**
+     * Theme color slot for "tcheckbox.mnemonic".
+     */
+    public static final int TCHECKBOX_MNEMONIC = getSlot("tcheckbox.mnemonic");
+
+    /**
+     * Theme color slot for "tcheckbox.mnemonic.highlighted".
+     */
+    public static final int TCHECKBOX_MNEMONIC_HIGHLIGHTED =
+        getSlot("tcheckbox.mnemonic.highlighted");
+
+    /**
+     * Theme color slot for "tcheckbox.pulse".
+     */
+    public static final int TCHECKBOX_PULSE = getSlot("tcheckbox.pulse");
+
+    // tcombobox
+    /**
+     * Theme color slot for "tcombobox.inactive".
+     */
+    public static final int TCOMBOBOX_INACTIVE = getSlot("tcombobox.inactive");
+
+    /**
+     * Theme color slot for "tcombobox.active".
+     */
+    public static final int TCOMBOBOX_ACTIVE = getSlot("tcombobox.active");
+
+    // tspinner
+    /**
+     * Theme color slot for "tspinner.inactive".
+     */
+    public static final int TSPINNER_INACTIVE = getSlot("tspinner.inactive");
+
+    /**
+     * Theme color slot for "tspinner.active".
+     */
+    public static final int TSPINNER_ACTIVE = getSlot("tspinner.active");
+
+    // tcalendar
+    /**
+     * Theme color slot for "tcalendar.background".
+     */
+    public static final int TCALENDAR_BACKGROUND =
+        getSlot("tcalendar.background");
+
+    /**
+     * Theme color slot for "tcalendar.day".
+     */
+    public static final int TCALENDAR_DAY = getSlot("tcalendar.day");
+
+    /**
+     * Theme color slot for "tcalendar.day.selected".
+     */
+    public static final int TCALENDAR_DAY_SELECTED =
+        getSlot("tcalendar.day.selected");
+
+    /**
+     * Theme color slot for "tcalendar.arrow".
+     */
+    public static final int TCALENDAR_ARROW = getSlot("tcalendar.arrow");
+
+    /**
+     * Theme color slot for "tcalendar.title".
+     */
+    public static final int TCALENDAR_TITLE = getSlot("tcalendar.title");
+
+    // tradiobutton
+    /**
+     * Theme color slot for "tradiobutton.inactive".
+     */
+    public static final int TRADIOBUTTON_INACTIVE =
+        getSlot("tradiobutton.inactive");
+
+    /**
+     * Theme color slot for "tradiobutton.active".
+     */
+    public static final int TRADIOBUTTON_ACTIVE =
+        getSlot("tradiobutton.active");
+
+    /**
+     * Theme color slot for "tradiobutton.mnemonic".
+     */
+    public static final int TRADIOBUTTON_MNEMONIC =
+        getSlot("tradiobutton.mnemonic");
+
+    /**
+     * Theme color slot for "tradiobutton.mnemonic.highlighted".
+     */
+    public static final int TRADIOBUTTON_MNEMONIC_HIGHLIGHTED =
+        getSlot("tradiobutton.mnemonic.highlighted");
+
+    /**
+     * Theme color slot for "tradiobutton.pulse".
+     */
+    public static final int TRADIOBUTTON_PULSE = getSlot("tradiobutton.pulse");
+
+    // tradiogroup
+    /**
+     * Theme color slot for "tradiogroup.inactive".
+     */
+    public static final int TRADIOGROUP_INACTIVE =
+        getSlot("tradiogroup.inactive");
+
+    /**
+     * Theme color slot for "tradiogroup.active".
+     */
+    public static final int TRADIOGROUP_ACTIVE = getSlot("tradiogroup.active");
+
+    // tmenu
+    /**
+     * Theme color slot for "tmenu".
+     */
+    public static final int TMENU = getSlot("tmenu");
+
+    /**
+     * Theme color slot for "tmenu.highlighted".
+     */
+    public static final int TMENU_HIGHLIGHTED = getSlot("tmenu.highlighted");
+
+    /**
+     * Theme color slot for "tmenu.mnemonic".
+     */
+    public static final int TMENU_MNEMONIC = getSlot("tmenu.mnemonic");
+
+    /**
+     * Theme color slot for "tmenu.mnemonic.highlighted".
+     */
+    public static final int TMENU_MNEMONIC_HIGHLIGHTED =
+        getSlot("tmenu.mnemonic.highlighted");
+
+    /**
+     * Theme color slot for "tmenu.disabled".
+     */
+    public static final int TMENU_DISABLED = getSlot("tmenu.disabled");
+
+    // tprogressbar
+    /**
+     * Theme color slot for "tprogressbar.complete".
+     */
+    public static final int TPROGRESSBAR_COMPLETE =
+        getSlot("tprogressbar.complete");
+
+    /**
+     * Theme color slot for "tprogressbar.incomplete".
+     */
+    public static final int TPROGRESSBAR_INCOMPLETE =
+        getSlot("tprogressbar.incomplete");
+
+    // tscroller
+    /**
+     * Theme color slot for "tscroller.bar".
+     */
+    public static final int TSCROLLER_BAR = getSlot("tscroller.bar");
+
+    /**
+     * Theme color slot for "tscroller.arrows".
+     */
+    public static final int TSCROLLER_ARROWS = getSlot("tscroller.arrows");
+
+    // ttreeview
+    /**
+     * Theme color slot for "ttreeview".
+     */
+    public static final int TTREEVIEW = getSlot("ttreeview");
+
+    /**
+     * Theme color slot for "ttreeview.expandbutton".
+     */
+    public static final int TTREEVIEW_EXPANDBUTTON =
+        getSlot("ttreeview.expandbutton");
+
+    /**
+     * Theme color slot for "ttreeview.selected".
+     */
+    public static final int TTREEVIEW_SELECTED = getSlot("ttreeview.selected");
+
+    /**
+     * Theme color slot for "ttreeview.unreadable".
+     */
+    public static final int TTREEVIEW_UNREADABLE =
+        getSlot("ttreeview.unreadable");
+
+    /**
+     * Theme color slot for "ttreeview.inactive".
+     */
+    public static final int TTREEVIEW_INACTIVE = getSlot("ttreeview.inactive");
+
+    /**
+     * Theme color slot for "ttreeview.selected.inactive".
+     */
+    public static final int TTREEVIEW_SELECTED_INACTIVE =
+        getSlot("ttreeview.selected.inactive");
+
+    // tlist
+    /**
+     * Theme color slot for "tlist".
+     */
+    public static final int TLIST = getSlot("tlist");
+
+    /**
+     * Theme color slot for "tlist.selected".
+     */
+    public static final int TLIST_SELECTED = getSlot("tlist.selected");
+
+    /**
+     * Theme color slot for "tlist.unreadable".
+     */
+    public static final int TLIST_UNREADABLE = getSlot("tlist.unreadable");
+
+    /**
+     * Theme color slot for "tlist.inactive".
+     */
+    public static final int TLIST_INACTIVE = getSlot("tlist.inactive");
+
+    /**
+     * Theme color slot for "tlist.selected.inactive".
+     */
+    public static final int TLIST_SELECTED_INACTIVE =
+        getSlot("tlist.selected.inactive");
+
+    // tstatusbar
+    /**
+     * Theme color slot for "tstatusbar.text".
+     */
+    public static final int TSTATUSBAR_TEXT = getSlot("tstatusbar.text");
+
+    /**
+     * Theme color slot for "tstatusbar.button".
+     */
+    public static final int TSTATUSBAR_BUTTON = getSlot("tstatusbar.button");
+
+    /**
+     * Theme color slot for "tstatusbar.selected".
+     */
+    public static final int TSTATUSBAR_SELECTED =
+        getSlot("tstatusbar.selected");
+
+    // teditor
+    /**
+     * Theme color slot for "teditor".
+     */
+    public static final int TEDITOR = getSlot("teditor");
+
+    /**
+     * Theme color slot for "teditor.selected".
+     */
+    public static final int TEDITOR_SELECTED = getSlot("teditor.selected");
+
+    /**
+     * Theme color slot for "teditor.margin".
+     */
+    public static final int TEDITOR_MARGIN = getSlot("teditor.margin");
+
+    // ttable
+    /**
+     * Theme color slot for "ttable.inactive".
+     */
+    public static final int TTABLE_INACTIVE = getSlot("ttable.inactive");
+
+    /**
+     * Theme color slot for "ttable.active".
+     */
+    public static final int TTABLE_ACTIVE = getSlot("ttable.active");
+
+    /**
+     * Theme color slot for "ttable.selected".
+     */
+    public static final int TTABLE_SELECTED = getSlot("ttable.selected");
+
+    /**
+     * Theme color slot for "ttable.label".
+     */
+    public static final int TTABLE_LABEL = getSlot("ttable.label");
+
+    /**
+     * Theme color slot for "ttable.label.selected".
+     */
+    public static final int TTABLE_LABEL_SELECTED =
+        getSlot("ttable.label.selected");
+
+    /**
+     * Theme color slot for "ttable.border".
+     */
+    public static final int TTABLE_BORDER = getSlot("ttable.border");
+
+    // tsplitpane
+    /**
+     * Theme color slot for "tsplitpane".
+     */
+    public static final int TSPLITPANE = getSlot("tsplitpane");
+
+    // thelpwindow
+    /**
+     * Theme color slot for "thelpwindow.windowmove".
+     */
+    public static final int THELPWINDOW_WINDOWMOVE =
+        getSlot("thelpwindow.windowmove");
+
+    /**
+     * Theme color slot for "thelpwindow.border".
+     */
+    public static final int THELPWINDOW_BORDER = getSlot("thelpwindow.border");
+
+    /**
+     * Theme color slot for "thelpwindow.background".
+     */
+    public static final int THELPWINDOW_BACKGROUND =
+        getSlot("thelpwindow.background");
+
+    /**
+     * Theme color slot for "thelpwindow.text".
+     */
+    public static final int THELPWINDOW_TEXT = getSlot("thelpwindow.text");
+
+    /**
+     * Theme color slot for "thelpwindow.link".
+     */
+    public static final int THELPWINDOW_LINK = getSlot("thelpwindow.link");
+
+    /**
+     * Theme color slot for "thelpwindow.link.active".
+     */
+    public static final int THELPWINDOW_LINK_ACTIVE =
+        getSlot("thelpwindow.link.active");
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+     * The registry of slot numbers, shared by all themes.  This is a nested
+     * class so that it is ready before the slot constants above are
+     * assigned.
+     */
+    private static class Registry {
+
+        /**
+         * The slot numbers of all color names that have been registered.
+         */
+        private static HashMap<String, Integer> slotNumbers;
+
+        /**
+         * The color names of all registered slots, indexed by slot number.
+         */
+        private static ArrayList<String> slotNames;
+
+        /**
+         * The themes that need a new slot array when a slot is registered.
+         */
+        private static WeakHashMap<ColorTheme, Boolean> themes;
+
+        static {
+            slotNumbers = new HashMap<String, Integer>();
+            slotNames = new ArrayList<String>();
+            themes = new WeakHashMap<ColorTheme, Boolean>();
+        }
+    }
+
+    /**
+     * Palette is one published version of a theme: the colors by name, and
+     * the same colors by slot number.  It is never changed once published.
+     */
+    private static class Palette {
+
+        /**
+         * The colors by name.
+         */
+        private final SortedMap<String, CellAttributes> colors;
+
+        /**
+         * The colors by slot number.
+         */
+        private final CellAttributes [] slots;
+
+        /**
+         * Public constructor.
+         *
+         * @param colors the colors by name
+         * @param slots the colors by slot number
+         */
+        public Palette(final SortedMap<String, CellAttributes> colors,
+            final CellAttributes [] slots) {
+
+            this.colors = Collections.unmodifiableSortedMap(colors);
+            this.slots = slots;
+        }
+    }
+
     /**
      * The current theme colors.
      */
-    private SortedMap<String, CellAttributes> colors;
+    private volatile Palette palette = new Palette(
+        new TreeMap<String, CellAttributes>(), new CellAttributes[0]);
 
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
@@ -63,7 +614,9 @@ public class ColorTheme {
      * Public constructor sets the theme to the default.
      */
     public ColorTheme() {
-        colors = new TreeMap<String, CellAttributes>();
+        synchronized (Registry.slotNumbers) {
+            Registry.themes.put(this, Boolean.TRUE);
+        }
         setDefaultTheme();
     }
 
@@ -71,6 +624,84 @@ public class ColorTheme {
     // ColorTheme -------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+     * Get the slot number for a theme color name, registering it if this is
+     * the first time it has been seen.
+     *
+     * @param name theme color name, e.g. "twindow.border"
+     * @return the slot number, which is the same for every ColorTheme
+     */
+    public static int getSlot(final String name) {
+        int slot;
+        List<ColorTheme> themes;
+        synchronized (Registry.slotNumbers) {
+            Integer number = Registry.slotNumbers.get(name);
+            if (number != null) {
+                return number;
+            }
+            slot = Registry.slotNames.size();
+            Registry.slotNumbers.put(name, slot);
+            Registry.slotNames.add(name);
+            themes = new ArrayList<ColorTheme>(Registry.themes.keySet());
+        }
+        // Give the existing themes a slot array that covers the new slot.
+        for (ColorTheme theme: themes) {
+            theme.republish();
+        }
+        return slot;
+    }
+
+    /**
+     * Get the theme color name for a slot number.
+     *
+     * @param slot the slot number
+     * @return theme color name, e.g. "twindow.border"
+     */
+    public static String getSlotName(final int slot) {
+        synchronized (Registry.slotNumbers) {
+            return Registry.slotNames.get(slot);
+        }
+    }
+
+    /**
+     * Get a copy of the current colors that can be changed and then passed
+     * to publish().
+     *
+     * @return a new map
+     */
+    private TreeMap<String, CellAttributes> editColors() {
+        return new TreeMap<String, CellAttributes>(palette.colors);
+    }
+
+    /**
+     * Build the slot array for a new set of colors, and make both current
+     * in one assignment.  The map must not be changed after this.
+     *
+     * @param colors the new colors
+     */
+    private synchronized void publish(
+        final SortedMap<String, CellAttributes> colors) {
+
+        String [] names;
+        synchronized (Registry.slotNumbers) {
+            names = Registry.slotNames.toArray(
+                new String[Registry.slotNames.size()]);
+        }
+        CellAttributes [] slots = new CellAttributes[names.length];
+        for (int i = 0; i < names.length; i++) {
+            slots[i] = colors.get(names[i]);
+        }
+        palette = new Palette(colors, slots);
+    }
+
+    /**
+     * Publish the current colors again, with a slot array that covers
+     * every registered slot.
+     */
+    private synchronized void republish() {
+        publish(new TreeMap<String, CellAttributes>(palette.colors));
+    }
+
     /**
      * Retrieve the CellAttributes for a named theme color.
      *
@@ -78,20 +709,34 @@ public class ColorTheme {
      * @return color associated with name, e.g. bold yellow on blue
      */
     public CellAttributes getColor(final String name) {
-        CellAttributes attr = colors.get(name);
+        CellAttributes attr = palette.colors.get(name);
         return attr;
     }
 
+    /**
+     * Retrieve the CellAttributes for a theme color slot.
+     *
+     * @param slot the slot number from getSlot()
+     * @return color associated with the slot's name, e.g. bold yellow on
+     * blue
+     */
+    public CellAttributes getColor(final int slot) {
+        Palette current = palette;
+        if (slot < current.slots.length) {
+            return current.slots[slot];
+        }
+        // This slot is being registered right now, and its new slot array
+        // is not out yet.
+        return current.colors.get(getSlotName(slot));
+    }
+
     /**
      * Retrieve all the names in the theme.
      *
      * @return a list of names
      */
     public List<String> getColorNames() {
-        Set<String> keys = colors.keySet();
-        List<String> names = new ArrayList<String>(keys.size());
-        names.addAll(keys);
-        return names;
+        return new ArrayList<String>(palette.colors.keySet());
     }
 
     /**
@@ -101,8 +746,12 @@ public class ColorTheme {
      * @param color the new color to associate with name, e.g. bold yellow on
      * blue
      */
-    public void setColor(final String name, final CellAttributes color) {
+    public synchronized void setColor(final String name,
+        final CellAttributes color) {
+
+        TreeMap<String, CellAttributes> colors = editColors();
         colors.put(name, color);
+        publish(colors);
     }
 
     /**
@@ -113,8 +762,9 @@ public class ColorTheme {
      */
     public void save(final String filename) throws IOException {
         FileWriter file = new FileWriter(filename);
+        SortedMap<String, CellAttributes> colors = palette.colors;
         for (String key: colors.keySet()) {
-            CellAttributes color = getColor(key);
+            CellAttributes color = colors.get(key);
             file.write(String.format("%s = %s\n", key, color));
         }
         file.close();
@@ -137,7 +787,25 @@ public class ColorTheme {
      * @param key the color key string
      * @param text the text string
      */
-    public void setColorFromString(final String key, final String text) {
+    public synchronized void setColorFromString(final String key,
+        final String text) {
+
+        CellAttributes color = parseColor(text);
+        if (color != null) {
+            TreeMap<String, CellAttributes> colors = editColors();
+            colors.put(key, color);
+            publish(colors);
+        }
+    }
+
+    /**
+     * Convert a text string to a color.  Color text string is of the form:
+     * <code>[ bold ] [ blink ] { foreground on background }</code>
+     *
+     * @param text the text string
+     * @return the color, or null if the string is invalid
+     */
+    private CellAttributes parseColor(final String text) {
         boolean bold = false;
         boolean blink = false;
         String foreColor;
@@ -164,7 +832,7 @@ public class ColorTheme {
             // "on"
             if (!tokenizer.nextToken().toLowerCase().equals("on")) {
                 // Invalid line.
-                return;
+                return null;
             }
 
             // Background
@@ -182,8 +850,7 @@ public class ColorTheme {
             CellAttributes color = new CellAttributes();
             color.setForeColorRGB(foreColorRGB);
             color.setBackColorRGB(backColorRGB);
-            colors.put(key, color);
-            return;
+            return color;
         }
 
         while (token.equals("bold")
@@ -205,7 +872,7 @@ public class ColorTheme {
 
         if (!tokenizer.nextToken().toLowerCase().equals("on")) {
             // Invalid line.
-            return;
+            return null;
         }
         backColor = tokenizer.nextToken().toLowerCase();
 
@@ -218,7 +885,7 @@ public class ColorTheme {
         }
         color.setForeColor(Color.getColor(foreColor));
         color.setBackColor(Color.getColor(backColor));
-        colors.put(key, color);
+        return color;
     }
 
     /**
@@ -228,7 +895,8 @@ public class ColorTheme {
      * @param reader the reader to read from
      * @throws IOException if the I/O fails
      */
-    public void load(final Reader reader) throws IOException {
+    public synchronized void load(final Reader reader) throws IOException {
+        TreeMap<String, CellAttributes> colors = editColors();
         BufferedReader bufferedReader = new BufferedReader(reader);
         String line = bufferedReader.readLine();
         for (; line != null; line = bufferedReader.readLine()) {
@@ -244,16 +912,33 @@ public class ColorTheme {
             }
             String key = line.substring(0, line.indexOf('=')).trim();
             String text = line.substring(line.indexOf('=') + 1);
-            setColorFromString(key, text);
+            CellAttributes color = parseColor(text);
+            if (color != null) {
+                colors.put(key, color);
+            }
         }
         // All done.
         bufferedReader.close();
+        publish(colors);
     }
 
     /**
      * Sets to defaults that resemble the Borland IDE colors.
      */
-    public void setDefaultTheme() {
+    public synchronized void setDefaultTheme() {
+        TreeMap<String, CellAttributes> colors = editColors();
+        putDefaultColors(colors);
+        publish(colors);
+    }
+
+    /**
+     * Put the default colors into a map.
+     *
+     * @param colors the map to change
+     */
+    private void putDefaultColors(
+        final SortedMap<String, CellAttributes> colors) {
+
         CellAttributes color;
 
         // TWindow border
@@ -755,20 +1440,22 @@ public class ColorTheme {
         color.setBackColor(Color.CYAN);
         color.setBold(true);
         colors.put("thelpwindow.link.active", color);
-
     }
 
     /**
      * Set the theme to femme.  I love pink.  You can too!  💗
      */
-    public void setFemme() {
-        setDefaultTheme();
+    public synchronized void setFemme() {
+        TreeMap<String, CellAttributes> colors = editColors();
+        putDefaultColors(colors);
         final int pink = 0xf7a8b8;
         final int blue = 0x55cdfc;
         final int pink2 = 0xd77888;
 
         for (String key: colors.keySet()) {
-            CellAttributes color = colors.get(key);
+            // The default colors may be shared between keys, so change a
+            // copy.
+            CellAttributes color = new CellAttributes(colors.get(key));
 
             Color fg = color.getForeColor();
             Color bg = color.getBackColor();
@@ -892,6 +1579,7 @@ public class ColorTheme {
         color.setBold(true);
         colors.put("tcheckbox.active", color);
 
+        publish(colors);
     }
 
     /**
@@ -901,7 +1589,7 @@ public class ColorTheme {
      */
     @Override
     public String toString() {
-        return colors.toString();
+        return palette.colors.toString();
     }
 
 }
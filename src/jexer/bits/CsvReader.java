@@ -0,0 +1,385 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.bits;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * CsvReader parses RFC4180 comma-separated values (CSV) from a UTF-8 file
+ * held in memory.  Records are read one at a time with next(),
+ * which only finds where each field starts and ends; no String is created
+ * until a field is asked for with getField() or decode().  Quoted fields may
+ * contain commas, doubled quotes, and line breaks.  Blank lines are
+ * skipped.
+ *
+ * next() is not thread-safe, but decode() only reads the buffer and
+ * may be called from any thread, including while another thread is calling
+ * next().
+ */
+public class CsvReader {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Parser state: at the first byte of a field.
+     */
+    private static final int FIELD_START = 0;
+
+    /**
+     * Parser state: inside an unquoted field.
+     */
+    private static final int UNQUOTED = 1;
+
+    /**
+     * Parser state: inside a quoted field.
+     */
+    private static final int QUOTED = 2;
+
+    /**
+     * Parser state: saw a quote inside a quoted field.  It is either the
+     * first half of a doubled quote or the end of the quoted part.
+     */
+    private static final int QUOTE = 3;
+
+    /**
+     * The file encoding.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The file contents.  Only absolute get()s are used, so the buffer
+     * position is never changed.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The number of bytes in the file.
+     */
+    private int limit;
+
+    /**
+     * The offset of the next byte to parse.
+     */
+    private int position = 0;
+
+    /**
+     * The offset of the first byte of each field of the current record.
+     */
+    private int [] fieldStarts = new int[16];
+
+    /**
+     * The offset after the last byte of each field of the current record.
+     */
+    private int [] fieldEnds = new int[16];
+
+    /**
+     * The number of fields in the current record.
+     */
+    private int fieldCount = 0;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor reads the whole file into a heap buffer and closes
+     * it.  The file is not memory-mapped, because a mapping keeps the file
+     * pinned until it is garbage collected, and on Windows that prevents
+     * saving over it.
+     *
+     * @param file the CSV file
+     * @throws IOException if a java.io operation throws, or the file is
+     * larger than 2GB
+     */
+    public CsvReader(final File file) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("CSV file " + file + " is larger " +
+                    "than 2GB");
+            }
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    // The file got shorter while reading it.
+                    break;
+                }
+            }
+            buffer = ByteBuffer.wrap(buffer.array(), 0, buffer.position())
+                .slice();
+        } finally {
+            input.close();
+        }
+        limit = buffer.capacity();
+
+        // Skip a UTF-8 byte order mark.
+        if ((limit >= 3)
+            && (buffer.get(0) == (byte) 0xEF)
+            && (buffer.get(1) == (byte) 0xBB)
+            && (buffer.get(2) == (byte) 0xBF)
+        ) {
+            position = 3;
+        }
+    }
+
+    /**
+     * Public constructor reads from a buffer that is already in memory.
+     *
+     * @param buffer the CSV data, from 0 to its capacity
+     */
+    public CsvReader(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        limit = buffer.capacity();
+    }
+
+    // ------------------------------------------------------------------------
+    // CsvReader --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Start a new field in the current record.
+     *
+     * @param start the offset of the first byte of the field
+     */
+    private void startField(final int start) {
+        if (fieldCount == fieldStarts.length) {
+            int [] newStarts = new int[fieldCount * 2];
+            int [] newEnds = new int[fieldCount * 2];
+            System.arraycopy(fieldStarts, 0, newStarts, 0, fieldCount);
+            System.arraycopy(fieldEnds, 0, newEnds, 0, fieldCount);
+            fieldStarts = newStarts;
+            fieldEnds = newEnds;
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = start;
+        fieldCount++;
+    }
+
+    /**
+     * Parse the next record.
+     *
+     * @return false if there are no more records
+     */
+    public boolean next() {
+        fieldCount = 0;
+
+        // Skip blank lines.
+        while ((position < limit)
+            && ((buffer.get(position) == '\n')
+                || (buffer.get(position) == '\r'))
+        ) {
+            position++;
+        }
+        if (position >= limit) {
+            return false;
+        }
+
+        int state = FIELD_START;
+        startField(position);
+        while (position < limit) {
+            byte b = buffer.get(position);
+
+            switch (state) {
+            case FIELD_START:
+                if (b == '"') {
+                    state = QUOTED;
+                    position++;
+                    continue;
+                }
+                state = UNQUOTED;
+                // Look at this byte again as part of an unquoted field.
+                continue;
+
+            case UNQUOTED:
+                if (b == ',') {
+                    fieldEnds[fieldCount - 1] = position;
+                    position++;
+                    startField(position);
+                    state = FIELD_START;
+                    continue;
+                }
+                if ((b == '\n') || (b == '\r')) {
+                    fieldEnds[fieldCount - 1] = position;
+                    position++;
+                    if ((b == '\r')
+                        && (position < limit)
+                        && (buffer.get(position) == '\n')
+                    ) {
+                        position++;
+                    }
+                    return true;
+                }
+                position++;
+                continue;
+
+            case QUOTED:
+                if (b == '"') {
+                    state = QUOTE;
+                }
+                position++;
+                continue;
+
+            case QUOTE:
+                if (b == '"') {
+                    // A doubled quote.
+                    state = QUOTED;
+                    position++;
+                    continue;
+                }
+                // The end of the quoted part.  Anything up to the next
+                // comma is kept as-is.
+                state = UNQUOTED;
+                continue;
+
+            default:
+                throw new IllegalStateException("Invalid state " + state);
+            }
+        }
+
+        // End of file without a line terminator.
+        fieldEnds[fieldCount - 1] = limit;
+        return true;
+    }
+
+    /**
+     * Get the number of fields in the current record.
+     *
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Get the offset of the first byte of a field in the current record.
+     *
+     * @param field the field number
+     * @return the offset
+     */
+    public int getFieldStart(final int field) {
+        if ((field < 0) || (field > fieldCount - 1)) {
+            throw new IndexOutOfBoundsException("Field count is " +
+                fieldCount + ", requested index " + field);
+        }
+        return fieldStarts[field];
+    }
+
+    /**
+     * Get the offset after the last byte of a field in the current record.
+     *
+     * @param field the field number
+     * @return the offset
+     */
+    public int getFieldEnd(final int field) {
+        if ((field < 0) || (field > fieldCount - 1)) {
+            throw new IndexOutOfBoundsException("Field count is " +
+                fieldCount + ", requested index " + field);
+        }
+        return fieldEnds[field];
+    }
+
+    /**
+     * Get the value of a field in the current record.
+     *
+     * @param field the field number
+     * @return the value, with quotes removed
+     */
+    public String getField(final int field) {
+        return decode(getFieldStart(field), getFieldEnd(field));
+    }
+
+    /**
+     * Get the offset of the next byte to parse.
+     *
+     * @return the offset
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the size of the data.
+     *
+     * @return the number of bytes
+     */
+    public int getLength() {
+        return limit;
+    }
+
+    /**
+     * Get the value of a field from its offsets.
+     *
+     * @param start the offset of the first byte of the field
+     * @param end the offset after the last byte of the field
+     * @return the value, with quotes removed
+     */
+    public String decode(final int start, final int end) {
+        if (end <= start) {
+            return "";
+        }
+        byte [] bytes = new byte[end - start];
+        int n = 0;
+        if (buffer.get(start) != '"') {
+            for (int i = start; i < end; i++) {
+                bytes[n++] = buffer.get(i);
+            }
+            return new String(bytes, 0, n, UTF8);
+        }
+
+        boolean quoted = true;
+        for (int i = start + 1; i < end; i++) {
+            byte b = buffer.get(i);
+            if (quoted && (b == '"')) {
+                if ((i + 1 < end) && (buffer.get(i + 1) == '"')) {
+                    // A doubled quote.
+                    bytes[n++] = b;
+                    i++;
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+            bytes[n++] = b;
+        }
+        return new String(bytes, 0, n, UTF8);
+    }
+
+}
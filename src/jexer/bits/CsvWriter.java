@@ -0,0 +1,255 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.bits;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.List;
+
+/**
+ * CsvWriter writes RFC4180 comma-separated values (CSV) as UTF-8 to a
+ * channel.  Fields are quoted only when they contain a comma, quote, or
+ * line break.  Output is encoded straight into a reused buffer, so writing
+ * a field does not build any intermediate strings.
+ */
+public class CsvWriter {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Size of the character and byte buffers.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The channel to write to.
+     */
+    private WritableByteChannel channel;
+
+    /**
+     * Characters waiting to be encoded.
+     */
+    private CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Bytes waiting to be written.
+     */
+    private ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The UTF-8 encoder.
+     */
+    private CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
+
+    /**
+     * If true, the next field is the first one of a record.
+     */
+    private boolean firstField = true;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     *
+     * @param channel the channel to write to
+     */
+    public CsvWriter(final WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Public constructor creates or truncates a file.
+     *
+     * @param file the file to write to
+     * @throws IOException if a java.io operation throws
+     */
+    public CsvWriter(final File file) throws IOException {
+        this((new FileOutputStream(file)).getChannel());
+    }
+
+    // ------------------------------------------------------------------------
+    // CsvWriter --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Add one character to the output.
+     *
+     * @param ch the character
+     * @throws IOException if a java.io operation throws
+     */
+    private void put(final char ch) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(ch);
+    }
+
+    /**
+     * Encode the waiting characters, and write out the bytes when the byte
+     * buffer fills up.
+     *
+     * @param endOfInput if true, there are no more characters
+     * @throws IOException if a java.io operation throws
+     */
+    private void encode(final boolean endOfInput) throws IOException {
+        chars.flip();
+        for (;;) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+                continue;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            break;
+        }
+        // Keep any half of a surrogate pair for the next round.
+        chars.compact();
+    }
+
+    /**
+     * Write out the encoded bytes.
+     *
+     * @throws IOException if a java.io operation throws
+     */
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Write one field of the current record.
+     *
+     * @param value the field value
+     * @throws IOException if a java.io operation throws
+     */
+    public void writeField(final String value) throws IOException {
+        if (!firstField) {
+            put(',');
+        }
+        firstField = false;
+
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if ((ch == ',') || (ch == '"') || (ch == '\n') || (ch == '\r')) {
+                quote = true;
+                break;
+            }
+        }
+        if (quote) {
+            put('"');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            put(ch);
+            if (ch == '"') {
+                put('"');
+            }
+        }
+        if (quote) {
+            put('"');
+        }
+    }
+
+    /**
+     * End the current record.
+     *
+     * @throws IOException if a java.io operation throws
+     */
+    public void endRecord() throws IOException {
+        put('\n');
+        firstField = true;
+    }
+
+    /**
+     * Write a whole record.
+     *
+     * @param values the field values
+     * @throws IOException if a java.io operation throws
+     */
+    public void writeRecord(final List<String> values) throws IOException {
+        for (String value: values) {
+            writeField(value);
+        }
+        endRecord();
+    }
+
+    /**
+     * Write out everything written so far.
+     *
+     * @throws IOException if a java.io operation throws
+     */
+    public void flush() throws IOException {
+        encode(false);
+        drain();
+    }
+
+    /**
+     * Write out everything and close the channel.
+     *
+     * @throws IOException if a java.io operation throws
+     */
+    public void close() throws IOException {
+        try {
+            encode(true);
+            for (;;) {
+                CoderResult result = encoder.flush(bytes);
+                if (result.isOverflow()) {
+                    drain();
+                    continue;
+                }
+                break;
+            }
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
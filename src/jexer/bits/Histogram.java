@@ -0,0 +1,270 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.bits;
+
+/**
+ * Histogram records a distribution of non-negative values in log-linear
+ * buckets, in the manner of HdrHistogram: each power of two is split into
+ * 16 buckets, so every value is kept to within about 6% using a fixed
+ * 7.5KB of memory no matter how many values are recorded.
+ */
+public class Histogram {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The number of bits of precision kept below the highest bit.
+     */
+    private static final int SUB_BITS = 4;
+
+    /**
+     * The number of buckets in each power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The total number of buckets, enough for any non-negative long.
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The registry this histogram belongs to, or null.
+     */
+    private Metrics metrics = null;
+
+    /**
+     * The number of values in each bucket.
+     */
+    private long [] counts = new long[BUCKETS];
+
+    /**
+     * The number of values recorded.
+     */
+    private long count = 0;
+
+    /**
+     * The sum of the values recorded.
+     */
+    private long total = 0;
+
+    /**
+     * The smallest value recorded.
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * The largest value recorded.
+     */
+    private long max = 0;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     */
+    public Histogram() {
+        // NOP
+    }
+
+    /**
+     * Package private constructor for a histogram owned by a Metrics.
+     *
+     * @param metrics the registry, checked on every record() to see if
+     * recording is turned on
+     */
+    Histogram(final Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // ------------------------------------------------------------------------
+    // Histogram --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the bucket that holds a value.
+     *
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    private static int getBucket(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highBit - SUB_BITS;
+        return ((shift + 1) * SUB_BUCKETS)
+            + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Get the smallest value that goes in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the smallest value in the bucket
+     */
+    private static long getBucketStart(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket / SUB_BUCKETS) - 1;
+        long mantissa = SUB_BUCKETS + (bucket % SUB_BUCKETS);
+        return mantissa << shift;
+    }
+
+    /**
+     * Record a value.  If this histogram belongs to a Metrics that is not
+     * recording, the value is dropped.
+     *
+     * @param value the value.  Negative values are recorded as 0.
+     */
+    public void record(final long value) {
+        if ((metrics != null) && !metrics.isEnabled()) {
+            return;
+        }
+        long v = Math.max(0, value);
+        int bucket = getBucket(v);
+        synchronized (this) {
+            counts[bucket]++;
+            count++;
+            total += v;
+            if (v < min) {
+                min = v;
+            }
+            if (v > max) {
+                max = v;
+            }
+        }
+    }
+
+    /**
+     * Forget all the values recorded.
+     */
+    public synchronized void reset() {
+        counts = new long[BUCKETS];
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return the number of values
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of the values recorded.
+     *
+     * @return the sum
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the smallest value recorded.
+     *
+     * @return the smallest value, or 0 if nothing was recorded
+     */
+    public synchronized long getMin() {
+        return (count == 0 ? 0 : min);
+    }
+
+    /**
+     * Get the largest value recorded.
+     *
+     * @return the largest value, or 0 if nothing was recorded
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public synchronized double getMean() {
+        return (count == 0 ? 0.0 : (double) total / count);
+    }
+
+    /**
+     * Get a percentile of the values recorded.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value that this percent of the values are at or below,
+     * to within the bucket precision, or 0 if nothing was recorded
+     */
+    public synchronized long getPercentile(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long rank = Math.max(1, (long) Math.ceil(p * count / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Report the highest value that shares this bucket, but
+                // never more than was actually seen.
+                long end = max;
+                if (i + 1 < BUCKETS) {
+                    end = getBucketStart(i + 1) - 1;
+                }
+                return Math.max(min, Math.min(max, end));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Make human-readable description of this Histogram.
+     *
+     * @return displayable String
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("count %d min %d mean %.1f p50 %d p99 %d max %d",
+            count, getMin(), getMean(), getPercentile(50),
+            getPercentile(99), max);
+    }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.bits;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * ImageStore is a content-addressed registry of images.  Each distinct
+ * image (by type, dimensions, and pixel values) is assigned a stable
+ * 64-bit ID, and all images with the same content are interned to a
+ * single BufferedImage instance.  Cells use the ID to compare images in
+ * O(1) rather than comparing pixels.
+ *
+ * The content hash of a particular BufferedImage object is computed only
+ * once.  Images are held by weak reference, so the store never keeps an
+ * image alive that no cell is using.
+ */
+public class ImageStore {
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The singleton instance.
+     */
+    private static ImageStore instance = null;
+
+    /**
+     * The entries by content hash.  Entries with the same hash but
+     * different content are chained through Entry.next.
+     */
+    private HashMap<Long, Entry> byHash = new HashMap<Long, Entry>();
+
+    /**
+     * The entries by image identity, so that the same BufferedImage object
+     * is never hashed twice.
+     */
+    private WeakHashMap<BufferedImage, Entry> byImage;
+
+    /**
+     * Entries whose images have been garbage collected.
+     */
+    private ReferenceQueue<BufferedImage> queue;
+
+    /**
+     * The next ID to assign.  IDs are never reused.
+     */
+    private long nextId = 1;
+
+    /**
+     * The number of lookups that found an existing image.
+     */
+    private long hits = 0;
+
+    /**
+     * The number of lookups that added a new image.
+     */
+    private long misses = 0;
+
+    /**
+     * Row buffer for hashing and comparing images.
+     */
+    private int [] row1 = new int[0];
+
+    /**
+     * Second row buffer for comparing images.
+     */
+    private int [] row2 = new int[0];
+
+    /**
+     * Entry is one image in the store.
+     */
+    class Entry extends WeakReference<BufferedImage> {
+
+        /**
+         * The content hash.
+         */
+        private long hash;
+
+        /**
+         * The stable ID.
+         */
+        private long id;
+
+        /**
+         * The next entry with the same hash.
+         */
+        private Entry next = null;
+
+        /**
+         * Public constructor.
+         *
+         * @param image the canonical image
+         * @param hash the content hash
+         * @param id the stable ID
+         */
+        public Entry(final BufferedImage image, final long hash,
+            final long id) {
+
+            super(image, queue);
+            this.hash = hash;
+            this.id = id;
+        }
+
+        /**
+         * Get the stable ID.
+         *
+         * @return the ID, a positive number
+         */
+        public long getId() {
+            return id;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Private constructor, use getInstance().
+     */
+    private ImageStore() {
+        byImage = new WeakHashMap<BufferedImage, Entry>();
+        queue = new ReferenceQueue<BufferedImage>();
+    }
+
+    /**
+     * Get the store.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized ImageStore getInstance() {
+        if (instance == null) {
+            instance = new ImageStore();
+        }
+        return instance;
+    }
+
+    // ------------------------------------------------------------------------
+    // ImageStore -------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the stable ID for an image's content.
+     *
+     * @param image the image
+     * @return the ID, a positive number
+     */
+    public synchronized long getId(final BufferedImage image) {
+        return lookup(image).getId();
+    }
+
+    /**
+     * Get the canonical instance of an image.
+     *
+     * @param image the image
+     * @return an image with the same content as image, possibly image
+     * itself
+     */
+    public synchronized BufferedImage intern(final BufferedImage image) {
+        Entry entry = lookup(image);
+        BufferedImage canonical = entry.get();
+        if (canonical == null) {
+            return image;
+        }
+        return canonical;
+    }
+
+    /**
+     * Get the number of distinct images in the store.
+     *
+     * @return the number of images
+     */
+    public synchronized int size() {
+        purge();
+        int n = 0;
+        for (Entry entry: byHash.values()) {
+            for (; entry != null; entry = entry.next) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Get the number of lookups that found an image with the same content
+     * already in the store.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that added a new image to the store.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Find or create the entry for an image.  Note package private access.
+     *
+     * @param image the image
+     * @return the entry
+     */
+    synchronized Entry lookup(final BufferedImage image) {
+        Entry entry = byImage.get(image);
+        if (entry != null) {
+            return entry;
+        }
+        purge();
+
+        long hash = hash(image);
+        Long key = Long.valueOf(hash);
+        Entry head = byHash.get(key);
+        for (entry = head; entry != null; entry = entry.next) {
+            BufferedImage other = entry.get();
+            if ((other != null) && sameContent(image, other)) {
+                hits++;
+                byImage.put(image, entry);
+                return entry;
+            }
+        }
+
+        misses++;
+        entry = new Entry(image, hash, nextId);
+        nextId++;
+        entry.next = head;
+        byHash.put(key, entry);
+        byImage.put(image, entry);
+        return entry;
+    }
+
+    /**
+     * Remove entries whose images have been garbage collected.
+     */
+    private void purge() {
+        for (;;) {
+            Entry dead = (Entry) queue.poll();
+            if (dead == null) {
+                return;
+            }
+            Long key = Long.valueOf(dead.hash);
+            Entry head = byHash.get(key);
+            if (head == dead) {
+                if (dead.next == null) {
+                    byHash.remove(key);
+                } else {
+                    byHash.put(key, dead.next);
+                }
+                continue;
+            }
+            for (Entry entry = head; entry != null; entry = entry.next) {
+                if (entry.next == dead) {
+                    entry.next = dead.next;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute a 64-bit content hash of an image.  Pixels are read one row
+     * at a time so that the full RGB array is never allocated.
+     *
+     * @param image the image
+     * @return the hash
+     */
+    private long hash(final BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (row1.length < width) {
+            row1 = new int[width];
+        }
+        long h = 0xCBF29CE484222325L;
+        h = (h ^ image.getType()) * 0x100000001B3L;
+        h = (h ^ width) * 0x100000001B3L;
+        h = (h ^ height) * 0x100000001B3L;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row1, 0, width);
+            for (int x = 0; x < width; x++) {
+                h = (h ^ row1[x]) * 0x100000001B3L;
+            }
+        }
+        // Final avalanche so that similar images spread across the map.
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Compare two images pixel by pixel.
+     *
+     * @param first the first image
+     * @param second the second image
+     * @return true if both images have the same type, dimensions, and
+     * pixels
+     */
+    private boolean sameContent(final BufferedImage first,
+        final BufferedImage second) {
+
+        if (first == second) {
+            return true;
+        }
+        int width = first.getWidth();
+        int height = first.getHeight();
+        if ((first.getType() != second.getType())
+            || (width != second.getWidth())
+            || (height != second.getHeight())
+        ) {
+            return false;
+        }
+        if ((first.getColorModel() instanceof IndexColorModel)
+            && (first.getColorModel() != second.getColorModel())
+        ) {
+            // Palette images are only the same if they share a palette.
+            return false;
+        }
+        if (row1.length < width) {
+            row1 = new int[width];
+        }
+        if (row2.length < width) {
+            row2 = new int[width];
+        }
+        for (int y = 0; y < height; y++) {
+            first.getRGB(0, y, width, 1, row1, 0, width);
+            second.getRGB(0, y, width, 1, row2, 0, width);
+            for (int x = 0; x < width; x++) {
+                if (row1[x] != row2[x]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
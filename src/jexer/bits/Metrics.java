@@ -0,0 +1,360 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.bits;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Metrics is a registry of named performance measurements: counters that
+ * only go up, histograms of recorded values, and gauges that are read from
+ * their owner when asked.  Every TApplication has one, and hands it to its
+ * backend so that both sides report to the same place.
+ *
+ * Histograms of times are recorded in nanoseconds, and their names end in
+ * ".nanos".  Code that records often should get its histogram once with
+ * registerHistogram() and record into it directly, rather than look it up
+ * by name on every record().
+ *
+ * Recording is enabled by default.  It can be turned off with the
+ * jexer.metrics property or setEnabled(false), after which recording
+ * returns immediately.
+ */
+public class Metrics {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Time from an input event being generated to it being handled.
+     */
+    public static final String EVENT_LATENCY = "app.eventLatency.nanos";
+
+    /**
+     * Time spent in TApplication.drawAll().
+     */
+    public static final String DRAW_TIME = "app.draw.nanos";
+
+    /**
+     * Time spent pushing a frame to the physical device.
+     */
+    public static final String FLUSH_TIME = "app.flush.nanos";
+
+    /**
+     * Time spent on timers, onIdle() and invokeLater() between events.
+     */
+    public static final String IDLE_TIME = "app.idle.nanos";
+
+    /**
+     * Bytes written to the terminal per frame.
+     */
+    public static final String FLUSH_BYTES = "ecma48.flushBytes";
+
+    /**
+     * Time spent turning one run of image cells into a terminal image
+     * sequence.
+     */
+    public static final String IMAGE_ENCODE_TIME = "ecma48.imageEncode.nanos";
+
+    /**
+     * Image sequences found in the terminal's image caches.
+     */
+    public static final String IMAGE_CACHE_HITS = "ecma48.imageCache.hits";
+
+    /**
+     * Image sequences not found in the terminal's image caches.
+     */
+    public static final String IMAGE_CACHE_MISSES = "ecma48.imageCache.misses";
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * If true, record values.
+     */
+    private volatile boolean enabled = true;
+
+    /**
+     * The histograms by name.
+     */
+    private HashMap<String, Histogram> histograms;
+
+    /**
+     * The counters by name.
+     */
+    private HashMap<String, long []> counters;
+
+    /**
+     * The gauges by name.
+     */
+    private HashMap<String, Gauge> gauges;
+
+    /**
+     * A Gauge reports a value that is kept somewhere else, such as the size
+     * of a cache.
+     */
+    public interface Gauge {
+
+        /**
+         * Get the current value.
+         *
+         * @return the value
+         */
+        public long getValue();
+
+    }
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     */
+    public Metrics() {
+        histograms = new HashMap<String, Histogram>();
+        counters = new HashMap<String, long []>();
+        gauges = new HashMap<String, Gauge>();
+
+        if (System.getProperty("jexer.metrics", "true").equals("false")) {
+            enabled = false;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Metrics ----------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * See if values are being recorded.
+     *
+     * @return true if values are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn recording on or off.  Values already recorded are kept.
+     *
+     * @param enabled if true, record values
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get a histogram, creating it if needed.  Values recorded into it are
+     * dropped while recording is turned off.
+     *
+     * @param name the histogram name
+     * @return the histogram
+     */
+    public synchronized Histogram registerHistogram(final String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram(this);
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * Record a value in a histogram, creating the histogram if needed.
+     *
+     * @param name the histogram name
+     * @param value the value
+     */
+    public void record(final String name, final long value) {
+        if (!enabled) {
+            return;
+        }
+        registerHistogram(name).record(value);
+    }
+
+    /**
+     * Add one to a counter, creating the counter if needed.
+     *
+     * @param name the counter name
+     */
+    public void increment(final String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Add to a counter, creating the counter if needed.
+     *
+     * @param name the counter name
+     * @param delta the amount to add
+     */
+    public void add(final String name, final long delta) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            long [] counter = counters.get(name);
+            if (counter == null) {
+                counter = new long[1];
+                counters.put(name, counter);
+            }
+            counter[0] += delta;
+        }
+    }
+
+    /**
+     * Add a gauge, replacing any gauge with the same name.  Gauges are
+     * reported even when recording is turned off.
+     *
+     * @param name the gauge name
+     * @param gauge the gauge
+     */
+    public synchronized void addGauge(final String name, final Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Remove a gauge.
+     *
+     * @param name the gauge name
+     */
+    public synchronized void removeGauge(final String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * Get a histogram.
+     *
+     * @param name the histogram name
+     * @return the histogram, or null if it was never registered or recorded
+     * into
+     */
+    public synchronized Histogram getHistogram(final String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * Get a counter's value.
+     *
+     * @param name the counter name
+     * @return the value, or 0 if nothing was counted with this name
+     */
+    public synchronized long getCounter(final String name) {
+        long [] counter = counters.get(name);
+        return (counter == null ? 0 : counter[0]);
+    }
+
+    /**
+     * Get a gauge's value.
+     *
+     * @param name the gauge name
+     * @return the value, or 0 if there is no gauge with this name
+     */
+    public long getGauge(final String name) {
+        Gauge gauge;
+        synchronized (this) {
+            gauge = gauges.get(name);
+        }
+        return (gauge == null ? 0 : gauge.getValue());
+    }
+
+    /**
+     * Get the names of the histograms.
+     *
+     * @return the names, sorted
+     */
+    public synchronized List<String> getHistogramNames() {
+        List<String> names = new ArrayList<String>(histograms.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Get the names of the counters.
+     *
+     * @return the names, sorted
+     */
+    public synchronized List<String> getCounterNames() {
+        List<String> names = new ArrayList<String>(counters.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Get the names of the gauges.
+     *
+     * @return the names, sorted
+     */
+    public synchronized List<String> getGaugeNames() {
+        List<String> names = new ArrayList<String>(gauges.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Forget all recorded values and counts.  Gauges are not affected.
+     */
+    public void reset() {
+        List<Histogram> all;
+        synchronized (this) {
+            all = new ArrayList<Histogram>(histograms.values());
+            for (long [] counter: counters.values()) {
+                counter[0] = 0;
+            }
+        }
+        for (Histogram histogram: all) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Make human-readable description of this Metrics, one measurement
+     * per line.
+     *
+     * @return displayable String
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String name: getHistogramNames()) {
+            sb.append(String.format("%s: %s\n", name, getHistogram(name)));
+        }
+        for (String name: getCounterNames()) {
+            sb.append(String.format("%s: %d\n", name, getCounter(name)));
+        }
+        for (String name: getGaugeNames()) {
+            sb.append(String.format("%s: %d\n", name, getGauge(name)));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,1300 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.demos;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jexer.ColumnarTableModel;
+import jexer.TApplication;
+import jexer.TImage;
+import jexer.TTableWidget;
+import jexer.TTerminalWidget;
+import jexer.TWindow;
+import jexer.backend.Backend;
+import jexer.backend.ECMA48Backend;
+
+/**
+ * Benchmark drives a set of rendering scenarios through TApplication's
+ * event loop on an ECMA48Backend whose output goes nowhere.  For each
+ * scenario it reports how long drawAll() and the backend flush take per
+ * frame, how many bytes each frame sends, and how much memory is allocated
+ * and collected per frame.  Results are written as CSV, one row per
+ * scenario, and can be compared against a previous run:
+ *
+ * <pre>
+ * java -cp jexer.jar jexer.demos.Benchmark [-frames N] [-warmup N]
+ *     [-o results.csv] [-baseline baseline.csv] [-threshold percent]
+ *     [scenario ...]
+ * </pre>
+ *
+ * The scenarios are: demo (the DemoApplication windows), terminal (a
+ * TTerminalWidget fed a generated log stream), image (a window with a
+ * bitmap image), translucent (a stack of translucent windows), and table
+ * (a TTableWidget with 10,000 rows).  When a baseline is given, the exit
+ * code is 1 if any scenario regressed by more than the threshold (default
+ * 20 percent).  Timings only compare well against a baseline made on the
+ * same machine, so make one with -o before a change and compare against it
+ * after.
+ */
+public class Benchmark {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The CSV columns.
+     */
+    private static final String [] COLUMNS = {
+        "scenario",
+        "frames",
+        "draw_mean_us",
+        "draw_p50_us",
+        "draw_p95_us",
+        "flush_mean_us",
+        "flush_p95_us",
+        "bytes_per_frame",
+        "alloc_bytes_per_frame",
+        "gc_count",
+        "gc_ms",
+    };
+
+    /**
+     * The columns compared against the baseline.  Larger is worse for all
+     * of them.  The percentiles are too noisy on a busy machine to fail a
+     * run on, so they are only reported.
+     */
+    private static final String [] COMPARED_COLUMNS = {
+        "draw_mean_us",
+        "flush_mean_us",
+        "bytes_per_frame",
+        "alloc_bytes_per_frame",
+    };
+
+    /**
+     * How long to wait for a frame to be flushed before deciding that the
+     * scenario has nothing more to draw.
+     */
+    private static final long FRAME_TIMEOUT = 2000;
+
+    /**
+     * Screen width in cells.
+     */
+    private static final int WIDTH = 100;
+
+    /**
+     * Screen height in cells.
+     */
+    private static final int HEIGHT = 35;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Private constructor prevents accidental creation of this class.
+     */
+    private Benchmark() {
+    }
+
+    // ------------------------------------------------------------------------
+    // Benchmark --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Main entry point.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(final String [] args) {
+        int frames = 300;
+        int warmup = 200;
+        String outputFilename = null;
+        String baselineFilename = null;
+        double threshold = 20.0;
+        List<String> names = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-frames") && (i + 1 < args.length)) {
+                    frames = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-warmup") && (i + 1 < args.length)) {
+                    warmup = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-o") && (i + 1 < args.length)) {
+                    outputFilename = args[++i];
+                } else if (args[i].equals("-baseline")
+                    && (i + 1 < args.length)
+                ) {
+                    baselineFilename = args[++i];
+                } else if (args[i].equals("-threshold")
+                    && (i + 1 < args.length)
+                ) {
+                    threshold = Double.parseDouble(args[++i]);
+                } else if (args[i].startsWith("-")) {
+                    usage();
+                    return;
+                } else {
+                    names.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+            return;
+        }
+
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        for (Scenario scenario: getScenarios()) {
+            if ((names.size() == 0) || names.contains(scenario.name)) {
+                scenarios.add(scenario);
+            }
+        }
+        if (scenarios.size() == 0) {
+            usage();
+            return;
+        }
+
+        int rc = 0;
+        try {
+            List<Map<String, String>> results;
+            results = new ArrayList<Map<String, String>>();
+            for (Scenario scenario: scenarios) {
+                System.err.println("Running " + scenario.name + "...");
+                results.add(run(scenario, warmup, frames));
+            }
+
+            PrintWriter output;
+            if (outputFilename != null) {
+                output = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(outputFilename), "UTF-8"));
+            } else {
+                output = new PrintWriter(System.out);
+            }
+            writeCsv(output, results);
+            output.flush();
+            if (outputFilename != null) {
+                output.close();
+            }
+
+            if (baselineFilename != null) {
+                if (!compare(readCsv(baselineFilename), results, threshold)) {
+                    rc = 1;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            rc = 2;
+        }
+
+        // The applications leave their reader threads behind.
+        System.exit(rc);
+    }
+
+    /**
+     * Display the command line usage.
+     */
+    private static void usage() {
+        System.err.println("Usage: java jexer.demos.Benchmark [-frames N] " +
+            "[-warmup N] [-o results.csv] [-baseline baseline.csv] " +
+            "[-threshold percent] [scenario ...]");
+        StringBuilder sb = new StringBuilder("Scenarios:");
+        for (Scenario scenario: getScenarios()) {
+            sb.append(" " + scenario.name);
+        }
+        System.err.println(sb.toString());
+        System.exit(2);
+    }
+
+    /**
+     * Get all of the scenarios.
+     *
+     * @return the scenarios
+     */
+    private static List<Scenario> getScenarios() {
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        scenarios.add(new DemoScenario());
+        scenarios.add(new TerminalScenario());
+        scenarios.add(new ImageScenario());
+        scenarios.add(new TranslucentScenario());
+        scenarios.add(new TableScenario());
+        return scenarios;
+    }
+
+    /**
+     * Run one scenario.
+     *
+     * @param scenario the scenario
+     * @param warmup the number of frames to draw before measuring, so that
+     * the JIT has compiled the drawing code
+     * @param frames the number of frames to measure
+     * @return the results, keyed by column name
+     * @throws IOException if a java.io operation throws
+     */
+    private static Map<String, String> run(final Scenario scenario,
+        final int warmup, final int frames) throws IOException {
+
+        BenchmarkBackend backend = new BenchmarkBackend();
+        backend.setMaxFramesPerSecond(0);
+        final BenchmarkApplication application;
+        application = new BenchmarkApplication(backend);
+        scenario.setup(application);
+        (new Thread(application, "Benchmark " + scenario.name)).start();
+
+        long allocated = 0;
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (int i = 0; i < warmup + frames; i++) {
+            if (i == warmup) {
+                allocated = getAllocatedBytes();
+                gcCount = getGcCount();
+                gcMillis = getGcMillis();
+                application.measuring = true;
+                backend.measuring = true;
+            }
+            final int frame = i;
+            int flushes = backend.getFlushCount();
+            application.invokeLater(new Runnable() {
+                public void run() {
+                    scenario.step(application, frame);
+                }
+            });
+            if (!backend.waitForFlush(flushes, FRAME_TIMEOUT)) {
+                System.err.println("  " + scenario.name + " stopped " +
+                    "drawing after " + i + " frames");
+                break;
+            }
+        }
+        application.measuring = false;
+        backend.measuring = false;
+        if (allocated >= 0) {
+            allocated = getAllocatedBytes() - allocated;
+        }
+        gcCount = getGcCount() - gcCount;
+        gcMillis = getGcMillis() - gcMillis;
+        application.exit();
+        scenario.teardown();
+
+        long [] drawNanos = toArray(application.drawNanos);
+        long [] flushNanos = toArray(backend.flushNanos);
+        int flushed = Math.max(flushNanos.length, 1);
+
+        Map<String, String> result = new HashMap<String, String>();
+        result.put("scenario", scenario.name);
+        result.put("frames", Integer.toString(flushNanos.length));
+        result.put("draw_mean_us", Long.toString(mean(drawNanos) / 1000));
+        result.put("draw_p50_us",
+            Long.toString(percentile(drawNanos, 50) / 1000));
+        result.put("draw_p95_us",
+            Long.toString(percentile(drawNanos, 95) / 1000));
+        result.put("flush_mean_us", Long.toString(mean(flushNanos) / 1000));
+        result.put("flush_p95_us",
+            Long.toString(percentile(flushNanos, 95) / 1000));
+        result.put("bytes_per_frame", Long.toString(backend.bytes / flushed));
+        result.put("alloc_bytes_per_frame", Long.toString(allocated < 0 ?
+                -1 : allocated / flushed));
+        result.put("gc_count", Long.toString(gcCount));
+        result.put("gc_ms", Long.toString(gcMillis));
+        return result;
+    }
+
+    /**
+     * Copy a list of samples to a sorted array.
+     *
+     * @param samples the samples
+     * @return the sorted array
+     */
+    private static long [] toArray(final List<Long> samples) {
+        synchronized (samples) {
+            long [] result = new long[samples.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = samples.get(i);
+            }
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    /**
+     * Get the mean of some samples.
+     *
+     * @param samples the samples
+     * @return the mean, or 0 if there are no samples
+     */
+    private static long mean(final long [] samples) {
+        if (samples.length == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < samples.length; i++) {
+            total += samples[i];
+        }
+        return total / samples.length;
+    }
+
+    /**
+     * Get a percentile of some sorted samples.
+     *
+     * @param samples the samples, sorted
+     * @param percent the percentile, between 0 and 100
+     * @return the sample at that percentile, or 0 if there are no samples
+     */
+    private static long percentile(final long [] samples, final int percent) {
+        if (samples.length == 0) {
+            return 0;
+        }
+        int i = (samples.length - 1) * percent / 100;
+        return samples[i];
+    }
+
+    /**
+     * Get the number of bytes allocated by all live threads, if the JVM can
+     * report that.
+     *
+     * @return the number of bytes, or -1 if it is not available
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        try {
+            // com.sun.management.ThreadMXBean is not on every JVM.
+            Class<?> sunBean = Class.forName("com.sun.management.ThreadMXBean");
+            if (!sunBean.isInstance(bean)) {
+                return -1;
+            }
+            Method method = sunBean.getMethod("getThreadAllocatedBytes",
+                long [].class);
+            long [] bytes = (long []) method.invoke(bean,
+                bean.getAllThreadIds());
+            long total = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] > 0) {
+                    total += bytes[i];
+                }
+            }
+            return total;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the total number of garbage collections.
+     *
+     * @return the number of collections
+     */
+    private static long getGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean:
+                 ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(bean.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    /**
+     * Get the total time spent in garbage collection.
+     *
+     * @return the time in millis
+     */
+    private static long getGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean:
+                 ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(bean.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    /**
+     * Write results as CSV.
+     *
+     * @param output the writer
+     * @param results the results
+     */
+    private static void writeCsv(final PrintWriter output,
+        final List<Map<String, String>> results) {
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            sb.append(i == 0 ? "" : ",");
+            sb.append(COLUMNS[i]);
+        }
+        output.println(sb.toString());
+        for (Map<String, String> result: results) {
+            sb = new StringBuilder();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                sb.append(i == 0 ? "" : ",");
+                sb.append(result.get(COLUMNS[i]));
+            }
+            output.println(sb.toString());
+        }
+    }
+
+    /**
+     * Read results from a CSV file written by writeCsv().
+     *
+     * @param filename the file to read
+     * @return the results, keyed by scenario name
+     * @throws IOException if a java.io operation throws
+     */
+    private static Map<String, Map<String, String>> readCsv(
+        final String filename) throws IOException {
+
+        Map<String, Map<String, String>> results;
+        results = new HashMap<String, Map<String, String>>();
+        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                return results;
+            }
+            String [] header = line.trim().split(",");
+            while ((line = reader.readLine()) != null) {
+                String [] fields = line.trim().split(",");
+                if (fields.length != header.length) {
+                    continue;
+                }
+                Map<String, String> result = new HashMap<String, String>();
+                for (int i = 0; i < header.length; i++) {
+                    result.put(header[i], fields[i]);
+                }
+                results.put(result.get("scenario"), result);
+            }
+        } finally {
+            reader.close();
+        }
+        return results;
+    }
+
+    /**
+     * Compare results against a baseline, and report the differences to
+     * stderr.
+     *
+     * @param baseline the baseline results, keyed by scenario name
+     * @param results the new results
+     * @param threshold how much larger, in percent, a value can be before
+     * it is a regression
+     * @return true if nothing regressed
+     */
+    private static boolean compare(
+        final Map<String, Map<String, String>> baseline,
+        final List<Map<String, String>> results, final double threshold) {
+
+        boolean ok = true;
+        for (Map<String, String> result: results) {
+            Map<String, String> base = baseline.get(result.get("scenario"));
+            if (base == null) {
+                System.err.println(result.get("scenario") +
+                    ": not in baseline");
+                continue;
+            }
+            for (String column: COMPARED_COLUMNS) {
+                double oldValue;
+                double newValue;
+                try {
+                    oldValue = Double.parseDouble(base.get(column));
+                    newValue = Double.parseDouble(result.get(column));
+                } catch (NumberFormatException e) {
+                    continue;
+                } catch (NullPointerException e) {
+                    continue;
+                }
+                if ((oldValue <= 0) || (newValue < 0)) {
+                    continue;
+                }
+                double change = (newValue - oldValue) * 100.0 / oldValue;
+                boolean regressed = (change > threshold);
+                if (regressed) {
+                    ok = false;
+                }
+                System.err.printf("%-12s %-22s %12.0f %12.0f %+7.1f%%%s\n",
+                    result.get("scenario"), column, oldValue, newValue,
+                    change, (regressed ? "  REGRESSED" : ""));
+            }
+        }
+        return ok;
+    }
+
+    // ------------------------------------------------------------------------
+    // BenchmarkApplication ---------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * BenchmarkApplication times each drawAll() using the draw hooks.
+     */
+    private static class BenchmarkApplication extends TApplication {
+
+        /**
+         * If true, record samples.
+         */
+        private volatile boolean measuring = false;
+
+        /**
+         * When the current drawAll() started.
+         */
+        private long drawStart;
+
+        /**
+         * The time of each drawAll() that changed the screen.
+         */
+        private List<Long> drawNanos = new ArrayList<Long>();
+
+        /**
+         * Public constructor.
+         *
+         * @param backend the backend
+         */
+        public BenchmarkApplication(final Backend backend) {
+            super(backend);
+        }
+
+        /**
+         * Function called immediately before the screen is drawn.
+         */
+        @Override
+        protected void onPreDraw() {
+            super.onPreDraw();
+            drawStart = System.nanoTime();
+        }
+
+        /**
+         * Function called immediately after the screen is drawn.
+         */
+        @Override
+        protected void onPostDraw() {
+            super.onPostDraw();
+            if (measuring) {
+                synchronized (drawNanos) {
+                    drawNanos.add(System.nanoTime() - drawStart);
+                }
+            }
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+    // BenchmarkBackend -------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * BenchmarkBackend is an xterm-like backend that writes to a byte
+     * counter, and times each flush.
+     */
+    private static class BenchmarkBackend extends ECMA48Backend {
+
+        /**
+         * The device attributes reply of a VT220-ish terminal with sixel
+         * support.
+         */
+        private static final String DA_REPLY = "\033[?62;4c";
+
+        /**
+         * The output, which counts the bytes written to it.
+         */
+        private CountingOutputStream counter;
+
+        /**
+         * If true, record samples.
+         */
+        private volatile boolean measuring = false;
+
+        /**
+         * The number of flushes so far.
+         */
+        private int flushCount = 0;
+
+        /**
+         * The bytes written while measuring.
+         */
+        private long bytes = 0;
+
+        /**
+         * The time of each flush while measuring.
+         */
+        private List<Long> flushNanos = new ArrayList<Long>();
+
+        /**
+         * Public constructor.
+         *
+         * @throws UnsupportedEncodingException if an exception is thrown
+         * when creating the InputStreamReader
+         */
+        public BenchmarkBackend() throws UnsupportedEncodingException {
+            this(new CountingOutputStream());
+        }
+
+        /**
+         * Private constructor.
+         *
+         * @param counter the output
+         * @throws UnsupportedEncodingException if an exception is thrown
+         * when creating the InputStreamReader
+         */
+        private BenchmarkBackend(final CountingOutputStream counter)
+            throws UnsupportedEncodingException {
+
+            super(null, new ByteArrayInputStream(DA_REPLY.getBytes("UTF-8")),
+                counter, WIDTH, HEIGHT, 16);
+            this.counter = counter;
+        }
+
+        /**
+         * Sync the logical screen to the physical device.
+         */
+        @Override
+        public void flushScreen() {
+            long start = System.nanoTime();
+            long before = counter.count;
+            super.flushScreen();
+            long nanos = System.nanoTime() - start;
+            synchronized (this) {
+                if (measuring) {
+                    bytes += counter.count - before;
+                    synchronized (flushNanos) {
+                        flushNanos.add(nanos);
+                    }
+                }
+                flushCount++;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Get the number of flushes so far.
+         *
+         * @return the number of flushes
+         */
+        public synchronized int getFlushCount() {
+            return flushCount;
+        }
+
+        /**
+         * Wait for a flush.
+         *
+         * @param count the number of flushes seen before
+         * @param timeout how long to wait in millis
+         * @return true if there was a flush, false if it timed out
+         */
+        public synchronized boolean waitForFlush(final int count,
+            final long timeout) {
+
+            long end = System.currentTimeMillis() + timeout;
+            while (flushCount == count) {
+                long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                    // SQUASH
+                }
+            }
+            return true;
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+    // CountingOutputStream ---------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * CountingOutputStream discards its output and counts the bytes.
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        /**
+         * The number of bytes written.
+         */
+        private volatile long count = 0;
+
+        /**
+         * Write one byte.
+         *
+         * @param b the byte
+         */
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        /**
+         * Write bytes.
+         *
+         * @param b the bytes
+         * @param off the offset into b
+         * @param len the number of bytes
+         */
+        @Override
+        public void write(final byte [] b, final int off, final int len) {
+            count += len;
+        }
+
+    }
+
+    /**
+     * FeedInputStream passes on the bytes given to feed(), and blocks when
+     * it has none until close() is called.
+     */
+    private static class FeedInputStream extends InputStream {
+
+        /**
+         * The bytes not yet read.
+         */
+        private byte [] buffer = new byte[4096];
+
+        /**
+         * The number of bytes in buffer.
+         */
+        private int length = 0;
+
+        /**
+         * If true, read() returns EOF once buffer is empty.
+         */
+        private boolean closed = false;
+
+        /**
+         * Add bytes to the end of the stream.
+         *
+         * @param text the text to add, sent as UTF-8
+         */
+        public synchronized void feed(final String text) {
+            byte [] bytes;
+            try {
+                bytes = text.getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            if (length + bytes.length > buffer.length) {
+                buffer = Arrays.copyOf(buffer,
+                    Math.max(buffer.length * 2, length + bytes.length));
+            }
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+            notifyAll();
+        }
+
+        /**
+         * Get the number of bytes that can be read without blocking.
+         *
+         * @return the number of bytes
+         */
+        @Override
+        public synchronized int available() {
+            return length;
+        }
+
+        /**
+         * Read one byte.
+         *
+         * @return the byte, or -1 at EOF
+         */
+        @Override
+        public synchronized int read() {
+            byte [] b = new byte[1];
+            if (read(b, 0, 1) == -1) {
+                return -1;
+            }
+            return b[0] & 0xFF;
+        }
+
+        /**
+         * Read bytes, waiting for at least one.
+         *
+         * @param b the buffer to read into
+         * @param off the offset into b
+         * @param len the most bytes to read
+         * @return the number of bytes read, or -1 at EOF
+         */
+        @Override
+        public synchronized int read(final byte [] b, final int off,
+            final int len) {
+
+            while ((length == 0) && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // SQUASH
+                }
+            }
+            if (length == 0) {
+                return -1;
+            }
+            int n = Math.min(len, length);
+            System.arraycopy(buffer, 0, b, off, n);
+            System.arraycopy(buffer, n, buffer, 0, length - n);
+            length -= n;
+            return n;
+        }
+
+        /**
+         * End the stream.
+         */
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+    }
+
+    /**
+     * ReportOutputStream discards the emulator's replies, and counts the
+     * cursor position reports among them.
+     */
+    private static class ReportOutputStream extends OutputStream {
+
+        /**
+         * The number of reports seen.
+         */
+        private int reports = 0;
+
+        /**
+         * Write one byte.  A cursor position report ends with 'R'.
+         *
+         * @param b the byte
+         */
+        @Override
+        public synchronized void write(final int b) {
+            if (b == 'R') {
+                reports++;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Wait until a number of reports have been seen.
+         *
+         * @param count the number of reports
+         * @param timeout the most millis to wait
+         */
+        public synchronized void waitForReports(final int count,
+            final long timeout) {
+
+            long deadline = System.currentTimeMillis() + timeout;
+            long now = System.currentTimeMillis();
+            while ((reports < count) && (now < deadline)) {
+                try {
+                    wait(deadline - now);
+                } catch (InterruptedException e) {
+                    // SQUASH
+                }
+                now = System.currentTimeMillis();
+            }
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+    // Scenario ---------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * A Scenario sets up some windows, and then changes something before
+     * each frame.
+     */
+    private abstract static class Scenario {
+
+        /**
+         * The scenario name, used on the command line and in the results.
+         */
+        private final String name;
+
+        /**
+         * Protected constructor.
+         *
+         * @param name the scenario name
+         */
+        protected Scenario(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Create the windows.
+         *
+         * @param application the application
+         * @throws IOException if a java.io operation throws
+         */
+        public abstract void setup(final TApplication application)
+            throws IOException;
+
+        /**
+         * Change something on screen.  This is called on the event thread
+         * before each frame.
+         *
+         * @param application the application
+         * @param frame the frame number
+         */
+        public abstract void step(final TApplication application,
+            final int frame);
+
+        /**
+         * Release anything setup() created outside the application.
+         */
+        public void teardown() {
+            // Default does nothing.
+        }
+
+    }
+
+    /**
+     * The DemoApplication windows, cycling the active window.
+     */
+    private static class DemoScenario extends Scenario {
+
+        /**
+         * Public constructor.
+         */
+        public DemoScenario() {
+            super("demo");
+        }
+
+        /**
+         * Create the windows.
+         *
+         * @param application the application
+         * @throws IOException if a java.io operation throws
+         */
+        @Override
+        public void setup(final TApplication application) throws IOException {
+            application.addToolMenu();
+            application.addFileMenu();
+            application.addEditMenu();
+            application.addWindowMenu();
+            new DemoMainWindow(application);
+            new DemoTextWindow(application);
+            new DemoTableWindow(application);
+            new DemoTreeViewWindow(application);
+            new DemoEditorWindow(application);
+        }
+
+        /**
+         * Bring the next window to the front.
+         *
+         * @param application the application
+         * @param frame the frame number
+         */
+        @Override
+        public void step(final TApplication application, final int frame) {
+            application.switchWindow(true);
+        }
+
+    }
+
+    /**
+     * A terminal showing a log that grows by a few lines every frame.  The
+     * log is fed straight to the emulator, so every run sees the same bytes
+     * in the same frames.
+     */
+    private static class TerminalScenario extends Scenario {
+
+        /**
+         * The log levels, colored the way many loggers do.
+         */
+        private static final String [] LEVELS = {
+            "\033[32mINFO\033[0m ",
+            "\033[33mWARN\033[0m ",
+            "\033[1;31mERROR\033[0m",
+            "\033[36mDEBUG\033[0m",
+        };
+
+        /**
+         * Device status report: the emulator answers with the cursor
+         * position once it has consumed everything before it.
+         */
+        private static final String DSR = "\033[6n";
+
+        /**
+         * The bytes going to the emulator.
+         */
+        private FeedInputStream input;
+
+        /**
+         * The emulator's replies.
+         */
+        private ReportOutputStream output;
+
+        /**
+         * The number of log lines written.
+         */
+        private int lines = 0;
+
+        /**
+         * The number of status reports asked for.
+         */
+        private int reports = 0;
+
+        /**
+         * Public constructor.
+         */
+        public TerminalScenario() {
+            super("terminal");
+        }
+
+        /**
+         * Create the windows.
+         *
+         * @param application the application
+         * @throws IOException if a java.io operation throws
+         */
+        @Override
+        public void setup(final TApplication application) throws IOException {
+            input = new FeedInputStream();
+            output = new ReportOutputStream();
+            TWindow window = new TWindow(application, "Log", 0, 1, WIDTH,
+                HEIGHT - 2, TWindow.RESIZABLE);
+            new TTerminalWidget(window, 0, 0, WIDTH - 2, HEIGHT - 4, input,
+                output);
+
+            // What 'tail -n 100' would show first.
+            writeLines(100);
+        }
+
+        /**
+         * Append to the log, and wait for the emulator to consume it.
+         *
+         * @param application the application
+         * @param frame the frame number
+         */
+        @Override
+        public void step(final TApplication application, final int frame) {
+            writeLines(5);
+            input.feed(DSR);
+            reports++;
+            output.waitForReports(reports, FRAME_TIMEOUT);
+        }
+
+        /**
+         * End the log.
+         */
+        @Override
+        public void teardown() {
+            input.close();
+        }
+
+        /**
+         * Append lines to the log.
+         *
+         * @param count the number of lines
+         */
+        private void writeLines(final int count) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < count; i++, lines++) {
+                sb.append(String.format("2022-01-01 12:%02d:%02d.%03d %s " +
+                    "[\033[35mworker-%d\033[0m] request %d took %d ms, " +
+                    "status \033[1m%d\033[0m\r\n", (lines / 6000) % 60,
+                    (lines / 100) % 60, lines % 1000,
+                    LEVELS[(lines * 7) % 4], lines % 8, lines,
+                    (lines * 31) % 997, ((lines % 13) == 0 ? 500 : 200)));
+            }
+            input.feed(sb.toString());
+        }
+
+    }
+
+    /**
+     * A window with an image in it, being dragged across the screen.
+     */
+    private static class ImageScenario extends Scenario {
+
+        /**
+         * The window.
+         */
+        private TWindow window;
+
+        /**
+         * Public constructor.
+         */
+        public ImageScenario() {
+            super("image");
+        }
+
+        /**
+         * Create the windows.
+         *
+         * @param application the application
+         */
+        @Override
+        public void setup(final TApplication application) {
+            BufferedImage image = new BufferedImage(400, 256,
+                BufferedImage.TYPE_INT_ARGB);
+            Graphics2D gr = image.createGraphics();
+            gr.setPaint(new GradientPaint(0, 0, Color.BLUE, 400, 256,
+                    Color.ORANGE));
+            gr.fillRect(0, 0, 400, 256);
+            gr.setColor(Color.WHITE);
+            for (int i = 0; i < 20; i++) {
+                gr.drawOval(i * 17, i * 9, 60, 40);
+            }
+            gr.dispose();
+
+            window = new TWindow(application, "Image", 2, 2, 54, 20,
+                TWindow.ABSOLUTEXY);
+            new TImage(window, 0, 0, 52, 18, image, 0, 0);
+        }
+
+        /**
+         * Move the window one column.
+         *
+         * @param application the application
+         * @param frame the frame number
+         */
+        @Override
+        public void step(final TApplication application, final int frame) {
+            window.setX(2 + (frame % 20));
+        }
+
+    }
+
+    /**
+     * A stack of overlapping translucent windows, with the top one moving.
+     */
+    private static class TranslucentScenario extends Scenario {
+
+        /**
+         * The top window.
+         */
+        private TWindow top;
+
+        /**
+         * Public constructor.
+         */
+        public TranslucentScenario() {
+            super("translucent");
+        }
+
+        /**
+         * Create the windows.
+         *
+         * @param application the application
+         */
+        @Override
+        public void setup(final TApplication application) {
+            application.setTranslucence(true);
+            for (int i = 0; i < 8; i++) {
+                TWindow window = new TWindow(application, "Window " + i,
+                    i * 5, 2 + i * 2, 50, 14, TWindow.ABSOLUTEXY);
+                window.setAlpha(128 + i * 8);
+                for (int j = 0; j < 10; j++) {
+                    window.addLabel("Translucent window " + i + " line " + j,
+                        1, j);
+                }
+                top = window;
+            }
+        }
+
+        /**
+         * Move the top window one column.
+         *
+         * @param application the application
+         * @param frame the frame number
+         */
+        @Override
+        public void step(final TApplication application, final int frame) {
+            top.setX(35 + (frame % 10));
+        }
+
+    }
+
+    /**
+     * A table with 10,000 rows, scrolling down one row at a time.
+     */
+    private static class TableScenario extends Scenario {
+
+        /**
+         * The number of rows.
+         */
+        private static final int ROWS = 10000;
+
+        /**
+         * The table.
+         */
+        private TTableWidget table;
+
+        /**
+         * Public constructor.
+         */
+        public TableScenario() {
+            super("table");
+        }
+
+        /**
+         * Create the windows.
+         *
+         * @param application the application
+         */
+        @Override
+        public void setup(final TApplication application) {
+            ColumnarTableModel model = new ColumnarTableModel(8, ROWS);
+            for (int row = 0; row < ROWS; row++) {
+                for (int column = 0; column < 8; column++) {
+                    model.setValueAt(row, column, "R" + row + "C" + column);
+                }
+            }
+            TWindow window = new TWindow(application, "Table", 0, 1,
+                WIDTH, HEIGHT - 2, TWindow.ABSOLUTEXY);
+            table = new TTableWidget(window, 0, 0, WIDTH - 2, HEIGHT - 4,
+                model);
+        }
+
+        /**
+         * Select the next row.
+         *
+         * @param application the application
+         * @param frame the frame number
+         */
+        @Override
+        public void step(final TApplication application, final int frame) {
+            table.setSelectedRowNumber(frame % ROWS);
+        }
+
+    }
+
+}
@@ -0,0 +1,364 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.demos;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+import jexer.backend.PngEncoder;
+import jexer.bits.StringUtils;
+
+/**
+ * PngBenchmark compares PngEncoder against ImageIO plus
+ * StringUtils.toBase64() on the kind of image that ECMA48Terminal sends: a
+ * row of cells, cut out of a larger image.  For each image it reports the
+ * time and the number of base64 characters per tile, for ImageIO and for
+ * PngEncoder with each row filter:
+ *
+ * <pre>
+ * java -cp jexer.jar jexer.demos.PngBenchmark [-iterations N] [-level N]
+ *     [-width pixels] [-height pixels] [image ...]
+ * </pre>
+ *
+ * Without any image files, two images are generated: "ui" (flat colored
+ * windows with text, like a screenshot of a Jexer desktop) and "photo"
+ * (smooth gradients with noise).
+ */
+public class PngBenchmark {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Size of the generated images.
+     */
+    private static final int IMAGE_WIDTH = 800;
+    private static final int IMAGE_HEIGHT = 600;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Private constructor prevents accidental creation of this class.
+     */
+    private PngBenchmark() {
+    }
+
+    // ------------------------------------------------------------------------
+    // PngBenchmark -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Main entry point.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(final String [] args) {
+        int iterations = 20;
+        int level = 5;
+        int tileWidth = 160;
+        int tileHeight = 20;
+        List<String> filenames = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-iterations") && (i + 1 < args.length)) {
+                    iterations = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-level") && (i + 1 < args.length)) {
+                    level = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-width") && (i + 1 < args.length)) {
+                    tileWidth = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-height")
+                    && (i + 1 < args.length)
+                ) {
+                    tileHeight = Integer.parseInt(args[++i]);
+                } else if (args[i].startsWith("-")) {
+                    usage();
+                    return;
+                } else {
+                    filenames.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+            return;
+        }
+        if ((iterations < 1) || (level < 0) || (level > 9)
+            || (tileWidth < 1) || (tileHeight < 1)
+        ) {
+            usage();
+            return;
+        }
+
+        try {
+            System.out.printf("%-8s %-10s %10s %12s\n", "image", "encoder",
+                "us/tile", "chars/tile");
+            if (filenames.size() == 0) {
+                run("ui", makeUiImage(), tileWidth, tileHeight, level,
+                    iterations);
+                run("photo", makePhotoImage(), tileWidth, tileHeight, level,
+                    iterations);
+            }
+            for (String filename: filenames) {
+                BufferedImage image = ImageIO.read(new File(filename));
+                if (image == null) {
+                    System.err.println(filename + ": not a readable image");
+                    continue;
+                }
+                run(new File(filename).getName(), image, tileWidth,
+                    tileHeight, level, iterations);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Display the command line usage.
+     */
+    private static void usage() {
+        System.err.println("Usage: java jexer.demos.PngBenchmark " +
+            "[-iterations N] [-level 0-9] [-width pixels] " +
+            "[-height pixels] [image ...]");
+        System.exit(2);
+    }
+
+    /**
+     * Encode the tiles of one image with each encoder, and report the
+     * results.
+     *
+     * @param name the name to report
+     * @param image the image
+     * @param tileWidth tile width in pixels
+     * @param tileHeight tile height in pixels
+     * @param level the deflate level for PngEncoder
+     * @param iterations the number of times to encode every tile
+     * @throws IOException if ImageIO fails
+     */
+    private static void run(final String name, final BufferedImage image,
+        final int tileWidth, final int tileHeight, final int level,
+        final int iterations) throws IOException {
+
+        List<BufferedImage> tiles = getTiles(image, tileWidth, tileHeight);
+        if (tiles.size() == 0) {
+            System.err.println(name + ": smaller than one tile");
+            return;
+        }
+
+        // ImageIO, then base64 into a new String, as before PngEncoder.
+        long chars = 0;
+        long start = 0;
+        for (int i = 0; i <= iterations; i++) {
+            if (i == 1) {
+                // The first pass is warmup.
+                start = System.nanoTime();
+                chars = 0;
+            }
+            for (BufferedImage tile: tiles) {
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(tile, "png", png);
+                String base64 = StringUtils.toBase64(png.toByteArray());
+                chars += base64.length();
+            }
+        }
+        report(name, "imageio", System.nanoTime() - start, chars,
+            tiles.size() * iterations);
+
+        for (PngEncoder.Filter filter: PngEncoder.Filter.values()) {
+            PngEncoder encoder = new PngEncoder();
+            encoder.setCompressionLevel(level);
+            encoder.setFilter(filter);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i <= iterations; i++) {
+                if (i == 1) {
+                    start = System.nanoTime();
+                    chars = 0;
+                }
+                for (BufferedImage tile: tiles) {
+                    sb.setLength(0);
+                    encoder.toBase64Png(tile, sb);
+                    chars += sb.length();
+                }
+            }
+            report(name, filter.toString().toLowerCase(),
+                System.nanoTime() - start, chars, tiles.size() * iterations);
+        }
+    }
+
+    /**
+     * Print one result line.
+     *
+     * @param name the image name
+     * @param encoder the encoder name
+     * @param nanos the total time
+     * @param chars the total number of base64 characters
+     * @param count the number of tiles encoded
+     */
+    private static void report(final String name, final String encoder,
+        final long nanos, final long chars, final int count) {
+
+        System.out.printf("%-8s %-10s %10d %12d\n", name, encoder,
+            nanos / 1000 / count, chars / count);
+    }
+
+    /**
+     * Cut an image into tiles.  Partial tiles at the right and bottom edges
+     * are left out.
+     *
+     * @param image the image
+     * @param tileWidth tile width in pixels
+     * @param tileHeight tile height in pixels
+     * @return the tiles, each a TYPE_INT_ARGB copy
+     */
+    private static List<BufferedImage> getTiles(final BufferedImage image,
+        final int tileWidth, final int tileHeight) {
+
+        List<BufferedImage> tiles = new ArrayList<BufferedImage>();
+        for (int y = 0; y + tileHeight <= image.getHeight(); y += tileHeight) {
+            for (int x = 0; x + tileWidth <= image.getWidth();
+                 x += tileWidth) {
+
+                // ECMA48Terminal builds its images as TYPE_INT_ARGB.
+                BufferedImage tile = new BufferedImage(tileWidth, tileHeight,
+                    BufferedImage.TYPE_INT_ARGB);
+                Graphics2D gr = tile.createGraphics();
+                gr.drawImage(image, -x, -y, null);
+                gr.dispose();
+                tiles.add(tile);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Generate an image that looks like a text mode desktop: a patterned
+     * background, and windows with borders and text in a few flat colors.
+     *
+     * @return the image
+     */
+    private static BufferedImage makeUiImage() {
+        BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT,
+            BufferedImage.TYPE_INT_ARGB);
+        Graphics2D gr = image.createGraphics();
+        gr.setColor(new Color(0x00, 0x00, 0xA8));
+        gr.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+        gr.setColor(new Color(0x54, 0x54, 0xFC));
+        for (int y = 0; y < IMAGE_HEIGHT; y += 4) {
+            for (int x = (y / 4) % 2 * 2; x < IMAGE_WIDTH; x += 4) {
+                gr.fillRect(x, y, 2, 2);
+            }
+        }
+
+        Random random = new Random(1);
+        Color [] colors = {
+            new Color(0xA8, 0xA8, 0xA8),
+            new Color(0x00, 0xA8, 0xA8),
+            new Color(0xA8, 0x00, 0x00),
+        };
+        gr.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 16));
+        for (int i = 0; i < 6; i++) {
+            int x = random.nextInt(IMAGE_WIDTH / 2);
+            int y = random.nextInt(IMAGE_HEIGHT / 2);
+            int width = 200 + random.nextInt(IMAGE_WIDTH / 2);
+            int height = 100 + random.nextInt(IMAGE_HEIGHT / 2);
+            gr.setColor(colors[i % colors.length]);
+            gr.fillRect(x, y, width, height);
+            gr.setColor(Color.WHITE);
+            gr.drawRect(x + 4, y + 8, width - 8, height - 16);
+            gr.setColor(Color.BLACK);
+            for (int line = 1; (line + 1) * 20 < height; line++) {
+                StringBuilder text = new StringBuilder();
+                for (int j = 0; j < width / 10; j++) {
+                    text.append((char) ('a' + random.nextInt(26)));
+                }
+                gr.drawString(text.toString(), x + 12, y + 8 + line * 20);
+            }
+        }
+        gr.dispose();
+        return image;
+    }
+
+    /**
+     * Generate an image that compresses like a photo: overlapping
+     * gradients with some noise.
+     *
+     * @return the image
+     */
+    private static BufferedImage makePhotoImage() {
+        BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT,
+            BufferedImage.TYPE_INT_ARGB);
+        Graphics2D gr = image.createGraphics();
+        gr.setPaint(new GradientPaint(0, 0, new Color(0x30, 0x60, 0xC0),
+                0, IMAGE_HEIGHT, new Color(0xE0, 0xD0, 0xA0)));
+        gr.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+        gr.setPaint(new GradientPaint(0, 0, new Color(0x80, 0x20, 0x20, 0x80),
+                IMAGE_WIDTH, IMAGE_HEIGHT, new Color(0x20, 0x80, 0x20, 0x80)));
+        gr.fillOval(IMAGE_WIDTH / 4, IMAGE_HEIGHT / 4, IMAGE_WIDTH / 2,
+            IMAGE_HEIGHT / 2);
+        gr.dispose();
+
+        Random random = new Random(1);
+        for (int y = 0; y < IMAGE_HEIGHT; y++) {
+            for (int x = 0; x < IMAGE_WIDTH; x++) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(9) - 4;
+                int red = clamp(((rgb >>> 16) & 0xFF) + noise);
+                int green = clamp(((rgb >>> 8) & 0xFF) + noise);
+                int blue = clamp((rgb & 0xFF) + noise);
+                image.setRGB(x, y, 0xFF000000 | (red << 16) | (green << 8)
+                    | blue);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Clamp a color component to 0 - 255.
+     *
+     * @param value the value
+     * @return the clamped value
+     */
+    private static int clamp(final int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+}
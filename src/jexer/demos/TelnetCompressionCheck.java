@@ -0,0 +1,365 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.demos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import jexer.net.TelnetServerSocket;
+import jexer.net.TelnetSocket;
+
+/**
+ * TelnetCompressionCheck runs a TelnetServerSocket and a minimal MCCP2
+ * client against each other over loopback.  The server sends a number of
+ * screen-like frames, flushing after each one as ECMA48Terminal does.  The
+ * client answers the COMPRESS2 offer, inflates everything after the start
+ * of compression, and checks that:
+ *
+ * <ul>
+ * <li>Compression was negotiated.</li>
+ * <li>Each frame could be read in full as soon as it arrived, i.e. flush()
+ * really sync-flushed the deflate stream.</li>
+ * <li>The inflated bytes match what was sent, and the stream was finished
+ * cleanly on close.</li>
+ * </ul>
+ *
+ * <pre>
+ * java -cp jexer.jar jexer.demos.TelnetCompressionCheck [-frames N]
+ * </pre>
+ *
+ * The exit code is 0 if all of the checks pass, 1 if any failed.  On Java
+ * 1.6 compression is not offered, and so the check fails there.
+ */
+public class TelnetCompressionCheck {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Telnet bytes.
+     */
+    private static final int IAC = 255;
+    private static final int WILL = 251;
+    private static final int DO = 253;
+    private static final int SB = 250;
+    private static final int SE = 240;
+    private static final int TELOPT_COMPRESS2 = 86;
+
+    /**
+     * The text that ends each frame.
+     */
+    private static final String FRAME_END = "FRAME-END-";
+
+    /**
+     * How long to wait for the client to accept compression.
+     */
+    private static final long NEGOTIATE_TIMEOUT = 2000;
+
+    /**
+     * The pause between frames, so that each frame arrives separately.
+     */
+    private static final long FRAME_INTERVAL = 20;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Everything the server wrote, before compression.
+     */
+    private ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    /**
+     * The server side of the connection.
+     */
+    private TelnetSocket serverSocket = null;
+
+    /**
+     * If true, the server was still compressing after the last frame.
+     */
+    private boolean serverCompressed = false;
+
+    /**
+     * Any exception thrown on the server side.
+     */
+    private Exception serverError = null;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Private constructor, main() runs the check.
+     */
+    private TelnetCompressionCheck() {
+    }
+
+    // ------------------------------------------------------------------------
+    // TelnetCompressionCheck -------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Main entry point.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(final String [] args) {
+        int frames = 50;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-frames") && (i + 1 < args.length)) {
+                    frames = Integer.parseInt(args[++i]);
+                } else {
+                    usage();
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+            return;
+        }
+        if (frames < 1) {
+            usage();
+            return;
+        }
+
+        int rc = 1;
+        try {
+            if ((new TelnetCompressionCheck()).run(frames)) {
+                rc = 0;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        System.exit(rc);
+    }
+
+    /**
+     * Display the command line usage.
+     */
+    private static void usage() {
+        System.err.println("Usage: java jexer.demos.TelnetCompressionCheck " +
+            "[-frames N]");
+        System.exit(2);
+    }
+
+    /**
+     * Run the server and the client, and report the results.
+     *
+     * @param frames the number of frames to send
+     * @return true if all of the checks passed
+     * @throws IOException if a socket operation fails
+     * @throws DataFormatException if the compressed stream is invalid
+     */
+    private boolean run(final int frames) throws IOException,
+                                                 DataFormatException {
+
+        final TelnetServerSocket server = new TelnetServerSocket(0, 1,
+            InetAddress.getByName("127.0.0.1"));
+        Thread serverThread = new Thread("TelnetCompressionCheck server") {
+            public void run() {
+                try {
+                    serve(server, frames);
+                } catch (Exception e) {
+                    serverError = e;
+                }
+            }
+        };
+        serverThread.start();
+
+        Socket client = new Socket("127.0.0.1", server.getLocalPort());
+        InputStream input = client.getInputStream();
+        OutputStream output = client.getOutputStream();
+
+        byte [] buffer = new byte[8192];
+        byte [] inflated = new byte[65536];
+        int [] last = new int[5];
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        Inflater inflater = null;
+        long rawBytes = 0;
+        int lastFrame = -1;
+        int framesOnArrival = 0;
+        boolean finished = false;
+
+        for (;;) {
+            int n = input.read(buffer);
+            if (n < 0) {
+                break;
+            }
+            rawBytes += n;
+            int offset = 0;
+            if (inflater == null) {
+                // Plain telnet: look for WILL COMPRESS2 and the start of
+                // the compressed stream.
+                for (; offset < n; offset++) {
+                    System.arraycopy(last, 1, last, 0, last.length - 1);
+                    last[last.length - 1] = buffer[offset] & 0xFF;
+                    if ((last[2] == IAC)
+                        && (last[3] == WILL)
+                        && (last[4] == TELOPT_COMPRESS2)
+                    ) {
+                        output.write(new byte[] {
+                            (byte) IAC, (byte) DO, TELOPT_COMPRESS2
+                        });
+                        output.flush();
+                    }
+                    if ((last[0] == IAC)
+                        && (last[1] == SB)
+                        && (last[2] == TELOPT_COMPRESS2)
+                        && (last[3] == IAC)
+                        && (last[4] == SE)
+                    ) {
+                        inflater = new Inflater();
+                        offset++;
+                        break;
+                    }
+                }
+                if (inflater == null) {
+                    continue;
+                }
+            }
+
+            inflater.setInput(buffer, offset, n - offset);
+            for (;;) {
+                int count = inflater.inflate(inflated);
+                if (count == 0) {
+                    break;
+                }
+                received.write(inflated, 0, count);
+            }
+
+            // Everything that has arrived so far must be readable now.
+            String text = received.toString("UTF-8");
+            int end = text.lastIndexOf(FRAME_END);
+            if (end >= 0) {
+                int frame = Integer.parseInt(text.substring(end +
+                        FRAME_END.length()).replaceAll("[^0-9].*", ""));
+                if (frame != lastFrame) {
+                    lastFrame = frame;
+                    framesOnArrival++;
+                }
+            }
+            if (inflater.finished()) {
+                finished = true;
+                break;
+            }
+        }
+        client.close();
+        try {
+            serverThread.join();
+        } catch (InterruptedException e) {
+            // SQUASH
+        }
+        server.close();
+        if (serverError != null) {
+            serverError.printStackTrace();
+            return false;
+        }
+
+        boolean compressed = (inflater != null) && serverCompressed;
+        boolean equal = received.toString("UTF-8").equals(
+            sent.toString("UTF-8"));
+        System.out.printf("compression negotiated: %s\n", compressed);
+        System.out.printf("frames readable on arrival: %d of %d\n",
+            framesOnArrival, frames);
+        System.out.printf("stream finished cleanly: %s\n", finished);
+        System.out.printf("inflated bytes match: %s\n", equal);
+        if (serverSocket != null) {
+            System.out.printf("bytes: %d sent as %d (%d on the wire)\n",
+                serverSocket.getUncompressedBytes(),
+                serverSocket.getCompressedBytes(), rawBytes);
+        }
+        return (compressed && finished && equal && (framesOnArrival == frames));
+    }
+
+    /**
+     * Accept one connection, wait for compression to start, then send the
+     * frames and close.
+     *
+     * @param server the server socket
+     * @param frames the number of frames to send
+     * @throws IOException if a socket operation fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void serve(final TelnetServerSocket server,
+        final int frames) throws IOException, InterruptedException {
+
+        serverSocket = (TelnetSocket) server.accept();
+
+        // Reading is what processes the client's answer to the offer.
+        final InputStream input = serverSocket.getInputStream();
+        Thread reader = new Thread("TelnetCompressionCheck reader") {
+            public void run() {
+                byte [] buffer = new byte[128];
+                try {
+                    while (input.read(buffer) >= 0) {
+                        // Discard.
+                    }
+                } catch (IOException e) {
+                    // SQUASH
+                }
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+
+        long deadline = System.currentTimeMillis() + NEGOTIATE_TIMEOUT;
+        while (!serverSocket.isCompressed()
+            && (System.currentTimeMillis() < deadline)
+        ) {
+            Thread.sleep(10);
+        }
+
+        OutputStream output = serverSocket.getOutputStream();
+        for (int frame = 0; frame < frames; frame++) {
+            StringBuilder sb = new StringBuilder();
+            for (int y = 0; y < 24; y++) {
+                sb.append(String.format("\033[%d;1H\033[0;37;44m%-70s",
+                        y + 1, "line " + y + " frame " + frame + " status ok"));
+            }
+            sb.append(FRAME_END + frame);
+            byte [] bytes = sb.toString().getBytes("UTF-8");
+            output.write(bytes);
+            output.flush();
+            sent.write(bytes);
+            Thread.sleep(FRAME_INTERVAL);
+        }
+        // Closing ends the compressed stream.
+        serverCompressed = serverSocket.isCompressed();
+        output.close();
+    }
+
+}
@@ -84,7 +84,7 @@ public class TCommandEvent extends TInputEvent {
         if (rhs instanceof TCommandEvent) {
             TCommandEvent that = (TCommandEvent) rhs;
             return (cmd.equals(that.cmd)
-                && (getTime().equals(that.getTime())));
+                && (getNanoTime() == that.getNanoTime()));
         }
 
         TCommand that = (TCommand) rhs;
@@ -101,7 +101,7 @@ public class TCommandEvent extends TInputEvent {
         int A = 13;
         int B = 23;
         int hash = A;
-        hash = (B * hash) + getTime().hashCode();
+        hash = (B * hash) + (int) (getNanoTime() ^ (getNanoTime() >>> 32));
         hash = (B * hash) + cmd.hashCode();
         return hash;
     }
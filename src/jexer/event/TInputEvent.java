@@ -37,14 +37,25 @@ import jexer.backend.Backend;
  */
 public abstract class TInputEvent {
 
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The difference between System.nanoTime() and wall clock time in
+     * nanos, used to convert event times to dates.
+     */
+    private static final long NANO_TIME_OFFSET =
+        (System.currentTimeMillis() * 1000000L) - System.nanoTime();
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
 
     /**
-     * Time at which event was generated.
+     * Time at which event was generated, from System.nanoTime().
      */
-    private Date time;
+    private long time;
 
     /**
      * The backend that generated this event.
@@ -64,7 +75,7 @@ public abstract class TInputEvent {
         this.backend = backend;
 
         // Save the current time
-        time = new Date();
+        time = System.nanoTime();
     }
 
     // ------------------------------------------------------------------------
@@ -77,6 +88,26 @@ public abstract class TInputEvent {
      * @return the time that this event was generated
      */
     public final Date getTime() {
+        return new Date(getTimeMillis());
+    }
+
+    /**
+     * Get time as wall clock millis.
+     *
+     * @return the time that this event was generated, in millis since
+     * midnight, January 1, 1970 UTC
+     */
+    public final long getTimeMillis() {
+        return (time + NANO_TIME_OFFSET) / 1000000L;
+    }
+
+    /**
+     * Get time as a System.nanoTime() value.  This is only meaningful
+     * relative to other nano times.
+     *
+     * @return the time that this event was generated
+     */
+    public final long getNanoTime() {
         return time;
     }
 
@@ -120,7 +120,7 @@ public class TKeypressEvent extends TInputEvent {
         if (rhs instanceof TKeypressEvent) {
             TKeypressEvent that = (TKeypressEvent) rhs;
             return (key.equals(that.key)
-                && (getTime().equals(that.getTime())));
+                && (getNanoTime() == that.getNanoTime()));
         }
 
         TKeypress that = (TKeypress) rhs;
@@ -137,7 +137,7 @@ public class TKeypressEvent extends TInputEvent {
         int A = 13;
         int B = 23;
         int hash = A;
-        hash = (B * hash) + getTime().hashCode();
+        hash = (B * hash) + (int) (getNanoTime() ^ (getNanoTime() >>> 32));
         hash = (B * hash) + key.hashCode();
         return hash;
     }
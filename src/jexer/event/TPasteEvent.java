@@ -0,0 +1,92 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.event;
+
+import jexer.backend.Backend;
+
+/**
+ * This class encapsulates a block of text pasted into the terminal, e.g.
+ * with bracketed paste.  Widgets that edit text can insert it in one step;
+ * others see it as a series of keystrokes.
+ */
+public class TPasteEvent extends TInputEvent {
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The pasted text.
+     */
+    private String text;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public contructor.
+     *
+     * @param backend the backend that generated this event
+     * @param text the pasted text
+     */
+    public TPasteEvent(final Backend backend, final String text) {
+        super(backend);
+
+        this.text = text;
+    }
+
+    // ------------------------------------------------------------------------
+    // TInputEvent ------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Make human-readable description of this TPasteEvent.
+     *
+     * @return displayable String
+     */
+    @Override
+    public String toString() {
+        return String.format("PasteEvent: %d chars", text.length());
+    }
+
+    // ------------------------------------------------------------------------
+    // TPasteEvent ------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the pasted text.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+}
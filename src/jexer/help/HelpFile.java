@@ -28,6 +28,13 @@
  */
 package jexer.help;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.text.MessageFormat;
@@ -38,19 +45,24 @@ import java.util.List;
 import java.util.ResourceBundle;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.xml.sax.SAXException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * A HelpFile is a collection of Topics with a table of contents and index of
  * relevant terms.
+ *
+ * Loading a help file only streams through the XML once to collect the
+ * topic titles and their unprocessed text.  Topics are built the first time
+ * they are asked for, and the table of contents, index, and search index
+ * are built the first time they are needed.  When loaded from a file, the
+ * index keys and search index are cached in a file next to it (filename +
+ * ".index") so that later loads do not need to build every topic.
  */
 public class HelpFile {
 
@@ -59,6 +71,20 @@ public class HelpFile {
      */
     private static final ResourceBundle i18n = ResourceBundle.getBundle(HelpFile.class.getName());
 
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Magic number at the start of a cache file, "JXHI".
+     */
+    private static final int CACHE_MAGIC = 0x4A584849;
+
+    /**
+     * Version of the cache file format.
+     */
+    private static final int CACHE_VERSION = 1;
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -66,17 +92,29 @@ public class HelpFile {
     /**
      * The XML factory.
      */
-    private DocumentBuilder domBuilder;
+    private XMLInputFactory xmlFactory;
 
     /**
-     * The map of topics by title.
+     * The topic titles, sorted.
+     */
+    private List<String> titles = new ArrayList<String>();
+
+    /**
+     * The unprocessed text of topics that have not been built yet, by
+     * title.
+     */
+    private HashMap<String, String> topicSources;
+
+    /**
+     * The map of topics that have been built, by title.
      */
     private HashMap<String, Topic> topicsByTitle;
 
     /**
-     * The map of topics by index key term.
+     * The index keys of every topic by title, or null if they have not been
+     * collected yet.
      */
-    private HashMap<String, Topic> topicsByTerm;
+    private HashMap<String, List<String>> indexKeys;
 
     /**
      * The special "table of contents" topic.
@@ -88,6 +126,21 @@ public class HelpFile {
      */
     private Topic index;
 
+    /**
+     * The full-text search index.
+     */
+    private SearchIndex searchIndex;
+
+    /**
+     * The file to cache the index keys and search index in, or null.
+     */
+    private File cacheFile;
+
+    /**
+     * A value identifying the help file the cache was built from.
+     */
+    private long cacheStamp;
+
     /**
      * The name of this help file.
      */
@@ -124,46 +177,87 @@ public class HelpFile {
      * @throws ParserConfigurationException if no XML parser is available
      * @throws SAXException if XML parsing fails
      */
-    public void load(final InputStream input) throws IOException,
-                                ParserConfigurationException, SAXException {
+    public synchronized void load(final InputStream input) throws IOException,
+        ParserConfigurationException, SAXException {
 
-        topicsByTitle = new HashMap<String, Topic>();
-        topicsByTerm = new HashMap<String, Topic>();
+        cacheFile = null;
+        loadTopics(input);
+    }
+
+    /**
+     * Load a help file from a file.  The index keys and search index are
+     * cached in a file next to it (filename + ".index"), and reused on the
+     * next load if the help file has not changed.
+     *
+     * @param filename the help file name
+     * @throws IOException if an I/O error occurs
+     * @throws ParserConfigurationException if no XML parser is available
+     * @throws SAXException if XML parsing fails
+     */
+    public synchronized void load(final String filename) throws IOException,
+        ParserConfigurationException, SAXException {
 
+        File file = new File(filename);
+        InputStream input = new BufferedInputStream(new FileInputStream(file));
         try {
             loadTopics(input);
         } finally {
-            // Always generate the TOC and Index from what was read.
-            generateTableOfContents();
-            generateIndex();
+            input.close();
         }
+
+        cacheFile = new File(filename + ".index");
+        cacheStamp = (file.length() * 31) + file.lastModified();
+        readCache();
     }
 
     /**
-     * Get a topic by title.
+     * Get a topic by title.  The topic is built from its text the first
+     * time it is asked for.
      *
      * @param title the title for the topic
      * @return the topic, or the "not found" topic if title is not found
      */
-    public Topic getTopic(final String title) {
+    public synchronized Topic getTopic(final String title) {
         Topic topic = topicsByTitle.get(title);
         if (topic == null) {
-            return Topic.NOT_FOUND;
+            String text = topicSources.remove(title);
+            if (text == null) {
+                return Topic.NOT_FOUND;
+            }
+            topic = new Topic(title, text);
+            topicsByTitle.put(title, topic);
         }
         return topic;
     }
 
     /**
-     * Get the special "search results" topic.
+     * Get the special "search results" topic.  Search strings that are
+     * plain words are answered from the search index, ranked by relevance;
+     * anything else is treated as a regular expression.
      *
-     * @param searchString a regular expression search string
+     * @param searchString one or more words, or a regular expression search
+     * string
      * @return an index topic containing topics with text that matches the
      * search string
      */
     public Topic getSearchResults(final String searchString) {
-        List<Topic> allTopics = new ArrayList<Topic>();
-        allTopics.addAll(topicsByTitle.values());
-        Collections.sort(allTopics);
+        if (SearchIndex.isWordQuery(searchString)) {
+            return makeSearchResults(searchString,
+                getSearchIndex().search(searchString));
+        }
+        return getRegexSearchResults(searchString);
+    }
+
+    /**
+     * Get the special "search results" topic by matching a regular
+     * expression against every topic.
+     *
+     * @param searchString a regular expression search string
+     * @return an index topic containing topics with text that matches the
+     * search string
+     */
+    public Topic getRegexSearchResults(final String searchString) {
+        List<Topic> allTopics = getAllTopics();
 
         List<Topic> results = new ArrayList<Topic>();
         Pattern pattern = Pattern.compile(searchString);
@@ -192,14 +286,31 @@ public class HelpFile {
             }
         }
 
+        List<String> titles = new ArrayList<String>(results.size());
+        for (Topic topic: results) {
+            titles.add(topic.getTitle());
+        }
+        return makeSearchResults(searchString, titles);
+    }
+
+    /**
+     * Make the special "search results" topic.
+     *
+     * @param searchString the search string
+     * @param titles the titles of the matching topics
+     * @return an index topic linking to the topics
+     */
+    private Topic makeSearchResults(final String searchString,
+        final List<String> titles) {
+
         StringBuilder text = new StringBuilder();
         int wordIndex = 0;
         List<Link> links = new ArrayList<Link>();
-        for (Topic topic: results) {
-            text.append(topic.getTitle());
+        for (String title: titles) {
+            text.append(title);
             text.append("\n\n");
 
-            Link link = new Link(topic.getTitle(), topic.getTitle(), wordIndex);
+            Link link = new Link(title, title, wordIndex);
             wordIndex += link.getWordCount();
             links.add(link);
         }
@@ -213,7 +324,10 @@ public class HelpFile {
      *
      * @return the table of contents topic
      */
-    public Topic getTableOfContents() {
+    public synchronized Topic getTableOfContents() {
+        if (tableOfContents == null) {
+            generateTableOfContents();
+        }
         return tableOfContents;
     }
 
@@ -222,26 +336,54 @@ public class HelpFile {
      *
      * @return the index topic
      */
-    public Topic getIndex() {
+    public synchronized Topic getIndex() {
+        if (index == null) {
+            if (indexKeys == null) {
+                buildCache();
+            }
+            generateIndex();
+        }
         return index;
     }
 
     /**
-     * Generate the table of contents topic.
+     * Get the search index, building it if needed.
+     *
+     * @return the search index
+     */
+    private synchronized SearchIndex getSearchIndex() {
+        if (searchIndex == null) {
+            buildCache();
+        }
+        return searchIndex;
+    }
+
+    /**
+     * Get every topic, sorted by title.  This builds any topics that have
+     * not been built yet.
+     *
+     * @return the topics
      */
-    private void generateTableOfContents() {
-        List<Topic> allTopics = new ArrayList<Topic>();
-        allTopics.addAll(topicsByTitle.values());
-        Collections.sort(allTopics);
+    private synchronized List<Topic> getAllTopics() {
+        List<Topic> allTopics = new ArrayList<Topic>(titles.size());
+        for (String title: titles) {
+            allTopics.add(getTopic(title));
+        }
+        return allTopics;
+    }
 
+    /**
+     * Generate the table of contents topic.  This only needs the titles.
+     */
+    private void generateTableOfContents() {
         StringBuilder text = new StringBuilder();
         int wordIndex = 0;
         List<Link> links = new ArrayList<Link>();
-        for (Topic topic: allTopics) {
-            text.append(topic.getTitle());
+        for (String title: titles) {
+            text.append(title);
             text.append("\n\n");
 
-            Link link = new Link(topic.getTitle(), topic.getTitle(), wordIndex);
+            Link link = new Link(title, title, wordIndex);
             wordIndex += link.getWordCount();
             links.add(link);
         }
@@ -251,23 +393,24 @@ public class HelpFile {
     }
 
     /**
-     * Generate the index topic.
+     * Generate the index topic from the index keys.
      */
     private void generateIndex() {
-        List<Topic> allTopics = new ArrayList<Topic>();
-        allTopics.addAll(topicsByTitle.values());
-
-        HashMap<String, ArrayList<Topic>> allKeys;
-        allKeys = new HashMap<String, ArrayList<Topic>>();
-        for (Topic topic: allTopics) {
-            for (String key: topic.getIndexKeys()) {
+        HashMap<String, ArrayList<String>> allKeys;
+        allKeys = new HashMap<String, ArrayList<String>>();
+        for (String title: titles) {
+            List<String> topicKeys = indexKeys.get(title);
+            if (topicKeys == null) {
+                continue;
+            }
+            for (String key: topicKeys) {
                 key = key.toLowerCase();
-                ArrayList<Topic> topics = allKeys.get(key);
+                ArrayList<String> topics = allKeys.get(key);
                 if (topics == null) {
-                    topics = new ArrayList<Topic>();
+                    topics = new ArrayList<String>();
                     allKeys.put(key, topics);
                 }
-                topics.add(topic);
+                topics.add(title);
             }
         }
         List<String> keys = new ArrayList<String>();
@@ -279,15 +422,15 @@ public class HelpFile {
         List<Link> links = new ArrayList<Link>();
 
         for (String key: keys) {
-            List<Topic> topics = allKeys.get(key);
+            List<String> topics = allKeys.get(key);
             assert (topics != null);
-            for (Topic topic: topics) {
-                String line = String.format("%15s %15s", key, topic.getTitle());
+            for (String title: topics) {
+                String line = String.format("%15s %15s", key, title);
                 text.append(line);
                 text.append("\n\n");
 
                 wordIndex += key.split("\\s+").length;
-                Link link = new Link(topic.getTitle(), topic.getTitle(), wordIndex);
+                Link link = new Link(title, title, wordIndex);
                 wordIndex += link.getWordCount();
                 links.add(link);
             }
@@ -297,7 +440,107 @@ public class HelpFile {
     }
 
     /**
-     * Load topics from a help file into the topics pool.
+     * Build every topic to collect the index keys and search index, and
+     * save them to the cache file if there is one.
+     */
+    private void buildCache() {
+        List<Topic> allTopics = getAllTopics();
+        indexKeys = new HashMap<String, List<String>>();
+        for (Topic topic: allTopics) {
+            indexKeys.put(topic.getTitle(),
+                new ArrayList<String>(topic.getIndexKeys()));
+        }
+        searchIndex = new SearchIndex(allTopics);
+
+        if (cacheFile != null) {
+            try {
+                writeCache();
+            } catch (IOException e) {
+                // The cache is optional, e.g. the directory is read-only.
+                cacheFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Save the index keys and search index to the cache file.
+     *
+     * @throws IOException if a java.io operation throws
+     */
+    private void writeCache() throws IOException {
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(cacheFile)));
+            output.writeInt(CACHE_MAGIC);
+            output.writeInt(CACHE_VERSION);
+            output.writeLong(cacheStamp);
+            output.writeInt(indexKeys.size());
+            for (String title: indexKeys.keySet()) {
+                List<String> keys = indexKeys.get(title);
+                output.writeUTF(title);
+                output.writeInt(keys.size());
+                for (String key: keys) {
+                    output.writeUTF(key);
+                }
+            }
+            searchIndex.write(output);
+        } finally {
+            if (output != null) {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Read the index keys and search index from the cache file, if it
+     * exists and was built from the same help file.
+     */
+    private void readCache() {
+        if (!cacheFile.canRead()) {
+            return;
+        }
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(cacheFile)));
+            if ((input.readInt() != CACHE_MAGIC)
+                || (input.readInt() != CACHE_VERSION)
+                || (input.readLong() != cacheStamp)
+            ) {
+                return;
+            }
+            HashMap<String, List<String>> keys;
+            keys = new HashMap<String, List<String>>();
+            int n = input.readInt();
+            for (int i = 0; i < n; i++) {
+                String title = input.readUTF();
+                int count = input.readInt();
+                List<String> topicKeys = new ArrayList<String>(count);
+                for (int j = 0; j < count; j++) {
+                    topicKeys.add(input.readUTF());
+                }
+                keys.put(title, topicKeys);
+            }
+            searchIndex = SearchIndex.read(input);
+            indexKeys = keys;
+        } catch (IOException e) {
+            // A damaged cache is simply rebuilt.
+            searchIndex = null;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    // SQUASH
+                }
+            }
+        }
+    }
+
+    /**
+     * Load the topic titles and text from a help file.  The XML is
+     * streamed through once; topics are not built until getTopic().
      *
      * @param input the input strem
      * @throws IOException if an I/O error occurs
@@ -305,76 +548,140 @@ public class HelpFile {
      * @throws SAXException if XML parsing fails
      */
     private void loadTopics(final InputStream input) throws IOException,
-                                ParserConfigurationException, SAXException {
+        ParserConfigurationException, SAXException {
 
-        if (domBuilder == null) {
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.
-                                                                newInstance();
-            domBuilder = dbFactory.newDocumentBuilder();
-        }
-        Document doc = domBuilder.parse(input);
-
-        // Get the document's root XML node
-        Node root = doc.getChildNodes().item(0);
-        NodeList level1 = root.getChildNodes();
-        for (int i = 0; i < level1.getLength(); i++) {
-            Node node = level1.item(i);
-            String name = node.getNodeName();
-            String value = node.getTextContent();
-
-            if (name.equals("name")) {
-                this.name = value;
-            }
-            if (name.equals("version")) {
-                this.version = value;
-            }
-            if (name.equals("author")) {
-                this.author = value;
-            }
-            if (name.equals("date")) {
-                this.date = value;
-            }
-            if (name.equals("topics")) {
-                NodeList topics = node.getChildNodes();
-                for (int j = 0; j < topics.getLength(); j++) {
-                    Node topic = topics.item(j);
-                    addTopic(topic);
-                }
+        titles = new ArrayList<String>();
+        topicSources = new HashMap<String, String>();
+        topicsByTitle = new HashMap<String, Topic>();
+        indexKeys = null;
+        tableOfContents = null;
+        index = null;
+        searchIndex = null;
+
+        if (xmlFactory == null) {
+            try {
+                xmlFactory = XMLInputFactory.newInstance();
+            } catch (FactoryConfigurationError e) {
+                throw new ParserConfigurationException(e.getMessage());
             }
+            xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            xmlFactory.setProperty(XMLInputFactory.IS_COALESCING,
+                Boolean.TRUE);
         }
+        try {
+            readTopics(input);
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
+        }
+        Collections.sort(titles);
     }
 
     /**
-     * Add a topic to this help file.
+     * Read the topics of a help file with the XML reader.
      *
-     * @param xmlNode the topic XML node
-     * @throws IOException if a java.io operation throws
+     * @param input the input strem
+     * @throws XMLStreamException if XML parsing fails
      */
-    private void addTopic(final Node xmlNode) throws IOException {
-        String title = "";
-        String text = "";
+    private void readTopics(final InputStream input)
+        throws XMLStreamException {
 
-        NamedNodeMap attributes = xmlNode.getAttributes();
-        if (attributes != null) {
-            for (int i = 0; i < attributes.getLength(); i++) {
-                Node attr = attributes.item(i);
-                if (attr.getNodeName().equals("title")) {
-                    title = attr.getNodeValue().trim();
+        XMLStreamReader reader = xmlFactory.createXMLStreamReader(input);
+        try {
+            // depth 1 is the root, 2 is name/version/topics, 3 is a topic.
+            int depth = 0;
+            String title = null;
+            String text = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 3) {
+                        addTopic(title, text);
+                    }
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                depth++;
+                String name = reader.getLocalName();
+
+                if (depth == 2) {
+                    if (name.equals("name")) {
+                        this.name = readText(reader);
+                        depth--;
+                    } else if (name.equals("version")) {
+                        this.version = readText(reader);
+                        depth--;
+                    } else if (name.equals("author")) {
+                        this.author = readText(reader);
+                        depth--;
+                    } else if (name.equals("date")) {
+                        this.date = readText(reader);
+                        depth--;
+                    }
+                } else if (depth == 3) {
+                    title = reader.getAttributeValue(null, "title");
+                    text = "";
+                } else if ((depth == 4) && name.equals("text")) {
+                    text = readText(reader).trim();
+                    depth--;
                 }
             }
+        } finally {
+            reader.close();
         }
-        NodeList level2 = xmlNode.getChildNodes();
-        for (int i = 0; i < level2.getLength(); i++) {
-            Node node = level2.item(i);
-            String nodeName = node.getNodeName();
-            String nodeValue = node.getTextContent();
-            if (nodeName.equals("text")) {
-                text = nodeValue.trim();
+    }
+
+    /**
+     * Read all of the text inside the current element, including the text
+     * of any child elements, leaving the reader on its end tag.
+     *
+     * @param reader the XML reader, on a start tag
+     * @return the text
+     * @throws XMLStreamException if XML parsing fails
+     */
+    private String readText(final XMLStreamReader reader)
+        throws XMLStreamException {
+
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                text.append(reader.getText());
+                break;
+            default:
+                break;
             }
         }
-        if (title.length() > 0) {
-            Topic topic = new Topic(title, text);
-            topicsByTitle.put(title, topic);
+        return text.toString();
+    }
+
+    /**
+     * Add a topic to this help file.
+     *
+     * @param title the topic title
+     * @param text the unprocessed topic text
+     */
+    private void addTopic(final String title, final String text) {
+        if (title == null) {
+            return;
+        }
+        String trimmed = title.trim();
+        if (trimmed.length() > 0) {
+            if (topicSources.put(trimmed, text) == null) {
+                titles.add(trimmed);
+            }
         }
     }
 
@@ -0,0 +1,452 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.help;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * SearchIndex is an inverted index over the words of a collection of
+ * Topics.  It maps each word to the topics that contain it, weighted by
+ * how often the word appears and whether it appears in the title.
+ * Queries are one or more words; every word must be present in a topic
+ * for it to match, and the last word (or any word ending in '*') also
+ * matches as a prefix.  Results are ranked by score.
+ *
+ * The index can be saved to and read from a stream, so that a large help
+ * file does not need to be re-indexed on every start.
+ */
+public class SearchIndex {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Weight of a word that appears in a topic's title.
+     */
+    private static final int TITLE_WEIGHT = 10;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The topic titles, sorted.  Postings refer to topics by their position
+     * in this array.
+     */
+    private String [] titles;
+
+    /**
+     * The indexed words, sorted.
+     */
+    private String [] terms;
+
+    /**
+     * The postings for each word: pairs of (topic number, weight), sorted
+     * by topic number.
+     */
+    private int [][] postings;
+
+    /**
+     * The words of the last query.
+     */
+    private List<String> lastQuery = null;
+
+    /**
+     * Which words of the last query matched as a prefix.
+     */
+    private boolean [] lastPrefixes = null;
+
+    /**
+     * The topic numbers that matched the last query.
+     */
+    private int [] lastMatches = null;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor builds the index from topics.
+     *
+     * @param topics the topics to index
+     */
+    public SearchIndex(final Collection<Topic> topics) {
+        List<Topic> sorted = new ArrayList<Topic>(topics);
+        Collections.sort(sorted);
+
+        titles = new String[sorted.size()];
+        TreeMap<String, HashMap<Integer, int []>> words;
+        words = new TreeMap<String, HashMap<Integer, int []>>();
+
+        for (int i = 0; i < titles.length; i++) {
+            Topic topic = sorted.get(i);
+            titles[i] = topic.getTitle();
+            addWords(words, i, topic.getTitle(), TITLE_WEIGHT);
+            addWords(words, i, topic.getText(), 1);
+        }
+
+        terms = new String[words.size()];
+        postings = new int[words.size()][];
+        int n = 0;
+        for (String term: words.keySet()) {
+            HashMap<Integer, int []> weights = words.get(term);
+            Integer [] topicNumbers = weights.keySet().toArray(
+                new Integer[weights.size()]);
+            Arrays.sort(topicNumbers);
+            int [] list = new int[topicNumbers.length * 2];
+            for (int j = 0; j < topicNumbers.length; j++) {
+                list[j * 2] = topicNumbers[j];
+                list[j * 2 + 1] = weights.get(topicNumbers[j])[0];
+            }
+            terms[n] = term;
+            postings[n] = list;
+            n++;
+        }
+    }
+
+    /**
+     * Private constructor used by read().
+     */
+    private SearchIndex() {
+        // NOP
+    }
+
+    // ------------------------------------------------------------------------
+    // SearchIndex ------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Add the words of a string to the word map.
+     *
+     * @param words the word map
+     * @param topicNumber the topic the string came from
+     * @param text the string
+     * @param weight the weight of each occurrence
+     */
+    private void addWords(final TreeMap<String, HashMap<Integer, int []>> words,
+        final int topicNumber, final String text, final int weight) {
+
+        for (String word: splitWords(text)) {
+            HashMap<Integer, int []> weights = words.get(word);
+            if (weights == null) {
+                weights = new HashMap<Integer, int []>();
+                words.put(word, weights);
+            }
+            int [] total = weights.get(topicNumber);
+            if (total == null) {
+                total = new int[1];
+                weights.put(topicNumber, total);
+            }
+            total[0] += weight;
+        }
+    }
+
+    /**
+     * Split a string into lowercase words.  A word is a run of letters and
+     * digits.
+     *
+     * @param text the string
+     * @return the words
+     */
+    public static List<String> splitWords(final String text) {
+        List<String> result = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = (i < text.length())
+                && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && (start == -1)) {
+                start = i;
+            } else if (!wordChar && (start != -1)) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find which words of a search string match as a prefix: the last word,
+     * and any word followed directly by a '*'.
+     *
+     * @param searchString the search string
+     * @param wordCount the number of words splitWords() found in it
+     * @return one flag per word
+     */
+    private static boolean [] findPrefixes(final String searchString,
+        final int wordCount) {
+
+        boolean [] prefixes = new boolean[wordCount];
+        int word = -1;
+        boolean inWord = false;
+        for (int i = 0; i < searchString.length(); i++) {
+            char ch = searchString.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                if (!inWord) {
+                    word++;
+                    inWord = true;
+                }
+                continue;
+            }
+            if (inWord && (ch == '*')) {
+                prefixes[word] = true;
+            }
+            inWord = false;
+        }
+        if (wordCount > 0) {
+            prefixes[wordCount - 1] = true;
+        }
+        return prefixes;
+    }
+
+    /**
+     * See if every topic that matches a query also matched the last query,
+     * so that the last matches can be used as the candidates.  This is
+     * true when the user is still typing: the last query's words are all
+     * still there and unchanged, except that its last word may have grown,
+     * and new words may follow it.
+     *
+     * @param query the words of the query
+     * @param prefixes which words of the query match as a prefix
+     * @return true if the last matches can be reused
+     */
+    private boolean extendsLastQuery(final List<String> query,
+        final boolean [] prefixes) {
+
+        if ((lastQuery == null) || (lastQuery.size() > query.size())) {
+            return false;
+        }
+        int last = lastQuery.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (!lastQuery.get(i).equals(query.get(i))
+                || (lastPrefixes[i] != prefixes[i])
+            ) {
+                return false;
+            }
+        }
+        // The last word of the last query was a prefix, so anything that
+        // starts with it matches a subset of what it did.
+        return query.get(last).startsWith(lastQuery.get(last));
+    }
+
+    /**
+     * See if a search string can be answered by the index, i.e. it is a
+     * list of words rather than a regular expression.
+     *
+     * @param searchString the search string
+     * @return true if the search string has at least one word and no
+     * regular expression operators other than a '*' at the end of a word
+     */
+    public static boolean isWordQuery(final String searchString) {
+        boolean hasWord = false;
+        for (int i = 0; i < searchString.length(); i++) {
+            char ch = searchString.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                hasWord = true;
+                continue;
+            }
+            if (Character.isWhitespace(ch) || (ch == '-') || (ch == '\'')) {
+                continue;
+            }
+            if ((ch == '*')
+                && (i > 0)
+                && Character.isLetterOrDigit(searchString.charAt(i - 1))
+                && ((i == searchString.length() - 1)
+                    || Character.isWhitespace(searchString.charAt(i + 1)))
+            ) {
+                continue;
+            }
+            return false;
+        }
+        return hasWord;
+    }
+
+    /**
+     * Find the topics that match a search string.
+     *
+     * @param searchString one or more words.  The last word, and any word
+     * ending in '*', also match as a prefix.
+     * @return the titles of the matching topics, best match first
+     */
+    public synchronized List<String> search(final String searchString) {
+        List<String> query = splitWords(searchString);
+        List<String> result = new ArrayList<String>();
+        if (query.size() == 0) {
+            return result;
+        }
+
+        boolean [] prefixes = findPrefixes(searchString, query.size());
+
+        // If this query only extends the previous query (the user is still
+        // typing), then only the previous matches can match this one.
+        boolean [] candidates = null;
+        if (extendsLastQuery(query, prefixes)) {
+            candidates = new boolean[titles.length];
+            for (int i = 0; i < lastMatches.length; i++) {
+                candidates[lastMatches[i]] = true;
+            }
+        }
+
+        final double [] scores = new double[titles.length];
+        int [] hits = new int[titles.length];
+        for (int q = 0; q < query.size(); q++) {
+            String word = query.get(q);
+            boolean prefix = prefixes[q];
+
+            // The first term that is >= word.
+            int first = Arrays.binarySearch(terms, word);
+            if (first < 0) {
+                first = -first - 1;
+            }
+            int last = first;
+            if (prefix) {
+                while ((last < terms.length) && terms[last].startsWith(word)) {
+                    last++;
+                }
+            } else if ((first < terms.length) && terms[first].equals(word)) {
+                last = first + 1;
+            }
+
+            // A topic counts as one hit per query word, no matter how many
+            // terms it matched with that word.
+            boolean [] seen = new boolean[titles.length];
+            for (int t = first; t < last; t++) {
+                int [] list = postings[t];
+                int df = list.length / 2;
+                double idf = Math.log(1.0 + ((double) titles.length / df));
+                double factor = terms[t].length() == word.length() ? 1.0 : 0.5;
+                for (int i = 0; i < list.length; i += 2) {
+                    int topic = list[i];
+                    if ((candidates != null) && !candidates[topic]) {
+                        continue;
+                    }
+                    scores[topic] += list[i + 1] * idf * factor;
+                    if (!seen[topic]) {
+                        seen[topic] = true;
+                        hits[topic]++;
+                    }
+                }
+            }
+        }
+
+        List<Integer> matches = new ArrayList<Integer>();
+        for (int i = 0; i < titles.length; i++) {
+            if (hits[i] == query.size()) {
+                matches.add(i);
+            }
+        }
+        Collections.sort(matches, new Comparator<Integer>() {
+            public int compare(final Integer a, final Integer b) {
+                if (scores[a] != scores[b]) {
+                    return (scores[a] > scores[b] ? -1 : 1);
+                }
+                return a.compareTo(b);
+            }
+        });
+
+        lastQuery = query;
+        lastPrefixes = prefixes;
+        lastMatches = new int[matches.size()];
+        for (int i = 0; i < lastMatches.length; i++) {
+            lastMatches[i] = matches.get(i);
+            result.add(titles[lastMatches[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of indexed words.
+     *
+     * @return the number of words
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Save this index to a stream.
+     *
+     * @param output the stream to write to
+     * @throws IOException if a java.io operation throws
+     */
+    public void write(final DataOutputStream output) throws IOException {
+        output.writeInt(titles.length);
+        for (String title: titles) {
+            output.writeUTF(title);
+        }
+        output.writeInt(terms.length);
+        for (int i = 0; i < terms.length; i++) {
+            output.writeUTF(terms[i]);
+            output.writeInt(postings[i].length);
+            for (int j = 0; j < postings[i].length; j++) {
+                output.writeInt(postings[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Read an index from a stream.
+     *
+     * @param input the stream to read, positioned where write() started
+     * @return the index
+     * @throws IOException if a java.io operation throws
+     */
+    public static SearchIndex read(final DataInputStream input)
+        throws IOException {
+
+        SearchIndex index = new SearchIndex();
+        index.titles = new String[input.readInt()];
+        for (int i = 0; i < index.titles.length; i++) {
+            index.titles[i] = input.readUTF();
+        }
+        int n = input.readInt();
+        index.terms = new String[n];
+        index.postings = new int[n][];
+        for (int i = 0; i < n; i++) {
+            index.terms[i] = input.readUTF();
+            index.postings[i] = new int[input.readInt()];
+            for (int j = 0; j < index.postings[i].length; j++) {
+                index.postings[i][j] = input.readInt();
+            }
+        }
+        return index;
+    }
+
+}
@@ -40,6 +40,7 @@ import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * THelpText displays help text with clickable links in a scrollable text
@@ -293,7 +294,7 @@ public class THelpText extends TScrollableWidget {
     @Override
     public void draw() {
         // Setup my color
-        CellAttributes color = getTheme().getColor("thelpwindow.text");
+        CellAttributes color = getTheme().getColor(THELPWINDOW_TEXT);
         for (int y = 0; y < getHeight(); y++) {
             hLineXY(0, y, getWidth(), ' ', color);
         }
@@ -35,6 +35,7 @@ import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TWord contains either a string to display or a clickable link.
@@ -125,12 +126,12 @@ public class TWord extends TWidget {
      */
     @Override
     public void draw() {
-        CellAttributes color = getTheme().getColor("thelpwindow.text");
+        CellAttributes color = getTheme().getColor(THELPWINDOW_TEXT);
         if (link != null) {
             if (isAbsoluteActive()) {
-                color = getTheme().getColor("thelpwindow.link.active");
+                color = getTheme().getColor(THELPWINDOW_LINK_ACTIVE);
             } else {
-                color = getTheme().getColor("thelpwindow.link");
+                color = getTheme().getColor(THELPWINDOW_LINK);
             }
         }
         putStringXY(0, 0, words, color);
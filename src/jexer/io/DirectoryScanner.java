@@ -0,0 +1,401 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DirectoryScanner lists a directory on a background thread, so that a
+ * slow filesystem or a very large directory does not freeze the user
+ * interface.  The entries and their attributes are handed to a listener
+ * in batches as they are read.  Recently scanned directories are cached
+ * until the directory's modification time changes.
+ */
+public class DirectoryScanner implements Runnable {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Maximum number of entries in one batch.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Maximum time in millis to hold a partial batch.
+     */
+    private static final long BATCH_INTERVAL = 100;
+
+    /**
+     * Maximum number of directories to keep in the cache.
+     */
+    private static final int CACHE_SIZE = 32;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The entries of recently scanned directories, least recently used
+     * first.
+     */
+    private static Map<File, CachedDirectory> cache =
+        new LinkedHashMap<File, CachedDirectory>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+            final Map.Entry<File, CachedDirectory> eldest) {
+
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * The directory to scan.
+     */
+    private File directory;
+
+    /**
+     * The listener to hand entries to.
+     */
+    private Listener listener;
+
+    /**
+     * If true, the scan was cancelled.
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * If true, the scan has finished or was cancelled.
+     */
+    private volatile boolean done = false;
+
+    /**
+     * A directory in the cache.
+     */
+    private static class CachedDirectory {
+
+        /**
+         * The directory modification time when it was scanned.
+         */
+        public long lastModified;
+
+        /**
+         * The entries.
+         */
+        public List<Entry> entries;
+
+    }
+
+    /**
+     * One entry of a directory, with the attributes that were read for it
+     * on the scanning thread.
+     */
+    public static class Entry {
+
+        /**
+         * The file.
+         */
+        private File file;
+
+        /**
+         * The canonical file, if this is a directory.
+         */
+        private File canonicalFile = null;
+
+        /**
+         * True if this is a directory.
+         */
+        private boolean directory;
+
+        /**
+         * True if this can be read.
+         */
+        private boolean readable;
+
+        /**
+         * The file length in bytes.
+         */
+        private long length;
+
+        /**
+         * Private constructor reads the attributes of a file.
+         *
+         * @param file the file
+         */
+        private Entry(final File file) {
+            this.file = file;
+            directory = file.isDirectory();
+            readable = file.canRead();
+            if (directory) {
+                try {
+                    canonicalFile = file.getCanonicalFile();
+                } catch (IOException e) {
+                    // SQUASH
+                }
+            } else {
+                length = file.length();
+            }
+        }
+
+        /**
+         * Get the file.
+         *
+         * @return the file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Get the file name.
+         *
+         * @return the name, without the directory
+         */
+        public String getName() {
+            return file.getName();
+        }
+
+        /**
+         * Get the canonical file of a directory.
+         *
+         * @return the canonical file, or null if this is not a directory or
+         * the canonical path could not be determined
+         */
+        public File getCanonicalFile() {
+            return canonicalFile;
+        }
+
+        /**
+         * See if this is a directory.
+         *
+         * @return true if this is a directory
+         */
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * See if this can be read.
+         *
+         * @return true if this can be read
+         */
+        public boolean canRead() {
+            return readable;
+        }
+
+        /**
+         * Get the file length.
+         *
+         * @return the length in bytes, or 0 for a directory
+         */
+        public long length() {
+            return length;
+        }
+
+    }
+
+    /**
+     * Listener receives the entries of a scan.  It is called on the
+     * scanning thread, and is not called again after the scan is
+     * cancelled.
+     */
+    public interface Listener {
+
+        /**
+         * Function to call when a batch of entries has been read.
+         *
+         * @param scanner the scanner
+         * @param entries the entries
+         */
+        public void entriesFound(final DirectoryScanner scanner,
+            final List<Entry> entries);
+
+        /**
+         * Function to call when all of the entries have been read.
+         *
+         * @param scanner the scanner
+         */
+        public void scanFinished(final DirectoryScanner scanner);
+
+    }
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Public constructor.
+     *
+     * @param directory the directory to scan
+     * @param listener the listener to hand entries to
+     */
+    public DirectoryScanner(final File directory, final Listener listener) {
+        this.directory = directory;
+        this.listener = listener;
+    }
+
+    // ------------------------------------------------------------------------
+    // Runnable ---------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Scan the directory.
+     */
+    public void run() {
+        try {
+            scan();
+        } finally {
+            done = true;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // DirectoryScanner -------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Start scanning on a new thread.
+     *
+     * @return this scanner
+     */
+    public DirectoryScanner start() {
+        Thread thread = new Thread(this, "DirectoryScanner " + directory);
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Stop scanning.  The listener will not be called again.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * See if the scan was cancelled.
+     *
+     * @return true if cancel() was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * See if the scan is over.
+     *
+     * @return true if the scan finished or was cancelled
+     */
+    public boolean isDone() {
+        return done || cancelled;
+    }
+
+    /**
+     * Get the directory being scanned.
+     *
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Read the directory entries and hand them to the listener.
+     */
+    private void scan() {
+        long lastModified = directory.lastModified();
+        List<Entry> entries = null;
+        synchronized (cache) {
+            CachedDirectory cached = cache.get(directory);
+            if ((cached != null)
+                && (lastModified != 0)
+                && (cached.lastModified == lastModified)
+            ) {
+                entries = cached.entries;
+            }
+        }
+        if (entries != null) {
+            if (!cancelled) {
+                listener.entriesFound(this, entries);
+                listener.scanFinished(this);
+            }
+            return;
+        }
+
+        String [] names = directory.list();
+        entries = new ArrayList<Entry>();
+        List<Entry> batch = new ArrayList<Entry>();
+        long batchTime = System.currentTimeMillis();
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (cancelled) {
+                    return;
+                }
+                Entry entry = new Entry(new File(directory, names[i]));
+                entries.add(entry);
+                batch.add(entry);
+                long now = System.currentTimeMillis();
+                if ((batch.size() >= BATCH_SIZE)
+                    || (now - batchTime >= BATCH_INTERVAL)
+                ) {
+                    listener.entriesFound(this, batch);
+                    batch = new ArrayList<Entry>();
+                    batchTime = now;
+                }
+            }
+        }
+        if (cancelled) {
+            return;
+        }
+        if (batch.size() > 0) {
+            listener.entriesFound(this, batch);
+        }
+
+        if ((names != null) && (lastModified != 0)) {
+            CachedDirectory cached = new CachedDirectory();
+            cached.lastModified = lastModified;
+            cached.entries = Collections.unmodifiableList(entries);
+            synchronized (cache) {
+                cache.put(directory, cached);
+            }
+        }
+        listener.scanFinished(this);
+    }
+
+}
@@ -42,6 +42,7 @@ import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TMenu is a top-level collection of TMenuItems.
@@ -65,6 +66,7 @@ public class TMenu extends TWindow {
     public static final int MID_VIEW_IMAGE      = 2;
     public static final int MID_VIEW_ANSI       = 3;
     public static final int MID_SCREEN_OPTIONS  = 4;
+    public static final int MID_METRICS         = 5;
 
     // File menu
     public static final int MID_NEW             = 10;
@@ -396,7 +398,7 @@ public class TMenu extends TWindow {
      */
     @Override
     public void draw() {
-        CellAttributes background = getTheme().getColor("tmenu");
+        CellAttributes background = getTheme().getColor(TMENU);
 
         assert (isAbsoluteActive());
 
@@ -655,6 +657,10 @@ public class TMenu extends TWindow {
             label = i18n.getString("menuScreenOptions");
             break;
 
+        case MID_METRICS:
+            label = i18n.getString("menuMetrics");
+            break;
+
         case MID_NEW:
             label = i18n.getString("menuNew");
             icon = 0x1F5CE;
@@ -40,6 +40,7 @@ import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import jexer.event.TMenuEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TMenuItem implements a menu item.
@@ -232,19 +233,19 @@ public class TMenuItem extends TWidget {
      */
     @Override
     public void draw() {
-        CellAttributes background = getTheme().getColor("tmenu");
+        CellAttributes background = getTheme().getColor(TMENU);
         CellAttributes menuColor;
         CellAttributes menuMnemonicColor;
         if (isAbsoluteActive()) {
-            menuColor = getTheme().getColor("tmenu.highlighted");
-            menuMnemonicColor = getTheme().getColor("tmenu.mnemonic.highlighted");
+            menuColor = getTheme().getColor(TMENU_HIGHLIGHTED);
+            menuMnemonicColor = getTheme().getColor(TMENU_MNEMONIC_HIGHLIGHTED);
         } else {
             if (isEnabled()) {
-                menuColor = getTheme().getColor("tmenu");
-                menuMnemonicColor = getTheme().getColor("tmenu.mnemonic");
+                menuColor = getTheme().getColor(TMENU);
+                menuMnemonicColor = getTheme().getColor(TMENU_MNEMONIC);
             } else {
-                menuColor = getTheme().getColor("tmenu.disabled");
-                menuMnemonicColor = getTheme().getColor("tmenu.disabled");
+                menuColor = getTheme().getColor(TMENU_DISABLED);
+                menuMnemonicColor = getTheme().getColor(TMENU_DISABLED);
             }
         }
 
@@ -31,6 +31,7 @@ package jexer.menu;
 import jexer.bits.BorderStyle;
 import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TMenuSeparator is a special case menu item.
@@ -64,7 +65,7 @@ public class TMenuSeparator extends TMenuItem {
      */
     @Override
     public void draw() {
-        CellAttributes background = getTheme().getColor("tmenu");
+        CellAttributes background = getTheme().getColor(TMENU);
 
         BorderStyle borderStyle = ((TMenu) getParent()).getBorderStyle();
         int cHSide = GraphicsChars.SINGLE_BAR;
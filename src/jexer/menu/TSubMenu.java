@@ -35,6 +35,7 @@ import jexer.bits.CellAttributes;
 import jexer.bits.GraphicsChars;
 import jexer.event.TKeypressEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TSubMenu is a special case menu item that wraps another TMenu.
@@ -156,12 +157,12 @@ public class TSubMenu extends TMenuItem {
 
         CellAttributes menuColor;
         if (isAbsoluteActive()) {
-            menuColor = getTheme().getColor("tmenu.highlighted");
+            menuColor = getTheme().getColor(TMENU_HIGHLIGHTED);
         } else {
             if (isEnabled()) {
-                menuColor = getTheme().getColor("tmenu");
+                menuColor = getTheme().getColor(TMENU);
             } else {
-                menuColor = getTheme().getColor("tmenu.disabled");
+                menuColor = getTheme().getColor(TMENU_DISABLED);
             }
         }
 
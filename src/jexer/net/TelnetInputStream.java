@@ -717,6 +717,7 @@ public class TelnetInputStream extends InputStream implements SessionInfo {
      *
      * When run as a server:
      *     Echo                          RFC 857
+     *     Compression (MCCP2)           option 86
      * </pre>
      *
      * @throws IOException if an I/O error occurs
@@ -760,6 +761,11 @@ public class TelnetInputStream extends InputStream implements SessionInfo {
                 DO(39);
             }
 
+            if (master.doCompress == true) {
+                // Compression - offer it
+                WILL(TELOPT_COMPRESS2);
+            }
+
         } else {
 
             if (master.doTermType == true) {
@@ -1267,6 +1273,23 @@ public class TelnetInputStream extends InputStream implements SessionInfo {
                         }
                         break;
 
+                    case TELOPT_COMPRESS2:
+                        // Compression (MCCP2)
+                        if (dowillType == (byte) TELNET_DO) {
+                            // Client asks for compressed output.
+                            if (master.isServer && master.doCompress) {
+                                output.startCompression();
+                            } else {
+                                WONT(b);
+                            }
+                        } else if (dowillType == (byte) TELNET_DONT) {
+                            // Client will not decompress.
+                            master.doCompress = false;
+                        } else if (dowillType == (byte) TELNET_WILL) {
+                            // We do not decompress input.
+                            DONT(b);
+                        }
+                        break;
 
                     default:
                         // Other side asked for something we don't
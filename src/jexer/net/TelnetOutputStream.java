@@ -30,6 +30,8 @@ package jexer.net;
 
 import java.io.OutputStream;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.zip.Deflater;
 
 import static jexer.net.TelnetSocket.*;
 
@@ -38,6 +40,21 @@ import static jexer.net.TelnetSocket.*;
  */
 public class TelnetOutputStream extends OutputStream {
 
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Deflater.SYNC_FLUSH, which is not available in Java 1.6.
+     */
+    private static final int SYNC_FLUSH = 2;
+
+    /**
+     * Deflater.deflate(byte [], int, int, int), or null if this is Java 1.6
+     * and the compressed stream cannot be flushed.
+     */
+    private static final Method DEFLATE_SYNC = getDeflateSync();
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -57,6 +74,26 @@ public class TelnetOutputStream extends OutputStream {
      */
     private boolean writeCR = false;
 
+    /**
+     * The compressor for MCCP2, or null if output is not compressed.
+     */
+    private Deflater deflater = null;
+
+    /**
+     * Compressed output waiting to be written.
+     */
+    private byte [] deflateBuffer = null;
+
+    /**
+     * The number of bytes passed to the compressor.
+     */
+    private long bytesIn = 0;
+
+    /**
+     * The number of compressed bytes written to the socket.
+     */
+    private long bytesOut = 0;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -85,6 +122,19 @@ public class TelnetOutputStream extends OutputStream {
     @Override
     public void close() throws IOException {
         if (output != null) {
+            synchronized (this) {
+                if (deflater != null) {
+                    // End the compressed stream cleanly.
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int n = deflater.deflate(deflateBuffer);
+                        output.write(deflateBuffer, 0, n);
+                        bytesOut += n;
+                    }
+                    deflater.end();
+                    deflater = null;
+                }
+            }
             output.close();
             output = null;
         }
@@ -102,10 +152,24 @@ public class TelnetOutputStream extends OutputStream {
             // The last byte sent to this.write() was a CR, which was never
             // actually sent.  So send the CR in ascii mode, then flush.
             // CR <anything> -> CR NULL
-            output.write(C_CR);
-            output.write(C_NUL);
+            byte [] bytes = { C_CR, C_NUL };
+            writeOut(bytes, 0, bytes.length);
             writeCR = false;
         }
+        synchronized (this) {
+            if (deflater != null) {
+                // Push everything written so far through the compressor, so
+                // that the other side can draw it now.  Callers flush at the
+                // end of each screen update, so this is also the only time
+                // the compressor is synced.
+                int n;
+                do {
+                    n = syncDeflate();
+                    output.write(deflateBuffer, 0, n);
+                    bytesOut += n;
+                } while (n == deflateBuffer.length);
+            }
+        }
         output.flush();
     }
 
@@ -162,7 +226,126 @@ public class TelnetOutputStream extends OutputStream {
      * @throws IOException if an I/O error occurs
      */
     void rawWrite(final byte[] b) throws IOException {
-        output.write(b, 0, b.length);
+        writeOut(b, 0, b.length);
+    }
+
+    /**
+     * See if this Java can flush a compressed stream, which is needed for
+     * MCCP2.
+     *
+     * @return true if compressed output is possible
+     */
+    static boolean canCompress() {
+        return (DEFLATE_SYNC != null);
+    }
+
+    /**
+     * Get the Java 1.7+ Deflater.deflate() that can sync the stream.
+     *
+     * @return the method, or null if this is Java 1.6
+     */
+    private static Method getDeflateSync() {
+        try {
+            return Deflater.class.getMethod("deflate", byte[].class,
+                int.class, int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            // This is Java 1.6, there is no way to sync.
+            return null;
+        } catch (Throwable e) {
+            // SQUASH
+            return null;
+        }
+    }
+
+    /**
+     * Start compressing output (MCCP2).  This sends IAC SB COMPRESS2 IAC
+     * SE, and everything written after that is one zlib stream.  Note
+     * package private access.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void startCompression() throws IOException {
+        if ((deflater != null) || !canCompress()) {
+            return;
+        }
+        byte [] start = {
+            (byte) TELNET_IAC, (byte) TELNET_SB, (byte) TELOPT_COMPRESS2,
+            (byte) TELNET_IAC, (byte) TELNET_SE
+        };
+        output.write(start, 0, start.length);
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        deflateBuffer = new byte[4096];
+    }
+
+    /**
+     * See if output is compressed.  Note package private access.
+     *
+     * @return true if output is compressed
+     */
+    synchronized boolean isCompressed() {
+        return (deflater != null);
+    }
+
+    /**
+     * Get the number of bytes passed to the compressor.  Note package
+     * private access.
+     *
+     * @return the number of bytes
+     */
+    synchronized long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Get the number of compressed bytes written to the socket.  Note
+     * package private access.
+     *
+     * @return the number of bytes
+     */
+    synchronized long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Sync the compressor.
+     *
+     * @return the number of bytes of output in deflateBuffer
+     * @throws IOException if the compressor cannot be called
+     */
+    private int syncDeflate() throws IOException {
+        try {
+            return ((Integer) DEFLATE_SYNC.invoke(deflater, deflateBuffer,
+                    0, deflateBuffer.length, SYNC_FLUSH)).intValue();
+        } catch (Exception e) {
+            throw new IOException("Unable to flush compressed stream: " +
+                e.getMessage());
+        }
+    }
+
+    /**
+     * Write bytes to the socket, through the compressor if it is on.
+     *
+     * @param b the data.
+     * @param off the start offset in the data.
+     * @param len the number of bytes to write.
+     * @throws IOException if an I/O error occurs
+     */
+    private synchronized void writeOut(final byte[] b, final int off,
+        final int len) throws IOException {
+
+        if (deflater == null) {
+            output.write(b, off, len);
+            return;
+        }
+        bytesIn += len;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            int n = deflater.deflate(deflateBuffer);
+            if (n > 0) {
+                output.write(deflateBuffer, 0, n);
+                bytesOut += n;
+            }
+        }
     }
 
     /**
@@ -185,7 +368,7 @@ public class TelnetOutputStream extends OutputStream {
                 // Flush what we have generated so far and reset the buffer,
                 // because the next byte could generate up to 4 output bytes
                 // (CR <something> <IAC> <IAC>).
-                output.write(writeBuffer, 0, writeBufferI);
+                writeOut(writeBuffer, 0, writeBufferI);
                 writeBufferI = 0;
             }
 
@@ -253,7 +436,7 @@ public class TelnetOutputStream extends OutputStream {
 
         if (writeBufferI > 0) {
             // Flush what we have generated so far and reset the buffer.
-            output.write(writeBuffer, 0, writeBufferI);
+            writeOut(writeBuffer, 0, writeBufferI);
         }
     }
 
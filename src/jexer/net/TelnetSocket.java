@@ -65,6 +65,9 @@ public class TelnetSocket extends Socket {
     static final int C_LF              = 0x0A;
     static final int C_CR              = 0x0D;
 
+    // Telnet options.  Note package private access.
+    static final int TELOPT_COMPRESS2  = 86;
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -125,6 +128,14 @@ public class TelnetSocket extends Socket {
      */
     boolean doEnvironment = true;
 
+    /**
+     * If true, offer to compress output with MCCP2 (telnet option 86).
+     * Terminal output is very repetitive and typically compresses to a
+     * fifth of its size or less.
+     */
+    boolean doCompress = System.getProperty("jexer.Telnet.compress",
+        "true").equals("true") && TelnetOutputStream.canCompress();
+
     /**
      * The terminal type reported by the client.
      */
@@ -200,4 +211,40 @@ public class TelnetSocket extends Socket {
         return (!binaryMode);
     }
 
+    /**
+     * See if output to the remote side is compressed (MCCP2).
+     *
+     * @return true if output is compressed
+     */
+    public boolean isCompressed() {
+        if (output == null) {
+            return false;
+        }
+        return output.isCompressed();
+    }
+
+    /**
+     * Get the number of bytes of output that have gone through compression.
+     *
+     * @return the number of bytes before compression
+     */
+    public long getUncompressedBytes() {
+        if (output == null) {
+            return 0;
+        }
+        return output.getBytesIn();
+    }
+
+    /**
+     * Get the number of compressed bytes sent to the remote side.
+     *
+     * @return the number of bytes after compression
+     */
+    public long getCompressedBytes() {
+        if (output == null) {
+            return 0;
+        }
+        return output.getBytesOut();
+    }
+
 }
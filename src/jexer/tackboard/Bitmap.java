@@ -56,6 +56,26 @@ public class Bitmap extends TackboardItem {
      */
     private BufferedImage renderedImage;
 
+    /**
+     * The X pixel offset within its cell of the rendered image.
+     */
+    private int renderedDx = -1;
+
+    /**
+     * The Y pixel offset within its cell of the rendered image.
+     */
+    private int renderedDy = -1;
+
+    /**
+     * The text cell width the rendered image was made for.
+     */
+    private int renderedTextWidth = -1;
+
+    /**
+     * The text cell height the rendered image was made for.
+     */
+    private int renderedTextHeight = -1;
+
     /**
      * Animation to display.
      */
@@ -202,6 +222,19 @@ public class Bitmap extends TackboardItem {
         }
         int dx = getX() % textWidth;
         int dy = getY() % textHeight;
+        if ((renderedImage != null)
+            && (dx == renderedDx)
+            && (dy == renderedDy)
+            && (textWidth == renderedTextWidth)
+            && (textHeight == renderedTextHeight)
+        ) {
+            // Moving by whole cells does not change the rendering.
+            return;
+        }
+        renderedDx = dx;
+        renderedDy = dy;
+        renderedTextWidth = textWidth;
+        renderedTextHeight = textHeight;
         if ((dx == 0) && (dy == 0)) {
             renderedImage = image;
             return;
@@ -236,6 +269,8 @@ public class Bitmap extends TackboardItem {
             animation = null;
         }
         this.image = image;
+        renderedImage = null;
+        invalidateTiles();
         setDirty();
     }
 
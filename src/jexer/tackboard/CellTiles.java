@@ -0,0 +1,285 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.tackboard;
+
+import java.awt.image.BufferedImage;
+
+import jexer.bits.ImageUtils;
+
+/**
+ * CellTiles holds a TackboardItem's rendered image cut into cell-sized
+ * tiles, along with a stable image ID for each tile and the last image
+ * each tile was composited into.  An item keeps its tiles until its
+ * rendered image or the cell size changes, so an item that is not moving
+ * puts the same image IDs on the screen every frame, and the backend can
+ * skip those cells.
+ */
+class CellTiles {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Tile has not been checked for visible pixels yet.
+     */
+    private static final byte UNKNOWN = 0;
+
+    /**
+     * Tile is fully transparent.
+     */
+    private static final byte TRANSPARENT = 1;
+
+    /**
+     * Tile has visible pixels.
+     */
+    private static final byte VISIBLE = 2;
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The image the tiles are cut from.
+     */
+    private BufferedImage image;
+
+    /**
+     * The width of a text cell.
+     */
+    private int textWidth;
+
+    /**
+     * The height of a text cell.
+     */
+    private int textHeight;
+
+    /**
+     * The number of tile columns.
+     */
+    private int columns;
+
+    /**
+     * The number of tile rows.
+     */
+    private int rows;
+
+    /**
+     * The ID of the first tile.
+     */
+    private int baseId;
+
+    /**
+     * The tiles, cut on first use.
+     */
+    private BufferedImage [] tiles;
+
+    /**
+     * Whether or not each tile has visible pixels.
+     */
+    private byte [] visible;
+
+    /**
+     * The cell each tile was last composited over, as a key from
+     * getUnderKey().
+     */
+    private long [] underKeys;
+
+    /**
+     * The last composited image for each tile.
+     */
+    private BufferedImage [] composites;
+
+    // ------------------------------------------------------------------------
+    // Constructors -----------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Package private constructor.
+     *
+     * @param image the rendered image, aligned to the cell grid
+     * @param textWidth the width of a text cell
+     * @param textHeight the height of a text cell
+     * @param baseId a number unique to this item and rendering, used to
+     * generate the tile image IDs
+     */
+    CellTiles(final BufferedImage image, final int textWidth,
+        final int textHeight, final int baseId) {
+
+        this.image = image;
+        this.textWidth = textWidth;
+        this.textHeight = textHeight;
+        this.baseId = baseId;
+        columns = image.getWidth() / textWidth;
+        rows = image.getHeight() / textHeight;
+        tiles = new BufferedImage[columns * rows];
+        visible = new byte[columns * rows];
+        underKeys = new long[columns * rows];
+        composites = new BufferedImage[columns * rows];
+    }
+
+    // ------------------------------------------------------------------------
+    // CellTiles --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * See if these tiles were cut from an image at a cell size.
+     *
+     * @param image the rendered image
+     * @param textWidth the width of a text cell
+     * @param textHeight the height of a text cell
+     * @return true if the tiles can be reused
+     */
+    boolean isSlicedFrom(final BufferedImage image, final int textWidth,
+        final int textHeight) {
+
+        return ((this.image == image)
+            && (this.textWidth == textWidth)
+            && (this.textHeight == textHeight));
+    }
+
+    /**
+     * Get the number of tile columns.
+     *
+     * @return the number of columns
+     */
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of tile rows.
+     *
+     * @return the number of rows
+     */
+    int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get one tile.
+     *
+     * @param column the tile column
+     * @param row the tile row
+     * @return the tile, or null if it is fully transparent
+     */
+    BufferedImage getTile(final int column, final int row) {
+        int i = (row * columns) + column;
+        if (visible[i] == UNKNOWN) {
+            BufferedImage tile = image.getSubimage(column * textWidth,
+                row * textHeight, textWidth, textHeight);
+            if (ImageUtils.isFullyTransparent(tile)) {
+                visible[i] = TRANSPARENT;
+            } else {
+                visible[i] = VISIBLE;
+                tiles[i] = tile;
+            }
+        }
+        return tiles[i];
+    }
+
+    /**
+     * Get the image ID of one tile.
+     *
+     * @param column the tile column
+     * @param row the tile row
+     * @return the ID, a positive integer
+     */
+    int getTileId(final int column, final int row) {
+        return mix(baseId, (row * columns) + column);
+    }
+
+    /**
+     * Get the last image a tile was composited into.
+     *
+     * @param column the tile column
+     * @param row the tile row
+     * @param underKey the key of the cell under the tile
+     * @return the image, or null if the tile has not been composited over
+     * that cell
+     */
+    BufferedImage getComposite(final int column, final int row,
+        final long underKey) {
+
+        int i = (row * columns) + column;
+        if (underKeys[i] == underKey) {
+            return composites[i];
+        }
+        return null;
+    }
+
+    /**
+     * Save the image a tile was composited into.
+     *
+     * @param column the tile column
+     * @param row the tile row
+     * @param underKey the key of the cell under the tile
+     * @param composite the composited image
+     */
+    void putComposite(final int column, final int row, final long underKey,
+        final BufferedImage composite) {
+
+        int i = (row * columns) + column;
+        underKeys[i] = underKey;
+        composites[i] = composite;
+    }
+
+    /**
+     * Get the image ID of a tile composited over another cell.
+     *
+     * @param column the tile column
+     * @param row the tile row
+     * @param underKey the key of the cell under the tile
+     * @return the ID, a positive integer
+     */
+    int getCompositeId(final int column, final int row,
+        final long underKey) {
+
+        int id = getTileId(column, row);
+        id = mix(id, (int) (underKey >>> 32));
+        return mix(id, (int) underKey);
+    }
+
+    /**
+     * Mix a number into an image ID.
+     *
+     * @param id the ID
+     * @param value the number to mix in
+     * @return the new ID, a positive integer
+     */
+    static int mix(final int id, final int value) {
+        int h = (id * 0x01000193) ^ value;
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        h &= 0x7FFFFFFF;
+        return (h == 0 ? 1 : h);
+    }
+
+}
@@ -33,10 +33,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import jexer.backend.GlyphMaker;
 import jexer.backend.Screen;
 import jexer.bits.Cell;
-import jexer.bits.ImageUtils;
 
 /**
  * Tackboard maintains a collection of TackboardItems to draw on a Screen.
@@ -69,7 +67,7 @@ public class Tackboard {
     // ------------------------------------------------------------------------
 
     /**
-     * The items on this board.
+     * The items on this board, kept in draw order.
      */
     private ArrayList<TackboardItem> items = new ArrayList<TackboardItem>();
 
@@ -118,12 +116,29 @@ public class Tackboard {
      */
     public void addItem(final TackboardItem item) {
         item.setTackboard(this);
-        items.add(item);
+        items.add(findInsertIndex(item), item);
         dirty = true;
     }
 
     /**
-     * Get the list of items.
+     * Remove an item from the board.
+     *
+     * @param item the item to remove
+     */
+    public void removeItem(final TackboardItem item) {
+        // TackboardItem.equals() compares positions, so search by identity.
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == item) {
+                items.remove(i);
+                dirty = true;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Get the list of items.  The items are in draw order; use addItem() to
+     * keep them that way.
      *
      * @return the list of items
      */
@@ -131,6 +146,68 @@ public class Tackboard {
         return items;
     }
 
+    /**
+     * Put an item back in draw order after its position changed.
+     *
+     * @param item the item that moved
+     */
+    final void itemMoved(final TackboardItem item) {
+        int i = 0;
+        for (; i < items.size(); i++) {
+            if (items.get(i) == item) {
+                break;
+            }
+        }
+        if (i == items.size()) {
+            return;
+        }
+        if (((i == 0) || (items.get(i - 1).compareTo(item) <= 0))
+            && ((i == items.size() - 1)
+                || (item.compareTo(items.get(i + 1)) <= 0))
+        ) {
+            // Still in order.
+            return;
+        }
+        items.remove(i);
+        items.add(findInsertIndex(item), item);
+    }
+
+    /**
+     * Find where an item goes in draw order.  Items that compare equal stay
+     * in the order they were added.
+     *
+     * @param item the item
+     * @return the index to insert it at
+     */
+    private int findInsertIndex(final TackboardItem item) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (items.get(mid).compareTo(item) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * See if the items are in draw order.  Callers can change the list from
+     * getItems(), so this is checked before drawing.
+     *
+     * @return true if the items are sorted
+     */
+    private boolean isSorted() {
+        for (int i = 1; i < items.size(); i++) {
+            if (items.get(i - 1).compareTo(items.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Get the number of items on this board.
      *
@@ -160,7 +237,9 @@ public class Tackboard {
      * drawn to the screen
      */
     public void draw(final Screen screen, final boolean transparent) {
-        Collections.sort(items);
+        if (!isSorted()) {
+            Collections.sort(items);
+        }
         int cellWidth = screen.getTextWidth();
         int cellHeight = screen.getTextHeight();
         boolean redraw = dirty;
@@ -176,45 +255,20 @@ public class Tackboard {
             lastTextHeight = cellHeight;
         }
 
-        int imageId = System.identityHashCode(this);
-        imageId ^= (int) System.currentTimeMillis();
-
         for (TackboardItem item: items) {
             if (redraw) {
                 item.setDirty();
             }
-            BufferedImage image = item.getImage(cellWidth, cellHeight);
-            if (image == null) {
+            CellTiles tiles = item.getTiles(cellWidth, cellHeight);
+            if (tiles == null) {
                 continue;
             }
 
-            int x = item.getX();
-            int y = item.getY();
-            int textX = x / cellWidth;
-            int textY = y / cellHeight;
-            int width = image.getWidth();
-            int height = image.getHeight();
-
-            if ((width % cellWidth != 0) || (height % cellHeight != 0)) {
-                // These should have lined up, that was the whole point of
-                // the redraw.  Why didn't they?
-                /*
-                System.err.println("HUH? width " + width +
-                    " cellWidth " + cellWidth +
-                    " height " + height +
-                    " cellHeight " + cellHeight);
-                 */
-            } else {
-                // This should be impossible, right?
-                assert (width % cellWidth == 0);
-                assert (height % cellHeight == 0);
-            }
+            int textX = item.getX() / cellWidth;
+            int textY = item.getY() / cellHeight;
+            int columns = tiles.getColumns();
+            int rows = tiles.getRows();
 
-            int columns = width / cellWidth;
-            int rows = height / cellHeight;
-
-            int screenWidth = screen.getWidth() * screen.getTextWidth();
-            int screenHeight = screen.getHeight() * screen.getTextHeight();
             if ((textX + columns < 0)
                 || (textY + rows < 0)
                 || (textX >= screen.getWidth())
@@ -224,85 +278,69 @@ public class Tackboard {
                 continue;
             }
 
-            int dx = x % cellWidth;
-            int dy = y % cellHeight;
-
-            // I had thought that with the offsets there might be a
-            // discontinuity around +/- 0, but there isn't.  Still, leaving
-            // these here in case I'm wrong later on.
-            final int left = 0;
-            final int top = 0;
-
-            for (int sy = 0; sy < rows; sy++) {
-                if ((sy + textY + top < 0)
-                    || (sy + textY + top >= screen.getHeight())
-                ) {
-                    // This row of cells is off-screen, skip it.
-                    continue;
+            for (int sy = Math.max(0, -textY); sy < rows; sy++) {
+                if (sy + textY >= screen.getHeight()) {
+                    // The rest of the rows are off-screen.
+                    break;
                 }
-                for (int sx = 0; sx < columns; sx++) {
-                    while (sx + textX + left < 0) {
-                        // This cell is off-screen, advance.
-                        sx++;
-                    }
-                    if (sx + textX + left >= screen.getWidth()) {
+                for (int sx = Math.max(0, -textX); sx < columns; sx++) {
+                    if (sx + textX >= screen.getWidth()) {
                         // This cell is off-screen, done with this entire row.
                         break;
                     }
 
-                    Cell oldCell = screen.getCharXY(sx + textX + left,
-                        sy + textY + top, true);
+                    BufferedImage newImage = tiles.getTile(sx, sy);
+                    if (newImage == null) {
+                        // This tile is fully transparent, skip it.
+                        continue;
+                    }
+
+                    Cell oldCell = screen.getCharXY(sx + textX, sy + textY,
+                        true);
                     if (oldCell == null) {
                         // This image fragment would not be visible on the
                         // screen.
                         continue;
                     }
 
-                    BufferedImage newImage = image.getSubimage(sx * cellWidth,
-                        sy * cellHeight, cellWidth, cellHeight);
-
-                    if (ImageUtils.isFullyTransparent(newImage)) {
-                        // Skip this cell.
+                    // newImage has the image that needs to be overlaid on
+                    // (sx + textX, sy + textY).  The composite depends only
+                    // on the tile and what is under it, so reuse the last
+                    // one if that has not changed.
+                    long underKey = getUnderKey(screen, oldCell,
+                        transparent);
+                    if (underKey == 0) {
+                        // Old cell is text only, and the terminal can put
+                        // the image over it.
+                        oldCell.setImage(newImage, tiles.getTileId(sx, sy));
+                        screen.putCharXY(sx + textX, sy + textY, oldCell);
                         continue;
                     }
 
-                    // newImage has the image that needs to be overlaid on
-                    // (sx + textX + left, sy + textY + top)
-
-                    if (oldCell.isImage()) {
-                        // Blit this image over that one.
-                        BufferedImage oldImage = oldCell.getImage(true);
-                        java.awt.Graphics gr = oldImage.getGraphics();
-                        gr.setColor(screen.getBackend().
-                            attrToBackgroundColor(oldCell));
-                        gr.drawImage(newImage, 0, 0, null, null);
-                        gr.dispose();
-                        imageId++;
-                        oldCell.setImage(oldImage, imageId & 0x7FFFFFFF);
-                    } else {
-                        // Old cell is text only, just add the image.
-                        if (!transparent) {
-                            BufferedImage backImage;
-                            backImage = new BufferedImage(cellWidth,
-                                cellHeight, BufferedImage.TYPE_INT_ARGB);
-                            java.awt.Graphics gr = backImage.getGraphics();
-
-                            java.awt.Color oldColor = screen.getBackend().
-                                    attrToBackgroundColor(oldCell);
-                            gr.setColor(oldColor);
-                            gr.fillRect(0, 0, backImage.getWidth(),
-                                backImage.getHeight());
-                            gr.drawImage(newImage, 0, 0, null, null);
-                            gr.dispose();
-                            imageId++;
-                            oldCell.setImage(backImage, imageId & 0x7FFFFFFF);
+                    BufferedImage composite = tiles.getComposite(sx, sy,
+                        underKey);
+                    if (composite == null) {
+                        if (oldCell.isImage()) {
+                            // Blit this image over that one.
+                            composite = oldCell.getImage(true);
                         } else {
-                            imageId++;
-                            oldCell.setImage(newImage, imageId & 0x7FFFFFFF);
+                            // Put the background color behind the image.
+                            composite = new BufferedImage(cellWidth,
+                                cellHeight, BufferedImage.TYPE_INT_ARGB);
+                        }
+                        java.awt.Graphics gr = composite.getGraphics();
+                        if (!oldCell.isImage()) {
+                            gr.setColor(screen.getBackend().
+                                attrToBackgroundColor(oldCell));
+                            gr.fillRect(0, 0, cellWidth, cellHeight);
                         }
+                        gr.drawImage(newImage, 0, 0, null, null);
+                        gr.dispose();
+                        tiles.putComposite(sx, sy, underKey, composite);
                     }
-                    screen.putCharXY(sx + textX + left, sy + textY + top,
-                        oldCell);
+                    oldCell.setImage(composite,
+                        tiles.getCompositeId(sx, sy, underKey));
+                    screen.putCharXY(sx + textX, sy + textY, oldCell);
 
                 } // for (int sx = 0; sx < columns; sx++)
 
@@ -313,4 +351,33 @@ public class Tackboard {
         dirty = false;
     }
 
+    /**
+     * Get a key for what a tile will be composited over.
+     *
+     * @param screen the screen, used to get the background color
+     * @param cell the cell under the tile
+     * @param transparent if true, partially transparent images can be
+     * drawn over text
+     * @return 0 if the tile can be used as-is, otherwise a key that is the
+     * same for any two cells that produce the same composite
+     */
+    private long getUnderKey(final Screen screen, final Cell cell,
+        final boolean transparent) {
+
+        if (cell.isImage()) {
+            long kind = (cell.isInvertedImage() ? 2 : 1);
+            if (cell.getImageId() > 0) {
+                return (kind << 32) | cell.getImageId();
+            }
+            kind += 2;
+            return (kind << 32) | (cell.getImageContentId() & 0xFFFFFFFFL);
+        }
+        if (transparent) {
+            return 0;
+        }
+        java.awt.Color color = screen.getBackend().
+            attrToBackgroundColor(cell);
+        return (5L << 32) | (color.getRGB() & 0xFFFFFFFFL);
+    }
+
 }
@@ -70,6 +70,17 @@ public class TackboardItem implements Comparable<TackboardItem> {
      */
     protected boolean dirty = true;
 
+    /**
+     * The rendered image cut into cell tiles.
+     */
+    private CellTiles tiles;
+
+    /**
+     * The number of times the rendered image has been cut into tiles, used
+     * to give each set of tiles its own image IDs.
+     */
+    private int tilesCount = 0;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -116,6 +127,9 @@ public class TackboardItem implements Comparable<TackboardItem> {
         if (x != this.x) {
             this.x = x;
             dirty = true;
+            if (tackboard != null) {
+                tackboard.itemMoved(this);
+            }
         }
     }
 
@@ -137,6 +151,9 @@ public class TackboardItem implements Comparable<TackboardItem> {
         if (y != this.y) {
             this.y = y;
             dirty = true;
+            if (tackboard != null) {
+                tackboard.itemMoved(this);
+            }
         }
     }
 
@@ -158,6 +175,9 @@ public class TackboardItem implements Comparable<TackboardItem> {
         if (z != this.z) {
             this.z = z;
             dirty = true;
+            if (tackboard != null) {
+                tackboard.itemMoved(this);
+            }
         }
     }
 
@@ -268,10 +288,42 @@ public class TackboardItem implements Comparable<TackboardItem> {
      */
     public void remove() {
         if (tackboard != null) {
-            tackboard.getItems().remove(this);
-            tackboard.setDirty();
+            tackboard.removeItem(this);
         }
         tackboard = null;
     }
 
+    /**
+     * Get this item rendered and cut into cell tiles.  The tiles are kept
+     * until the rendered image or the cell size changes.
+     *
+     * @param textWidth the width of a text cell
+     * @param textHeight the height of a text cell
+     * @return the tiles, or null if this item does not have any pixels to
+     * show
+     */
+    final CellTiles getTiles(final int textWidth, final int textHeight) {
+        BufferedImage image = getImage(textWidth, textHeight);
+        if (image == null) {
+            tiles = null;
+            return null;
+        }
+        if ((tiles == null)
+            || !tiles.isSlicedFrom(image, textWidth, textHeight)
+        ) {
+            tilesCount++;
+            tiles = new CellTiles(image, textWidth, textHeight,
+                CellTiles.mix(System.identityHashCode(this), tilesCount));
+        }
+        return tiles;
+    }
+
+    /**
+     * Discard the cell tiles.  Subclasses must call this when the pixels of
+     * the rendered image change without the image itself changing.
+     */
+    protected final void invalidateTiles() {
+        tiles = null;
+    }
+
 }
@@ -71,6 +71,11 @@ public class Text extends Bitmap {
      */
     private Color color;
 
+    /**
+     * The text cell width the text image was made for.
+     */
+    private int imageTextWidth = -1;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -182,7 +187,11 @@ public class Text extends Bitmap {
      */
     @Override
     public BufferedImage getImage(final int textWidth, final int textHeight) {
-        if (dirty) {
+        if (textWidth != imageTextWidth) {
+            // The text image only depends on the cell width, moving this
+            // item just needs the offset re-rendered.
+            imageTextWidth = textWidth;
+
             // Estimate the pixels needed to render the text.
             int width = 0;
             int height = 0;
@@ -93,6 +93,19 @@ public class Document {
      */
     private boolean saveWithTabs = false;
 
+    /**
+     * The first line that needs to be highlighted again, or -1 if all lines
+     * are highlighted.
+     */
+    private int damageStart = -1;
+
+    /**
+     * The last line that was edited since it was highlighted.  Lines after
+     * this one only need to be highlighted again if the state flowing into
+     * them has changed.
+     */
+    private int damageEnd = -1;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -135,6 +148,94 @@ public class Document {
         for (int i = 0; i < rawLines.length; i++) {
             lines.add(new Line(rawLines[i], defaultColor, highlighter));
         }
+        damageStart = -1;
+        damageEnd = -1;
+        damage(0, lines.size() - 1);
+    }
+
+    /**
+     * Mark a range of lines as needing to be highlighted again.
+     *
+     * @param start the first edited line
+     * @param end the last edited line
+     */
+    private void damage(final int start, final int end) {
+        if (damageStart == -1) {
+            damageStart = start;
+            damageEnd = end;
+            return;
+        }
+        damageStart = Math.min(damageStart, start);
+        damageEnd = Math.max(damageEnd, end);
+    }
+
+    /**
+     * Mark the lines around an inserted line as needing to be highlighted
+     * again, and move the damaged region down to follow the lines below
+     * it.
+     *
+     * @param n the new line number
+     */
+    private void damageInsert(final int n) {
+        if ((damageStart != -1) && (damageEnd >= n)) {
+            damageEnd++;
+        }
+        damage(Math.max(n - 1, 0), n);
+    }
+
+    /**
+     * Mark the line before a removed line as needing to be highlighted
+     * again, and move the damaged region up to follow the lines below it.
+     *
+     * @param n the removed line number
+     */
+    private void damageRemove(final int n) {
+        if ((damageStart != -1) && (damageEnd >= n)) {
+            damageEnd--;
+        }
+        damage(Math.max(n - 1, 0), Math.max(n - 1, 0));
+    }
+
+    /**
+     * Highlight the lines in a range, typically the lines visible on
+     * screen.  Lexing starts at the first damaged line and stops either at
+     * the end of the range or at the first undamaged line whose starting
+     * state is unchanged, so the cost of an edit is proportional to the
+     * number of lines whose highlighting actually changed.
+     *
+     * @param first the first line number to highlight
+     * @param last the last line number to highlight
+     */
+    public void highlight(final int first, final int last) {
+        if ((damageStart == -1) || (damageStart > last)) {
+            return;
+        }
+        int end = Math.min(last, lines.size() - 1);
+        int i = damageStart;
+        for (; i <= end; i++) {
+            int state = Highlighter.STATE_NORMAL;
+            if (i > 0) {
+                state = lines.get(i - 1).getEndState();
+            }
+            Line line = lines.get(i);
+            if ((i > damageEnd)
+                && line.isScanned()
+                && (line.getStartState() == state)
+            ) {
+                // The state has converged, everything below is good.
+                damageStart = -1;
+                damageEnd = -1;
+                return;
+            }
+            line.scanLine(state);
+        }
+        if (i >= lines.size()) {
+            damageStart = -1;
+            damageEnd = -1;
+        } else {
+            // Resume here when the lines below come into view.
+            damageStart = i;
+        }
     }
 
     /**
@@ -151,6 +252,8 @@ public class Document {
         other.overwrite = overwrite;
         other.dirty = dirty;
         other.defaultColor = defaultColor;
+        other.damageStart = damageStart;
+        other.damageEnd = damageEnd;
         if ((other.highlighter != null) && (this.highlighter != null)) {
             other.highlighter.setTo(highlighter);
         } else if (this.highlighter == null) {
@@ -600,6 +703,7 @@ public class Document {
         int cursor = lines.get(lineNumber).getCursor();
         if (cursor < lines.get(lineNumber).getDisplayLength() - 1) {
             lines.get(lineNumber).del();
+            damage(lineNumber, lineNumber);
         } else if (lineNumber < lines.size() - 2) {
             // Join two lines
             StringBuilder newLine = new StringBuilder(lines.
@@ -609,6 +713,7 @@ public class Document {
                     defaultColor, highlighter));
             lines.get(lineNumber).setCursor(cursor);
             lines.remove(lineNumber + 1);
+            damageRemove(lineNumber + 1);
         }
     }
 
@@ -620,6 +725,7 @@ public class Document {
         int cursor = lines.get(lineNumber).getCursor();
         if (cursor > 0) {
             lines.get(lineNumber).backspace(tabSize, backspaceUnindents);
+            damage(lineNumber, lineNumber);
         } else if (lineNumber > 0) {
             // Join two lines
             lineNumber--;
@@ -632,10 +738,12 @@ public class Document {
                         defaultColor, highlighter));
                 lines.get(lineNumber).setCursor(firstLine.length());
                 lines.remove(lineNumber + 1);
+                damageRemove(lineNumber + 1);
             } else {
                 // Backspacing an empty line
                 lines.remove(lineNumber);
                 lines.get(lineNumber).setCursor(0);
+                damageRemove(lineNumber);
             }
         }
     }
@@ -652,6 +760,7 @@ public class Document {
         lines.add(lineNumber + 1, new Line(secondLine, defaultColor,
                 highlighter));
         lines.set(lineNumber, new Line(firstLine, defaultColor, highlighter));
+        damageInsert(lineNumber + 1);
         lineNumber++;
         lines.get(lineNumber).home();
     }
@@ -669,6 +778,7 @@ public class Document {
         } else {
             lines.get(lineNumber).addChar(ch);
         }
+        damage(lineNumber, lineNumber);
     }
 
     /**
@@ -718,6 +828,7 @@ public class Document {
             del();
         }
         lines.get(lineNumber).tab(tabSize);
+        damage(lineNumber, lineNumber);
     }
 
     /**
@@ -725,6 +836,7 @@ public class Document {
      */
     public void backTab() {
         lines.get(lineNumber).backTab(tabSize);
+        damage(lineNumber, lineNumber);
     }
 
     /**
@@ -797,6 +909,7 @@ public class Document {
         while (lines.get(lines.size() - 1).length() == 0) {
             lines.remove(lines.size() - 1);
         }
+        damage(0, lines.size() - 1);
         if (lineNumber > lines.size() - 1) {
             lineNumber = lines.size() - 1;
         }
@@ -809,9 +922,7 @@ public class Document {
      */
     public void setHighlighting(final boolean enabled) {
         highlighter.setEnabled(enabled);
-        for (Line line: getLines()) {
-            line.scanLine();
-        }
+        damage(0, lines.size() - 1);
     }
 
     /**
@@ -28,6 +28,7 @@
  */
 package jexer.teditor;
 
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -36,9 +37,78 @@ import jexer.bits.Color;
 
 /**
  * Highlighter provides color choices for certain text strings.
+ *
+ * Highlighting is performed by a small table-driven lexer.  Each line is
+ * lexed starting from the state its predecessor ended in (normal text or
+ * inside a block comment), so that a Document can re-lex only from an
+ * edited line forward until the end state of a line matches what it was
+ * before the edit.  Keywords are looked up in a perfect hash table that is
+ * rebuilt whenever the set of colors changes.
  */
 public class Highlighter {
 
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Lexer state: normal text.
+     */
+    public static final int STATE_NORMAL = 0;
+
+    /**
+     * Lexer state: inside a block comment.
+     */
+    public static final int STATE_BLOCK_COMMENT = 1;
+
+    /**
+     * Character class: part of a word.  All non-ASCII characters that are
+     * not whitespace are in this class.
+     */
+    private static final byte CLASS_WORD = 0;
+
+    /**
+     * Character class: whitespace.
+     */
+    private static final byte CLASS_SPACE = 1;
+
+    /**
+     * Character class: punctuation that splits words.
+     */
+    private static final byte CLASS_PUNCTUATION = 2;
+
+    /**
+     * Character class: string or character literal quote.
+     */
+    private static final byte CLASS_QUOTE = 3;
+
+    /**
+     * Character class: slash, which might start a comment.
+     */
+    private static final byte CLASS_SLASH = 4;
+
+    /**
+     * Character class for each ASCII character.
+     */
+    private static final byte [] CHAR_CLASS = new byte[128];
+
+    static {
+        for (int i = 0; i < CHAR_CLASS.length; i++) {
+            if (Character.isWhitespace((char) i)) {
+                CHAR_CLASS[i] = CLASS_SPACE;
+            } else {
+                CHAR_CLASS[i] = CLASS_WORD;
+            }
+        }
+        String punctuation = "\\<>{}[]!@#$%^&*();:.,-+?";
+        for (int i = 0; i < punctuation.length(); i++) {
+            CHAR_CLASS[punctuation.charAt(i)] = CLASS_PUNCTUATION;
+        }
+        CHAR_CLASS['\''] = CLASS_QUOTE;
+        CHAR_CLASS['"'] = CLASS_QUOTE;
+        CHAR_CLASS['/'] = CLASS_SLASH;
+    }
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -48,6 +118,136 @@ public class Highlighter {
      */
     private SortedMap<String, CellAttributes> colors;
 
+    /**
+     * The color for comments.
+     */
+    private CellAttributes commentColor;
+
+    /**
+     * The color for string and character literals.
+     */
+    private CellAttributes stringColor;
+
+    /**
+     * The keyword table, compiled from colors.
+     */
+    private KeywordTable keywords;
+
+    /**
+     * KeywordTable is a perfect hash table mapping keywords to colors.  The
+     * seed is searched for at construction time such that no two keys land
+     * in the same slot, so lookup is one hash computation and one string
+     * comparison, without allocating a String for the candidate text.
+     */
+    private class KeywordTable {
+
+        /**
+         * The hash seed that gives no collisions.
+         */
+        private int seed;
+
+        /**
+         * The slot mask, one less than the table size.
+         */
+        private int mask;
+
+        /**
+         * The keys, indexed by slot.
+         */
+        private String [] keys;
+
+        /**
+         * The colors, indexed by slot.
+         */
+        private CellAttributes [] values;
+
+        /**
+         * Public constructor.
+         *
+         * @param map the keywords and their colors
+         */
+        public KeywordTable(final SortedMap<String, CellAttributes> map) {
+            int size = 2;
+            while (size < map.size() * 2) {
+                size <<= 1;
+            }
+            for (;;) {
+                for (seed = 1; seed < 1024; seed++) {
+                    if (build(map, size)) {
+                        return;
+                    }
+                }
+                size <<= 1;
+            }
+        }
+
+        /**
+         * Try to place every key with the current seed.
+         *
+         * @param map the keywords and their colors
+         * @param size the table size, a power of two
+         * @return true if there were no collisions
+         */
+        private boolean build(final SortedMap<String, CellAttributes> map,
+            final int size) {
+
+            mask = size - 1;
+            keys = new String[size];
+            values = new CellAttributes[size];
+            for (String key: map.keySet()) {
+                int slot = hash(key, 0, key.length()) & mask;
+                if (keys[slot] != null) {
+                    return false;
+                }
+                keys[slot] = key;
+                values[slot] = map.get(key);
+            }
+            return true;
+        }
+
+        /**
+         * Hash a range of characters.
+         *
+         * @param text the text
+         * @param start the first character index
+         * @param end one past the last character index
+         * @return the hash
+         */
+        private int hash(final CharSequence text, final int start,
+            final int end) {
+
+            int h = seed * 0x9E3779B9;
+            for (int i = start; i < end; i++) {
+                h = (h ^ text.charAt(i)) * 0x01000193;
+            }
+            return h ^ (h >>> 15);
+        }
+
+        /**
+         * Look up the color for a range of characters.
+         *
+         * @param text the text
+         * @param start the first character index
+         * @param end one past the last character index
+         * @return the color, or null if this is not a keyword
+         */
+        public CellAttributes get(final CharSequence text, final int start,
+            final int end) {
+
+            int slot = hash(text, start, end) & mask;
+            String key = keys[slot];
+            if ((key == null) || (key.length() != end - start)) {
+                return null;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != text.charAt(start + i)) {
+                    return null;
+                }
+            }
+            return values[slot];
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -73,9 +273,19 @@ public class Highlighter {
             setJavaColors();
         } else {
             colors = null;
+            keywords = null;
         }
     }
 
+    /**
+     * Get keyword highlighting.
+     *
+     * @return true if keyword highlighting is enabled
+     */
+    public boolean isEnabled() {
+        return (colors != null);
+    }
+
     /**
      * Set my field values to that's field.
      *
@@ -85,8 +295,12 @@ public class Highlighter {
         if (rhs.colors != null) {
             colors = new TreeMap<String, CellAttributes>();
             colors.putAll(rhs.colors);
+            commentColor = rhs.commentColor;
+            stringColor = rhs.stringColor;
+            keywords = new KeywordTable(colors);
         } else {
             colors = null;
+            keywords = null;
         }
     }
 
@@ -97,12 +311,11 @@ public class Highlighter {
      * @return true if the word should be split
      */
     public boolean shouldSplit(final int ch) {
-        // For now, split on punctuation
-        String punctuation = "'\"\\<>{}[]!@#$%^&*();:.,-+/*?";
-        if (ch < 0x100) {
-            if (punctuation.indexOf((char) ch) != -1) {
-                return true;
-            }
+        if ((ch >= 0) && (ch < CHAR_CLASS.length)) {
+            byte charClass = CHAR_CLASS[ch];
+            return ((charClass == CLASS_PUNCTUATION)
+                || (charClass == CLASS_QUOTE)
+                || (charClass == CLASS_SLASH));
         }
         return false;
     }
@@ -114,11 +327,185 @@ public class Highlighter {
      * @return color associated with name, e.g. bold yellow on blue
      */
     public CellAttributes getColor(final String name) {
-        if (colors == null) {
+        if (keywords == null) {
             return null;
         }
-        CellAttributes attr = colors.get(name);
-        return attr;
+        return keywords.get(name, 0, name.length());
+    }
+
+    /**
+     * Get the character class of a code point.
+     *
+     * @param ch the code point
+     * @return one of the CLASS_* values
+     */
+    private static byte charClass(final int ch) {
+        if (ch < CHAR_CLASS.length) {
+            return CHAR_CLASS[ch];
+        }
+        if (Character.isWhitespace(ch)) {
+            return CLASS_SPACE;
+        }
+        return CLASS_WORD;
+    }
+
+    /**
+     * Lex one line of text into words.  Note package private access: this
+     * is only called by Line.
+     *
+     * @param text the text of the line
+     * @param startState the lexer state at the beginning of the line, one
+     * of the STATE_* values
+     * @param defaultColor the color for unhighlighted text
+     * @param words the list to add the words to
+     * @return the lexer state at the end of the line
+     */
+    int scan(final CharSequence text, final int startState,
+        final CellAttributes defaultColor, final List<Word> words) {
+
+        boolean enabled = (keywords != null);
+        int state = enabled ? startState : STATE_NORMAL;
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            int start = i;
+            int ch = Character.codePointAt(text, i);
+
+            if (state == STATE_BLOCK_COMMENT) {
+                // Consume through the closing "*/", or to the end of line.
+                while (i < length) {
+                    if ((text.charAt(i) == '*') && (i + 1 < length)
+                        && (text.charAt(i + 1) == '/')
+                    ) {
+                        i += 2;
+                        state = STATE_NORMAL;
+                        break;
+                    }
+                    i++;
+                }
+                addWord(words, text, start, i, commentColor, defaultColor);
+                continue;
+            }
+
+            byte charClass = charClass(ch);
+            i += Character.charCount(ch);
+
+            switch (charClass) {
+            case CLASS_SPACE:
+                while (i < length) {
+                    ch = Character.codePointAt(text, i);
+                    if (charClass(ch) != CLASS_SPACE) {
+                        break;
+                    }
+                    i += Character.charCount(ch);
+                }
+                addWord(words, text, start, i, null, defaultColor);
+                break;
+
+            case CLASS_WORD:
+                while (i < length) {
+                    ch = Character.codePointAt(text, i);
+                    if (charClass(ch) != CLASS_WORD) {
+                        break;
+                    }
+                    i += Character.charCount(ch);
+                }
+                addWord(words, text, start, i,
+                    (enabled ? keywords.get(text, start, i) : null),
+                    defaultColor);
+                break;
+
+            case CLASS_QUOTE:
+                if (enabled) {
+                    // Consume through the matching unescaped quote, or to
+                    // the end of line.
+                    char quote = text.charAt(start);
+                    while (i < length) {
+                        char c = text.charAt(i);
+                        i++;
+                        if (c == '\\') {
+                            i++;
+                        } else if (c == quote) {
+                            break;
+                        }
+                    }
+                    if (i > length) {
+                        i = length;
+                    }
+                    addWord(words, text, start, i, stringColor,
+                        defaultColor);
+                    break;
+                }
+                addWord(words, text, start, i, null, defaultColor);
+                break;
+
+            case CLASS_SLASH:
+                if (enabled && (i < length)) {
+                    if (text.charAt(i) == '/') {
+                        // Line comment
+                        i = length;
+                        addWord(words, text, start, i, commentColor,
+                            defaultColor);
+                        break;
+                    }
+                    if (text.charAt(i) == '*') {
+                        // Block comment: resume the loop in comment state
+                        // just after the "/*".
+                        state = STATE_BLOCK_COMMENT;
+                        i++;
+                        int end = i;
+                        while (end + 1 < length) {
+                            if ((text.charAt(end) == '*')
+                                && (text.charAt(end + 1) == '/')
+                            ) {
+                                state = STATE_NORMAL;
+                                end += 2;
+                                break;
+                            }
+                            end++;
+                        }
+                        if (state == STATE_BLOCK_COMMENT) {
+                            end = length;
+                        }
+                        i = end;
+                        addWord(words, text, start, i, commentColor,
+                            defaultColor);
+                        break;
+                    }
+                }
+                addWord(words, text, start, i,
+                    (enabled ? keywords.get(text, start, i) : null),
+                    defaultColor);
+                break;
+
+            case CLASS_PUNCTUATION:
+            default:
+                addWord(words, text, start, i,
+                    (enabled ? keywords.get(text, start, i) : null),
+                    defaultColor);
+                break;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Add a word to a list.
+     *
+     * @param words the list to add to
+     * @param text the text of the line
+     * @param start the first character index of the word
+     * @param end one past the last character index of the word
+     * @param color the highlight color, or null to use defaultColor
+     * @param defaultColor the color for unhighlighted text
+     */
+    private void addWord(final List<Word> words, final CharSequence text,
+        final int start, final int end, final CellAttributes color,
+        final CellAttributes defaultColor) {
+
+        words.add(new Word(text.subSequence(start, end).toString(),
+                (color == null ? defaultColor : color), defaultColor, this));
     }
 
     /**
@@ -193,6 +580,17 @@ public class Highlighter {
             colors.put(str, color);
         }
 
+        commentColor = new CellAttributes();
+        commentColor.setForeColor(Color.BLACK);
+        commentColor.setBackColor(Color.BLUE);
+        commentColor.setBold(true);
+
+        stringColor = new CellAttributes();
+        stringColor.setForeColor(Color.CYAN);
+        stringColor.setBackColor(Color.BLUE);
+        stringColor.setBold(false);
+
+        this.keywords = new KeywordTable(colors);
     }
 
 }
@@ -76,6 +76,21 @@ public class Line {
      */
     private StringBuilder rawText;
 
+    /**
+     * The highlighter state at the beginning of this line.
+     */
+    private int startState = Highlighter.STATE_NORMAL;
+
+    /**
+     * The highlighter state at the end of this line.
+     */
+    private int endState = Highlighter.STATE_NORMAL;
+
+    /**
+     * If true, words reflects the current contents of rawText.
+     */
+    private boolean scanned = false;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -123,8 +138,6 @@ public class Line {
             rawText.append(ch);
             col++;
         }
-
-        scanLine();
     }
 
     /**
@@ -160,16 +173,22 @@ public class Line {
         other.position = position;
         other.screenPosition = screenPosition;
         other.rawText = new StringBuilder(rawText);
-        other.scanLine();
+        other.startState = startState;
+        other.endState = endState;
         return other;
     }
 
     /**
-     * Get a (shallow) copy of the words in this line.
+     * Get a (shallow) copy of the words in this line.  If the line has been
+     * edited since it was last scanned, it is scanned now using the
+     * highlighter state it last started with.
      *
      * @return a copy of the word list
      */
     public List<Word> getWords() {
+        if (!scanned) {
+            scanLine(startState);
+        }
         return new ArrayList<Word>(words);
     }
 
@@ -255,11 +274,67 @@ public class Line {
         return rawText.length();
     }
 
+    /**
+     * Get the highlighter state at the beginning of this line.  Note
+     * package private access.
+     *
+     * @return the state the line was last scanned with
+     */
+    int getStartState() {
+        return startState;
+    }
+
+    /**
+     * Get the highlighter state at the end of this line.  Note package
+     * private access.
+     *
+     * @return the state the line ended in when last scanned
+     */
+    int getEndState() {
+        return endState;
+    }
+
+    /**
+     * See if words reflects the current text.  Note package private access.
+     *
+     * @return true if the line has not been edited since it was scanned
+     */
+    boolean isScanned() {
+        return scanned;
+    }
+
+    /**
+     * Mark this line as needing to be scanned again.  Scanning is deferred
+     * until the words are needed, so that a burst of edits to one line only
+     * scans it once.
+     */
+    private void invalidate() {
+        scanned = false;
+    }
+
     /**
      * Scan rawText and make words out of it.  Note package private access.
      */
     void scanLine() {
+        scanLine(startState);
+    }
+
+    /**
+     * Scan rawText and make words out of it.  Note package private access.
+     *
+     * @param state the highlighter state at the beginning of this line
+     * @return the highlighter state at the end of this line
+     */
+    int scanLine(final int state) {
         words.clear();
+        startState = state;
+        scanned = true;
+        if (highlighter != null) {
+            endState = highlighter.scan(rawText, startState, defaultColor,
+                words);
+            return endState;
+        }
+
         Word word = new Word(this.defaultColor, this.highlighter);
         words.add(word);
         for (int i = 0; i < rawText.length();) {
@@ -274,6 +349,8 @@ public class Line {
         for (Word w: words) {
             w.applyHighlight();
         }
+        endState = Highlighter.STATE_NORMAL;
+        return endState;
     }
 
     /**
@@ -352,7 +429,7 @@ public class Line {
         }
 
         // Re-scan the line to determine the new word boundaries.
-        scanLine();
+        invalidate();
     }
 
     /**
@@ -401,7 +478,7 @@ public class Line {
         }
         position += Character.charCount(ch);
         screenPosition += StringUtils.width(ch);
-        scanLine();
+        invalidate();
     }
 
     /**
@@ -423,7 +500,7 @@ public class Line {
             position += Character.charCount(ch);
             screenPosition += StringUtils.width(ch);
         }
-        scanLine();
+        invalidate();
     }
 
     /**
@@ -467,7 +544,7 @@ public class Line {
         if (position >= rawText.length()) {
             end();
         }
-        scanLine();
+        invalidate();
     }
 
     /**
@@ -35,9 +35,8 @@ import jexer.bits.StringUtils;
  * A Word represents text that was entered by the user.  It can be either
  * whitespace or non-whitespace.
  *
- * Very dumb highlighting is supported, it has no sense of parsing (not even
- * comments).  For now this only highlights some Java keywords and
- * puctuation.
+ * Highlighting is performed by Highlighter, which understands comments and
+ * string literals, and highlights some Java keywords and punctuation.
  */
 public class Word {
 
@@ -98,6 +97,24 @@ public class Word {
         this.highlighter = highlighter;
     }
 
+    /**
+     * Construct a word that has already been highlighted.  Note package
+     * private access: this is only called by Highlighter.
+     *
+     * @param text the text of the word
+     * @param color the color to render this word as on screen
+     * @param defaultColor the color for unhighlighted text
+     * @param highlighter the highlighter to use
+     */
+    Word(final String text, final CellAttributes color,
+        final CellAttributes defaultColor, final Highlighter highlighter) {
+
+        this.defaultColor = defaultColor;
+        this.highlighter = highlighter;
+        this.text.append(text);
+        this.color.setTo(color);
+    }
+
     // ------------------------------------------------------------------------
     // Word -------------------------------------------------------------------
     // ------------------------------------------------------------------------
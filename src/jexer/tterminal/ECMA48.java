@@ -47,6 +47,8 @@ import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import javax.imageio.ImageIO;
 
@@ -247,6 +249,13 @@ public class ECMA48 implements Runnable {
      */
     private final String VERSION = "1.6.1";
 
+    /**
+     * The maximum number of bytes of Jexer images to keep for placement by
+     * id.  The remote side is expected to free its images well before
+     * this.
+     */
+    private static final long JEXER_IMAGES_MAX_BYTES = 64 * 1024 * 1024;
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -530,6 +539,18 @@ public class ECMA48 implements Runnable {
      */
     private boolean sixelScrolling = true;
 
+    /**
+     * Images uploaded by the remote side with the Jexer image protocol, by
+     * id, in least-recently-used order.
+     */
+    private LinkedHashMap<Integer, JexerImage> jexerImages =
+        new LinkedHashMap<Integer, JexerImage>(16, 0.75f, true);
+
+    /**
+     * The number of bytes used by the images in jexerImages.
+     */
+    private long jexerImagesBytes = 0;
+
     /**
      * XTGETTCAP collection buffer.
      */
@@ -556,6 +577,12 @@ public class ECMA48 implements Runnable {
      */
     private GlyphMaker glyphMaker = null;
 
+    /**
+     * The tiler that cuts images into cells, kept between images so that
+     * its buffers are reused.
+     */
+    private ImageTiler imageTiler = null;
+
     /**
      * Input queue for keystrokes and mouse events to send to the remote
      * side.
@@ -567,6 +594,46 @@ public class ECMA48 implements Runnable {
      */
     private long readCount = 0;
 
+    /**
+     * JexerImage is an image uploaded by the remote side, waiting to be
+     * placed on the screen by id.
+     */
+    private class JexerImage {
+
+        /**
+         * The image.
+         */
+        public BufferedImage image;
+
+        /**
+         * If true, the image might have transparent pixels.
+         */
+        public boolean maybeTransparent;
+
+        /**
+         * Public constructor.
+         *
+         * @param image the image
+         * @param maybeTransparent if true, the image might have transparent
+         * pixels
+         */
+        public JexerImage(final BufferedImage image,
+            final boolean maybeTransparent) {
+
+            this.image = image;
+            this.maybeTransparent = maybeTransparent;
+        }
+
+        /**
+         * Get the number of bytes this image uses.
+         *
+         * @return the number of bytes
+         */
+        public long getBytes() {
+            return (long) image.getWidth() * image.getHeight() * 4;
+        }
+    }
+
     /**
      * DECSC/DECRC save/restore a subset of the total state.  This class
      * encapsulates those specific flags/modes.
@@ -1009,13 +1076,13 @@ public class ECMA48 implements Runnable {
         case VT220:
         case XTERM:
             // "I am a VT220" - 7 bit version, with sixel and Jexer image
-            // support.
+            // support, including Jexer images by id.
             if (!s8c1t) {
-                return "\033[?62;1;6;9;4;22;444c";
+                return "\033[?62;1;6;9;4;22;444;445c";
             }
             // "I am a VT220" - 8 bit version, with sixel and Jexer image
-            // support.
-            return "\u009b?62;1;6;9;4;22;444c";
+            // support, including Jexer images by id.
+            return "\u009b?62;1;6;9;4;22;444;445c";
         default:
             throw new IllegalArgumentException("Invalid device type: " + type);
         }
@@ -5437,6 +5504,20 @@ public class ECMA48 implements Runnable {
                     } else if (p[1].equals("2") && (p.length == 4)) {
                         // Jexer image - JPG
                         parseJexerImageFile(2, p[2], p[3]);
+                    } else if (p[1].equals("3") && (p.length == 5)) {
+                        // Jexer image - upload PNG or JPG by id
+                        uploadJexerImageFile(p[2], p[3], p[4]);
+                    } else if (p[1].equals("3") && (p.length == 7)
+                        && p[3].equals("0")
+                    ) {
+                        // Jexer image - upload RGB by id
+                        uploadJexerImageRGB(p[2], p[4], p[5], p[6]);
+                    } else if (p[1].equals("4") && (p.length == 4)) {
+                        // Jexer image - place by id
+                        placeJexerImage(p[2], p[3]);
+                    } else if (p[1].equals("5") && (p.length == 3)) {
+                        // Jexer image - free by id
+                        freeJexerImage(p[2]);
                     }
                 }
 
@@ -7927,34 +8008,53 @@ public class ECMA48 implements Runnable {
     private void parseJexerImageRGB(final String pw, final String ph,
         final String ps, final String data) {
 
+        boolean scroll = false;
+        if (ps.equals("1")) {
+            scroll = true;
+        } else if (ps.equals("0")) {
+            scroll = false;
+        } else {
+            return;
+        }
+
+        BufferedImage image = decodeJexerImageRGB(pw, ph, data);
+        if (image == null) {
+            return;
+        }
+        imageToCells(image, scroll, false);
+    }
+
+    /**
+     * Decode a "Jexer" RGB image string into a bitmap image.
+     *
+     * @param pw width token
+     * @param ph height token
+     * @param data pixel data
+     * @return the image, or null if the tokens or data are invalid
+     */
+    private BufferedImage decodeJexerImageRGB(final String pw,
+        final String ph, final String data) {
+
         int imageWidth = 0;
         int imageHeight = 0;
-        boolean scroll = false;
         try {
             imageWidth = Integer.parseInt(pw);
             imageHeight = Integer.parseInt(ph);
         } catch (NumberFormatException e) {
             // SQUASH
-            return;
+            return null;
         }
         if ((imageWidth < 1)
             || (imageWidth > 10000)
             || (imageHeight < 1)
             || (imageHeight > 10000)
         ) {
-            return;
-        }
-        if (ps.equals("1")) {
-            scroll = true;
-        } else if (ps.equals("0")) {
-            scroll = false;
-        } else {
-            return;
+            return null;
         }
 
         byte [] bytes = StringUtils.fromBase64(data.getBytes());
         if (bytes.length != (imageWidth * imageHeight * 3)) {
-            return;
+            return null;
         }
 
         BufferedImage image = new BufferedImage(imageWidth, imageHeight,
@@ -7978,8 +8078,7 @@ public class ECMA48 implements Runnable {
                 image.setRGB(x, y, rgb);
             }
         }
-
-        imageToCells(image, scroll, false);
+        return image;
     }
 
     /**
@@ -7993,11 +8092,35 @@ public class ECMA48 implements Runnable {
     private void parseJexerImageFile(final int type, final String ps,
         final String data) {
 
-        int imageWidth = 0;
-        int imageHeight = 0;
         boolean scroll = false;
+        if (ps.equals("1")) {
+            scroll = true;
+        } else if (ps.equals("0")) {
+            scroll = false;
+        } else {
+            return;
+        }
+
+        BufferedImage image = decodeJexerImageFile(type, data);
+        if (image == null) {
+            return;
+        }
+        boolean maybeTransparent = (type == 1);
+
+        imageToCells(image, scroll, maybeTransparent);
+    }
+
+    /**
+     * Decode a "Jexer" PNG or JPG image string into a bitmap image.
+     *
+     * @param type 1 for PNG, 2 for JPG
+     * @param data pixel data
+     * @return the image, or null if the data is invalid
+     */
+    private BufferedImage decodeJexerImageFile(final int type,
+        final String data) {
+
         BufferedImage image = null;
-        boolean maybeTransparent = false;
         try {
             byte [] bytes = StringUtils.fromBase64(data.getBytes());
 
@@ -8013,9 +8136,8 @@ public class ECMA48 implements Runnable {
                     || (bytes[7] != (byte) 0x0A)
                 ) {
                     // File does not have PNG header, bail out.
-                    return;
+                    return null;
                 }
-                maybeTransparent = true;
                 break;
 
             case 2:
@@ -8024,30 +8146,119 @@ public class ECMA48 implements Runnable {
                     || (bytes[2] != (byte) 0xFF)
                 ) {
                     // File does not have JPG header, bail out.
-                    return;
+                    return null;
                 }
                 break;
 
             default:
                 // Unsupported type, bail out.
-                return;
+                return null;
             }
 
             image = ImageIO.read(new ByteArrayInputStream(bytes));
         } catch (IOException e) {
             // SQUASH
-            return;
+            return null;
         }
-        assert (image != null);
-        imageWidth = image.getWidth();
-        imageHeight = image.getHeight();
-        if ((imageWidth < 1)
-            || (imageWidth > 10000)
-            || (imageHeight < 1)
-            || (imageHeight > 10000)
+        if ((image == null)
+            || (image.getWidth() < 1)
+            || (image.getWidth() > 10000)
+            || (image.getHeight() < 1)
+            || (image.getHeight() > 10000)
         ) {
+            return null;
+        }
+        return image;
+    }
+
+    /**
+     * Save a "Jexer" PNG or JPG image to be placed later by id.
+     *
+     * @param pid id token
+     * @param ptype type token: 1 for PNG, 2 for JPG
+     * @param data pixel data
+     */
+    private void uploadJexerImageFile(final String pid, final String ptype,
+        final String data) {
+
+        int type = 0;
+        if (ptype.equals("1")) {
+            type = 1;
+        } else if (ptype.equals("2")) {
+            type = 2;
+        } else {
+            return;
+        }
+        BufferedImage image = decodeJexerImageFile(type, data);
+        if (image == null) {
+            return;
+        }
+        boolean maybeTransparent = (type == 1);
+
+        putJexerImage(pid, new JexerImage(image, maybeTransparent));
+    }
+
+    /**
+     * Save a "Jexer" RGB image to be placed later by id.
+     *
+     * @param pid id token
+     * @param pw width token
+     * @param ph height token
+     * @param data pixel data
+     */
+    private void uploadJexerImageRGB(final String pid, final String pw,
+        final String ph, final String data) {
+
+        BufferedImage image = decodeJexerImageRGB(pw, ph, data);
+        if (image == null) {
+            return;
+        }
+        putJexerImage(pid, new JexerImage(image, false));
+    }
+
+    /**
+     * Save an uploaded image by id, discarding the least-recently-used
+     * images if there are too many.  The new image is always kept.
+     *
+     * @param pid id token
+     * @param image the image
+     */
+    private void putJexerImage(final String pid, final JexerImage image) {
+        int id = 0;
+        try {
+            id = Integer.parseInt(pid);
+        } catch (NumberFormatException e) {
+            // SQUASH
             return;
         }
+
+        JexerImage oldImage = jexerImages.put(id, image);
+        if (oldImage != null) {
+            jexerImagesBytes -= oldImage.getBytes();
+        }
+        jexerImagesBytes += image.getBytes();
+
+        // Stop at the new image, so that an image larger than the limit
+        // does not evict itself along with everything else.
+        Iterator<JexerImage> it = jexerImages.values().iterator();
+        while ((jexerImagesBytes > JEXER_IMAGES_MAX_BYTES) && it.hasNext()) {
+            JexerImage eldest = it.next();
+            if (eldest == image) {
+                break;
+            }
+            jexerImagesBytes -= eldest.getBytes();
+            it.remove();
+        }
+    }
+
+    /**
+     * Overlay an image uploaded earlier onto the text cells.
+     *
+     * @param pid id token
+     * @param ps scroll token
+     */
+    private void placeJexerImage(final String pid, final String ps) {
+        boolean scroll = false;
         if (ps.equals("1")) {
             scroll = true;
         } else if (ps.equals("0")) {
@@ -8055,13 +8266,35 @@ public class ECMA48 implements Runnable {
         } else {
             return;
         }
-        if (maybeTransparent) {
-            if (image.getTransparency() == java.awt.Transparency.OPAQUE) {
-                maybeTransparent = false;
-            }
+
+        JexerImage image = null;
+        try {
+            image = jexerImages.get(Integer.parseInt(pid));
+        } catch (NumberFormatException e) {
+            // SQUASH
+            return;
+        }
+        if (image == null) {
+            // Never uploaded, or already freed.
+            return;
         }
+        imageToCells(image.image, scroll, image.maybeTransparent);
+    }
 
-        imageToCells(image, scroll, maybeTransparent);
+    /**
+     * Discard an image uploaded earlier.
+     *
+     * @param pid id token
+     */
+    private void freeJexerImage(final String pid) {
+        try {
+            JexerImage image = jexerImages.remove(Integer.parseInt(pid));
+            if (image != null) {
+                jexerImagesBytes -= image.getBytes();
+            }
+        } catch (NumberFormatException e) {
+            // SQUASH
+        }
     }
 
     /**
@@ -8369,69 +8602,15 @@ public class ECMA48 implements Runnable {
             image = newImage;
         }
 
-        // Break the image up into an array of cells.
+        // Cut the image into cells as they are placed, so that cells past
+        // the right margin or the bottom of the screen are never made.
+        if (imageTiler == null) {
+            imageTiler = new ImageTiler();
+        }
+        imageTiler.setImage(image, textWidth, textHeight);
         int imageId = System.identityHashCode(this);
         imageId ^= (int) System.currentTimeMillis();
-        Cell [][] cells = new Cell[cellColumns][cellRows];
-        for (int x = 0; x < cellColumns; x++) {
-            for (int y = 0; y < cellRows; y++) {
-                int width = textWidth;
-                if ((x + 1) * textWidth > image.getWidth()) {
-                    width = image.getWidth() - (x * textWidth);
-                }
-                int height = textHeight;
-                if ((y + 1) * textHeight > image.getHeight()) {
-                    height = image.getHeight() - (y * textHeight);
-                }
-
-                // I'm genuinely not sure if making many small cells with
-                // array copy is better than lots of sumImages.  Memory
-                // pressure is killing it at high animation rates.  For now,
-                // we will ALWAYS make a copy.
-                Cell cell = new Cell();
-
-                BufferedImage imageSlice = image.getSubimage(x * textWidth,
-                    y * textHeight, width, height);
-
-                if (ImageUtils.isFullyTransparent(imageSlice)) {
-                    // There is nothing more to do, this entire image is
-                    // empty.
-
-                    // NOP
-                } else {
-                    BufferedImage newImage;
-                    newImage = new BufferedImage(textWidth, textHeight,
-                        BufferedImage.TYPE_INT_ARGB);
-                    java.awt.Graphics gr = newImage.getGraphics();
-                    gr.setColor(java.awt.Color.BLACK);
-                    if (!transparent) {
-                        gr.fillRect(0, 0, newImage.getWidth(),
-                            newImage.getHeight());
-                    }
-                    gr.drawImage(imageSlice, 0, 0, null, null);
-                    gr.dispose();
-
-                    imageId++;
-                    cell.setImage(newImage, imageId & 0x7FFFFFFF);
-
-                    if (maybeTransparent) {
-                        // Check now if this cell has transparent pixels.
-                        // This will slow down the reader thread but unload
-                        // the render thread.
-                        //
-                        // Truth is performance is going to be bad for a
-                        // while...
-                        cell.isTransparentImage();
-                    } else {
-                        // We support transparency, but this image doesn't
-                        // have any transparent pixels.  Force the cell to
-                        // never check transparency.
-                        cell.setOpaqueImage();
-                    }
-                }
-                cells[x][y] = cell;
-            }
-        }
+        Cell cell = new Cell();
 
         int x0 = currentState.cursorX;
         int y0 = currentState.cursorY;
@@ -8445,10 +8624,50 @@ public class ECMA48 implements Runnable {
                 // Keep the character data from the old cell, putting the
                 // image data over it.
                 Cell oldCell = line.charAt(currentState.cursorX);
-                cells[x][y].setChar(oldCell.getChar());
-                cells[x][y].setAttr(oldCell, true);
+
+                ImageTiler.Coverage coverage = imageTiler.copyTile(x, y);
+                if ((coverage != ImageTiler.Coverage.EMPTY) && !transparent) {
+                    imageTiler.fillBackground(0x000000);
+                    coverage = ImageTiler.Coverage.OPAQUE;
+                }
+                if ((coverage == ImageTiler.Coverage.EMPTY)
+                    || ((coverage == ImageTiler.Coverage.OPAQUE)
+                        && oldCell.isImage()
+                        && !oldCell.isInvertedImage()
+                        && imageTiler.matches(oldCell.getImage()))
+                ) {
+                    // Either this entire cell is empty, or it is the same
+                    // picture that is already here, as happens in most of
+                    // the screen in an animation.  Leave the old cell and
+                    // its image IDs alone, so that nothing downstream sees a
+                    // change.
+                    if (currentState.cursorX == rightMargin) {
+                        break;
+                    }
+                    currentState.cursorX++;
+                    continue;
+                }
+
+                imageId++;
+                cell.setImage(imageTiler.createImage(), imageId & 0x7FFFFFFF);
+                if (maybeTransparent
+                    && (coverage == ImageTiler.Coverage.TRANSLUCENT)
+                ) {
+                    // Check now if this cell has transparent pixels.  This
+                    // will slow down the reader thread but unload the render
+                    // thread.
+                    cell.isTransparentImage();
+                } else {
+                    // We support transparency, but this image doesn't have
+                    // any transparent pixels.  Force the cell to never check
+                    // transparency.
+                    cell.setOpaqueImage();
+                }
+
+                cell.setChar(oldCell.getChar());
+                cell.setAttr(oldCell, true);
                 if (transparent && maybeTransparent
-                    && cells[x][y].isTransparentImage()
+                    && cell.isTransparentImage()
                 ) {
                     if (oldCell.isImage()) {
                         // Blit the old cell image underneath this cell's
@@ -8459,10 +8678,10 @@ public class ECMA48 implements Runnable {
                         java.awt.Graphics gr = newImage.getGraphics();
                         gr.setColor(java.awt.Color.BLACK);
                         gr.drawImage(oldCell.getImage(), 0, 0, null, null);
-                        gr.drawImage(cells[x][y].getImage(), 0, 0, null, null);
+                        gr.drawImage(cell.getImage(), 0, 0, null, null);
                         gr.dispose();
-                        cells[x][y].setImage(newImage);
-                        cells[x][y].isTransparentImage();
+                        cell.setImage(newImage);
+                        cell.isTransparentImage();
                     } else if (false) {
                         // This path would be good for the ECMA48 backend, as
                         // it renders all images onto cells at once.  On the
@@ -8484,15 +8703,13 @@ public class ECMA48 implements Runnable {
                         java.awt.Graphics gr = newImage.getGraphics();
                         gr.setColor(java.awt.Color.BLACK);
                         gr.drawImage(textImage, 0, 0, null, null);
-                        gr.drawImage(cells[x][y].getImage(), 0, 0, null, null);
+                        gr.drawImage(cell.getImage(), 0, 0, null, null);
                         gr.dispose();
-                        cells[x][y].setImage(newImage);
-                        cells[x][y].isTransparentImage();
+                        cell.setImage(newImage);
+                        cell.isTransparentImage();
                     }
                 }
-                if (cells[x][y].isImage()) {
-                    line.replace(currentState.cursorX, cells[x][y]);
-                }
+                line.replace(currentState.cursorX, cell);
 
                 // If at the end of the visible screen, stop.
                 if (currentState.cursorX == rightMargin) {
@@ -8515,6 +8732,8 @@ public class ECMA48 implements Runnable {
             cursorPosition(currentState.cursorY, x0);
         }
 
+        imageTiler.clear();
+
         if (scroll == false) {
             cursorPosition(y0, x0);
         }
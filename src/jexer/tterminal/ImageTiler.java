@@ -0,0 +1,309 @@
+/*
+ * Jexer - Java Text User Interface
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2022 Autumn Lamonte
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * @author Autumn Lamonte ⚧ Trans Liberation Now
+ * @version 1
+ */
+package jexer.tterminal;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * ImageTiler cuts an image into text cell sized tiles.  Each band of tiles
+ * is read from the source raster once, tiles are copied out of it into a
+ * reused pixel buffer, and transparency is found during the copy.  A tile
+ * only becomes a BufferedImage if it is needed, so tiles that are empty or
+ * that match the image already on screen cost no allocation.
+ *
+ * An ImageTiler is not thread-safe; each terminal owns one.
+ */
+class ImageTiler {
+
+    // ------------------------------------------------------------------------
+    // Constants --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * How much of a tile the image covers.
+     */
+    enum Coverage {
+        /**
+         * Every pixel is fully transparent.
+         */
+        EMPTY,
+
+        /**
+         * Every pixel is fully opaque.
+         */
+        OPAQUE,
+
+        /**
+         * Some pixels are at least partly transparent.
+         */
+        TRANSLUCENT,
+    }
+
+    // ------------------------------------------------------------------------
+    // Variables --------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * The image being cut.
+     */
+    private BufferedImage image;
+
+    /**
+     * The width of a tile in pixels.
+     */
+    private int textWidth;
+
+    /**
+     * The height of a tile in pixels.
+     */
+    private int textHeight;
+
+    /**
+     * The ARGB pixels of one band of tiles across the whole image.
+     */
+    private int [] band = new int[0];
+
+    /**
+     * The tile row in band, or -1 if band has not been read.
+     */
+    private int bandRow = -1;
+
+    /**
+     * The number of image pixel rows in band.
+     */
+    private int bandHeight = 0;
+
+    /**
+     * The ARGB pixels of the last tile copied.
+     */
+    private int [] tile = new int[0];
+
+    /**
+     * The coverage of the last tile copied.
+     */
+    private Coverage coverage = Coverage.EMPTY;
+
+    /**
+     * Scratch buffer for comparing against another image.
+     */
+    private int [] other = new int[0];
+
+    // ------------------------------------------------------------------------
+    // ImageTiler -------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+     * Start cutting a new image.
+     *
+     * @param image the image
+     * @param textWidth the width of a tile in pixels
+     * @param textHeight the height of a tile in pixels
+     */
+    public void setImage(final BufferedImage image, final int textWidth,
+        final int textHeight) {
+
+        this.image = image;
+        this.textWidth = textWidth;
+        this.textHeight = textHeight;
+        bandRow = -1;
+        if (tile.length != textWidth * textHeight) {
+            tile = new int[textWidth * textHeight];
+        }
+    }
+
+    /**
+     * Forget the image, so that it can be garbage collected.
+     */
+    public void clear() {
+        image = null;
+        bandRow = -1;
+    }
+
+    /**
+     * Copy one tile into the tile buffer.  Tiles on the right and bottom
+     * edges are padded with transparent pixels.
+     *
+     * @param column the tile column
+     * @param row the tile row
+     * @return how much of the tile the image covers
+     */
+    public Coverage copyTile(final int column, final int row) {
+        if (row != bandRow) {
+            readBand(row);
+        }
+        int imageWidth = image.getWidth();
+        int x0 = column * textWidth;
+        int width = Math.min(textWidth, imageWidth - x0);
+
+        boolean anyVisible = false;
+        boolean allOpaque = ((width == textWidth)
+            && (bandHeight == textHeight));
+        for (int y = 0; y < textHeight; y++) {
+            int dst = y * textWidth;
+            if (y >= bandHeight) {
+                Arrays.fill(tile, dst, dst + textWidth, 0);
+                continue;
+            }
+            int src = y * imageWidth + x0;
+            for (int x = 0; x < width; x++) {
+                int pixel = band[src + x];
+                int alpha = pixel >>> 24;
+                if (alpha == 0) {
+                    // All invisible pixels are the same, so that equal
+                    // looking tiles have equal contents.
+                    pixel = 0;
+                } else {
+                    anyVisible = true;
+                }
+                if (alpha != 0xFF) {
+                    allOpaque = false;
+                }
+                tile[dst + x] = pixel;
+            }
+            if (width < textWidth) {
+                Arrays.fill(tile, dst + width, dst + textWidth, 0);
+            }
+        }
+
+        if (allOpaque) {
+            coverage = Coverage.OPAQUE;
+        } else if (anyVisible) {
+            coverage = Coverage.TRANSLUCENT;
+        } else {
+            coverage = Coverage.EMPTY;
+        }
+        return coverage;
+    }
+
+    /**
+     * Draw the last tile copied over an opaque background color.
+     *
+     * @param rgb the background color, as 0xRRGGBB
+     */
+    public void fillBackground(final int rgb) {
+        if (coverage == Coverage.OPAQUE) {
+            return;
+        }
+        int backRed = (rgb >>> 16) & 0xFF;
+        int backGreen = (rgb >>> 8) & 0xFF;
+        int backBlue = rgb & 0xFF;
+        for (int i = 0; i < tile.length; i++) {
+            int pixel = tile[i];
+            int alpha = pixel >>> 24;
+            if (alpha == 0xFF) {
+                continue;
+            }
+            int red = (pixel >>> 16) & 0xFF;
+            int green = (pixel >>> 8) & 0xFF;
+            int blue = pixel & 0xFF;
+            red = (red * alpha + backRed * (0xFF - alpha) + 127) / 0xFF;
+            green = (green * alpha + backGreen * (0xFF - alpha) + 127) / 0xFF;
+            blue = (blue * alpha + backBlue * (0xFF - alpha) + 127) / 0xFF;
+            tile[i] = 0xFF000000 | (red << 16) | (green << 8) | blue;
+        }
+        coverage = Coverage.OPAQUE;
+    }
+
+    /**
+     * See if another image has exactly the pixels of the last tile copied.
+     *
+     * @param otherImage the other image
+     * @return true if the pixels are the same
+     */
+    public boolean matches(final BufferedImage otherImage) {
+        if ((otherImage == null)
+            || (otherImage.getWidth() != textWidth)
+            || (otherImage.getHeight() != textHeight)
+        ) {
+            return false;
+        }
+        if (other.length != tile.length) {
+            other = new int[tile.length];
+        }
+        readPixels(otherImage, 0, 0, textWidth, textHeight, other);
+        for (int i = 0; i < tile.length; i++) {
+            if (other[i] != tile[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Make a new image from the last tile copied.
+     *
+     * @return a textWidth x textHeight ARGB image
+     */
+    public BufferedImage createImage() {
+        BufferedImage newImage = new BufferedImage(textWidth, textHeight,
+            BufferedImage.TYPE_INT_ARGB);
+        newImage.getRaster().setDataElements(0, 0, textWidth, textHeight,
+            tile);
+        return newImage;
+    }
+
+    /**
+     * Read one band of tiles from the image.
+     *
+     * @param row the tile row
+     */
+    private void readBand(final int row) {
+        int imageWidth = image.getWidth();
+        int y0 = row * textHeight;
+        bandHeight = Math.min(textHeight, image.getHeight() - y0);
+        if (band.length < imageWidth * bandHeight) {
+            band = new int[imageWidth * textHeight];
+        }
+        readPixels(image, 0, y0, imageWidth, bandHeight, band);
+        bandRow = row;
+    }
+
+    /**
+     * Read ARGB pixels from an image.  ARGB images are read straight from
+     * their raster; anything else goes through the color model.
+     *
+     * @param source the image
+     * @param x the left pixel column
+     * @param y the top pixel row
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param pixels the array to read into, at least width * height long
+     */
+    private static void readPixels(final BufferedImage source, final int x,
+        final int y, final int width, final int height, final int [] pixels) {
+
+        if (source.getType() == BufferedImage.TYPE_INT_ARGB) {
+            source.getRaster().getDataElements(x, y, width, height, pixels);
+        } else {
+            source.getRGB(x, y, width, height, pixels, 0, width);
+        }
+    }
+
+}
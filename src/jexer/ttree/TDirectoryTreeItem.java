@@ -30,17 +30,28 @@ package jexer.ttree;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.LinkedList;
+import java.util.ResourceBundle;
 
+import jexer.TApplication;
 import jexer.TWidget;
+import jexer.io.DirectoryScanner;
 
 /**
- * TDirectoryTreeItem is a single item in a disk directory tree view.
+ * TDirectoryTreeItem is a single item in a disk directory tree view.  The
+ * subdirectories are read on a background thread when the item is
+ * expanded, and are added to the tree as they are found.
  */
 public class TDirectoryTreeItem extends TTreeItem {
 
+    /**
+     * Translated strings.
+     */
+    private static final ResourceBundle i18n = ResourceBundle.getBundle(TDirectoryTreeItem.class.getName());
+
     // ------------------------------------------------------------------------
     // Variables --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -55,6 +66,28 @@ public class TDirectoryTreeItem extends TTreeItem {
      */
     private TTreeViewWidget treeViewWidget;
 
+    /**
+     * The root item of the tree this item belongs to.
+     */
+    private TDirectoryTreeItem root;
+
+    /**
+     * The scan of this directory, or null if it is not being read.
+     */
+    private DirectoryScanner scanner = null;
+
+    /**
+     * The item shown under this one while it is being read.
+     */
+    private TTreeItem placeholder = null;
+
+    /**
+     * The names of the directories below this one to expand once this one
+     * has been read, the last of which is then selected.  null if there is
+     * nothing to open.
+     */
+    private List<String> openPath = null;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -80,7 +113,8 @@ public class TDirectoryTreeItem extends TTreeItem {
      * @param text text for this item
      * @param expanded if true, have it expanded immediately
      * @param openParents if true, expand all paths up the root path and
-     * return the root path entry
+     * return the root path entry.  The path is opened as its directories
+     * are read, and its last directory is then selected.
      * @throws IOException if a java.io operation throws
      */
     public TDirectoryTreeItem(final TTreeViewWidget view, final String text,
@@ -89,9 +123,9 @@ public class TDirectoryTreeItem extends TTreeItem {
         super(view.getTreeView(), text, false);
 
         this.treeViewWidget = view;
+        this.root = this;
 
         List<String> parentFiles = new LinkedList<String>();
-        boolean oldExpanded = expanded;
 
         // Convert to canonical path
         File rootFile = new File(text);
@@ -118,30 +152,43 @@ public class TDirectoryTreeItem extends TTreeItem {
             assert (!openParents);
             setText(rootFile.getName());
         }
-        onExpand();
+        setSelectable(file.canRead());
 
         if (openParents) {
-            TDirectoryTreeItem childFile = this;
             Collections.reverse(parentFiles);
-            for (String p: parentFiles) {
-                for (TWidget widget: childFile.getChildren()) {
-                    TDirectoryTreeItem child = (TDirectoryTreeItem) widget;
-                    if (child.getText().equals(p)) {
-                        childFile = child;
-                        childFile.setExpanded(true);
-                        childFile.onExpand();
-                        break;
-                    }
-                }
-            }
+            openPath = parentFiles;
             unselect();
-            getTreeView().setSelected(childFile, true);
-            setExpanded(oldExpanded);
+            getTreeView().setSelected(this, true);
         }
+        onExpand();
 
         view.reflowData();
     }
 
+    /**
+     * Private constructor for a subdirectory found by a scan.
+     *
+     * @param parent the item of the directory that contains this one
+     * @param entry the directory entry, which must be a directory with a
+     * canonical file
+     */
+    private TDirectoryTreeItem(final TDirectoryTreeItem parent,
+        final DirectoryScanner.Entry entry) {
+
+        super(parent.getTreeView(), entry.getCanonicalFile().getName(),
+            false);
+
+        this.treeViewWidget = parent.treeViewWidget;
+        this.root = parent.root;
+        this.level = parent.level + 1;
+        file = entry.getCanonicalFile();
+        if (file.getParentFile() == null) {
+            setText(file.getPath());
+        }
+        setSelectable(entry.canRead());
+        setExpandable(true);
+    }
+
     // ------------------------------------------------------------------------
     // TTreeItem --------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -166,46 +213,152 @@ public class TDirectoryTreeItem extends TTreeItem {
         if (file == null) {
             return;
         }
+        if (scanner != null) {
+            scanner.cancel();
+            scanner = null;
+        }
         getChildren().clear();
+        placeholder = null;
 
-        // Make sure we can read it before trying to.
-        if (file.canRead()) {
-            setSelectable(true);
-        } else {
-            setSelectable(false);
-        }
-        assert (file.isDirectory());
         setExpandable(true);
 
         if (!isExpanded() || !isExpandable()) {
             return;
         }
 
-        File [] listFiles = file.listFiles();
-        if (listFiles != null) {
-            for (File f: listFiles) {
-                // System.err.printf("   -> file %s %s\n", file, file.getName());
+        // Show that the directory is being read until the scan is done.
+        placeholder = new TTreeItem(getTreeView(), i18n.getString("loading"),
+            false);
+        placeholder.level = this.level + 1;
+        placeholder.setSelectable(false);
+        getChildren().add(placeholder);
+
+        final TApplication app = getApplication();
+        scanner = new DirectoryScanner(file, new DirectoryScanner.Listener() {
+            public void entriesFound(final DirectoryScanner source,
+                final List<DirectoryScanner.Entry> entries) {
 
-                if (f.getName().startsWith(".")) {
-                    // Hide dot-files
-                    continue;
+                if (app == null) {
+                    // Not on screen yet, this is the calling thread.
+                    addEntries(entries);
+                    return;
                 }
-                if (!f.isDirectory()) {
-                    continue;
+                app.invokeLater(new Runnable() {
+                    public void run() {
+                        if (isCurrentScan(source)) {
+                            addEntries(entries);
+                        }
+                    }
+                });
+            }
+
+            public void scanFinished(final DirectoryScanner source) {
+                if (app == null) {
+                    finishScan();
+                    return;
                 }
+                app.invokeLater(new Runnable() {
+                    public void run() {
+                        if (isCurrentScan(source)) {
+                            finishScan();
+                        }
+                    }
+                });
+            }
+        });
+        if (app == null) {
+            scanner.run();
+        } else {
+            scanner.start();
+        }
+    }
 
-                try {
-                    TDirectoryTreeItem item = new TDirectoryTreeItem(treeViewWidget,
-                        f.getCanonicalPath(), false, false);
+    // ------------------------------------------------------------------------
+    // TDirectoryTreeItem -----------------------------------------------------
+    // ------------------------------------------------------------------------
 
-                    item.level = this.level + 1;
-                    getChildren().add(item);
-                } catch (IOException e) {
-                    continue;
-                }
+    /**
+     * See if a scan is still wanted: it is this item's current scan, and
+     * this item is still part of the tree on screen.  A scan for a tree
+     * that has been given a new root is cancelled.
+     *
+     * @param source the scan
+     * @return true if the scan results should be shown
+     */
+    private boolean isCurrentScan(final DirectoryScanner source) {
+        if (source != scanner) {
+            return false;
+        }
+        if (getTreeView().getTreeRoot() != root) {
+            scanner.cancel();
+            scanner = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Add the subdirectories from a batch of directory entries, keeping
+     * the children sorted.
+     *
+     * @param entries the directory entries
+     */
+    private void addEntries(final List<DirectoryScanner.Entry> entries) {
+        List<TDirectoryTreeItem> items = new ArrayList<TDirectoryTreeItem>();
+        for (DirectoryScanner.Entry entry: entries) {
+            if (entry.getName().startsWith(".")) {
+                // Hide dot-files
+                continue;
+            }
+            if (!entry.isDirectory() || (entry.getCanonicalFile() == null)) {
+                continue;
             }
+            items.add(new TDirectoryTreeItem(this, entry));
         }
+        if (items.size() == 0) {
+            return;
+        }
+
+        getChildren().remove(placeholder);
+        getChildren().addAll(items);
         Collections.sort(getChildren());
+        getChildren().add(placeholder);
+        treeViewWidget.reflowItem(this);
+    }
+
+    /**
+     * Remove the placeholder when the scan is done, and continue opening
+     * the path given to the constructor.
+     */
+    private void finishScan() {
+        scanner = null;
+        getChildren().remove(placeholder);
+        placeholder = null;
+
+        if (openPath != null) {
+            List<String> path = openPath;
+            openPath = null;
+
+            TDirectoryTreeItem selected = this;
+            if (path.size() > 0) {
+                String name = path.remove(0);
+                for (TWidget widget: getChildren()) {
+                    TDirectoryTreeItem child = (TDirectoryTreeItem) widget;
+                    if (child.getText().equals(name)) {
+                        child.openPath = path;
+                        child.setExpanded(true);
+                        child.onExpand();
+                        selected = (child.openPath == null ? null : child);
+                        break;
+                    }
+                }
+            }
+            if (selected != null) {
+                root.unselect();
+                getTreeView().setSelected(selected, true);
+            }
+        }
+        treeViewWidget.reflowItem(this);
     }
 
 }
@@ -38,6 +38,7 @@ import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import static jexer.TKeypress.*;
+import static jexer.bits.ColorTheme.*;
 
 /**
  * TTreeItem is a single item in a tree view.
@@ -95,16 +96,29 @@ public class TTreeItem extends TWidget {
     private boolean last = false;
 
     /**
-     * Pointer to the previous keyboard-navigable item (kbUp).  Note package
-     * private access.
+     * The item whose children include this one, as of the last time the
+     * tree was flattened.  Note package private access.
+     */
+    TTreeItem treeParent = null;
+
+    /**
+     * The number of rows this item and its visible descendants took the
+     * last time the tree was flattened.  Note package private access.
      */
-    TTreeItem keyboardPrevious = null;
+    int rowCount = 1;
 
     /**
-     * Pointer to the next keyboard-navigable item (kbDown).  Note package
+     * The width of this item's row, including the prefix.  Note package
      * private access.
      */
-    TTreeItem keyboardNext = null;
+    int rowWidth = 0;
+
+    /**
+     * The row of this item in its TTreeView, or -1 if it was never shown.
+     * This is only a hint: the view checks that the row still holds this
+     * item.  Note package private access.
+     */
+    int row = -1;
 
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
@@ -164,7 +178,7 @@ public class TTreeItem extends TWidget {
             onExpand();
 
             // Update the screen after any thing has expanded/contracted
-            view.alignTree();
+            view.reflowItem(this);
         } else if (mouse.getY() == 0) {
             // Do the action associated with this item.
             view.setSelected(this, false);
@@ -209,6 +223,7 @@ public class TTreeItem extends TWidget {
             }
             // Let subclasses do something with this
             onExpand();
+            view.reflowItem(this);
         } else if (keypress.equals(kbEnter)) {
             // Do the action associated with this item.
             view.dispatch();
@@ -233,19 +248,20 @@ public class TTreeItem extends TWidget {
 
         int offset = -view.getLeftColumn();
 
-        CellAttributes color = getTheme().getColor("ttreeview");
-        CellAttributes textColor = getTheme().getColor("ttreeview");
-        CellAttributes expanderColor = getTheme().getColor("ttreeview.expandbutton");
-        CellAttributes selectedColor = getTheme().getColor("ttreeview.selected");
+        CellAttributes color = getTheme().getColor(TTREEVIEW);
+        CellAttributes textColor = getTheme().getColor(TTREEVIEW);
+        CellAttributes expanderColor =
+            getTheme().getColor(TTREEVIEW_EXPANDBUTTON);
+        CellAttributes selectedColor = getTheme().getColor(TTREEVIEW_SELECTED);
 
         if (!getParent().isAbsoluteActive()) {
-            color = getTheme().getColor("ttreeview.inactive");
-            textColor = getTheme().getColor("ttreeview.inactive");
-            selectedColor = getTheme().getColor("ttreeview.selected.inactive");
+            color = getTheme().getColor(TTREEVIEW_INACTIVE);
+            textColor = getTheme().getColor(TTREEVIEW_INACTIVE);
+            selectedColor = getTheme().getColor(TTREEVIEW_SELECTED_INACTIVE);
         }
 
         if (!selectable) {
-            textColor = getTheme().getColor("ttreeview.unreadable");
+            textColor = getTheme().getColor(TTREEVIEW_UNREADABLE);
         }
 
         // Blank out the background
@@ -424,12 +440,35 @@ public class TTreeItem extends TWidget {
      */
     public List<TTreeItem> expandTree(final String prefix, final boolean last) {
         List<TTreeItem> array = new ArrayList<TTreeItem>();
+        flatten(prefix, last, treeParent, array);
+        return array;
+    }
+
+    /**
+     * Recursively expand the tree into a linear array of items, recording
+     * each item's parent, row count, and row width along the way.  Note
+     * package private access.
+     *
+     * @param prefix vertical bar of parent levels and such that is set on
+     * each child
+     * @param last if true, this is the "last" leaf node of a tree
+     * @param parentItem the item whose children include this one
+     * @param array the array to append this item and its visible
+     * descendants to
+     * @return the number of items appended
+     */
+    int flatten(final String prefix, final boolean last,
+        final TTreeItem parentItem, final List<TTreeItem> array) {
+
         this.last = last;
         this.prefix = prefix;
+        treeParent = parentItem;
+        rowWidth = prefix.length() + 4 + StringUtils.width(text);
+        rowCount = 1;
         array.add(this);
 
         if ((getChildren().size() == 0) || !expanded) {
-            return array;
+            return rowCount;
         }
 
         String newPrefix = prefix;
@@ -441,15 +480,22 @@ public class TTreeItem extends TWidget {
                 newPrefix += ' ';
             }
         }
-        for (int i = 0; i < getChildren().size(); i++) {
+        int n = getChildren().size();
+        for (int i = 0; i < n; i++) {
             TTreeItem item = (TTreeItem) getChildren().get(i);
-            if (i == getChildren().size() - 1) {
-                array.addAll(item.expandTree(newPrefix, true));
-            } else {
-                array.addAll(item.expandTree(newPrefix, false));
-            }
+            rowCount += item.flatten(newPrefix, (i == n - 1), this, array);
         }
-        return array;
+        return rowCount;
+    }
+
+    /**
+     * Get whether or not this item is last in its parent's list of
+     * children.  Note package private access.
+     *
+     * @return true if this is the last child
+     */
+    boolean isLast() {
+        return last;
     }
 
     /**
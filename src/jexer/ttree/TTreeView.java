@@ -28,6 +28,9 @@
  */
 package jexer.ttree;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import jexer.TAction;
 import jexer.TKeypress;
 import jexer.TWidget;
@@ -35,7 +38,11 @@ import jexer.event.TKeypressEvent;
 import static jexer.TKeypress.*;
 
 /**
- * TTreeView implements a simple tree view.
+ * TTreeView implements a simple tree view.  The expanded items are kept
+ * in a flat list of rows, but only the rows on screen are children of this
+ * widget, so drawing and mouse handling do not depend on the size of the
+ * tree.  Expanding or collapsing an item only re-flattens that item's
+ * subtree.
  */
 public class TTreeView extends TWidget {
 
@@ -68,6 +75,23 @@ public class TTreeView extends TWidget {
      */
     private int leftColumn = 0;
 
+    /**
+     * The expanded items in display order.  Each item's row field holds
+     * its position here.
+     */
+    private ArrayList<TTreeItem> rows = new ArrayList<TTreeItem>();
+
+    /**
+     * The number of rows of each width, used to keep the maximum width
+     * without re-measuring every row.
+     */
+    private int [] widthCounts = new int[64];
+
+    /**
+     * The width of the widest row.
+     */
+    private int maxLineWidth = 0;
+
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -117,17 +141,15 @@ public class TTreeView extends TWidget {
     public void onKeypress(final TKeypressEvent keypress) {
         if (keypress.equals(kbUp)) {
             // Select the previous item
-            if (selectedItem != null) {
-                if (selectedItem.keyboardPrevious != null) {
-                    setSelected(selectedItem.keyboardPrevious, true);
-                }
+            int row = getSelectedRow();
+            if (row > 0) {
+                setSelected(rows.get(row - 1), true);
             }
         } else if (keypress.equals(kbDown)) {
             // Select the next item
-            if (selectedItem != null) {
-                if (selectedItem.keyboardNext != null) {
-                    setSelected(selectedItem.keyboardNext, true);
-                }
+            int row = getSelectedRow();
+            if ((row >= 0) && (row < rows.size() - 1)) {
+                setSelected(rows.get(row + 1), true);
             }
         } else if (keypress.equals(kbPgDn)) {
             for (int i = 0; i < getHeight() - 1; i++) {
@@ -140,11 +162,14 @@ public class TTreeView extends TWidget {
                         TKeypress.kbUp));
             }
         } else if (keypress.equals(kbHome)) {
-            setSelected((TTreeItem) getChildren().get(0), false);
+            if (rows.size() > 0) {
+                setSelected(rows.get(0), false);
+            }
             setTopLine(0);
         } else if (keypress.equals(kbEnd)) {
-            setSelected((TTreeItem) getChildren().get(getChildren().size() - 1),
-                true);
+            if (rows.size() > 0) {
+                setSelected(rows.get(rows.size() - 1), true);
+            }
         } else {
             if (selectedItem != null) {
                 selectedItem.onKeypress(keypress);
@@ -180,7 +205,7 @@ public class TTreeView extends TWidget {
      */
     public final void setTreeRoot(final TTreeItem treeRoot) {
         this.treeRoot = treeRoot;
-        alignTree();
+        reflowTree();
     }
 
     /**
@@ -208,17 +233,15 @@ public class TTreeView extends TWidget {
         }
         selectedItem = item;
 
+        int oldTopLine = topLine;
         if (centerWindow) {
-            int y = 0;
-            for (TWidget widget: getChildren()) {
-                if (widget == selectedItem) {
-                    break;
-                }
-                y++;
+            int y = getSelectedRow();
+            if (y < 0) {
+                y = rows.size();
             }
             topLine = y - (getHeight() - 1)/2;
-            if (topLine > getChildren().size() - getHeight()) {
-                topLine = getChildren().size() - getHeight();
+            if (topLine > rows.size() - getHeight()) {
+                topLine = rows.size() - getHeight();
             }
             if (topLine < 0) {
                 topLine = 0;
@@ -228,6 +251,27 @@ public class TTreeView extends TWidget {
         if (selectedItem != null) {
             activate(selectedItem);
         }
+        // Only a scroll, or a selection that is not on screen, changes the
+        // rows on screen.
+        if ((topLine != oldTopLine)
+            || ((selectedItem != null)
+                && !getChildren().contains(selectedItem))
+        ) {
+            alignTree();
+        }
+    }
+
+    /**
+     * Get the row of the selected item.
+     *
+     * @return the row, or -1 if no item is selected or the selected item
+     * is hidden under a collapsed item
+     */
+    public int getSelectedRow() {
+        if (selectedItem == null) {
+            return -1;
+        }
+        return findRow(selectedItem);
     }
 
     /**
@@ -285,47 +329,151 @@ public class TTreeView extends TWidget {
         if (treeRoot == null) {
             return 0;
         }
-        return getChildren().size();
+        return rows.size();
     }
 
     /**
      * Get the length of the widest item to display.
      *
-     * @return the maximum number of columns for this item or its children
+     * @return the maximum number of columns of the expanded items
      */
     public int getMaximumColumn() {
         if (treeRoot == null) {
             return 0;
         }
-        return treeRoot.getMaximumColumn();
+        return maxLineWidth;
     }
 
     /**
-     * Update the Y positions of all the children items to match the current
-     * topLine value.  Note package private access.
+     * Re-flatten the whole tree.  Call this after changing the items in
+     * ways that reflowItem() cannot see, such as setting a new root.
      */
-    void alignTree() {
-        if (treeRoot == null) {
+    public void reflowTree() {
+        rows.clear();
+        widthCounts = new int[64];
+        maxLineWidth = 0;
+        if (treeRoot != null) {
+            treeRoot.flatten("", true, null, rows);
+            for (int i = 0; i < rows.size(); i++) {
+                TTreeItem item = rows.get(i);
+                item.row = i;
+                addRowWidth(item.rowWidth);
+            }
+        }
+        alignTree();
+    }
+
+    /**
+     * Re-flatten the rows below one item, after it was expanded or
+     * collapsed or its children changed.  The rest of the tree is not
+     * visited.
+     *
+     * @param item the item that changed
+     */
+    public void reflowItem(final TTreeItem item) {
+        int row = findRow(item);
+        if (row < 0) {
+            // Hidden under a collapsed item, or not in this tree yet.
+            alignTree();
             return;
         }
 
-        // As we walk the list we also adjust next/previous pointers,
-        // resulting in a doubly-linked list but only of the expanded items.
-        TTreeItem p = null;
+        int oldCount = item.rowCount;
+        for (int i = row; i < row + oldCount; i++) {
+            removeRowWidth(rows.get(i).rowWidth);
+        }
+        List<TTreeItem> newRows = new ArrayList<TTreeItem>();
+        item.flatten(item.getPrefix(), item.isLast(), item.treeParent,
+            newRows);
+        for (TTreeItem newRow: newRows) {
+            addRowWidth(newRow.rowWidth);
+        }
+        rows.subList(row, row + oldCount).clear();
+        rows.addAll(row, newRows);
+
+        // Renumber the new rows, and the rows after them if they moved.
+        int delta = newRows.size() - oldCount;
+        int end = (delta == 0 ? row + newRows.size() : rows.size());
+        for (int i = row; i < end; i++) {
+            rows.get(i).row = i;
+        }
 
-        for (int i = 0; i < getChildren().size(); i++) {
-            TTreeItem item = (TTreeItem) getChildren().get(i);
+        // Keep the ancestors' row counts current.
+        for (TTreeItem p = item.treeParent; p != null; p = p.treeParent) {
+            p.rowCount += delta;
+        }
+        alignTree();
+    }
 
-            if (p != null) {
-                item.keyboardPrevious = p;
-                p.keyboardNext = item;
-            }
-            p = item;
+    /**
+     * Find the row of an item.
+     *
+     * @param item the item
+     * @return the row, or -1 if the item is not shown
+     */
+    private int findRow(final TTreeItem item) {
+        int row = item.row;
+        if ((row >= 0) && (row < rows.size()) && (rows.get(row) == item)) {
+            return row;
+        }
+        return -1;
+    }
+
+    /**
+     * Count a row width towards the maximum width.
+     *
+     * @param width the row width
+     */
+    private void addRowWidth(final int width) {
+        if (width >= widthCounts.length) {
+            int [] newCounts = new int[Math.max(width + 1,
+                    widthCounts.length * 2)];
+            System.arraycopy(widthCounts, 0, newCounts, 0,
+                widthCounts.length);
+            widthCounts = newCounts;
+        }
+        widthCounts[width]++;
+        if (width > maxLineWidth) {
+            maxLineWidth = width;
+        }
+    }
+
+    /**
+     * Remove a row width from the maximum width.
+     *
+     * @param width the row width
+     */
+    private void removeRowWidth(final int width) {
+        widthCounts[width]--;
+        while ((maxLineWidth > 0) && (widthCounts[maxLineWidth] == 0)) {
+            maxLineWidth--;
+        }
+    }
 
+    /**
+     * Make the rows on screen the children of this widget, and update
+     * their Y positions to match the current topLine value.  Note package
+     * private access.
+     */
+    void alignTree() {
+        if (treeRoot == null) {
+            return;
+        }
+
+        getChildren().clear();
+        int end = Math.min(rows.size(), topLine + getHeight());
+        for (int i = Math.max(0, topLine); i < end; i++) {
+            TTreeItem item = rows.get(i);
             item.setY(i - topLine);
             item.setWidth(getWidth());
+            getChildren().add(item);
         }
 
+        // The selected item is drawn even when it is not a child, so move
+        // it off screen when it is scrolled away.
+        if ((selectedItem != null) && !getChildren().contains(selectedItem)) {
+            selectedItem.setY(-1);
+        }
     }
 
 }
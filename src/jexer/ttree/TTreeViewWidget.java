@@ -34,7 +34,6 @@ import jexer.TKeypress;
 import jexer.TScrollableWidget;
 import jexer.TVScroller;
 import jexer.TWidget;
-import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import jexer.event.TResizeEvent;
@@ -60,11 +59,6 @@ public class TTreeViewWidget extends TScrollableWidget {
      */
     private boolean centerWindow = false;
 
-    /**
-     * Maximum width of a single line.
-     */
-    private int maxLineWidth;
-
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -149,7 +143,7 @@ public class TTreeViewWidget extends TScrollableWidget {
         // Update the view to reflect the new scrollbar positions
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     /**
@@ -165,7 +159,7 @@ public class TTreeViewWidget extends TScrollableWidget {
         // Update the view to reflect the new scrollbar positions
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     /**
@@ -181,7 +175,7 @@ public class TTreeViewWidget extends TScrollableWidget {
         // Update the view to reflect the new scrollbar positions
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     /**
@@ -226,25 +220,18 @@ public class TTreeViewWidget extends TScrollableWidget {
                 treeView.onKeypress(new TKeypressEvent(keypress.getBackend(),
                         TKeypress.kbDown));
             }
-            reflowData();
+            updateView();
             return;
         } else if (keypress.equals(kbPgUp)) {
             for (int i = 0; i < getHeight() - 2; i++) {
                 treeView.onKeypress(new TKeypressEvent(keypress.getBackend(),
                         TKeypress.kbUp));
             }
-            reflowData();
+            updateView();
             return;
-        } else if (keypress.equals(kbHome)) {
-            treeView.setSelected((TTreeItem) treeView.getChildren().get(0),
-                false);
-            treeView.setTopLine(0);
-            reflowData();
-            return;
-        } else if (keypress.equals(kbEnd)) {
-            treeView.setSelected((TTreeItem)  treeView.getChildren().get(
-                treeView.getChildren().size() - 1), true);
-            reflowData();
+        } else if (keypress.equals(kbHome) || keypress.equals(kbEnd)) {
+            treeView.onKeypress(keypress);
+            updateView();
             return;
         } else if (keypress.equals(kbTab)) {
             getParent().switchWidget(true);
@@ -257,14 +244,14 @@ public class TTreeViewWidget extends TScrollableWidget {
             treeView.onKeypress(keypress);
 
             // Update the scrollbars to reflect the new data position
-            reflowData();
+            updateView();
             return;
         }
 
         // Update the view to reflect the new scrollbar position
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     // ------------------------------------------------------------------------
@@ -288,7 +275,7 @@ public class TTreeViewWidget extends TScrollableWidget {
         if (treeView != null) {
             treeView.setWidth(getWidth() - 1);
         }
-        reflowData();
+        updateView();
     }
 
     /**
@@ -308,11 +295,12 @@ public class TTreeViewWidget extends TScrollableWidget {
         if (treeView != null) {
             treeView.setHeight(getHeight() - 1);
         }
-        reflowData();
+        updateView();
     }
 
     /**
-     * Resize text and scrollbars for a new width/height.
+     * Re-flatten the tree, then resize text and scrollbars for a new
+     * width/height.
      */
     @Override
     public void reflowData() {
@@ -320,40 +308,32 @@ public class TTreeViewWidget extends TScrollableWidget {
             return;
         }
 
-        int selectedRow = 0;
-        boolean foundSelectedRow = false;
-
-        // Reset the keyboard list, expandTree() will recreate it.
-        for (TWidget widget: treeView.getChildren()) {
-            TTreeItem item = (TTreeItem) widget;
-            item.keyboardPrevious = null;
-            item.keyboardNext = null;
-        }
-
-        // Expand the tree into a linear list
-        treeView.getChildren().clear();
-        treeView.getChildren().addAll(treeView.getTreeRoot().expandTree("",
-                true));
-
-        // Locate the selected row and maximum line width
-        for (TWidget widget: treeView.getChildren()) {
-            TTreeItem item = (TTreeItem) widget;
+        treeView.reflowTree();
+        updateView();
+    }
 
-            if (item == treeView.getSelected()) {
-                foundSelectedRow = true;
-            }
-            if (!foundSelectedRow) {
-                selectedRow++;
-            }
+    /**
+     * Re-flatten the rows below one item, after it was expanded or
+     * collapsed or its children changed, then update the scrollbars.
+     *
+     * @param item the item that changed
+     */
+    public void reflowItem(final TTreeItem item) {
+        treeView.reflowItem(item);
+        updateView();
+    }
 
-            int lineWidth = StringUtils.width(item.getText())
-                + item.getPrefix().length() + 4;
-            if (lineWidth > maxLineWidth) {
-                maxLineWidth = lineWidth;
-            }
+    /**
+     * Put the selected item in view if requested, place the rows on screen,
+     * and update the scrollbars.  The tree is not re-flattened.
+     */
+    private void updateView() {
+        if (treeView == null) {
+            return;
         }
 
-        if ((centerWindow) && (foundSelectedRow)) {
+        int selectedRow = treeView.getSelectedRow();
+        if ((centerWindow) && (selectedRow >= 0)) {
             if ((selectedRow < getVerticalValue())
                 || (selectedRow > getVerticalValue() + getHeight() - 2)
             ) {
@@ -372,11 +352,10 @@ public class TTreeViewWidget extends TScrollableWidget {
         if (getVerticalValue() > getBottomValue()) {
             setVerticalValue(getBottomValue());
         }
-        setRightValue(maxLineWidth - 2);
+        setRightValue(treeView.getMaximumColumn() - 2);
         if (getHorizontalValue() > getRightValue()) {
             setHorizontalValue(getRightValue());
         }
-
     }
 
     // ------------------------------------------------------------------------
@@ -34,7 +34,6 @@ import jexer.THScroller;
 import jexer.TScrollableWindow;
 import jexer.TVScroller;
 import jexer.TWidget;
-import jexer.bits.StringUtils;
 import jexer.event.TKeypressEvent;
 import jexer.event.TMouseEvent;
 import jexer.event.TResizeEvent;
@@ -61,11 +60,6 @@ public class TTreeViewWindow extends TScrollableWindow {
      */
     private boolean centerWindow = false;
 
-    /**
-     * Maximum width of a single line.
-     */
-    private int maxLineWidth;
-
     // ------------------------------------------------------------------------
     // Constructors -----------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -143,7 +137,7 @@ public class TTreeViewWindow extends TScrollableWindow {
         // Update the view to reflect the new scrollbar positions
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     /**
@@ -159,7 +153,7 @@ public class TTreeViewWindow extends TScrollableWindow {
         // Update the view to reflect the new scrollbar positions
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     /**
@@ -175,7 +169,7 @@ public class TTreeViewWindow extends TScrollableWindow {
         // Update the view to reflect the new scrollbar positions
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     /**
@@ -232,14 +226,14 @@ public class TTreeViewWindow extends TScrollableWindow {
             treeView.onKeypress(keypress);
 
             // Update the scrollbars to reflect the new data position
-            reflowData();
+            updateView();
             return;
         }
 
         // Update the view to reflect the new scrollbar position
         treeView.setTopLine(getVerticalValue());
         treeView.setLeftColumn(getHorizontalValue());
-        reflowData();
+        updateView();
     }
 
     // ------------------------------------------------------------------------
@@ -267,50 +261,28 @@ public class TTreeViewWindow extends TScrollableWindow {
             if (treeView.getSelected() != null) {
                 treeView.setSelected(treeView.getSelected(), true);
             }
-            reflowData();
+            updateView();
             return;
         }
     }
 
     /**
-     * Resize text and scrollbars for a new width/height.
+     * Re-flatten the tree, then resize text and scrollbars for a new
+     * width/height.
      */
     @Override
     public void reflowData() {
-        int selectedRow = 0;
-        boolean foundSelectedRow = false;
-
-        // Reset the keyboard list, expandTree() will recreate it.
-        for (TWidget widget: treeView.getChildren()) {
-            TTreeItem item = (TTreeItem) widget;
-            item.keyboardPrevious = null;
-            item.keyboardNext = null;
-        }
-
-        // Expand the tree into a linear list
-        treeView.getChildren().clear();
-        treeView.getChildren().addAll(treeView.getTreeRoot().expandTree("",
-                true));
-
-        // Locate the selected row and maximum line width
-        for (TWidget widget: treeView.getChildren()) {
-            TTreeItem item = (TTreeItem) widget;
-
-            if (item == treeView.getSelected()) {
-                foundSelectedRow = true;
-            }
-            if (!foundSelectedRow) {
-                selectedRow++;
-            }
-
-            int lineWidth = StringUtils.width(item.getText())
-                + item.getPrefix().length() + 4;
-            if (lineWidth > maxLineWidth) {
-                maxLineWidth = lineWidth;
-            }
-        }
+        treeView.reflowTree();
+        updateView();
+    }
 
-        if ((centerWindow) && (foundSelectedRow)) {
+    /**
+     * Put the selected item in view if requested, place the rows on screen,
+     * and update the scrollbars.  The tree is not re-flattened.
+     */
+    private void updateView() {
+        int selectedRow = treeView.getSelectedRow();
+        if ((centerWindow) && (selectedRow >= 0)) {
             if ((selectedRow < getVerticalValue())
                 || (selectedRow > getVerticalValue() + getHeight() - 3)
             ) {
@@ -329,7 +301,7 @@ public class TTreeViewWindow extends TScrollableWindow {
         if (getVerticalValue() > getBottomValue()) {
             setVerticalValue(getBottomValue());
         }
-        setRightValue(maxLineWidth - 4);
+        setRightValue(treeView.getMaximumColumn() - 4);
         if (getHorizontalValue() > getRightValue()) {
             setHorizontalValue(getRightValue());
         }